@@ -0,0 +1,379 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Asynchronous log for the executions selected by a {@link DebugLevel} capture
+ * policy (see {@link DebugLevel#sampled(int)},
+ * {@link DebugLevel#slowerThan(long, TimeUnit)} and
+ * {@link DebugLevel#budget(int)}). Set it with
+ * {@link StatementFactory#setStatementLog(AsyncStatementLog)}.
+ * <p>
+ * Executing threads only take a snapshot of the statement (template, bind
+ * variable values and timings) and offer it to a bounded, lock-free queue.
+ * When the queue is full the snapshot is dropped and counted (see
+ * {@link #getDropped()}), so a logging backlog never slows down database
+ * calls. A background thread renders the snapshots with their
+ * {@link SqlFormatter} and writes them in batches to a {@link Writer} (e.g. a
+ * file) or an SLF4J {@link Logger} (whose appender can roll files).
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+public final class AsyncStatementLog implements Closeable {
+
+	/**
+	 * Default maximum number of queued snapshots.
+	 */
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	/**
+	 * Default maximum number of snapshots written at once.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 100;
+
+	/**
+	 * SLF4J Logger for AsyncStatementLog.
+	 */
+	private static final Logger LOGGER =
+	    LoggerFactory.getLogger(AsyncStatementLog.class);
+
+	/**
+	 * How long the writer thread sleeps when the queue is empty.
+	 */
+	private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/**
+	 * How long {@link #close()} waits for the writer thread.
+	 */
+	private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+	/**
+	 * Platform line separator.
+	 */
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	/**
+	 * Queued snapshots.
+	 */
+	private final Queue<StatementSnapshot> queue =
+	    new ConcurrentLinkedQueue<StatementSnapshot>();
+
+	/**
+	 * Number of queued snapshots (bounds the queue).
+	 */
+	private final AtomicInteger queued = new AtomicInteger();
+
+	/**
+	 * Number of snapshots dropped because the queue was full.
+	 */
+	private final LongAdder dropped = new LongAdder();
+
+	/**
+	 * Number of snapshots written.
+	 */
+	private final LongAdder written = new LongAdder();
+
+	/**
+	 * Maximum number of queued snapshots.
+	 */
+	private final int capacity;
+
+	/**
+	 * Maximum number of snapshots written at once.
+	 */
+	private final int batchSize;
+
+	/**
+	 * Writer the batches are written to (null if logging to a Logger).
+	 */
+	private final Writer writer;
+
+	/**
+	 * Logger the batches are written to (null if writing to a Writer).
+	 */
+	private final Logger logger;
+
+	/**
+	 * Background writer thread.
+	 */
+	private final Thread thread;
+
+	/**
+	 * Keeps {@link #close()} from clearing {@link #running} while a snapshot
+	 * is being queued, so none is queued after the writer thread's last
+	 * batch.
+	 */
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+	/**
+	 * Set by the writer thread when it has written its last batch.
+	 */
+	private volatile boolean exited;
+
+	/**
+	 * Set when {@link #close()} stopped waiting for the writer thread, which
+	 * then closes the {@link Writer} itself.
+	 */
+	private volatile boolean abandoned;
+
+	/**
+	 * Set once the {@link Writer} has been closed.
+	 */
+	private final AtomicBoolean writerClosed = new AtomicBoolean();
+
+	/**
+	 * Cleared by {@link #close()}.
+	 */
+	private volatile boolean running = true;
+
+	/**
+	 * Creates a log that writes to the given {@link Writer}. The writer is
+	 * flushed after every batch and closed by {@link #close()}.
+	 * 
+	 * @param writer
+	 *            {@link Writer} to write to
+	 * @param capacity
+	 *            maximum number of queued snapshots
+	 * @param batchSize
+	 *            maximum number of snapshots written at once
+	 */
+	public AsyncStatementLog(Writer writer, int capacity, int batchSize) {
+		this(writer, null, capacity, batchSize);
+	}
+
+	/**
+	 * Creates a log that writes to the given SLF4J {@link Logger}. Slow
+	 * statements are logged as warnings and sampled ones as info; each batch
+	 * is logged as a single (multi-line) message.
+	 * 
+	 * @param logger
+	 *            {@link Logger} to write to
+	 * @param capacity
+	 *            maximum number of queued snapshots
+	 * @param batchSize
+	 *            maximum number of snapshots written at once
+	 */
+	public AsyncStatementLog(Logger logger, int capacity, int batchSize) {
+		this(null, logger, capacity, batchSize);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param writer
+	 *            {@link Writer} to write to or null
+	 * @param logger
+	 *            {@link Logger} to write to or null
+	 * @param capacity
+	 *            maximum number of queued snapshots
+	 * @param batchSize
+	 *            maximum number of snapshots written at once
+	 */
+	private AsyncStatementLog(Writer writer, Logger logger, int capacity,
+	    int batchSize) {
+		if (capacity < 1 || batchSize < 1) {
+			throw new IllegalArgumentException(
+			    "capacity and batchSize must be positive: " + capacity + ", "
+			        + batchSize);
+		}
+		this.writer = writer;
+		this.logger = logger;
+		this.capacity = capacity;
+		this.batchSize = batchSize;
+		thread = new Thread(this::run, "async-statement-log");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Queues a snapshot for writing, or drops it if the queue is full or the
+	 * log has been closed.
+	 * 
+	 * @param snapshot
+	 *            {@link StatementSnapshot} to write
+	 * @return false if the snapshot was dropped
+	 */
+	boolean offer(StatementSnapshot snapshot) {
+		Lock lock = closeLock.readLock();
+		lock.lock();
+		try {
+			if (!running) {
+				dropped.increment();
+				return false;
+			}
+			if (queued.incrementAndGet() > capacity) {
+				queued.decrementAndGet();
+				dropped.increment();
+				return false;
+			}
+			queue.offer(snapshot);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return number of snapshots dropped because the queue was full
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * @return number of snapshots written
+	 */
+	public long getWritten() {
+		return written.sum();
+	}
+
+	/**
+	 * @return number of snapshots waiting to be written
+	 */
+	public int getQueued() {
+		return Math.max(queued.get(), 0);
+	}
+
+	/**
+	 * Writer thread loop: write batches until closed and the queue is empty.
+	 * If {@link #close()} stopped waiting for it, the thread closes the
+	 * {@link Writer} itself.
+	 */
+	private void run() {
+		StringBuilder buffer = new StringBuilder();
+		while (running || !queue.isEmpty()) {
+			try {
+				if (!writeBatch(buffer)) {
+					LockSupport.parkNanos(this, IDLE_NANOS);
+				}
+			} catch (RuntimeException e) {
+				LOGGER.error("Error rendering statement log: " + e, e);
+			}
+		}
+		exited = true;
+		if (abandoned) {
+			try {
+				closeWriter();
+			} catch (IOException e) {
+				LOGGER.error("Error closing statement log: " + e, e);
+			}
+		}
+	}
+
+	/**
+	 * Closes the {@link Writer} (if any) unless it has been closed already.
+	 * 
+	 * @throws IOException
+	 *             thrown if closing the writer fails
+	 */
+	private void closeWriter() throws IOException {
+		if (writer != null && writerClosed.compareAndSet(false, true)) {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Renders and writes up to {@link #batchSize} snapshots.
+	 * 
+	 * @param buffer
+	 *            buffer reused for rendering
+	 * @return false if the queue was empty
+	 */
+	private boolean writeBatch(StringBuilder buffer) {
+		buffer.setLength(0);
+		int count = 0;
+		boolean slow = false;
+		StatementSnapshot snapshot;
+		while (count < batchSize && (snapshot = queue.poll()) != null) {
+			queued.decrementAndGet();
+			if (count > 0) {
+				buffer.append(LINE_SEPARATOR);
+			}
+			if (writer != null) {
+				snapshot.appendTimestamp(buffer);
+				buffer.append(' ');
+			}
+			snapshot.appendTo(buffer);
+			slow |= snapshot.isSlow();
+			count++;
+		}
+		if (count == 0) {
+			return false;
+		}
+		try {
+			if (writer != null) {
+				writer.append(buffer).append(LINE_SEPARATOR);
+				writer.flush();
+			} else if (slow) {
+				logger.warn(buffer.toString());
+			} else {
+				logger.info(buffer.toString());
+			}
+			written.add(count);
+		} catch (IOException e) {
+			dropped.add(count);
+			LOGGER.error("Error writing statement log: " + e, e);
+		}
+		return true;
+	}
+
+	/**
+	 * Stops accepting snapshots, writes the queued ones and closes the
+	 * {@link Writer} (if any). If the writer thread doesn't finish within the
+	 * timeout, it keeps writing and closes the {@link Writer} when it is
+	 * done.
+	 * 
+	 * @throws IOException
+	 *             thrown if closing the writer fails
+	 */
+	@Override
+	public void close() throws IOException {
+		Lock lock = closeLock.writeLock();
+		lock.lock();
+		try {
+			running = false;
+		} finally {
+			lock.unlock();
+		}
+		LockSupport.unpark(thread);
+		try {
+			thread.join(CLOSE_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		// whichever of this thread and the writer thread sees the other's
+		// flag closes the writer
+		abandoned = true;
+		if (!exited) {
+			LOGGER.warn("Statement log still writing " + getQueued()
+			    + " snapshots after " + CLOSE_TIMEOUT_MILLIS + " ms");
+			return;
+		}
+		// the thread has exited; nothing can be queued any more
+		while (queue.poll() != null) {
+			queued.decrementAndGet();
+			dropped.increment();
+		}
+		closeWriter();
+	}
+}
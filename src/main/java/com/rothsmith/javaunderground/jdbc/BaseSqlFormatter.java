@@ -13,14 +13,30 @@
  */
 package com.rothsmith.javaunderground.jdbc;
 
+import java.math.BigDecimal;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.Ref;
 import java.sql.SQLException;
+import java.util.UUID;
 
 /**
- * Base class for all database Formatters such as OracleFormatter.
+ * Base class for all database Formatters such as OracleFormatter. Values are
+ * rendered by the {@link SqlRenderer} registered for their type (see
+ * {@link RendererRegistry}); values of other types are rendered with
+ * <code>toString()</code>.
+ * <p>
+ * The cost of rendering large values is bounded: Strings longer than
+ * {@link #getMaxStringLength()} characters are truncated and byte arrays are
+ * rendered as a hex preview of at most {@link #getMaxBytesLength()} bytes,
+ * both followed by a SQL comment with the full length. Blobs and Clobs are
+ * rendered without calling the driver.
+ * </p>
+ * <p>
+ * Single quotes in Strings are doubled, so (unless truncated) a rendered
+ * statement is valid SQL that can be replayed against a database.
+ * </p>
  * 
  * @author Troy Thompson, Bob Byron
  */
@@ -32,9 +48,198 @@ public class BaseSqlFormatter implements SqlFormatter {
 	private static final String NULL = "NULL";
 
 	/**
-	 * Formats a blob to the following String "'&lt;Blob length = " +
-	 * blob.length()+"&gt;'" This method's output will not translate directly
-	 * into the database. It is informational only.
+	 * Rendering of Blobs.
+	 */
+	private static final String BLOB = "'<Blob>'";
+
+	/**
+	 * Rendering of Clobs.
+	 */
+	private static final String CLOB = "'<Clob>'";
+
+	/**
+	 * Default maximum number of characters rendered of a String.
+	 */
+	public static final int DEFAULT_MAX_STRING_LENGTH = 1000;
+
+	/**
+	 * Default maximum number of bytes rendered of a byte array.
+	 */
+	public static final int DEFAULT_MAX_BYTES_LENGTH = 64;
+
+	/**
+	 * Hex digits of the byte array previews.
+	 */
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	/**
+	 * Maximum number of characters rendered of a String.
+	 */
+	private static volatile int maxStringLength = DEFAULT_MAX_STRING_LENGTH;
+
+	/**
+	 * Maximum number of bytes rendered of a byte array.
+	 */
+	private static volatile int maxBytesLength = DEFAULT_MAX_BYTES_LENGTH;
+
+	/**
+	 * Renderers of the generic types.
+	 */
+	private static final RendererRegistry RENDERERS = new RendererRegistry()
+	    .register(String.class, BaseSqlFormatter::renderString)
+	    .register(Character.class, (character, buffer) -> renderString(
+	        character.toString(), buffer))
+	    .register(byte[].class, BaseSqlFormatter::renderBytes)
+	    .register(Integer.class, BaseSqlFormatter::renderIntegral)
+	    .register(Long.class, BaseSqlFormatter::renderIntegral)
+	    .register(Short.class, BaseSqlFormatter::renderIntegral)
+	    .register(Byte.class, BaseSqlFormatter::renderIntegral)
+	    .register(Boolean.class,
+	        (bool, buffer) -> buffer.append(bool.booleanValue()))
+	    .register(BigDecimal.class,
+	        (decimal, buffer) -> buffer.append(decimal.toPlainString()))
+	    .register(UUID.class,
+	        (uuid, buffer) -> buffer.append('\'').append(uuid).append('\''))
+	    .register(StreamPlaceholder.class, (stream, buffer) -> renderString(
+	        stream.toString(), buffer))
+	    .register(Blob.class, (blob, buffer) -> buffer.append(BLOB))
+	    .register(Clob.class, (clob, buffer) -> buffer.append(CLOB))
+	    .register(Array.class,
+	        (array, buffer) -> buffer.append(array.getBaseTypeName()))
+	    .register(Ref.class,
+	        (ref, buffer) -> buffer.append(ref.getBaseTypeName()));
+
+	/**
+	 * Renders an integral number without boxing it into a String.
+	 * 
+	 * @param number
+	 *            Integer, Long, Short or Byte
+	 * @param buffer
+	 *            buffer the number is appended to
+	 */
+	private static void renderIntegral(Number number, StringBuilder buffer) {
+		buffer.append(number.longValue());
+	}
+
+	/**
+	 * Renders a String as a quoted literal, doubling single quotes and
+	 * truncating it to {@link #maxStringLength} characters.
+	 * 
+	 * @param string
+	 *            String to be rendered
+	 * @param buffer
+	 *            buffer the String is appended to
+	 */
+	static void renderString(String string, StringBuilder buffer) {
+		int length = string.length();
+		int end = Math.min(length, maxStringLength);
+		if (end < length && end > 0
+		    && Character.isHighSurrogate(string.charAt(end - 1))) {
+			end--;
+		}
+		buffer.append('\'');
+		int start = 0;
+		for (int i = 0; i < end; i++) {
+			if (string.charAt(i) == '\'') {
+				buffer.append(string, start, i + 1).append('\'');
+				start = i + 1;
+			}
+		}
+		buffer.append(string, start, end).append('\'');
+		if (end < length) {
+			buffer.append("... /* ").append(length).append(" chars */");
+		}
+	}
+
+	/**
+	 * Renders a byte array as a hex literal, truncated to
+	 * {@link #maxBytesLength} bytes.
+	 * 
+	 * @param bytes
+	 *            byte array to be rendered
+	 * @param buffer
+	 *            buffer the byte array is appended to
+	 */
+	private static void renderBytes(byte[] bytes, StringBuilder buffer) {
+		renderHex(bytes, "X'", "'", buffer);
+	}
+
+	/**
+	 * Renders a byte array as hex digits between a dialect's prefix and
+	 * suffix, truncated to {@link #maxBytesLength} bytes.
+	 * 
+	 * @param bytes
+	 *            byte array to be rendered
+	 * @param prefix
+	 *            text before the hex digits, e.g. <code>X'</code>
+	 * @param suffix
+	 *            text after the hex digits, e.g. <code>'</code>
+	 * @param buffer
+	 *            buffer the byte array is appended to
+	 */
+	static void renderHex(byte[] bytes, String prefix, String suffix,
+	    StringBuilder buffer) {
+		int length = Math.min(bytes.length, maxBytesLength);
+		buffer.append(prefix);
+		for (int i = 0; i < length; i++) {
+			buffer.append(HEX_DIGITS[(bytes[i] >> 4) & 0xF])
+			    .append(HEX_DIGITS[bytes[i] & 0xF]);
+		}
+		buffer.append(suffix);
+		if (length < bytes.length) {
+			buffer.append("... /* ").append(bytes.length).append(" bytes */");
+		}
+	}
+
+	/**
+	 * Sets the maximum number of characters rendered of a String; longer
+	 * Strings are truncated.
+	 * 
+	 * @param maxLength
+	 *            maximum number of characters (not negative)
+	 */
+	public static void setMaxStringLength(int maxLength) {
+		if (maxLength < 0) {
+			throw new IllegalArgumentException(
+			    "maxLength must not be negative: " + maxLength);
+		}
+		maxStringLength = maxLength;
+	}
+
+	/**
+	 * @return the maximum number of characters rendered of a String
+	 */
+	public static int getMaxStringLength() {
+		return maxStringLength;
+	}
+
+	/**
+	 * Sets the maximum number of bytes rendered of a byte array; the hex
+	 * preview of longer arrays is truncated.
+	 * 
+	 * @param maxLength
+	 *            maximum number of bytes (not negative)
+	 */
+	public static void setMaxBytesLength(int maxLength) {
+		if (maxLength < 0) {
+			throw new IllegalArgumentException(
+			    "maxLength must not be negative: " + maxLength);
+		}
+		maxBytesLength = maxLength;
+	}
+
+	/**
+	 * @return the maximum number of bytes rendered of a byte array
+	 */
+	public static int getMaxBytesLength() {
+		return maxBytesLength;
+	}
+
+	/**
+	 * Formats a blob to the following String "'&lt;Blob&gt;'". The length is
+	 * not included, as getting it may be a database round trip. This method's
+	 * output will not translate directly into the database. It is
+	 * informational only.
 	 * 
 	 * @param blob
 	 *            The blob to be translated
@@ -43,13 +248,14 @@ public class BaseSqlFormatter implements SqlFormatter {
 	 *             thrown if problems formatting.
 	 */
 	protected final String format(Blob blob) throws SQLException {
-		return "'<Blob length = " + blob.length() + ">'";
+		return BLOB;
 	}
 
 	/**
-	 * Formats a clob to the following String "'&lt;Clob length = " +
-	 * clob.length()+"&gt;'" This method's output will not translate directly
-	 * into the database. It is informational only.
+	 * Formats a clob to the following String "'&lt;Clob&gt;'". The length is
+	 * not included, as getting it may be a database round trip. This method's
+	 * output will not translate directly into the database. It is
+	 * informational only.
 	 * 
 	 * @param clob
 	 *            The clob to be translated
@@ -58,7 +264,7 @@ public class BaseSqlFormatter implements SqlFormatter {
 	 *             thrown if problems formatting.
 	 */
 	protected final String format(Clob clob) throws SQLException {
-		return "'<Clob length = " + clob.length() + ">'";
+		return CLOB;
 	}
 
 	/**
@@ -93,7 +299,8 @@ public class BaseSqlFormatter implements SqlFormatter {
 	}
 
 	/**
-	 * Checks the String for null and returns "'" + string + "'".
+	 * Checks the String for null and returns "'" + string + "'" with single
+	 * quotes doubled, truncated to {@link #getMaxStringLength()} characters.
 	 * 
 	 * @param string
 	 *            String to be formatted
@@ -103,31 +310,52 @@ public class BaseSqlFormatter implements SqlFormatter {
 	 */
 	protected final String format(final java.lang.String string)
 	        throws SQLException {
-		return "'" + string + "'";
+		StringBuilder buffer = new StringBuilder();
+		renderString(string, buffer);
+		return buffer.toString();
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	@SuppressWarnings({ "PMD.OnlyOneReturn", "PMD.CyclomaticComplexity" })
+	@SuppressWarnings("PMD.OnlyOneReturn")
 	public String format(final Object object) throws SQLException {
 		if (object == null) {
 			return NULL;
 		}
-		if (object instanceof Blob) {
-			return format((Blob) object);
-		}
-		if (object instanceof Clob) {
-			return format((Clob) object);
-		}
-		if (object instanceof Array) {
-			return format((Array) object);
+		SqlRenderer<Object> renderer = RENDERERS.get(object.getClass());
+		if (renderer == null) {
+			return object.toString();
 		}
-		if (object instanceof Ref) {
-			return format((Ref) object);
+		StringBuilder buffer = new StringBuilder();
+		renderer.render(object, buffer);
+		return buffer.toString();
+	}
+
+	/**
+	 * Formats an object into the given buffer. Values with a registered
+	 * renderer are written straight into the buffer; values of other types
+	 * are appended as formatted by {@link #format(Object)}. Subclasses that
+	 * override {@link #format(Object)} should override this method too.
+	 * 
+	 * @param object
+	 *            Object to be formatted
+	 * @param buffer
+	 *            buffer the formatted object is appended to
+	 * @throws SQLException
+	 *             thrown if problems formatting.
+	 */
+	@Override
+	public void format(final Object object, final StringBuilder buffer)
+	        throws SQLException {
+		if (object == null) {
+			buffer.append(NULL);
+			return;
 		}
-		if (object instanceof String) {
-			return format((String) object);
+		SqlRenderer<Object> renderer = RENDERERS.get(object.getClass());
+		if (renderer == null) {
+			buffer.append(format(object));
+		} else {
+			renderer.render(object, buffer);
 		}
-		return object.toString();
 	}
-}
\ No newline at end of file
+}
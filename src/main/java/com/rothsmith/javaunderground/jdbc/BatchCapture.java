@@ -0,0 +1,190 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.util.Arrays;
+
+/**
+ * Captured bind variables of the entries of a batch, stored by column: per
+ * parameter, the primitive values (ints, longs, doubles, booleans, ...) of
+ * all entries are kept in a long array together with a byte array of type
+ * tags (see {@link ParameterStore}), so capturing a large batch of numeric
+ * parameters doesn't retain a boxed object per value. Other values (Strings,
+ * dates, ...) are kept in an object array that is only allocated for columns
+ * that have them.
+ * <p>
+ * Only the first {@code maxEntries} entries are stored; later entries are
+ * only counted. The arrays are kept (and reused) when the capture is cleared;
+ * clearing releases the object values, so entries are always stored into
+ * empty object slots.
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+final class BatchCapture {
+
+	/**
+	 * Initial number of entries the columns are sized for.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Maximum number of stored entries.
+	 */
+	private final int maxEntries;
+
+	/**
+	 * Type tags, per column.
+	 */
+	private final byte[][] tags;
+
+	/**
+	 * Primitive values, per column.
+	 */
+	private final long[][] primitives;
+
+	/**
+	 * Object values, per column (null until a column has one).
+	 */
+	private final Object[][] objects;
+
+	/**
+	 * Number of entries added (stored or not).
+	 */
+	private int size;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param parameterCount
+	 *            number of parameters of the statement
+	 * @param maxEntries
+	 *            maximum number of stored entries
+	 */
+	BatchCapture(int parameterCount, int maxEntries) {
+		this.maxEntries = maxEntries;
+		int capacity = Math.min(INITIAL_CAPACITY, maxEntries);
+		tags = new byte[parameterCount][capacity];
+		primitives = new long[parameterCount][capacity];
+		objects = new Object[parameterCount][];
+	}
+
+	/**
+	 * Adds an entry.
+	 * 
+	 * @param parameters
+	 *            captured bind variables of the entry
+	 */
+	void add(ParameterStore parameters) {
+		int row = size++;
+		if (row >= maxEntries) {
+			return;
+		}
+		for (int column = 0; column < parameters.size(); column++) {
+			if (row == tags[column].length) {
+				grow(column);
+			}
+			tags[column][row] = parameters.getTag(column);
+			primitives[column][row] = parameters.getPrimitive(column);
+			Object object = parameters.getObject(column);
+			if (object != null && objects[column] == null) {
+				objects[column] = new Object[tags[column].length];
+			}
+			if (objects[column] != null) {
+				objects[column][row] = object;
+			}
+		}
+	}
+
+	/**
+	 * Doubles the capacity of a column (up to {@link #maxEntries}).
+	 * 
+	 * @param column
+	 *            column index
+	 */
+	private void grow(int column) {
+		int capacity = (int) Math.min(2L * tags[column].length, maxEntries);
+		tags[column] = Arrays.copyOf(tags[column], capacity);
+		primitives[column] = Arrays.copyOf(primitives[column], capacity);
+		if (objects[column] != null) {
+			objects[column] = Arrays.copyOf(objects[column], capacity);
+		}
+	}
+
+	/**
+	 * Returns a stored value.
+	 * 
+	 * @param column
+	 *            column index
+	 * @param row
+	 *            entry index (less than {@link #getCaptured()})
+	 * @return the value, boxed
+	 */
+	Object get(int column, int row) {
+		return ParameterStore.box(tags[column][row], primitives[column][row],
+		    objects[column] == null ? null : objects[column][row]);
+	}
+
+	/**
+	 * @return number of entries added
+	 */
+	int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return number of entries stored
+	 */
+	int getCaptured() {
+		return Math.min(size, maxEntries);
+	}
+
+	/**
+	 * Removes all entries, releasing the object values.
+	 */
+	void clear() {
+		int captured = getCaptured();
+		for (Object[] column : objects) {
+			if (column != null) {
+				Arrays.fill(column, 0, Math.min(captured, column.length),
+				    null);
+			}
+		}
+		size = 0;
+	}
+
+	/**
+	 * Appends the statement of every stored entry, one per line, followed by
+	 * the number of entries that weren't stored (if any).
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 * @param template
+	 *            statement template
+	 * @param formatter
+	 *            {@link SqlFormatter} for the values
+	 * @param lineSeparator
+	 *            separator between the entries
+	 */
+	void appendTo(StringBuilder buffer, SqlTemplate template,
+	    SqlFormatter formatter, String lineSeparator) {
+		int captured = getCaptured();
+		Object[] values = new Object[tags.length];
+		for (int row = 0; row < captured; row++) {
+			if (row > 0) {
+				buffer.append(lineSeparator);
+			}
+			for (int column = 0; column < values.length; column++) {
+				values[column] = get(column, row);
+			}
+			template.appendTo(buffer, values, formatter);
+		}
+		if (size > captured) {
+			buffer.append(lineSeparator).append("... ")
+			    .append(size - captured)
+			    .append(" more batch entries not captured");
+		}
+	}
+}
@@ -0,0 +1,476 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces single-row inserts, updates and deletes submitted by many
+ * threads into JDBC batches. Rows are grouped by SQL text; a group is
+ * executed as one batch when it reaches the maximum batch size or when its
+ * oldest row has waited for the maximum delay, whichever comes first.
+ * <p>
+ * Batches are executed by a background thread on connections from the given
+ * {@link DataSource}, with statements from
+ * {@link StatementFactory#getStatement(Connection, String)} (so the default
+ * debug level, metrics and batch capture apply). Every submitted row gets a
+ * {@link CompletableFuture} that is completed with its update count, or
+ * exceptionally if its batch (or the row itself) failed. Futures are
+ * completed on the background thread, so dependent actions that do real work
+ * should use the async variants of the future's methods.
+ * </p>
+ * <p>
+ * Every batch is a transaction of its own, whatever the auto-commit setting
+ * of the pool: it is committed once it has been executed, or rolled back and
+ * all its rows failed if any of them fails. The connection's auto-commit
+ * setting is restored before it is returned.
+ * </p>
+ * <p>
+ * Memory is bounded: at most {@code maxPending} rows are waiting at a time,
+ * and {@link #submit(String, Object...)} blocks while that many are pending,
+ * slowing producers down to the pace of the database.
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+public final class BatchingStatementExecutor implements Closeable {
+
+	/**
+	 * Default maximum number of rows per batch.
+	 */
+	public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+
+	/**
+	 * Default maximum time (in milliseconds) a row waits for its batch.
+	 */
+	public static final long DEFAULT_MAX_DELAY_MILLIS = 50;
+
+	/**
+	 * Default maximum number of pending rows.
+	 */
+	public static final int DEFAULT_MAX_PENDING = 10000;
+
+	/**
+	 * SLF4J Logger for BatchingStatementExecutor.
+	 */
+	private static final Logger LOGGER =
+	    LoggerFactory.getLogger(BatchingStatementExecutor.class);
+
+	/**
+	 * How long the background thread sleeps when no rows are pending.
+	 */
+	private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/**
+	 * How long {@link #close()} waits for the pending rows to be executed.
+	 */
+	private static final long CLOSE_TIMEOUT_MILLIS = 30000;
+
+	/**
+	 * DataSource the batches are executed on.
+	 */
+	private final DataSource dataSource;
+
+	/**
+	 * Maximum number of rows per batch.
+	 */
+	private final int maxBatchSize;
+
+	/**
+	 * Maximum time (in nanoseconds) a row waits for its batch.
+	 */
+	private final long maxDelayNanos;
+
+	/**
+	 * Permits for pending rows.
+	 */
+	private final Semaphore permits;
+
+	/**
+	 * Pending rows, grouped by SQL text.
+	 */
+	private final ConcurrentMap<String, RowQueue> queues =
+	    new ConcurrentHashMap<String, RowQueue>();
+
+	/**
+	 * Background thread that executes the batches.
+	 */
+	private final Thread thread;
+
+	/**
+	 * Cleared by {@link #close()}.
+	 */
+	private volatile boolean running = true;
+
+	/**
+	 * Makes enqueueing a row and closing mutually exclusive: submitters hold
+	 * the read lock while they check {@link #running} and enqueue, close()
+	 * takes the write lock to clear it, so no row is enqueued after the
+	 * background thread has started its final drain.
+	 */
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+	/**
+	 * Creates an executor with the default thresholds.
+	 * 
+	 * @param dataSource
+	 *            {@link DataSource} to execute the batches on
+	 */
+	public BatchingStatementExecutor(DataSource dataSource) {
+		this(dataSource, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS,
+		    TimeUnit.MILLISECONDS, DEFAULT_MAX_PENDING);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param dataSource
+	 *            {@link DataSource} to execute the batches on
+	 * @param maxBatchSize
+	 *            maximum number of rows per batch
+	 * @param maxDelay
+	 *            maximum time a row waits for its batch
+	 * @param unit
+	 *            unit of maxDelay
+	 * @param maxPending
+	 *            maximum number of pending rows
+	 */
+	public BatchingStatementExecutor(DataSource dataSource, int maxBatchSize,
+	    long maxDelay, TimeUnit unit, int maxPending) {
+		if (maxBatchSize < 1 || maxPending < 1 || maxDelay < 0) {
+			throw new IllegalArgumentException(
+			    "maxBatchSize and maxPending must be positive and maxDelay "
+			        + "must not be negative: " + maxBatchSize + ", " + maxPending
+			        + ", " + maxDelay);
+		}
+		this.dataSource = dataSource;
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayNanos = unit.toNanos(maxDelay);
+		this.permits = new Semaphore(maxPending);
+		thread = new Thread(this::run, "batching-statement-executor");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Submits a row, waiting while the maximum number of rows is pending.
+	 * 
+	 * @param sql
+	 *            SQL text of the insert, update or delete
+	 * @param parameters
+	 *            parameter values of the row (null values are bound with
+	 *            setNull)
+	 * @return future that is completed with the update count of the row
+	 * @throws InterruptedException
+	 *             thrown if interrupted while waiting
+	 * @throws IllegalArgumentException
+	 *             thrown if the SQL text or the parameter array is null
+	 * @throws IllegalStateException
+	 *             thrown if the executor has been closed
+	 */
+	public CompletableFuture<Integer> submit(String sql, Object... parameters)
+	        throws InterruptedException {
+		// before taking a permit, which would leak if the row were rejected
+		if (sql == null || parameters == null) {
+			throw new IllegalArgumentException(
+			    "sql and parameters must not be null");
+		}
+		if (!running) {
+			throw new IllegalStateException("Executor has been closed");
+		}
+		permits.acquire();
+		Lock lock = closeLock.readLock();
+		lock.lock();
+		try {
+			// the executor may have been closed while waiting for a permit
+			// (the final batches release permits)
+			if (!running) {
+				permits.release();
+				throw new IllegalStateException("Executor has been closed");
+			}
+			Row row = new Row(parameters.clone());
+			RowQueue queue = queues.computeIfAbsent(sql, RowQueue::new);
+			queue.rows.offer(row);
+			int size = queue.size.incrementAndGet();
+			// wake up the background thread to schedule the first row of a
+			// batch and to execute a full batch
+			if (size == 1 || size >= maxBatchSize) {
+				LockSupport.unpark(thread);
+			}
+			return row.future;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return number of rows waiting to be executed
+	 */
+	public int getPending() {
+		int pending = 0;
+		for (RowQueue queue : queues.values()) {
+			pending += queue.size.get();
+		}
+		return pending;
+	}
+
+	/**
+	 * Background thread loop: executes the batches that are due until closed
+	 * and no rows are pending.
+	 */
+	private void run() {
+		while (true) {
+			boolean closing = !running;
+			long now = System.nanoTime();
+			long nextDue = now + IDLE_NANOS;
+			boolean pending = false;
+			for (RowQueue queue : queues.values()) {
+				Row oldest;
+				while ((oldest = queue.rows.peek()) != null) {
+					pending = true;
+					long due = oldest.submitted + maxDelayNanos;
+					if (!closing && queue.size.get() < maxBatchSize
+					    && due - now > 0) {
+						nextDue = Math.min(nextDue, due);
+						break;
+					}
+					try {
+						execute(queue);
+					} catch (RuntimeException e) {
+						LOGGER.error("Error executing batch: " + e, e);
+					}
+					now = System.nanoTime();
+				}
+			}
+			if (closing && !pending) {
+				return;
+			}
+			long wait = nextDue - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(this, wait);
+			}
+		}
+	}
+
+	/**
+	 * Executes up to {@link #maxBatchSize} rows of a queue as one batch in a
+	 * transaction and completes their futures.
+	 * 
+	 * @param queue
+	 *            queue to take the rows from
+	 */
+	private void execute(RowQueue queue) {
+		List<Row> batch = new ArrayList<Row>(
+		    Math.min(maxBatchSize, Math.max(queue.size.get(), 1)));
+		Row row;
+		while (batch.size() < maxBatchSize
+		    && (row = queue.rows.poll()) != null) {
+			batch.add(row);
+		}
+		queue.size.addAndGet(-batch.size());
+		permits.release(batch.size());
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		Connection connection = null;
+		PreparedStatement statement = null;
+		boolean autoCommit = false;
+		try {
+			connection = dataSource.getConnection();
+			autoCommit = connection.getAutoCommit();
+			if (autoCommit) {
+				connection.setAutoCommit(false);
+			}
+			statement = StatementFactory.getStatement(connection, queue.sql);
+			ParameterBinder binder = new ParameterBinder(statement);
+			for (Row entry : batch) {
+				binder.bind(entry.parameters);
+				statement.addBatch();
+			}
+			int[] updateCounts = statement.executeBatch();
+			connection.commit();
+			complete(batch, updateCounts, null);
+		} catch (SQLException e) {
+			// the rows that succeeded have been rolled back as well
+			rollback(connection);
+			complete(batch, null, e);
+		} catch (RuntimeException e) {
+			rollback(connection);
+			complete(batch, null, new SQLException(e));
+			throw e;
+		} finally {
+			DbUtils.closeQuietly(statement);
+			if (autoCommit) {
+				try {
+					connection.setAutoCommit(true);
+				} catch (SQLException e) {
+					LOGGER.warn("Error restoring auto-commit: " + e);
+				}
+			}
+			DbUtils.closeQuietly(connection);
+		}
+	}
+
+	/**
+	 * Rolls back the transaction of a failed batch.
+	 * 
+	 * @param connection
+	 *            connection of the batch (may be null)
+	 */
+	private static void rollback(Connection connection) {
+		try {
+			DbUtils.rollback(connection);
+		} catch (SQLException e) {
+			LOGGER.warn("Error rolling back batch: " + e);
+		}
+	}
+
+	/**
+	 * Completes the futures of a batch.
+	 * 
+	 * @param batch
+	 *            rows of the batch
+	 * @param updateCounts
+	 *            update counts returned by the driver (null if the batch
+	 *            failed and was rolled back)
+	 * @param error
+	 *            error of the batch or null if it succeeded
+	 */
+	private static void complete(List<Row> batch, int[] updateCounts,
+	    SQLException error) {
+		int counted = updateCounts == null ? 0 : updateCounts.length;
+		for (int i = 0; i < batch.size(); i++) {
+			CompletableFuture<Integer> future = batch.get(i).future;
+			if (i < counted && updateCounts[i] != Statement.EXECUTE_FAILED) {
+				future.complete(Integer.valueOf(updateCounts[i]));
+			} else if (error != null) {
+				future.completeExceptionally(error);
+			} else {
+				future.completeExceptionally(
+				    new SQLException("Batch entry " + i + " failed"));
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting rows and waits for the pending ones to be executed.
+	 * Rows that are still pending after that (i.e. not executed within the
+	 * timeout) are failed. Submitters waiting for a permit fail with an
+	 * {@link IllegalStateException} once they get one.
+	 */
+	@Override
+	public void close() {
+		Lock lock = closeLock.writeLock();
+		lock.lock();
+		try {
+			running = false;
+		} finally {
+			lock.unlock();
+		}
+		LockSupport.unpark(thread);
+		try {
+			thread.join(CLOSE_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (RowQueue queue : queues.values()) {
+			Row row;
+			while ((row = queue.rows.poll()) != null) {
+				queue.size.decrementAndGet();
+				permits.release();
+				row.future.completeExceptionally(
+				    new IllegalStateException("Executor has been closed"));
+			}
+		}
+	}
+
+	/**
+	 * A submitted row.
+	 */
+	private static final class Row {
+
+		/**
+		 * Parameter values.
+		 */
+		private final Object[] parameters;
+
+		/**
+		 * {@link System#nanoTime()} the row was submitted.
+		 */
+		private final long submitted = System.nanoTime();
+
+		/**
+		 * Completed with the update count of the row.
+		 */
+		private final CompletableFuture<Integer> future =
+		    new CompletableFuture<Integer>();
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param parameters
+		 *            parameter values
+		 */
+		Row(Object[] parameters) {
+			this.parameters = parameters;
+		}
+	}
+
+	/**
+	 * The pending rows of a SQL statement.
+	 */
+	private static final class RowQueue {
+
+		/**
+		 * SQL text.
+		 */
+		private final String sql;
+
+		/**
+		 * Pending rows, in submission order.
+		 */
+		private final Queue<Row> rows = new ConcurrentLinkedQueue<Row>();
+
+		/**
+		 * Number of pending rows.
+		 */
+		private final AtomicInteger size = new AtomicInteger();
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param sql
+		 *            SQL text
+		 */
+		RowQueue(String sql) {
+			this.sql = sql;
+		}
+	}
+}
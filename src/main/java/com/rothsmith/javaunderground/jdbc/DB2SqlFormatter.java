@@ -17,32 +17,44 @@ import java.sql.Date;
 import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
 import java.util.Calendar;
 
-import org.apache.commons.lang3.time.DateFormatUtils;
-
 /**
  * DB2SqlFormatter formats DB2 specific types. These include Calendar, Date,
- * Time, and TimeStamps. Generic types are handled by BaseSqlFormatter.
+ * Time, TimeStamps and the java.time LocalDate, LocalTime, LocalDateTime,
+ * OffsetDateTime and Instant (the latter two as timestamps of the default
+ * time zone). Generic types are handled by BaseSqlFormatter.
  * 
  * @author Troy Thompson, Bob Byron
  */
 public class DB2SqlFormatter implements SqlFormatter {
 
 	/**
-	 * Java date format: 'yyyy-MM-dd HH:mm:ss'.
-	 */
-	private static final String DATE_FORMAT = "yyyy-MM-dd";
-
-	/**
-	 * Java timestamp format: 'yyyy-MM-dd HH:mm:ss'.
-	 */
-	private static final String TIMESTAMP_FORMAT = "yyyy-MM-dd HH:mm:ss";
-
-	/**
-	 * Java times format: 'HH:mm:ss'.
+	 * Renderers of the DB2 specific types.
 	 */
-	private static final String TIME_FORMAT = "HH:mm:ss";
+	private static final RendererRegistry RENDERERS = new RendererRegistry()
+	    .register(Calendar.class, DB2SqlFormatter::renderCalendar)
+	    .register(Date.class,
+	        (date, buffer) -> renderDate(date.toLocalDate(), buffer))
+	    .register(Time.class,
+	        (time, buffer) -> renderTime(time.toLocalTime(), buffer))
+	    .register(Timestamp.class, (timestamp, buffer) -> renderTimestamp(
+	        timestamp.toLocalDateTime(), buffer))
+	    .register(LocalDate.class, DB2SqlFormatter::renderDate)
+	    .register(LocalTime.class, DB2SqlFormatter::renderTime)
+	    .register(LocalDateTime.class, DB2SqlFormatter::renderTimestamp)
+	    .register(OffsetDateTime.class,
+	        (dateTime, buffer) -> renderTimestamp(dateTime
+	            .atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime(),
+	            buffer))
+	    .register(Instant.class, (instant, buffer) -> renderTimestamp(
+	        LocalDateTime.ofInstant(instant, ZoneId.systemDefault()), buffer));
 
 	/**
 	 * Base SQL formatter.
@@ -60,54 +72,62 @@ public class DB2SqlFormatter implements SqlFormatter {
 	}
 
 	/**
-	 * Formats Calendar object into Oracle TO_DATE String.
+	 * Renders the date and time of a Calendar (in the Calendar's time zone) as
+	 * a TIMESTAMP function.
 	 * 
 	 * @param cal
 	 *            Calendar to be formatted
-	 * @return formatted DATE function
+	 * @param buffer
+	 *            buffer to append to
 	 */
-	private String format(final Calendar cal) {
-		String dateStr = DateFormatUtils.format(cal, DATE_FORMAT);
-		return "DATE('" + dateStr + "')";
+	private static void renderCalendar(final Calendar cal,
+	    final StringBuilder buffer) {
+		renderTimestamp(TemporalLiterals.localDateTime(cal.getTime(), cal),
+		    buffer);
 	}
 
 	/**
-	 * Formats Date object into Oracle TO_DATE String.
+	 * Renders a date as a DATE function.
 	 * 
 	 * @param date
-	 *            Date to be formatted
-	 * @return formatted DATE function
+	 *            date to be formatted
+	 * @param buffer
+	 *            buffer to append to
 	 */
-	private String format(final Date date) {
-		String dateStr = DateFormatUtils.format(date, DATE_FORMAT);
-		return "DATE('" + dateStr + "')";
+	private static void renderDate(final LocalDate date,
+	    final StringBuilder buffer) {
+		TemporalLiterals.appendDate(buffer.append("DATE('"), date)
+		    .append("')");
 	}
 
 	/**
-	 * Formats Time object into Oracle TO_DATE String.
+	 * Renders a time as a TIME function (DB2 times have no fractional
+	 * seconds).
 	 * 
 	 * @param time
-	 *            Time to be formatted
-	 * @return formatted TIME function
+	 *            time to be formatted
+	 * @param buffer
+	 *            buffer to append to
 	 */
-	private String format(final Time time) {
-		Calendar cal = Calendar.getInstance();
-		cal.setTime(new java.util.Date(time.getTime()));
-		String timeStr = DateFormatUtils.format(cal.getTime(), TIME_FORMAT);
-		return "TIME('" + timeStr + "')";
+	private static void renderTime(final LocalTime time,
+	    final StringBuilder buffer) {
+		TemporalLiterals.appendTime(buffer.append("TIME('"), time, false)
+		    .append("')");
 	}
 
 	/**
-	 * Formats Timestamp object into Oracle TO_DATE String.
+	 * Renders a date and time as a TIMESTAMP function, including fractional
+	 * seconds.
 	 * 
-	 * @param timestamp
-	 *            Timestamp to be formatted
-	 * @return formatted TIMESTAMP function
+	 * @param dateTime
+	 *            date and time to be formatted
+	 * @param buffer
+	 *            buffer to append to
 	 */
-	private String format(final Timestamp timestamp) {
-		long time = timestamp.getTime();
-		String dateStr = DateFormatUtils.format(time, TIMESTAMP_FORMAT);
-		return "TIMESTAMP('" + dateStr + "')";
+	private static void renderTimestamp(final LocalDateTime dateTime,
+	    final StringBuilder buffer) {
+		TemporalLiterals.appendDateTime(buffer.append("TIMESTAMP('"),
+		    dateTime, true).append("')");
 	}
 
 	/**
@@ -120,26 +140,43 @@ public class DB2SqlFormatter implements SqlFormatter {
 	 *             thrown if problems formatting.
 	 */
 	@Override
-	@SuppressWarnings({ "PMD.OnlyOneReturn", "PMD.CyclomaticComplexity" })
+	@SuppressWarnings("PMD.OnlyOneReturn")
 	public final String format(final Object object) throws SQLException {
 		if (object == null) {
 			return "NULL";
 		}
-		if (object instanceof Calendar) {
-			return format((Calendar) object);
-		}
-		if (object instanceof Date) {
-			return format((Date) object);
-		}
-		if (object instanceof Time) {
-			return format((Time) object);
-		}
-		if (object instanceof Timestamp) {
-			return format((Timestamp) object);
+		SqlRenderer<Object> renderer = RENDERERS.get(object.getClass());
+		if (renderer == null) {
+			// if object not in one of our renderers, send to decorated class:
+			return baseFormatter.format(object);
 		}
-		// if object not in one of our overridden methods, send to decorated
-		// class:
-		return baseFormatter.format(object);
+		StringBuilder buffer = new StringBuilder();
+		renderer.render(object, buffer);
+		return buffer.toString();
+	}
 
+	/**
+	 * Formats object into the given buffer. Calendars, dates, times,
+	 * timestamps and java.time values are written straight into the buffer
+	 * without intermediate Strings; everything else is formatted by the
+	 * decorated formatter.
+	 * 
+	 * @param object
+	 *            Object to be formatted.
+	 * @param buffer
+	 *            buffer the formatted object is appended to
+	 * @throws SQLException
+	 *             thrown if problems formatting.
+	 */
+	@Override
+	public final void format(final Object object, final StringBuilder buffer)
+	        throws SQLException {
+		SqlRenderer<Object> renderer =
+		    object == null ? null : RENDERERS.get(object.getClass());
+		if (renderer == null) {
+			baseFormatter.format(object, buffer);
+		} else {
+			renderer.render(object, buffer);
+		}
 	}
 }
@@ -1,7 +1,19 @@
 package com.rothsmith.javaunderground.jdbc;
 
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * DebugLevel constants.
+ * <p>
+ * Besides the constants, capture policies can be created with
+ * {@link #sampled(int)}, {@link #slowerThan(long, TimeUnit)} and
+ * {@link #budget(int)}. Statements using a policy are timed, capture their
+ * bind variables only for the executions the policy selects and log those
+ * executions, rendered with their bind variables, when they complete.
+ * </p>
  * 
  * @author Troy Thompson, Bob Byron
  */
@@ -22,10 +34,175 @@ public final class DebugLevel {
 	 */
 	public static final DebugLevel VERBOSE = new DebugLevel();
 
+	/**
+	 * Turn debugging on, but only capture bind variables while debug logging
+	 * is enabled for {@link DebuggableStatement}. The logger is checked once
+	 * per execution, so debugging can be left on and switched at runtime
+	 * through the logging configuration.
+	 */
+	public static final DebugLevel LAZY = new DebugLevel();
+
+	/**
+	 * Nanoseconds per second.
+	 */
+	private static final long NANOS_PER_SECOND = 1000000000L;
+
+	/**
+	 * whether this is a capture policy rather than one of the constants
+	 */
+	private final boolean policy;
+
+	/**
+	 * 1 in sampleRate executions are captured
+	 */
+	private final int sampleRate;
+
+	/**
+	 * captured executions are only logged if they take at least this long
+	 */
+	private final long thresholdNanos;
+
+	/**
+	 * maximum number of captured executions per second (0 = unlimited)
+	 */
+	private final int budget;
+
+	/**
+	 * second (of {@link System#nanoTime()}) the budget is being used for
+	 */
+	private final AtomicLong budgetSecond = new AtomicLong();
+
+	/**
+	 * number of captures in the current budget second
+	 */
+	private final AtomicInteger budgetUsed = new AtomicInteger();
+
 	/**
 	 * private constructor keeps all instances within class
 	 */
 	private DebugLevel() {
+		this(false, 1, 0, 0);
+	}
+
+	/**
+	 * private constructor for capture policies.
+	 * 
+	 * @param policy
+	 *            whether this is a capture policy
+	 * @param sampleRate
+	 *            1 in sampleRate executions are captured
+	 * @param thresholdNanos
+	 *            minimum execute time of logged executions
+	 * @param budget
+	 *            maximum number of captures per second (0 = unlimited)
+	 */
+	private DebugLevel(boolean policy, int sampleRate, long thresholdNanos,
+	    int budget) {
+		this.policy = policy;
+		this.sampleRate = sampleRate;
+		this.thresholdNanos = thresholdNanos;
+		this.budget = budget;
+	}
+
+	/**
+	 * Creates a policy that captures and logs 1 in n executions (chosen at
+	 * random).
+	 * 
+	 * @param n
+	 *            sample rate
+	 * @return {@link DebugLevel} policy
+	 */
+	public static DebugLevel sampled(int n) {
+		if (n < 1) {
+			throw new IllegalArgumentException(
+			    "sample rate must be positive: " + n);
+		}
+		return new DebugLevel(true, n, 0, 0);
+	}
+
+	/**
+	 * Creates a policy that logs every execution that takes at least the
+	 * given time. Bind variables of all executions are captured (by
+	 * reference), but they are only rendered for the slow ones.
+	 * 
+	 * @param threshold
+	 *            minimum execute time of logged executions (positive; use
+	 *            {@link #sampled(int)} to log every execution)
+	 * @param unit
+	 *            unit of threshold
+	 * @return {@link DebugLevel} policy
+	 */
+	public static DebugLevel slowerThan(long threshold, TimeUnit unit) {
+		if (threshold < 1) {
+			throw new IllegalArgumentException(
+			    "threshold must be positive: " + threshold);
+		}
+		return new DebugLevel(true, 1, unit.toNanos(threshold), 0);
+	}
+
+	/**
+	 * Creates a policy that captures and logs executions until the given
+	 * number of executions per second has been reached.
+	 * 
+	 * @param perSecond
+	 *            maximum number of executions captured per second
+	 * @return {@link DebugLevel} policy
+	 */
+	public static DebugLevel budget(int perSecond) {
+		if (perSecond < 1) {
+			throw new IllegalArgumentException(
+			    "budget must be positive: " + perSecond);
+		}
+		return new DebugLevel(true, 1, 0, perSecond);
+	}
+
+	/**
+	 * @return true if this is a capture policy rather than one of the
+	 *         constants
+	 */
+	boolean isPolicy() {
+		return policy;
+	}
+
+	/**
+	 * @return true if captured executions are only logged when they are slow
+	 */
+	boolean hasThreshold() {
+		return thresholdNanos > 0;
+	}
+
+	/**
+	 * Decides whether an execution of a statement using this policy is
+	 * captured.
+	 * 
+	 * @return true if the execution is captured
+	 */
+	boolean sample() {
+		if (sampleRate > 1
+		    && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+			return false;
+		}
+		if (budget > 0) {
+			long second = System.nanoTime() / NANOS_PER_SECOND;
+			long current = budgetSecond.get();
+			if (second != current
+			    && budgetSecond.compareAndSet(current, second)) {
+				budgetUsed.set(0);
+			}
+			return budgetUsed.incrementAndGet() <= budget;
+		}
+		return true;
+	}
+
+	/**
+	 * Decides whether a captured execution is logged.
+	 * 
+	 * @param executeNanos
+	 *            execute time in nanoseconds
+	 * @return true if the execution is logged
+	 */
+	boolean isLogged(long executeNanos) {
+		return executeNanos >= thresholdNanos;
 	}
 
-}
\ No newline at end of file
+}
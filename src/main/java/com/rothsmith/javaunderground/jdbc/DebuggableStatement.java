@@ -13,10 +13,9 @@
  */
 package com.rothsmith.javaunderground.jdbc;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.Blob;
@@ -35,7 +34,6 @@ import java.sql.SQLXML;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.Calendar;
-import java.util.StringTokenizer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -134,51 +132,30 @@ public class DebuggableStatement implements PreparedStatement {
 	private static final int INITIAL_STMT_LEN = 512;
 
 	/**
-	 * Concrete String constant to replace null objects.
+	 * Largest buffer capacity kept for reuse by a thread.
 	 */
-	private static final String NULL = "NULL";
+	private static final int MAX_RETAINED_BUFFER = 64 * 1024;
 
 	/**
-	 * DebugObject class.
-	 * 
+	 * Nanoseconds per microsecond.
 	 */
-	private static class DebugObject {
-
-		/**
-		 * debugObject.
-		 */
-		private Object debugObject;
-
-		/**
-		 * value assigned.
-		 */
-		private boolean valueAssigned;
+	private static final long NANOS_PER_MICRO = 1000L;
 
-		/**
-		 * Construct a new {@link DebugObject}.
-		 * 
-		 * @param debugObject
-		 *            object to be debugged.
-		 */
-		public DebugObject(final Object debugObject) {
-			this.debugObject = debugObject;
-			valueAssigned = true;
-		}
+	/**
+	 * Microseconds per millisecond.
+	 */
+	private static final int MICROS_PER_MILLI = 1000;
 
-		/**
-		 * @return debugObject
-		 */
-		public Object getDebugObject() {
-			return debugObject;
-		}
+	/**
+	 * Platform line separator.
+	 */
+	private static final String LINE_SEPARATOR = System.lineSeparator();
 
-		/**
-		 * @return valueAssigned boolean
-		 */
-		public boolean isValueAssigned() {
-			return valueAssigned;
-		}
-	}
+	/**
+	 * Per thread buffer that toString() renders into.
+	 */
+	private static final ThreadLocal<StringBuilder> BUFFER =
+	    ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_STMT_LEN));
 
 	/**
 	 * level of debug
@@ -186,14 +163,85 @@ public class DebuggableStatement implements PreparedStatement {
 	private final DebugLevel debugLevel;
 
 	/**
-	 * time elapsed while executing statement
+	 * nanoseconds elapsed while preparing the statement
+	 */
+	private long prepareNanos;
+
+	/**
+	 * nanoseconds from the first bind to the start of execution
+	 */
+	private long bindNanos;
+
+	/**
+	 * nanoseconds elapsed while executing statement
+	 */
+	private long executeNanos;
+
+	/**
+	 * nanoseconds from the end of execution until the first row was fetched
+	 */
+	private long firstRowNanos;
+
+	/**
+	 * nanoseconds from the end of execution until the result set was consumed
+	 */
+	private long consumeNanos;
+
+	/**
+	 * rows fetched from the result set of the last execution
+	 */
+	private long rowCount;
+
+	/**
+	 * number of times the statement has been executed
+	 */
+	private long executionCount;
+
+	/**
+	 * time that statement ended execution
+	 */
+	private long endTime;
+
+	/**
+	 * time of the first bind since the last execution (if bindStarted)
+	 */
+	private long bindStartTime;
+
+	/**
+	 * whether a parameter has been bound since the last execution
+	 */
+	private boolean bindStarted;
+
+	/**
+	 * whether executions are timed (i.e. DebugLevel isn't ON or LAZY or
+	 * metrics are gathered or executions are journaled)
+	 */
+	private final boolean timed;
+
+	/**
+	 * whether bind variables are captured in the current bind cycle
+	 */
+	private boolean capture;
+
+	/**
+	 * whether capture has been decided for the current bind cycle
+	 */
+	private boolean captureDecided;
+
+	/**
+	 * metrics the executions are reported into (may be null)
 	 */
-	private long executeTime;
+	private final StatementMetrics metrics;
 
 	/**
-	 * statement filtered for rogue '?' that are not bind variables.
+	 * journal the executions are recorded in (may be null)
 	 */
-	private final String filteredSql;
+	private final StatementJournal journal;
+
+	/**
+	 * pre-parsed statement, split at its bind variables.
+	 */
+	private final SqlTemplate template;
 
 	/**
 	 * format for dates
@@ -211,14 +259,51 @@ public class DebuggableStatement implements PreparedStatement {
 	private final String sql;
 
 	/**
-	 * time that statement began execution
+	 * connection the statement was created for.
+	 */
+	private final Connection connection;
+
+	/**
+	 * cache the statement was taken from (may be null).
+	 */
+	private final StatementCache cache;
+
+	/**
+	 * whether the statement has been returned to the cache.
+	 */
+	private boolean released;
+
+	/**
+	 * time that statement began execution (nanoseconds)
 	 */
 	private long startTime;
 
 	/**
-	 * array of bind variables
+	 * captured bind variables, reused across executions
+	 */
+	private final ParameterStore parameters;
+
+	/**
+	 * captured entries of the current (or last executed) batch; allocated by
+	 * the first captured addBatch
+	 */
+	private BatchCapture batch;
+
+	/**
+	 * number of entries added to the current batch
+	 */
+	private int batchSize;
+
+	/**
+	 * number of entries of the last execution (0 if it wasn't a batch)
 	 */
-	private DebugObject[] variables;
+	private int executedBatchSize;
+
+	/**
+	 * whether the captured batch has been executed, so the next addBatch
+	 * starts a new one
+	 */
+	private boolean batchExecuted;
 
 	/**
 	 * Construct new DebugableStatement. Uses the BaseSqlFormatter to format
@@ -231,66 +316,160 @@ public class DebuggableStatement implements PreparedStatement {
 	 * @param formatter
 	 *            a {@link SqlFormatter} object
 	 * @param debugLevel
-	 *            DebugLevel can be ON, OFF, VERBOSE.
+	 *            DebugLevel can be ON, OFF, VERBOSE, LAZY.
 	 * @throws SQLException
 	 *             thrown if a SQL error in encountered.
 	 */
 	protected DebuggableStatement(final Connection con,
 	    final String sqlStatement, final SqlFormatter formatter,
 	    final DebugLevel debugLevel) throws SQLException {
+		this(con, sqlStatement, formatter, debugLevel, null);
+	}
+
+	/**
+	 * Construct new DebugableStatement that reports its executions into the
+	 * given {@link StatementMetrics}.
+	 * 
+	 * @param con
+	 *            Connection to be used to construct PreparedStatement
+	 * @param sqlStatement
+	 *            sql statement to be sent to database.
+	 * @param formatter
+	 *            a {@link SqlFormatter} object
+	 * @param debugLevel
+	 *            DebugLevel can be ON, OFF, VERBOSE, LAZY. Bind variables are
+	 *            not captured if OFF, and only captured while debug logging is
+	 *            enabled if LAZY.
+	 * @param metrics
+	 *            {@link StatementMetrics} to report executions into or null
+	 *            to not gather metrics
+	 * @throws SQLException
+	 *             thrown if a SQL error in encountered.
+	 */
+	protected DebuggableStatement(final Connection con,
+	    final String sqlStatement, final SqlFormatter formatter,
+	    final DebugLevel debugLevel, final StatementMetrics metrics)
+	            throws SQLException {
+		this(con, sqlStatement, formatter, debugLevel, metrics, null);
+	}
+
+	/**
+	 * Construct new DebugableStatement around a PreparedStatement from the
+	 * given {@link StatementCache}. Closing the DebuggableStatement returns
+	 * the PreparedStatement to the cache; the DebuggableStatement must not be
+	 * used after that.
+	 * 
+	 * @param con
+	 *            Connection to be used to construct PreparedStatement
+	 * @param sqlStatement
+	 *            sql statement to be sent to database.
+	 * @param formatter
+	 *            a {@link SqlFormatter} object
+	 * @param debugLevel
+	 *            DebugLevel can be ON, OFF, VERBOSE, LAZY. Bind variables are
+	 *            not captured if OFF, and only captured while debug logging is
+	 *            enabled if LAZY.
+	 * @param metrics
+	 *            {@link StatementMetrics} to report executions into or null
+	 *            to not gather metrics
+	 * @param cache
+	 *            {@link StatementCache} to take the PreparedStatement from or
+	 *            null to prepare (and close) it directly
+	 * @throws SQLException
+	 *             thrown if a SQL error in encountered.
+	 */
+	protected DebuggableStatement(final Connection con,
+	    final String sqlStatement, final SqlFormatter formatter,
+	    final DebugLevel debugLevel, final StatementMetrics metrics,
+	    final StatementCache cache) throws SQLException {
 		// set values for member variables
 		if (con == null) {
 			throw new SQLException("Connection object is null");
 		}
-		this.ps = con.prepareStatement(sqlStatement);
+		this.metrics = metrics;
+		this.journal = StatementFactory.getStatementJournal();
+		this.timed =
+		    debugLevel != DebugLevel.ON && debugLevel != DebugLevel.LAZY
+		        || metrics != null || journal != null;
+		this.connection = con;
+		this.cache = cache;
+		if (timed) {
+			long prepareStart = System.nanoTime();
+			this.ps = prepare(con, sqlStatement);
+			this.prepareNanos = System.nanoTime() - prepareStart;
+		} else {
+			this.ps = prepare(con, sqlStatement);
+		}
 		this.sql = sqlStatement;
 		this.debugLevel = debugLevel;
 		this.formatter = formatter;
 
-		// see if there are any '?' in the statement that are not bind
-		// variables
-		// and filter them out.
-		boolean isString = false;
-		char[] sqlString = sqlStatement.toCharArray();
-		for (int i = 0; i < sqlString.length; i++) {
-			if (sqlString[i] == '\'') {
-				isString = !isString;
-			}
-			// substitute the ? with an unprintable character if the ? is in a
-			// string.
-			if (sqlString[i] == '?' && isString) {
-				sqlString[i] = '\u0007';
-			}
-		}
-		filteredSql = new String(sqlString);
-
-		// find out how many variables are present in statement.
-		int count = 0;
-		int index = -1;
-		while ((index = filteredSql.indexOf("?", index + 1)) != -1) {
-			count++;
-		}
+		// find the bind variables of the statement ('?' in literals,
+		// quoted identifiers or comments are not bind variables).
+		template = SqlTemplate.of(sqlStatement);
+		int count = template.getParameterCount();
 
 		// show how many bind variables found
 		if (LOGGER.isDebugEnabled()) {
 			LOGGER.debug("count= " + count);
 		}
 
-		// create array for bind variables
-		variables = new DebugObject[count];
+		// create store for bind variables
+		parameters = new ParameterStore(count);
 
 	}
 
 	/**
-	 * Facade for PreparedStatement.
+	 * Takes the PreparedStatement from the cache or prepares it.
+	 * 
+	 * @param con
+	 *            Connection to be used to construct PreparedStatement
+	 * @param sqlStatement
+	 *            sql statement to be sent to database.
+	 * @return the PreparedStatement
+	 * @throws SQLException
+	 *             thrown if a SQL error in encountered.
+	 */
+	private PreparedStatement prepare(final Connection con,
+	    final String sqlStatement) throws SQLException {
+		return cache == null ? con.prepareStatement(sqlStatement)
+		    : cache.acquire(con, sqlStatement);
+	}
+
+	/**
+	 * Facade for PreparedStatement. Also captures the bind variables of the
+	 * batch entry (up to {@link StatementFactory#getMaxBatchCapture()}
+	 * entries), so that every entry of the batch can be rendered.
 	 * 
 	 * @throws SQLException
 	 *             thrown if a SQL error in encountered.
 	 */
 	public final void addBatch() throws SQLException {
+		if (batchExecuted) {
+			clearCapturedBatch();
+		}
+		batchSize++;
+		if (capturing()) {
+			if (batch == null) {
+				batch = new BatchCapture(parameters.size(),
+				    StatementFactory.getMaxBatchCapture());
+			}
+			batch.add(parameters);
+		}
 		ps.addBatch();
 	}
 
+	/**
+	 * Discards the captured batch entries.
+	 */
+	private void clearCapturedBatch() {
+		if (batch != null) {
+			batch.clear();
+		}
+		batchSize = 0;
+		batchExecuted = false;
+	}
+
 	/**
 	 * Facade for PreparedStatement.
 	 * 
@@ -315,22 +494,24 @@ public class DebuggableStatement implements PreparedStatement {
 	}
 
 	/**
-	 * Facade for PreparedStatement.
+	 * Facade for PreparedStatement. Also clears the captured batch entries.
 	 * 
 	 * @throws SQLException
 	 *             thrown if a SQL error in encountered.
 	 */
 	public final void clearBatch() throws SQLException {
+		clearCapturedBatch();
 		ps.clearBatch();
 	}
 
 	/**
-	 * Facade for PreparedStatement.
+	 * Facade for PreparedStatement. Also clears the captured bind variables.
 	 * 
 	 * @throws SQLException
 	 *             thrown if a SQL error in encountered.
 	 */
 	public final void clearParameters() throws SQLException {
+		parameters.clear();
 		ps.clearParameters();
 	}
 
@@ -345,20 +526,84 @@ public class DebuggableStatement implements PreparedStatement {
 	}
 
 	/**
-	 * Facade for PreparedStatement.
+	 * Facade for PreparedStatement. Returns the PreparedStatement to its
+	 * {@link StatementCache}, if any, instead of closing it.
 	 * 
 	 * @throws SQLException
 	 *             thrown if a SQL error in encountered.
 	 */
 	public final void close() throws SQLException {
-		ps.close();
+		if (cache == null) {
+			ps.close();
+		} else if (!released) {
+			released = true;
+			cache.release(connection, sql, ps);
+		}
 	}
 
 	/**
-	 * Set ending time.
-	 */
-	private void end() {
-		executeTime = System.currentTimeMillis() - startTime;
+	 * Set ending time and report the execution to the metrics and the
+	 * journal, if any.
+	 * 
+	 * @param succeeded
+	 *            false if the execution threw an exception
+	 * @param rowsAffected
+	 *            number of rows inserted, updated or deleted
+	 * @param journaled
+	 *            whether the execution can be journaled, i.e. it executed the
+	 *            prepared statement with its bind variables (not a batch or
+	 *            other SQL)
+	 */
+	private void end(final boolean succeeded, final long rowsAffected,
+	    final boolean journaled) {
+		endTime = System.nanoTime();
+		executeNanos = endTime - startTime;
+		if (metrics != null) {
+			metrics.recordExecution(executeNanos, rowsAffected, succeeded);
+		}
+		if (journal != null && journaled && capturing()) {
+			journal.record(sql, parameters.toArray(), startTime, executeNanos,
+			    succeeded);
+		}
+		if (debugLevel.isPolicy() && capturing()
+		    && debugLevel.isLogged(executeNanos)) {
+			logCaptured(succeeded);
+		}
+		// the next bind starts a new capture cycle
+		captureDecided = false;
+	}
+
+	/**
+	 * Logs an execution selected by the {@link DebugLevel} policy, with its
+	 * bind variables. If an {@link AsyncStatementLog} has been set the
+	 * execution is handed to it, otherwise it is rendered and logged on the
+	 * calling thread: slow executions as warnings, sampled ones as info.
+	 * 
+	 * @param succeeded
+	 *            false if the execution threw an exception
+	 */
+	private void logCaptured(final boolean succeeded) {
+		boolean slow = debugLevel.hasThreshold();
+		AsyncStatementLog statementLog = StatementFactory.getStatementLog();
+		if (statementLog != null) {
+			statementLog.offer(new StatementSnapshot(template,
+			    parameters.toArray(), formatter, executeNanos, succeeded, slow));
+			return;
+		}
+		if (slow ? !LOGGER.isWarnEnabled() : !LOGGER.isInfoEnabled()) {
+			return;
+		}
+		// render straight from the parameter store, no snapshot needed
+		StringBuilder buffer = acquireBuffer();
+		StatementSnapshot.appendHeader(buffer, slow, succeeded, executeNanos);
+		template.appendTo(buffer, parameters, formatter);
+		String message = buffer.toString();
+		releaseBuffer(buffer);
+		if (slow) {
+			LOGGER.warn(message);
+		} else {
+			LOGGER.info(message);
+		}
 	}
 
 	/**
@@ -370,22 +615,23 @@ public class DebuggableStatement implements PreparedStatement {
 	 * @return true is query succeeds, else false
 	 */
 	public final boolean execute() throws SQLException {
-		// execute query
-		Boolean results = null;
+		// debug is set to on or lazy, so no times are calculated
+		if (!timed) {
+			// the next bind starts a new capture cycle
+			captureDecided = false;
+			return ps.execute();
+		}
+
+		// calculate execution time for verbose debugging
+		start();
+		boolean succeeded = false;
 		try {
-			results = (Boolean) executeVerboseQuery("execute", null);
-		} catch (InvocationTargetException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: "
-			        + e.getTargetException().getMessage());
-		} catch (NoSuchMethodException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: " + e);
-		} catch (IllegalAccessException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: " + e);
+			boolean results = ps.execute();
+			succeeded = true;
+			return results;
+		} finally {
+			end(succeeded, 0, true);
 		}
-		return results.booleanValue();
 	}
 
 	/**
@@ -401,23 +647,23 @@ public class DebuggableStatement implements PreparedStatement {
 	 *             thrown if a SQL error in encountered.
 	 */
 	public final boolean execute(final String sql) throws SQLException {
-		// execute query
-		Boolean results = null;
+		// debug is set to on or lazy, so no times are calculated
+		if (!timed) {
+			// the next bind starts a new capture cycle
+			captureDecided = false;
+			return ps.execute(sql);
+		}
+
+		// calculate execution time for verbose debugging
+		start();
+		boolean succeeded = false;
 		try {
-			results = (Boolean) executeVerboseQuery("execute",
-			    new Class[] { sql.getClass() });
-		} catch (InvocationTargetException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: "
-			        + e.getTargetException().getMessage());
-		} catch (NoSuchMethodException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: " + e);
-		} catch (IllegalAccessException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: " + e);
-		}
-		return results.booleanValue();
+			boolean results = ps.execute(sql);
+			succeeded = true;
+			return results;
+		} finally {
+			end(succeeded, 0, false);
+		}
 	}
 
 	/** {@inheritDoc} */
@@ -441,32 +687,56 @@ public class DebuggableStatement implements PreparedStatement {
 		return ps.execute(sql, columnIndexes);
 	}
 
+	/**
+	 * Sums the update counts of a batch, ignoring
+	 * {@link java.sql.Statement#SUCCESS_NO_INFO}.
+	 * 
+	 * @param updateCounts
+	 *            update counts returned by executeBatch (may be null)
+	 * @return total number of rows affected
+	 */
+	private static long sumUpdateCounts(final int[] updateCounts) {
+		long total = 0;
+		if (updateCounts != null) {
+			for (int count : updateCounts) {
+				if (count > 0) {
+					total += count;
+				}
+			}
+		}
+		return total;
+	}
+
 	/**
 	 * Executes query and Calculates query execution time if DebugLevel =
-	 * VERBOSE.
+	 * VERBOSE. The captured entries of the batch are kept (and rendered by
+	 * {@link #toString()}) until the next batch is started.
 	 * 
 	 * @return query counts
 	 * @throws SQLException
 	 *             thrown if a SQL error in encountered.
 	 */
 	public final int[] executeBatch() throws SQLException {
-		// execute query
+		int entries = batchSize;
+		batchSize = 0;
+		batchExecuted = true;
+		// debug is set to on or lazy, so no times are calculated
+		if (!timed) {
+			// the next bind starts a new capture cycle
+			captureDecided = false;
+			return ps.executeBatch();
+		}
+
+		// calculate execution time for verbose debugging
+		start();
+		executedBatchSize = entries;
 		int[] results = null;
 		try {
-			results = (int[]) executeVerboseQuery("executeBatch", null);
-		} catch (InvocationTargetException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: "
-			        + e.getTargetException().getMessage(),
-			    e);
-		} catch (NoSuchMethodException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: " + e);
-		} catch (IllegalAccessException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: " + e);
+			results = ps.executeBatch();
+			return results;
+		} finally {
+			end(results != null, sumUpdateCounts(results), false);
 		}
-		return results;
 	}
 
 	/**
@@ -478,26 +748,22 @@ public class DebuggableStatement implements PreparedStatement {
 	 *             thrown if a SQL error in encountered.
 	 */
 	public final ResultSet executeQuery() throws SQLException {
-		// execute query
-		ResultSet results = null;
-		try {
-
-			results = (ResultSet) executeVerboseQuery("executeQuery", null);
-
-		} catch (InvocationTargetException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: "
-			        + e.getTargetException().getMessage(),
-			    e);
-		} catch (NoSuchMethodException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: " + e);
-		} catch (IllegalAccessException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: " + e);
+		// debug is set to on or lazy, so no times are calculated
+		if (!timed) {
+			// the next bind starts a new capture cycle
+			captureDecided = false;
+			return ps.executeQuery();
 		}
 
-		return results;
+		// calculate execution time for verbose debugging
+		start();
+		ResultSet rs = null;
+		try {
+			rs = ps.executeQuery();
+		} finally {
+			end(rs != null, 0, true);
+		}
+		return new TimedResultSet(rs, this, executionCount);
 	}
 
 	/**
@@ -513,25 +779,22 @@ public class DebuggableStatement implements PreparedStatement {
 	 *             thrown if a SQL error in encountered.
 	 */
 	public final ResultSet executeQuery(final String sql) throws SQLException {
-		// execute query
-		ResultSet results = null;
-		try {
-			results = (ResultSet) executeVerboseQuery("executeQuery",
-			    new Class[] { sql.getClass() });
-		} catch (InvocationTargetException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: "
-			        + e.getTargetException().getMessage(),
-			    e);
-		} catch (NoSuchMethodException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: " + e);
-		} catch (IllegalAccessException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: " + e);
+		// debug is set to on or lazy, so no times are calculated
+		if (!timed) {
+			// the next bind starts a new capture cycle
+			captureDecided = false;
+			return ps.executeQuery(sql);
 		}
 
-		return results;
+		// calculate execution time for verbose debugging
+		start();
+		ResultSet rs = null;
+		try {
+			rs = ps.executeQuery(sql);
+		} finally {
+			end(rs != null, 0, false);
+		}
+		return new TimedResultSet(rs, this, executionCount);
 	}
 
 	/**
@@ -543,23 +806,22 @@ public class DebuggableStatement implements PreparedStatement {
 	 *             thrown if a SQL error in encountered.
 	 */
 	public final int executeUpdate() throws SQLException {
-		// execute query
-		Integer results = null;
+		// debug is set to on or lazy, so no times are calculated
+		if (!timed) {
+			// the next bind starts a new capture cycle
+			captureDecided = false;
+			return ps.executeUpdate();
+		}
+
+		// calculate execution time for verbose debugging
+		start();
+		int results = -1;
 		try {
-			results = (Integer) executeVerboseQuery("executeUpdate", null);
-		} catch (InvocationTargetException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: "
-			        + e.getTargetException().getMessage(),
-			    e);
-		} catch (NoSuchMethodException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: " + e);
-		} catch (IllegalAccessException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: " + e);
+			results = ps.executeUpdate();
+			return results;
+		} finally {
+			end(results >= 0, results, true);
 		}
-		return results.intValue();
 	}
 
 	/**
@@ -575,24 +837,22 @@ public class DebuggableStatement implements PreparedStatement {
 	 *             thrown if a SQL error in encountered.
 	 */
 	public final int executeUpdate(final String sql) throws SQLException {
-		// execute query
-		Integer results = null;
+		// debug is set to on or lazy, so no times are calculated
+		if (!timed) {
+			// the next bind starts a new capture cycle
+			captureDecided = false;
+			return ps.executeUpdate(sql);
+		}
+
+		// calculate execution time for verbose debugging
+		start();
+		int results = -1;
 		try {
-			results = (Integer) executeVerboseQuery("executeUpdate",
-			    new Class[] { sql.getClass() });
-		} catch (InvocationTargetException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: "
-			        + e.getTargetException().getMessage(),
-			    e);
-		} catch (NoSuchMethodException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: " + e);
-		} catch (IllegalAccessException e) {
-			throw new SQLException(
-			    "Could not execute sql command - Original message: " + e);
-		}
-		return results.intValue();
+			results = ps.executeUpdate(sql);
+			return results;
+		} finally {
+			end(results >= 0, results, false);
+		}
 	}
 
 	/** {@inheritDoc} */
@@ -616,51 +876,9 @@ public class DebuggableStatement implements PreparedStatement {
 		return ps.executeUpdate(sql, columnNames);
 	}
 
-	/**
-	 * This method executes a parameterized SQL statement that will replace
-	 * parameter placeholders (?) with their formatted values.
-	 * 
-	 * @param methodName
-	 *            {@link PreparedStatement} method name
-	 * @param parameters
-	 *            query parameters
-	 * @return the {@link Object} returned from the JDBC
-	 *         {@link java.sql.Statement}.
-	 * @throws SQLException
-	 *             thrown if a SQL error in encountered.
-	 * @throws NoSuchMethodException
-	 *             thrown if the method isn't defined in the
-	 *             {@link java.sql.Statement} class.
-	 * @throws InvocationTargetException
-	 *             thrown if the {@link java.sql.Statement} object doesn't
-	 *             exist.
-	 * @throws IllegalAccessException
-	 *             thrown if the method is not accessible
-	 * 
-	 */
-	private Object executeVerboseQuery(final String methodName,
-	    final Class<?>[] parameters) throws SQLException, NoSuchMethodException,
-	            InvocationTargetException, IllegalAccessException {
-		// determine which method we have
-		Method m = ps.getClass().getDeclaredMethod(methodName, parameters);
-
-		// debug is set to on, so no times are calculated
-		if (debugLevel == DebugLevel.ON) {
-			return m.invoke(ps, (Object[]) parameters);
-		}
-
-		// calculate execution time for verbose debugging
-		start();
-		Object returnObject = m.invoke(ps, (Object[]) parameters);
-		end();
-
-		// return the executions return type
-		return returnObject;
-	}
-
 	/** {@inheritDoc} */
 	public final Connection getConnection() throws SQLException {
-		return ps.getConnection();
+		return connection;
 	}
 
 	/** {@inheritDoc} */
@@ -724,7 +942,9 @@ public class DebuggableStatement implements PreparedStatement {
 
 	/** {@inheritDoc} */
 	public final ResultSet getResultSet() throws SQLException {
-		return ps.getResultSet();
+		ResultSet rs = ps.getResultSet();
+		return timed && rs != null ? new TimedResultSet(rs, this, executionCount)
+		    : rs;
 	}
 
 	/** {@inheritDoc} */
@@ -750,6 +970,52 @@ public class DebuggableStatement implements PreparedStatement {
 		return sql;
 	}
 
+	/**
+	 * Returns the per-phase timings of the last execution. Timings are only
+	 * gathered if the {@link DebugLevel} isn't ON or LAZY (or metrics are
+	 * gathered or executions are journaled); otherwise
+	 * {@link ExecutionStats#NONE} is returned.
+	 * 
+	 * @return {@link ExecutionStats} of the last execution
+	 */
+	public final ExecutionStats getExecutionStats() {
+		if (!timed) {
+			return ExecutionStats.NONE;
+		}
+		return new ExecutionStats(prepareNanos, bindNanos, executeNanos,
+		    firstRowNanos, consumeNanos, rowCount, executedBatchSize);
+	}
+
+	/**
+	 * Called by a {@link TimedResultSet} when its first row has been fetched.
+	 * 
+	 * @param execution
+	 *            execution that produced the result set
+	 */
+	final void firstRowFetched(long execution) {
+		if (execution == executionCount && firstRowNanos == 0) {
+			firstRowNanos = System.nanoTime() - endTime;
+		}
+	}
+
+	/**
+	 * Called by a {@link TimedResultSet} when it has been exhausted or closed.
+	 * 
+	 * @param execution
+	 *            execution that produced the result set
+	 * @param rows
+	 *            number of rows fetched
+	 */
+	final void resultSetConsumed(long execution, long rows) {
+		if (execution == executionCount && consumeNanos == 0) {
+			consumeNanos = System.nanoTime() - endTime;
+			rowCount = rows;
+			if (metrics != null) {
+				metrics.recordResultSet(consumeNanos, rowCount);
+			}
+		}
+	}
+
 	/** {@inheritDoc} */
 	public final int getUpdateCount() throws SQLException {
 		return ps.getUpdateCount();
@@ -763,7 +1029,7 @@ public class DebuggableStatement implements PreparedStatement {
 	/** {@inheritDoc} */
 	@Override
 	public final boolean isClosed() throws SQLException {
-		return ps.isClosed();
+		return released || ps.isClosed();
 	}
 
 	/** {@inheritDoc} */
@@ -778,9 +1044,54 @@ public class DebuggableStatement implements PreparedStatement {
 		return ps.isWrapperFor(iface);
 	}
 
+	/**
+	 * Decides, once per bind cycle (i.e. per execution), whether bind
+	 * variables are captured. {@link DebugLevel#LAZY} only captures while
+	 * debug logging is enabled for DebuggableStatement and capture policies
+	 * only capture the executions they select, so nothing is captured (or
+	 * allocated) for statements that won't be logged. When
+	 * capture is switched off, previously captured values are discarded so
+	 * that stale values are never rendered.
+	 * 
+	 * @return true if bind variables are captured
+	 */
+	private boolean capturing() {
+		if (!captureDecided) {
+			captureDecided = true;
+			boolean enabled;
+			if (debugLevel == DebugLevel.LAZY) {
+				enabled = LOGGER.isDebugEnabled();
+			} else if (debugLevel.isPolicy()) {
+				enabled = debugLevel.sample();
+			} else {
+				enabled = debugLevel != DebugLevel.OFF;
+			}
+			if (capture && !enabled) {
+				parameters.clear();
+			}
+			capture = enabled;
+		}
+		return capture;
+	}
+
+	/**
+	 * Called by every bind variable setter: notes the start of the bind phase
+	 * (if executions are timed, whether or not bind variables are captured)
+	 * and decides whether bind variables are captured.
+	 * 
+	 * @return true if bind variables are captured
+	 */
+	private boolean binding() {
+		if (timed && !bindStarted) {
+			bindStarted = true;
+			bindStartTime = System.nanoTime();
+		}
+		return capturing();
+	}
+
 	/**
 	 * Tests Object o for parameterIndex (which parameter is being set) and
-	 * places object in array of variables.
+	 * places object in the parameter store.
 	 * 
 	 * @param parameterIndex
 	 *            which PreparedStatement parameter is being set. Sequence
@@ -792,13 +1103,28 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	private void saveObject(final int parameterIndex, final Object object)
 	        throws ParameterIndexOutOfBoundsException {
-		if (parameterIndex > variables.length) {
+		parameters.setObject(slot(parameterIndex), object);
+	}
+
+	/**
+	 * Tests parameterIndex (which parameter is being set) and returns its
+	 * slot in the parameter store.
+	 * 
+	 * @param parameterIndex
+	 *            which PreparedStatement parameter is being set. Sequence
+	 *            begins at 1.
+	 * @return 0-based slot of the parameter
+	 * @throws ParameterIndexOutOfBoundsException
+	 *             Thrown if index exceeds number of variables.
+	 */
+	private int slot(final int parameterIndex)
+	        throws ParameterIndexOutOfBoundsException {
+		if (parameterIndex > parameters.size()) {
 			throw new ParameterIndexOutOfBoundsException(
 			    "Parameter index of " + parameterIndex
-			        + " exceeds actual parameter count of " + variables.length);
+			        + " exceeds actual parameter count of " + parameters.size());
 		}
-
-		variables[parameterIndex - 1] = new DebugObject(object);
+		return parameterIndex - 1;
 	}
 
 	/**
@@ -815,7 +1141,9 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setArray(final int inx, final java.sql.Array array)
 	        throws SQLException {
-		saveObject(inx, array);
+		if (binding()) {
+			saveObject(inx, array);
+		}
 		ps.setArray(inx, array);
 	}
 
@@ -823,6 +1151,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setAsciiStream(final int parameterIndex,
 	    final InputStream is) throws SQLException {
+		binding();
 		ps.setAsciiStream(parameterIndex, is);
 	}
 
@@ -841,8 +1170,10 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setAsciiStream(final int parameterIndex,
 	    final InputStream is, final int length) throws SQLException {
-		saveObject(parameterIndex,
-		    (is == null ? NULL : "<stream length= " + length + ">"));
+		if (binding()) {
+			saveObject(parameterIndex,
+			    (is == null ? null : new StreamPlaceholder(length)));
+		}
 		ps.setAsciiStream(parameterIndex, is, length);
 	}
 
@@ -850,6 +1181,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setAsciiStream(final int parameterIndex,
 	    final InputStream is, final long length) throws SQLException {
+		binding();
 		ps.setAsciiStream(parameterIndex, is, length);
 	}
 
@@ -865,7 +1197,9 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setBigDecimal(int parameterIndex, BigDecimal num)
 	        throws SQLException {
-		saveObject(parameterIndex, num);
+		if (binding()) {
+			saveObject(parameterIndex, num);
+		}
 		ps.setBigDecimal(parameterIndex, num);
 	}
 
@@ -873,6 +1207,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setBinaryStream(final int parameterIndex,
 	    final InputStream is) throws SQLException {
+		binding();
 		ps.setBinaryStream(parameterIndex, is);
 	}
 
@@ -891,8 +1226,10 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setBinaryStream(final int parameterIndex,
 	    final InputStream is, final int length) throws SQLException {
-		saveObject(parameterIndex,
-		    (is == null ? NULL : "<stream length= " + length + ">"));
+		if (binding()) {
+			saveObject(parameterIndex,
+			    (is == null ? null : new StreamPlaceholder(length)));
+		}
 		ps.setBinaryStream(parameterIndex, is, length);
 	}
 
@@ -900,6 +1237,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setBinaryStream(final int parameterIndex,
 	    final InputStream is, final long length) throws SQLException {
+		binding();
 		ps.setBinaryStream(parameterIndex, is, length);
 	}
 
@@ -916,7 +1254,9 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setBlob(final int parameterIndex, final Blob blob)
 	        throws SQLException {
-		saveObject(parameterIndex, blob);
+		if (binding()) {
+			saveObject(parameterIndex, blob);
+		}
 		ps.setBlob(parameterIndex, blob);
 	}
 
@@ -924,6 +1264,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setBlob(final int parameterIndex,
 	    final InputStream inputStream) throws SQLException {
+		binding();
 		ps.setBlob(parameterIndex, inputStream);
 	}
 
@@ -931,6 +1272,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setBlob(final int parameterIndex,
 	    final InputStream inputStream, final long length) throws SQLException {
+		binding();
 		ps.setBlob(parameterIndex, inputStream, length);
 	}
 
@@ -946,7 +1288,9 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setBoolean(final int parameterIndex, final boolean bool)
 	        throws SQLException {
-		saveObject(parameterIndex, Boolean.valueOf(bool));
+		if (binding()) {
+			parameters.setBoolean(slot(parameterIndex), bool);
+		}
 		ps.setBoolean(parameterIndex, bool);
 	}
 
@@ -962,12 +1306,15 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setByte(final int parameterIndex, final byte theByte)
 	        throws SQLException {
-		saveObject(parameterIndex, Byte.valueOf(theByte));
+		if (binding()) {
+			parameters.setByte(slot(parameterIndex), theByte);
+		}
 		ps.setByte(parameterIndex, theByte);
 	}
 
 	/**
-	 * Adds byte[] to debug string in parameterIndex position.
+	 * Adds byte[] to debug string in parameterIndex position (rendered as a
+	 * hex preview, see {@link BaseSqlFormatter#setMaxBytesLength(int)}).
 	 * 
 	 * @param parameterIndex
 	 *            index of parameter
@@ -978,8 +1325,9 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setBytes(final int parameterIndex, final byte[] byteArray)
 	        throws SQLException {
-		saveObject(parameterIndex,
-		    (byteArray == null ? NULL : "byte[] length=" + byteArray.length));
+		if (binding()) {
+			saveObject(parameterIndex, byteArray);
+		}
 		ps.setBytes(parameterIndex, byteArray);
 	}
 
@@ -987,6 +1335,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setCharacterStream(final int parameterIndex,
 	    final Reader reader) throws SQLException {
+		binding();
 		ps.setCharacterStream(parameterIndex, reader);
 	}
 
@@ -1006,8 +1355,10 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setCharacterStream(final int parameterIndex,
 	    final Reader reader, final int length) throws SQLException {
-		saveObject(parameterIndex,
-		    (reader == null ? NULL : "<stream length= " + length + ">"));
+		if (binding()) {
+			saveObject(parameterIndex,
+			    (reader == null ? null : new StreamPlaceholder(length)));
+		}
 		ps.setCharacterStream(parameterIndex, reader, length);
 	}
 
@@ -1015,6 +1366,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setCharacterStream(final int parameterIndex,
 	    final Reader reader, final long length) throws SQLException {
+		binding();
 		ps.setCharacterStream(parameterIndex, reader);
 	}
 
@@ -1032,7 +1384,9 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setClob(final int inx, final Clob clob)
 	        throws SQLException {
-		saveObject(inx, clob);
+		if (binding()) {
+			saveObject(inx, clob);
+		}
 		ps.setClob(inx, clob);
 	}
 
@@ -1040,6 +1394,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setClob(final int parameterIndex, final Reader reader)
 	        throws SQLException {
+		binding();
 		ps.setClob(parameterIndex, reader);
 	}
 
@@ -1047,6 +1402,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setClob(final int parameterIndex, final Reader reader,
 	    final long length) throws SQLException {
+		binding();
 		ps.setClob(parameterIndex, reader, length);
 	}
 
@@ -1068,28 +1424,31 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setDate(final int parameterIndex,
 	    final java.sql.Date date) throws SQLException {
-		saveObject(parameterIndex, date);
+		if (binding()) {
+			saveObject(parameterIndex, date);
+		}
 		ps.setDate(parameterIndex, date);
 	}
 
 	/**
-	 * this implementation assumes that the Date has the date, and the calendar
-	 * has the local info. For the debug string, the cal date is set to the date
-	 * of x. Debug string displays date in YYYY-MM-DD HH24:MI:SS format.
+	 * The debug string displays the date the driver sends: the date of the
+	 * Date in the time zone of the Calendar.
 	 * 
 	 * @param parameterIndex
 	 *            index of parameter
 	 * @param date
 	 *            parameter Object
 	 * @param cal
-	 *            uses x to set time
+	 *            Calendar whose time zone the date is sent in
 	 * @throws SQLException
 	 *             thrown if a SQL error in encountered.
 	 */
 	public final void setDate(final int parameterIndex,
 	    final java.sql.Date date, final Calendar cal) throws SQLException {
-		cal.setTime(new java.util.Date(date.getTime()));
-		saveObject(parameterIndex, cal);
+		if (binding()) {
+			saveObject(parameterIndex, date == null || cal == null ? date
+			    : TemporalLiterals.localDateTime(date, cal).toLocalDate());
+		}
 		ps.setDate(parameterIndex, date, cal);
 	}
 
@@ -1107,7 +1466,9 @@ public class DebuggableStatement implements PreparedStatement {
 	// problematic in Oracle.
 	public final void setDouble(final int parameterIndex, final double x)
 	        throws SQLException {
-		saveObject(parameterIndex, new Double(x));
+		if (binding()) {
+			parameters.setDouble(slot(parameterIndex), x);
+		}
 		ps.setDouble(parameterIndex, x);
 	}
 
@@ -1147,7 +1508,9 @@ public class DebuggableStatement implements PreparedStatement {
 	// problematic in Oracle.
 	public final void setFloat(final int parameterIndex, final float x)
 	        throws SQLException {
-		saveObject(parameterIndex, new Float(x));
+		if (binding()) {
+			parameters.setFloat(slot(parameterIndex), x);
+		}
 		ps.setFloat(parameterIndex, x);
 	}
 
@@ -1175,7 +1538,9 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setInt(final int parameterIndex, final int x)
 	        throws SQLException {
-		saveObject(parameterIndex, Integer.valueOf(x));
+		if (binding()) {
+			parameters.setInt(slot(parameterIndex), x);
+		}
 		ps.setInt(parameterIndex, x);
 	}
 
@@ -1191,7 +1556,9 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setLong(final int parameterIndex, final long x)
 	        throws SQLException {
-		saveObject(parameterIndex, Long.valueOf(x));
+		if (binding()) {
+			parameters.setLong(slot(parameterIndex), x);
+		}
 		ps.setLong(parameterIndex, x);
 	}
 
@@ -1211,6 +1578,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setNCharacterStream(final int parameterIndex,
 	    final Reader value) throws SQLException {
+		binding();
 		ps.setNCharacterStream(parameterIndex, value);
 	}
 
@@ -1218,6 +1586,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setNCharacterStream(final int parameterIndex,
 	    final Reader value, final long length) throws SQLException {
+		binding();
 		ps.setNCharacterStream(parameterIndex, value);
 	}
 
@@ -1225,6 +1594,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setNClob(final int parameterIndex, final NClob value)
 	        throws SQLException {
+		binding();
 		ps.setNClob(parameterIndex, value);
 	}
 
@@ -1232,6 +1602,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setNClob(final int parameterIndex, final Reader reader)
 	        throws SQLException {
+		binding();
 		ps.setNClob(parameterIndex, reader);
 
 	}
@@ -1240,13 +1611,27 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setNClob(final int parameterIndex, final Reader reader,
 	    final long length) throws SQLException {
+		binding();
 		ps.setNClob(parameterIndex, reader, length);
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * Adds national character String to debug string in parameterIndex
+	 * position.
+	 * 
+	 * @param parameterIndex
+	 *            index of parameter
+	 * @param value
+	 *            parameter Object
+	 * @throws SQLException
+	 *             thrown if a SQL error in encountered.
+	 */
 	@Override
 	public final void setNString(final int parameterIndex, final String value)
 	        throws SQLException {
+		if (binding()) {
+			saveObject(parameterIndex, value);
+		}
 		ps.setNString(parameterIndex, value);
 	}
 
@@ -1262,7 +1647,9 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setNull(final int parameterIndex, final int sqlType)
 	        throws SQLException {
-		saveObject(parameterIndex, NULL);
+		if (binding()) {
+			saveObject(parameterIndex, null);
+		}
 		ps.setNull(parameterIndex, sqlType);
 	}
 
@@ -1281,13 +1668,15 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setNull(final int parameterIndex, final int sqlType,
 	    final String typeName) throws SQLException {
-		saveObject(parameterIndex, NULL);
+		if (binding()) {
+			saveObject(parameterIndex, null);
+		}
 		ps.setNull(parameterIndex, sqlType, typeName);
 	}
 
 	/**
-	 * Adds name of the object's class type to the debug String. If object is
-	 * null, NULL is added to debug String.
+	 * Adds the object to the debug String, as rendered by the formatter for its
+	 * type. If object is null, NULL is added to debug String.
 	 * 
 	 * @param parameterIndex
 	 *            index of parameter
@@ -1298,13 +1687,15 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setObject(final int parameterIndex, final Object x)
 	        throws SQLException {
-		saveObject(parameterIndex, (x == null ? NULL : x.getClass().getName()));
+		if (binding()) {
+			saveObject(parameterIndex, x);
+		}
 		ps.setObject(parameterIndex, x);
 	}
 
 	/**
-	 * Adds name of the object's class type to the debug String. If object is
-	 * null, NULL is added to debug String.
+	 * Adds the object to the debug String, as rendered by the formatter for its
+	 * type. If object is null, NULL is added to debug String.
 	 * 
 	 * @param parameterIndex
 	 *            index of parameter
@@ -1317,13 +1708,15 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setObject(final int parameterIndex, final Object x,
 	    final int targetSqlType) throws SQLException {
-		saveObject(parameterIndex, (x == null ? NULL : x.getClass().getName()));
+		if (binding()) {
+			saveObject(parameterIndex, x);
+		}
 		ps.setObject(parameterIndex, x, targetSqlType);
 	}
 
 	/**
-	 * Adds name of the object's class type to the debug String. If object is
-	 * null, NULL is added to debug String.
+	 * Adds the object to the debug String, as rendered by the formatter for its
+	 * type. If object is null, NULL is added to debug String.
 	 * 
 	 * @param parameterIndex
 	 *            index of parameter
@@ -1338,7 +1731,9 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setObject(final int parameterIndex, final Object x,
 	    final int targetSqlType, final int scale) throws SQLException {
-		saveObject(parameterIndex, (x == null ? NULL : x.getClass().getName()));
+		if (binding()) {
+			saveObject(parameterIndex, x);
+		}
 		ps.setObject(parameterIndex, x, targetSqlType, scale);
 	}
 
@@ -1370,7 +1765,9 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 
 	public final void setRef(final int i, final Ref x) throws SQLException {
-		saveObject(i, x);
+		if (binding()) {
+			saveObject(i, x);
+		}
 		ps.setRef(i, x);
 	}
 
@@ -1378,6 +1775,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setRowId(final int parameterIndex, final RowId x)
 	        throws SQLException {
+		binding();
 		ps.setRowId(parameterIndex, x);
 	}
 
@@ -1393,7 +1791,9 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setShort(final int parameterIndex, final short value)
 	        throws SQLException {
-		saveObject(parameterIndex, Short.valueOf(value));
+		if (binding()) {
+			parameters.setShort(slot(parameterIndex), value);
+		}
 		ps.setShort(parameterIndex, value);
 	}
 
@@ -1403,15 +1803,14 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setSQLXML(final int parameterIndex,
 	    final SQLXML xmlObject) throws SQLException {
+		binding();
 		ps.setSQLXML(parameterIndex, xmlObject);
 	}
 
 	/**
 	 * Adds String to debug string in parameterIndex position. If String is null
-	 * "NULL" is inserted in debug string. ***note**** In situations where a
-	 * single ' is in the string being inserted in the database. The debug
-	 * string will need to be modified to reflect this when running the debug
-	 * statement in the database.
+	 * "NULL" is inserted in debug string. Single quotes in the String are
+	 * doubled, so the debug string can be run in the database as is.
 	 * 
 	 * @param parameterIndex
 	 *            index of parameter
@@ -1422,7 +1821,9 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setString(final int parameterIndex, final String x)
 	        throws SQLException {
-		saveObject(parameterIndex, x);
+		if (binding()) {
+			saveObject(parameterIndex, x);
+		}
 		ps.setString(parameterIndex, x);
 	}
 
@@ -1438,28 +1839,31 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setTime(final int parameterIndex, final Time x)
 	        throws SQLException {
-		saveObject(parameterIndex, x);
+		if (binding()) {
+			saveObject(parameterIndex, x);
+		}
 		ps.setTime(parameterIndex, x);
 	}
 
 	/**
-	 * This implementation assumes that the Time object has the time and
-	 * Calendar has the locale info. For the debug string, the cal time is set
-	 * to the value of x. Debug string displays time in HH24:MI:SS format.
+	 * The debug string displays the time the driver sends: the time of x in
+	 * the time zone of the Calendar.
 	 * 
 	 * @param parameterIndex
 	 *            index of parameter
 	 * @param x
 	 *            parameter Object
 	 * @param cal
-	 *            sets time based on x
+	 *            Calendar whose time zone the time is sent in
 	 * @throws SQLException
 	 *             thrown if a SQL error in encountered.
 	 */
 	public final void setTime(final int parameterIndex, final Time x,
 	    final Calendar cal) throws SQLException {
-		cal.setTime(new java.util.Date(x.getTime()));
-		saveObject(parameterIndex, cal);
+		if (binding()) {
+			saveObject(parameterIndex, x == null || cal == null ? x
+			    : TemporalLiterals.localDateTime(x, cal).toLocalTime());
+		}
 		ps.setTime(parameterIndex, x, cal);
 	}
 
@@ -1475,29 +1879,31 @@ public class DebuggableStatement implements PreparedStatement {
 	 */
 	public final void setTimestamp(final int parameterIndex, final Timestamp x)
 	        throws SQLException {
-		saveObject(parameterIndex, x);
+		if (binding()) {
+			saveObject(parameterIndex, x);
+		}
 		ps.setTimestamp(parameterIndex, x);
 	}
 
 	/**
-	 * This implementation assumes that the Timestamp has the date/time and
-	 * Calendar has the locale info. For the debug string, the cal date/time is
-	 * set to the default value of Timestamp which is YYYY-MM-DD HH24:MI:SS.
-	 * Debug string displays timestamp in DateFormat.LONG format.
+	 * The debug string displays the timestamp the driver sends: the date and
+	 * time of x in the time zone of the Calendar.
 	 * 
 	 * @param parameterIndex
 	 *            index of parameter
 	 * @param x
 	 *            parameter Object
 	 * @param cal
-	 *            sets time based on x
+	 *            Calendar whose time zone the timestamp is sent in
 	 * @throws SQLException
 	 *             thrown if a SQL error in encountered.
 	 */
 	public final void setTimestamp(final int parameterIndex, final Timestamp x,
 	    final Calendar cal) throws SQLException {
-		cal.setTime(new java.util.Date(x.getTime()));
-		saveObject(parameterIndex, cal);
+		if (binding()) {
+			saveObject(parameterIndex, x == null || cal == null ? x
+			    : TemporalLiterals.localDateTime(x, cal));
+		}
 		ps.setTimestamp(parameterIndex, x, cal);
 	}
 
@@ -1505,6 +1911,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@SuppressWarnings("deprecation")
 	public void setUnicodeStream(final int parameterIndex, final InputStream x,
 	    final int length) throws SQLException {
+		binding();
 		ps.setUnicodeStream(parameterIndex, x, length);
 	}
 
@@ -1512,6 +1919,7 @@ public class DebuggableStatement implements PreparedStatement {
 	@Override
 	public final void setURL(final int parameterIndex, final URL x)
 	        throws SQLException {
+		binding();
 		ps.setURL(parameterIndex, x);
 
 	}
@@ -1520,59 +1928,132 @@ public class DebuggableStatement implements PreparedStatement {
 	 * Set starting time.
 	 */
 	private void start() {
-		startTime = System.currentTimeMillis();
+		startTime = System.nanoTime();
+		bindNanos = bindStarted ? startTime - bindStartTime : 0;
+		bindStarted = false;
+		firstRowNanos = 0;
+		consumeNanos = 0;
+		rowCount = 0;
+		executedBatchSize = 0;
+		executionCount++;
+	}
+
+	/**
+	 * Appends the sql statement with its bind variables substituted to the
+	 * given buffer. Values are written straight into the buffer by the
+	 * {@link SqlFormatter}. If a bind variable is missing then ? + (missing
+	 * variable #) is appended in its place.
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	public final void appendTo(StringBuilder buffer) {
+		template.appendTo(buffer, parameters, formatter);
+	}
+
+	/**
+	 * Appends the sql statement with its bind variables substituted (see
+	 * {@link #appendTo(StringBuilder)}) to the given {@link Appendable}, e.g.
+	 * a {@link java.io.Writer}.
+	 * 
+	 * @param out
+	 *            {@link Appendable} to append to
+	 * @throws IOException
+	 *             thrown if appending to out fails
+	 */
+	public final void appendTo(Appendable out) throws IOException {
+		if (out instanceof StringBuilder) {
+			appendTo((StringBuilder) out);
+		} else {
+			StringBuilder buffer = acquireBuffer();
+			appendTo(buffer);
+			out.append(buffer);
+			releaseBuffer(buffer);
+		}
+	}
+
+	/**
+	 * @return the calling thread's (empty) rendering buffer
+	 */
+	private static StringBuilder acquireBuffer() {
+		StringBuilder buffer = BUFFER.get();
+		buffer.setLength(0);
+		return buffer;
+	}
+
+	/**
+	 * Drops the calling thread's rendering buffer if it has grown too large
+	 * to be worth keeping.
+	 * 
+	 * @param buffer
+	 *            buffer obtained from {@link #acquireBuffer()}
+	 */
+	private static void releaseBuffer(StringBuilder buffer) {
+		if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+			BUFFER.remove();
+		}
+	}
+
+	/**
+	 * Appends nanoseconds as milliseconds with three decimals.
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 * @param nanos
+	 *            nanoseconds
+	 */
+	static void appendMillis(StringBuilder buffer, long nanos) {
+		long micros = (nanos + NANOS_PER_MICRO / 2) / NANOS_PER_MICRO;
+		long fraction = micros % MICROS_PER_MILLI;
+		buffer.append(micros / MICROS_PER_MILLI).append('.');
+		if (fraction < 100) {
+			buffer.append('0');
+		}
+		if (fraction < 10) {
+			buffer.append('0');
+		}
+		buffer.append(fraction);
 	}
 
 	/**
 	 * this toString is overidden to return a String representation of the sql
 	 * statement being sent to the database. If a bind variable is missing then
-	 * the String contains a ? + (missing variable #)
+	 * the String contains a ? + (missing variable #). If batch entries have
+	 * been captured, the statement of every entry follows, one per line.
 	 * 
 	 * @return the above string representation
+	 * @see #appendTo(StringBuilder)
 	 */
 	public final String toString() {
-		StringTokenizer st = new StringTokenizer(filteredSql, "?");
-		int count = 1;
-		StringBuffer statement = new StringBuffer(INITIAL_STMT_LEN);
-		while (st.hasMoreTokens()) {
-			statement.append(st.nextToken());
-			if (count <= variables.length) {
-				if (variables[count - 1] != null
-				    && variables[count - 1].isValueAssigned()) {
-					try {
-						statement.append(formatter
-						    .format(variables[count - 1].getDebugObject()));
-					} catch (SQLException e) {
-						statement.append("SQLException: ");
-						statement.append(e);
-					}
-				} else {
-					statement.append("? (missing variable # ");
-					statement.append(count);
-					statement.append(" ) ");
-				}
-			}
-			count++;
-		}
-		// unfilter the string in case there where rogue '?' in query string.
-		char[] unfilterSql = statement.toString().toCharArray();
-		for (int i = 0; i < unfilterSql.length; i++) {
-			if (unfilterSql[i] == '\u0007') {
-				unfilterSql[i] = '?';
-			}
+		StringBuilder buffer = acquireBuffer();
+		appendTo(buffer);
+
+		// append the batch entries
+		if (batch != null && batch.getSize() > 0) {
+			buffer.append(LINE_SEPARATOR).append(LINE_SEPARATOR)
+			    .append("batch of ").append(batch.getSize())
+			    .append(" entries:").append(LINE_SEPARATOR);
+			batch.appendTo(buffer, template, formatter, LINE_SEPARATOR);
 		}
 
-		// return execute time
-		if (LOGGER.isDebugEnabled()) {
-			return new String(unfilterSql);
-		} else {
-			return new String(unfilterSql)
-			    + System.getProperty("line.separator")
-			    + System.getProperty("line.separator") + "query executed in "
-			    + executeTime + " milliseconds"
-			    + System.getProperty("line.separator");
+		// append execute time
+		if (!LOGGER.isDebugEnabled()) {
+			buffer.append(LINE_SEPARATOR).append(LINE_SEPARATOR)
+			    .append("query executed in ");
+			appendMillis(buffer, executeNanos);
+			buffer.append(" milliseconds");
+			if (executedBatchSize > 0) {
+				buffer.append(" (batch of ").append(executedBatchSize)
+				    .append(" entries, ")
+				    .append(ExecutionStats.perSecond(executedBatchSize,
+				        executeNanos))
+				    .append(" rows/second)");
+			}
+			buffer.append(LINE_SEPARATOR);
 		}
-
+		String statement = buffer.toString();
+		releaseBuffer(buffer);
+		return statement;
 	}
 
 	/** {@inheritDoc} */
@@ -17,11 +17,18 @@ import java.sql.Date;
 import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
-import java.util.Calendar;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 
 /**
  * DefaultSqlFormatter formats types of an undetermined database. These include
- * Calendar, Date, Time, and TimeStamps. Generic types are handled by
+ * Date, Time, TimeStamps and the java.time LocalDate, LocalTime,
+ * LocalDateTime, OffsetDateTime and Instant (as UTC), using the same
+ * functions as {@link OracleSqlFormatter}. Generic types are handled by
  * BaseSqlFormatter.
  * 
  * @author Troy Thompson, Bob Byron
@@ -29,9 +36,21 @@ import java.util.Calendar;
 public class DefaultSqlFormatter implements SqlFormatter {
 
 	/**
-	 * Default date format: 'YYYY-MM-DD HH24:MI:SS'.
+	 * Renderers of the date and time types.
 	 */
-	private static final String YMD24 = "'YYYY-MM-DD HH24:MI:SS'";
+	private static final RendererRegistry RENDERERS = new RendererRegistry()
+	    .register(Date.class, (date, buffer) -> TemporalLiterals
+	        .toDateTime(TemporalLiterals.localDateTime(date), buffer))
+	    .register(Time.class,
+	        (time, buffer) -> TemporalLiterals.toTime(time.toLocalTime(), buffer))
+	    .register(Timestamp.class, (timestamp, buffer) -> TemporalLiterals
+	        .toTimestamp(timestamp.toLocalDateTime(), buffer))
+	    .register(LocalDate.class, TemporalLiterals::toDate)
+	    .register(LocalTime.class, TemporalLiterals::toTime)
+	    .register(LocalDateTime.class, TemporalLiterals::toTimestamp)
+	    .register(OffsetDateTime.class, TemporalLiterals::toTimestampTz)
+	    .register(Instant.class, (instant, buffer) -> TemporalLiterals
+	        .toTimestampTz(instant.atOffset(ZoneOffset.UTC), buffer));
 
 	/**
 	 * Base SQL formatter.
@@ -49,44 +68,6 @@ public class DefaultSqlFormatter implements SqlFormatter {
 		this.baseFormatter = baseSqlFormatter;
 	}
 
-	/**
-	 * Formats Date object into Oracle TO_DATE String.
-	 * 
-	 * @param date
-	 *            Date to be formatted
-	 * @return formatted TO_DATE function
-	 */
-	private String format(final Date date) {
-		return "TO_DATE('" + new Timestamp(date.getTime()) + "'," + YMD24 + ")";
-	}
-
-	/**
-	 * Formats Time object into Oracle TO_DATE String.
-	 * 
-	 * @param time
-	 *            Time to be formatted
-	 * @return formatted TO_DATE function
-	 */
-	private String format(final Time time) {
-		Calendar cal = Calendar.getInstance();
-		cal.setTime(new java.util.Date(time.getTime()));
-		return "TO_DATE('" + cal.get(Calendar.HOUR_OF_DAY) + ":"
-		    + cal.get(Calendar.MINUTE) + ":" + cal.get(Calendar.SECOND)
-		    + "','HH24:MI:SS')";
-	}
-
-	/**
-	 * Formats Timestamp object into Oracle TO_DATE String.
-	 * 
-	 * @param timestamp
-	 *            Timestamp to be formatted
-	 * @return formatted TO_DATE function
-	 */
-	private String format(final Timestamp timestamp) {
-		return "TO_TIMESTAMP('" + timestamp.toString()
-		    + "','YYYY-MM-DD HH24:MI:SS:FF')";
-	}
-
 	/**
 	 * Formats object to an Oracle specific formatted function.
 	 * 
@@ -96,23 +77,43 @@ public class DefaultSqlFormatter implements SqlFormatter {
 	 * @throws SQLException
 	 *             thrown if problems formatting.
 	 */
-	@SuppressWarnings({ "PMD.OnlyOneReturn", "PMD.CyclomaticComplexity" })
+	@SuppressWarnings("PMD.OnlyOneReturn")
 	public final String format(final Object object) throws SQLException {
 		if (object == null) {
 			return "NULL";
 		}
-
-		if (object instanceof Date) {
-			return format((Date) object);
-		}
-		if (object instanceof Time) {
-			return format((Time) object);
+		SqlRenderer<Object> renderer = RENDERERS.get(object.getClass());
+		if (renderer == null) {
+			// if object not in one of our renderers, send to decorated class:
+			return baseFormatter.format(object);
 		}
-		if (object instanceof Timestamp) {
-			return format((Timestamp) object);
+		StringBuilder buffer = new StringBuilder();
+		renderer.render(object, buffer);
+		return buffer.toString();
+	}
+
+	/**
+	 * Formats object into the given buffer. Dates, times, timestamps and
+	 * java.time values are written straight into the buffer without
+	 * intermediate Strings; everything else is formatted by the decorated
+	 * formatter.
+	 * 
+	 * @param object
+	 *            Object to be formatted.
+	 * @param buffer
+	 *            buffer the formatted object is appended to
+	 * @throws SQLException
+	 *             thrown if problems formatting.
+	 */
+	@Override
+	public final void format(final Object object, final StringBuilder buffer)
+	        throws SQLException {
+		SqlRenderer<Object> renderer =
+		    object == null ? null : RENDERERS.get(object.getClass());
+		if (renderer == null) {
+			baseFormatter.format(object, buffer);
+		} else {
+			renderer.render(object, buffer);
 		}
-		// if object not in one of our overridden methods, send to decorated
-		// class:
-		return baseFormatter.format(object);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,217 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of the timings of the last execution of a
+ * {@link DebuggableStatement}. All times are in nanoseconds (as measured by
+ * {@link System#nanoTime()}) and are broken down into the following phases:
+ * <ul>
+ * <li>prepare - preparing the statement on the connection</li>
+ * <li>bind - from the first parameter bind to the start of execution</li>
+ * <li>execute - the execute call itself</li>
+ * <li>first row - from the end of execution until the first row was fetched
+ * from the {@link java.sql.ResultSet}</li>
+ * <li>consume - from the end of execution until the {@link java.sql.ResultSet}
+ * was exhausted or closed</li>
+ * </ul>
+ * Phases that were not measured (e.g. first row for an update) are zero. For
+ * a batch execution the number of entries of the batch and the resulting
+ * throughput are available too.
+ * 
+ * @author drothauser
+ * 
+ */
+public final class ExecutionStats {
+
+	/**
+	 * Stats for a statement that hasn't been timed.
+	 */
+	public static final ExecutionStats NONE =
+	    new ExecutionStats(0, 0, 0, 0, 0, 0);
+
+	/**
+	 * Nanoseconds spent preparing the statement.
+	 */
+	private final long prepareNanos;
+
+	/**
+	 * Nanoseconds from the first parameter bind to the start of execution.
+	 */
+	private final long bindNanos;
+
+	/**
+	 * Nanoseconds spent executing the statement.
+	 */
+	private final long executeNanos;
+
+	/**
+	 * Nanoseconds from the end of execution until the first row was fetched.
+	 */
+	private final long firstRowNanos;
+
+	/**
+	 * Nanoseconds from the end of execution until the result set was exhausted
+	 * or closed.
+	 */
+	private final long consumeNanos;
+
+	/**
+	 * Number of rows fetched from the result set.
+	 */
+	private final long rowCount;
+
+	/**
+	 * Number of entries of the executed batch (0 if not a batch).
+	 */
+	private final int batchSize;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param prepareNanos
+	 *            nanoseconds spent preparing the statement
+	 * @param bindNanos
+	 *            nanoseconds from the first bind to the start of execution
+	 * @param executeNanos
+	 *            nanoseconds spent executing the statement
+	 * @param firstRowNanos
+	 *            nanoseconds until the first row was fetched
+	 * @param consumeNanos
+	 *            nanoseconds until the result set was exhausted or closed
+	 * @param rowCount
+	 *            number of rows fetched
+	 */
+	public ExecutionStats(long prepareNanos, long bindNanos, long executeNanos,
+	    long firstRowNanos, long consumeNanos, long rowCount) {
+		this(prepareNanos, bindNanos, executeNanos, firstRowNanos, consumeNanos,
+		    rowCount, 0);
+	}
+
+	/**
+	 * Constructor for a batch execution.
+	 * 
+	 * @param prepareNanos
+	 *            nanoseconds spent preparing the statement
+	 * @param bindNanos
+	 *            nanoseconds from the first bind to the start of execution
+	 * @param executeNanos
+	 *            nanoseconds spent executing the statement
+	 * @param firstRowNanos
+	 *            nanoseconds until the first row was fetched
+	 * @param consumeNanos
+	 *            nanoseconds until the result set was exhausted or closed
+	 * @param rowCount
+	 *            number of rows fetched
+	 * @param batchSize
+	 *            number of entries of the executed batch (0 if not a batch)
+	 */
+	public ExecutionStats(long prepareNanos, long bindNanos, long executeNanos,
+	    long firstRowNanos, long consumeNanos, long rowCount, int batchSize) {
+		this.prepareNanos = prepareNanos;
+		this.bindNanos = bindNanos;
+		this.executeNanos = executeNanos;
+		this.firstRowNanos = firstRowNanos;
+		this.consumeNanos = consumeNanos;
+		this.rowCount = rowCount;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @return nanoseconds spent preparing the statement
+	 */
+	public long getPrepareNanos() {
+		return prepareNanos;
+	}
+
+	/**
+	 * @return nanoseconds from the first parameter bind to the start of
+	 *         execution
+	 */
+	public long getBindNanos() {
+		return bindNanos;
+	}
+
+	/**
+	 * @return nanoseconds spent executing the statement
+	 */
+	public long getExecuteNanos() {
+		return executeNanos;
+	}
+
+	/**
+	 * @return nanoseconds from the end of execution until the first row was
+	 *         fetched
+	 */
+	public long getFirstRowNanos() {
+		return firstRowNanos;
+	}
+
+	/**
+	 * @return nanoseconds from the end of execution until the result set was
+	 *         exhausted or closed
+	 */
+	public long getConsumeNanos() {
+		return consumeNanos;
+	}
+
+	/**
+	 * @return number of rows fetched from the result set
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @return number of entries of the executed batch (0 if not a batch)
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return batch entries executed per second (0 if not a batch)
+	 */
+	public long getRowsPerSecond() {
+		return perSecond(batchSize, executeNanos);
+	}
+
+	/**
+	 * Computes a throughput.
+	 * 
+	 * @param count
+	 *            number of items processed
+	 * @param nanos
+	 *            nanoseconds it took
+	 * @return items per second (0 if no time was measured)
+	 */
+	static long perSecond(long count, long nanos) {
+		if (nanos <= 0) {
+			return 0;
+		}
+		return Math.round(count * (double) TimeUnit.SECONDS.toNanos(1) / nanos);
+	}
+
+	/**
+	 * @return execute plus result set consumption time in nanoseconds, i.e.
+	 *         the database time of the statement
+	 */
+	public long getElapsedNanos() {
+		return executeNanos + consumeNanos;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return String.format(
+		    "prepare=%dns, bind=%dns, execute=%dns, firstRow=%dns, "
+		        + "consume=%dns, rows=%d, batch=%d",
+		    prepareNanos, bindNanos, executeNanos, firstRowNanos, consumeNanos,
+		    rowCount, batchSize);
+	}
+}
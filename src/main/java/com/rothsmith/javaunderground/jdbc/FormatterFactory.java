@@ -6,14 +6,40 @@ package com.rothsmith.javaunderground.jdbc;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Factory for fetching the appropriate formatter a database implementation.
+ * <p>
+ * The formatters are created once, from the {@link SqlFormatterProvider}s
+ * found with {@link ServiceLoader} followed by the built-in providers for
+ * Oracle, DB2, Microsoft SQL Server, Apache Derby (which shares the DB2
+ * syntax) and PostgreSQL. A database gets the formatter of the first provider
+ * matching its product name and major version, or the default formatter if
+ * none does.
+ * </p>
+ * <p>
+ * Resolving the formatter of a {@link Connection} or {@link DataSource}
+ * requires the database product name from the JDBC metadata, which is a
+ * server round trip on some drivers. Resolved formatters are therefore cached
+ * per Connection, per JDBC URL and per DataSource; use {@link #invalidate()}
+ * to clear the caches, e.g. after a DataSource has been pointed at another
+ * database. Connections are held weakly, so the cache doesn't keep closed
+ * connections alive.
+ * </p>
  * 
  * @author drothauser
  * 
@@ -36,32 +62,116 @@ public final class FormatterFactory {
 	 */
 	public static final String DB2_FORMATTER = "DB2 UDB for AS/400";
 
+	/**
+	 * Constant for choosing the Microsoft SQL Server formatter.
+	 */
+	public static final String SQLSERVER_FORMATTER = "Microsoft SQL Server";
+
+	/**
+	 * Constant for choosing the Apache Derby formatter.
+	 */
+	public static final String DERBY_FORMATTER = "Apache Derby";
+
+	/**
+	 * Constant for choosing the PostgreSQL formatter.
+	 */
+	public static final String POSTGRESQL_FORMATTER = "PostgreSQL";
+
 	/**
 	 * Constant for choosing the default formatter.
 	 */
 	public static final String DEFAULT_FORMATTER = "default";
 
+	/**
+	 * Major version used when matching a product name without version.
+	 */
+	private static final int ANY_VERSION = -1;
+
 	/**
 	 * Singleton instance of the FormatterFactory.
 	 */
 	private static final FormatterFactory INSTANCE = new FormatterFactory();
 
 	/**
-	 * List of {@link SqlFormatter}s.
+	 * Dialect formatters in the order they are matched.
+	 */
+	private final List<Registration> registrations =
+	    new ArrayList<Registration>();
+
+	/**
+	 * Formatter for databases without a dialect formatter.
+	 */
+	private final SqlFormatter defaultFormatter;
+
+	/**
+	 * Resolved formatters keyed by Connection (weakly).
+	 */
+	private final Map<Connection, SqlFormatter> connectionFormatters =
+	    Collections.synchronizedMap(
+	        new WeakHashMap<Connection, SqlFormatter>());
+
+	/**
+	 * Resolved formatters keyed by JDBC URL.
 	 */
-	private final Map<String, SqlFormatter> formatters =
+	private final Map<String, SqlFormatter> urlFormatters =
 	    new ConcurrentHashMap<String, SqlFormatter>();
 
+	/**
+	 * Resolved formatters keyed by DataSource.
+	 */
+	private final Map<DataSource, SqlFormatter> dataSourceFormatters =
+	    new ConcurrentHashMap<DataSource, SqlFormatter>();
+
 	/**
 	 * Private constructor - initializes all available DBMS formatters.
 	 */
 	private FormatterFactory() {
 		BaseSqlFormatter baseSqlFormatter = new BaseSqlFormatter();
-		formatters.put(DEFAULT_FORMATTER,
-		    new DefaultSqlFormatter(baseSqlFormatter));
-		formatters.put(ORACLE_FORMATTER,
-		    new OracleSqlFormatter(baseSqlFormatter));
-		formatters.put(DB2_FORMATTER, new DB2SqlFormatter(baseSqlFormatter));
+		defaultFormatter = new DefaultSqlFormatter(baseSqlFormatter);
+
+		try {
+			for (SqlFormatterProvider provider : ServiceLoader
+			    .load(SqlFormatterProvider.class)) {
+				register(provider, baseSqlFormatter);
+			}
+		} catch (ServiceConfigurationError | RuntimeException e) {
+			String errmsg = "Error loading SqlFormatterProviders: " + e;
+			LOGGER.error(errmsg, e);
+		}
+
+		register(new PatternFormatterProvider(Pattern.quote(ORACLE_FORMATTER),
+		    OracleSqlFormatter::new), baseSqlFormatter);
+		register(new PatternFormatterProvider("DB2.*", DB2SqlFormatter::new),
+		    baseSqlFormatter);
+		register(
+		    new PatternFormatterProvider(Pattern.quote(SQLSERVER_FORMATTER),
+		        SqlServerSqlFormatter::new),
+		    baseSqlFormatter);
+		register(new PatternFormatterProvider(Pattern.quote(DERBY_FORMATTER),
+		    DB2SqlFormatter::new), baseSqlFormatter);
+		register(
+		    new PatternFormatterProvider(Pattern.quote(POSTGRESQL_FORMATTER),
+		        PostgreSqlFormatter::new),
+		    baseSqlFormatter);
+	}
+
+	/**
+	 * Creates the formatter of a provider and adds it to the registrations.
+	 * 
+	 * @param provider
+	 *            {@link SqlFormatterProvider}
+	 * @param baseSqlFormatter
+	 *            formatter of the generic types
+	 */
+	private void register(SqlFormatterProvider provider,
+	    SqlFormatter baseSqlFormatter) {
+		Registration registration = new Registration(
+		    Pattern.compile(provider.getProductNamePattern()),
+		    provider.getMinMajorVersion(), provider.getMaxMajorVersion(),
+		    provider.createFormatter(baseSqlFormatter));
+		registrations.add(registration);
+		LOGGER.debug("Registered " + registration.formatter.getClass()
+		    .getName() + " for " + provider.getProductNamePattern());
 	}
 
 	/**
@@ -76,7 +186,10 @@ public final class FormatterFactory {
 	/**
 	 * Factory method to return a {@link SqlFormatter} object based on the
 	 * database product name specified in the JDBC {@link DatabaseMetaData}
-	 * object from the {@link Connection}.
+	 * object from the {@link Connection}. The result is cached for the
+	 * connection, so later calls for it don't touch the metadata, and for its
+	 * JDBC URL, so other connections to the database only need the (local)
+	 * URL.
 	 * 
 	 * @param conn
 	 *            JDBC Connection
@@ -84,16 +197,23 @@ public final class FormatterFactory {
 	 */
 	public SqlFormatter getFormatter(Connection conn) {
 
-		SqlFormatter formatter = null;
+		SqlFormatter formatter = connectionFormatters.get(conn);
+		if (formatter != null) {
+			return formatter;
+		}
 
 		try {
 
 			DatabaseMetaData metaData = conn.getMetaData();
-			String dbProductName = metaData.getDatabaseProductName();
-			formatter = formatters.get(dbProductName);
+			String url = metaData.getURL();
+			formatter = url == null ? null : urlFormatters.get(url);
 			if (formatter == null) {
-				formatter = formatters.get(DEFAULT_FORMATTER);
+				formatter = getFormatter(metaData);
+				if (url != null) {
+					urlFormatters.put(url, formatter);
+				}
 			}
+			connectionFormatters.put(conn, formatter);
 		} catch (SQLException e) {
 			String errmsg = "SQLException caught in getFormatter(conn): " + e;
 			LOGGER.error(errmsg, e);
@@ -102,6 +222,98 @@ public final class FormatterFactory {
 		return formatter;
 	}
 
+	/**
+	 * Factory method to return a {@link SqlFormatter} object for the database
+	 * of a {@link DataSource}. A connection is only obtained the first time a
+	 * DataSource is looked up; after that the cached formatter is returned.
+	 * 
+	 * @param dataSource
+	 *            JDBC DataSource
+	 * @return the {@link SqlFormatter} for the {@link DataSource} or null if
+	 *         it couldn't be determined.
+	 */
+	public SqlFormatter getFormatter(DataSource dataSource) {
+
+		SqlFormatter formatter = dataSourceFormatters.get(dataSource);
+		if (formatter != null) {
+			return formatter;
+		}
+
+		try (Connection conn = dataSource.getConnection()) {
+			formatter = getFormatter(conn.getMetaData());
+			dataSourceFormatters.put(dataSource, formatter);
+		} catch (SQLException e) {
+			String errmsg =
+			    "SQLException caught in getFormatter(dataSource): " + e;
+			LOGGER.error(errmsg, e);
+		}
+
+		return formatter;
+	}
+
+	/**
+	 * Resolves the formatter for the database product name in the given
+	 * metadata, falling back to the default formatter.
+	 * 
+	 * @param metaData
+	 *            JDBC {@link DatabaseMetaData}
+	 * @return the {@link SqlFormatter} for the database
+	 * @throws SQLException
+	 *             thrown if the product name can't be retrieved
+	 */
+	private SqlFormatter getFormatter(DatabaseMetaData metaData)
+	        throws SQLException {
+		int majorVersion;
+		try {
+			majorVersion = metaData.getDatabaseMajorVersion();
+		} catch (SQLException e) {
+			majorVersion = ANY_VERSION;
+		}
+		SqlFormatter formatter =
+		    resolve(metaData.getDatabaseProductName(), majorVersion);
+		return formatter == null ? defaultFormatter : formatter;
+	}
+
+	/**
+	 * Finds the first registered formatter matching a product name and major
+	 * version.
+	 * 
+	 * @param dbProductName
+	 *            Database product name
+	 * @param majorVersion
+	 *            major database version or {@link #ANY_VERSION}
+	 * @return {@link SqlFormatter} or null if none matches
+	 */
+	private SqlFormatter resolve(String dbProductName, int majorVersion) {
+		if (dbProductName != null) {
+			for (Registration registration : registrations) {
+				if (registration.matches(dbProductName, majorVersion)) {
+					return registration.formatter;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Clears the cached formatters of all Connections, URLs and DataSources.
+	 */
+	public void invalidate() {
+		connectionFormatters.clear();
+		urlFormatters.clear();
+		dataSourceFormatters.clear();
+	}
+
+	/**
+	 * Clears the cached formatter of a DataSource.
+	 * 
+	 * @param dataSource
+	 *            JDBC DataSource
+	 */
+	public void invalidate(DataSource dataSource) {
+		dataSourceFormatters.remove(dataSource);
+	}
+
 	/**
 	 * Factory method to return a {@link SqlFormatter} object based on the
 	 * database product name specified in the JDBC {@link DatabaseMetaData}
@@ -112,9 +324,25 @@ public final class FormatterFactory {
 	 * @return {@link SqlFormatter} for the specified database product name.
 	 */
 	public SqlFormatter getFormatter(String dbProductName) {
+		return getFormatter(dbProductName, ANY_VERSION);
+	}
 
-		SqlFormatter formatter = null;
-		formatter = formatters.get(dbProductName);
+	/**
+	 * Factory method to return the {@link SqlFormatter} registered for a
+	 * database product name and major version.
+	 * 
+	 * @param dbProductName
+	 *            Database product name or {@link #DEFAULT_FORMATTER}
+	 * @param majorVersion
+	 *            major database version (a negative version matches any
+	 *            version range)
+	 * @return {@link SqlFormatter} for the specified database product name
+	 *         and version or null if there is none.
+	 */
+	public SqlFormatter getFormatter(String dbProductName, int majorVersion) {
+
+		SqlFormatter formatter = DEFAULT_FORMATTER.equals(dbProductName)
+		    ? defaultFormatter : resolve(dbProductName, majorVersion);
 		if (formatter == null) {
 			String errmsg = "Could not find formatter for " + dbProductName;
 			LOGGER.error(errmsg);
@@ -123,4 +351,64 @@ public final class FormatterFactory {
 		return formatter;
 	}
 
+	/**
+	 * A formatter with the product name pattern and version range it is
+	 * registered for.
+	 */
+	private static final class Registration {
+
+		/**
+		 * Product name pattern.
+		 */
+		private final Pattern productName;
+
+		/**
+		 * Lowest major version (inclusive).
+		 */
+		private final int minMajorVersion;
+
+		/**
+		 * Highest major version (inclusive).
+		 */
+		private final int maxMajorVersion;
+
+		/**
+		 * The formatter.
+		 */
+		private final SqlFormatter formatter;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param productName
+		 *            product name pattern
+		 * @param minMajorVersion
+		 *            lowest major version
+		 * @param maxMajorVersion
+		 *            highest major version
+		 * @param formatter
+		 *            the formatter
+		 */
+		Registration(Pattern productName, int minMajorVersion,
+		    int maxMajorVersion, SqlFormatter formatter) {
+			this.productName = productName;
+			this.minMajorVersion = minMajorVersion;
+			this.maxMajorVersion = maxMajorVersion;
+			this.formatter = formatter;
+		}
+
+		/**
+		 * @param dbProductName
+		 *            Database product name
+		 * @param majorVersion
+		 *            major version or a negative number for any version
+		 * @return true if the formatter applies to the database
+		 */
+		boolean matches(String dbProductName, int majorVersion) {
+			return (majorVersion < 0 || majorVersion >= minMajorVersion
+			    && majorVersion <= maxMajorVersion)
+			    && productName.matcher(dbProductName).matches();
+		}
+	}
+
 }
@@ -0,0 +1,478 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replays a {@link StatementJournal} against a {@link DataSource}, e.g. an
+ * embedded Derby database or a staging copy, to benchmark schema and index
+ * changes with a recorded production workload.
+ * <p>
+ * Executions are replayed by a fixed number of worker threads, each with its
+ * own connection. The executions of a recorded thread are always replayed by
+ * the same worker, in their recorded order. Each execution is started at its
+ * recorded offset from the start of the journal divided by the speed-up
+ * factor (or as soon as possible if the speed-up is infinite); workers that
+ * fall behind run their executions back to back. Executions of which not all
+ * bind variables were captured, or that have values the journal can't
+ * replay (e.g. streams), are skipped.
+ * </p>
+ * <p>
+ * The replayed executions (and the rows fetched from their result sets) are
+ * reported into a {@link StatementMetricsRegistry}, whose per-statement
+ * latencies can be compared with those of the recording or of another run.
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+public final class JournalReplayer {
+
+	/**
+	 * Speed-up factor that replays executions as fast as possible.
+	 */
+	public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+	/**
+	 * Maximum number of executions queued for a worker.
+	 */
+	private static final int QUEUE_CAPACITY = 1000;
+
+	/**
+	 * SLF4J Logger for JournalReplayer.
+	 */
+	private static final Logger LOGGER =
+	    LoggerFactory.getLogger(JournalReplayer.class);
+
+	/**
+	 * Marks the end of the journal in a worker's queue.
+	 */
+	private static final Execution END = new Execution(-1, null, 0, null);
+
+	/**
+	 * DataSource the executions are replayed against.
+	 */
+	private final DataSource dataSource;
+
+	/**
+	 * Number of worker threads.
+	 */
+	private final int concurrency;
+
+	/**
+	 * Speed-up factor.
+	 */
+	private final double speedUp;
+
+	/**
+	 * Number of executions skipped because not all bind variables were
+	 * captured or replayable.
+	 */
+	private final LongAdder skipped = new LongAdder();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param dataSource
+	 *            {@link DataSource} to replay against
+	 * @param concurrency
+	 *            number of worker threads (and connections)
+	 * @param speedUp
+	 *            speed-up factor: 1 replays at the recorded pace, 2 twice as
+	 *            fast and {@link #AS_FAST_AS_POSSIBLE} without waiting
+	 */
+	public JournalReplayer(DataSource dataSource, int concurrency,
+	    double speedUp) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException(
+			    "concurrency must be positive: " + concurrency);
+		}
+		if (!(speedUp > 0)) {
+			throw new IllegalArgumentException(
+			    "speedUp must be positive: " + speedUp);
+		}
+		this.dataSource = dataSource;
+		this.concurrency = concurrency;
+		this.speedUp = speedUp;
+	}
+
+	/**
+	 * @return number of executions skipped by the last replay because not all
+	 *         of their bind variables were captured or replayable
+	 */
+	public long getSkipped() {
+		return skipped.sum();
+	}
+
+	/**
+	 * Replays the journal read from the given stream and waits for all
+	 * executions to finish. The stream is not closed.
+	 * 
+	 * @param in
+	 *            {@link InputStream} the journal is read from
+	 * @return {@link StatementMetricsRegistry} with the metrics of the
+	 *         replayed executions
+	 * @throws IOException
+	 *             thrown if reading the journal fails or the replay is
+	 *             interrupted
+	 * @throws SQLException
+	 *             thrown if a worker can't get a connection or prepare a
+	 *             statement; errors of the executions themselves are only
+	 *             counted in the metrics
+	 */
+	public StatementMetricsRegistry replay(InputStream in)
+	        throws IOException, SQLException {
+		skipped.reset();
+		StatementMetricsRegistry registry = new StatementMetricsRegistry(
+		    StatementMetricsRegistry.DEFAULT_MAX_STATEMENTS);
+		AtomicReference<SQLException> failure =
+		    new AtomicReference<SQLException>();
+		List<Worker> workers = new ArrayList<Worker>(concurrency);
+		for (int i = 0; i < concurrency; i++) {
+			Worker worker = new Worker(registry, failure);
+			worker.thread = new Thread(worker, "journal-replayer-" + i);
+			worker.thread.start();
+			workers.add(worker);
+		}
+		try {
+			dispatch(new DataInputStream(new BufferedInputStream(in)),
+			    workers);
+		} finally {
+			for (Worker worker : workers) {
+				worker.finish();
+			}
+		}
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+		return registry;
+	}
+
+	/**
+	 * Reads the journal and hands its executions to the workers.
+	 * 
+	 * @param in
+	 *            journal input
+	 * @param workers
+	 *            replay workers
+	 * @throws IOException
+	 *             thrown if reading the journal fails or the replay is
+	 *             interrupted
+	 */
+	private void dispatch(DataInputStream in, List<Worker> workers)
+	        throws IOException {
+		StatementJournal.readHeader(in);
+		Map<Integer, String> templates = new HashMap<Integer, String>();
+		long firstOffset = -1;
+		long replayStart = 0;
+		int recordType;
+		while ((recordType = in.read()) != -1) {
+			try {
+				if (recordType == StatementJournal.TEMPLATE) {
+					int id = in.readInt();
+					templates.put(Integer.valueOf(id),
+					    StatementJournal.readString(in));
+					continue;
+				}
+				if (recordType != StatementJournal.EXECUTION) {
+					throw new IOException(
+					    "Unknown record type in journal: " + recordType);
+				}
+				Integer id = Integer.valueOf(in.readInt());
+				long offset = in.readLong();
+				in.readLong(); // recorded execute time
+				long threadId = in.readLong();
+				in.readBoolean(); // recorded outcome
+				Object[] values = new Object[in.readUnsignedShort()];
+				boolean complete = true;
+				for (int i = 0; i < values.length; i++) {
+					values[i] = StatementJournal.readValue(in);
+					complete &= values[i] != SqlTemplate.UNBOUND;
+				}
+				String sql = templates.get(id);
+				if (sql == null) {
+					throw new IOException("Unknown template in journal: " + id);
+				}
+				if (!complete) {
+					skipped.increment();
+					continue;
+				}
+				if (firstOffset < 0) {
+					firstOffset = offset;
+					replayStart = System.nanoTime();
+				}
+				long due = speedUp == AS_FAST_AS_POSSIBLE ? 0
+				    : replayStart + (long) ((offset - firstOffset) / speedUp);
+				Worker worker = workers
+				    .get((int) Math.floorMod(threadId, (long) concurrency));
+				if (!worker.offer(new Execution(id.intValue(), sql, due,
+				    values))) {
+					// the worker has failed; the failure is thrown by replay
+					return;
+				}
+			} catch (EOFException e) {
+				LOGGER.warn("Statement journal is truncated, "
+				    + "replaying the complete records");
+				return;
+			}
+		}
+	}
+
+	/**
+	 * A journaled execution to be replayed.
+	 */
+	private static final class Execution {
+
+		/**
+		 * Template id.
+		 */
+		private final int templateId;
+
+		/**
+		 * SQL text.
+		 */
+		private final String sql;
+
+		/**
+		 * {@link System#nanoTime()} the execution is due (0 = now).
+		 */
+		private final long due;
+
+		/**
+		 * Bind variable values.
+		 */
+		private final Object[] values;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param templateId
+		 *            template id
+		 * @param sql
+		 *            SQL text
+		 * @param due
+		 *            time the execution is due
+		 * @param values
+		 *            bind variable values
+		 */
+		Execution(int templateId, String sql, long due, Object[] values) {
+			this.templateId = templateId;
+			this.sql = sql;
+			this.due = due;
+			this.values = values;
+		}
+	}
+
+	/**
+	 * Replay worker: replays its executions in order on its own connection.
+	 */
+	private final class Worker implements Runnable {
+
+		/**
+		 * Queued executions.
+		 */
+		private final BlockingQueue<Execution> queue =
+		    new ArrayBlockingQueue<Execution>(QUEUE_CAPACITY);
+
+		/**
+		 * Prepared statements keyed by template id.
+		 */
+		private final Map<Integer, ParameterBinder> statements =
+		    new HashMap<Integer, ParameterBinder>();
+
+		/**
+		 * Registry the executions are reported into.
+		 */
+		private final StatementMetricsRegistry registry;
+
+		/**
+		 * First failure of any worker.
+		 */
+		private final AtomicReference<SQLException> failure;
+
+		/**
+		 * Worker thread.
+		 */
+		private Thread thread;
+
+		/**
+		 * Set when the worker has stopped.
+		 */
+		private volatile boolean stopped;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param registry
+		 *            registry the executions are reported into
+		 * @param failure
+		 *            first failure of any worker
+		 */
+		Worker(StatementMetricsRegistry registry,
+		    AtomicReference<SQLException> failure) {
+			this.registry = registry;
+			this.failure = failure;
+		}
+
+		/**
+		 * Queues an execution, waiting while the queue is full.
+		 * 
+		 * @param execution
+		 *            execution to queue
+		 * @return false if the worker has stopped
+		 * @throws InterruptedIOException
+		 *             thrown if interrupted while waiting
+		 */
+		boolean offer(Execution execution) throws InterruptedIOException {
+			try {
+				while (!stopped) {
+					if (queue.offer(execution, 100,
+					    TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				}
+				return false;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Replay interrupted");
+			}
+		}
+
+		/**
+		 * Queues the end of the journal and waits for the worker to finish.
+		 */
+		void finish() {
+			try {
+				offer(END);
+				thread.join();
+			} catch (InterruptedIOException e) {
+				thread.interrupt();
+			} catch (InterruptedException e) {
+				thread.interrupt();
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void run() {
+			Connection connection = null;
+			try {
+				connection = dataSource.getConnection();
+				Execution execution;
+				while ((execution = queue.take()) != END) {
+					long wait;
+					while (execution.due != 0
+					    && (wait = execution.due - System.nanoTime()) > 0) {
+						LockSupport.parkNanos(this, wait);
+					}
+					execute(connection, execution);
+				}
+			} catch (SQLException e) {
+				failure.compareAndSet(null, e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				stopped = true;
+				for (ParameterBinder prepared : statements.values()) {
+					DbUtils.closeQuietly(prepared.getStatement());
+				}
+				DbUtils.closeQuietly(connection);
+			}
+		}
+
+		/**
+		 * Replays an execution and reports it into the registry.
+		 * 
+		 * @param connection
+		 *            the worker's connection
+		 * @param execution
+		 *            execution to replay
+		 * @throws SQLException
+		 *             thrown if the statement can't be prepared
+		 */
+		private void execute(Connection connection, Execution execution)
+		        throws SQLException {
+			Integer id = Integer.valueOf(execution.templateId);
+			ParameterBinder prepared = statements.get(id);
+			if (prepared == null) {
+				prepared = new ParameterBinder(
+				    connection.prepareStatement(execution.sql));
+				statements.put(id, prepared);
+			}
+			StatementMetrics metrics = registry.getMetrics(execution.sql);
+			long start = System.nanoTime();
+			boolean succeeded = false;
+			long updateCount = 0;
+			boolean results = false;
+			try {
+				prepared.bind(execution.values);
+				results = prepared.getStatement().execute();
+				updateCount =
+				    results ? 0 : prepared.getStatement().getUpdateCount();
+				succeeded = true;
+			} catch (SQLException e) {
+				LOGGER.debug("Replayed statement failed: " + e);
+			} finally {
+				metrics.recordExecution(System.nanoTime() - start,
+				    Math.max(updateCount, 0), succeeded);
+			}
+			if (results) {
+				consume(prepared.getStatement(), metrics);
+			}
+		}
+
+		/**
+		 * Fetches all rows of the result set of a replayed query.
+		 * 
+		 * @param statement
+		 *            executed statement
+		 * @param metrics
+		 *            metrics the fetch is reported into
+		 */
+		private void consume(PreparedStatement statement,
+		    StatementMetrics metrics) {
+			long start = System.nanoTime();
+			long rows = 0;
+			ResultSet rs = null;
+			try {
+				rs = statement.getResultSet();
+				while (rs.next()) {
+					rows++;
+				}
+			} catch (SQLException e) {
+				LOGGER.debug("Fetching replayed result set failed: " + e);
+			} finally {
+				DbUtils.closeQuietly(rs);
+			}
+			metrics.recordResultSet(System.nanoTime() - start, rows);
+		}
+	}
+}
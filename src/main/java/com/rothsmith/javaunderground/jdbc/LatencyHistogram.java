@@ -0,0 +1,292 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free latency histogram in the style of HdrHistogram. Values (in
+ * nanoseconds) are recorded into log-linear buckets: each power of two is
+ * split into 32 linear sub-buckets, which keeps the relative error of a
+ * reported percentile within about 3% for any value up to 2^42 ns (about 73
+ * minutes); larger values are clamped.
+ * <p>
+ * Recording is striped: each thread records into one of a fixed number of
+ * independent bucket arrays (picked by thread id and allocated lazily), so
+ * concurrent request threads do not contend on the same counters. Reads sum
+ * the stripes and are therefore only weakly consistent with concurrent
+ * recording, which is fine for monitoring.
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+public final class LatencyHistogram {
+
+	/**
+	 * Number of bits used for the sub-bucket of a value.
+	 */
+	private static final int SUB_BUCKET_BITS = 6;
+
+	/**
+	 * Number of values stored in the first, linear, bucket range.
+	 */
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Number of sub-buckets for each subsequent power of two.
+	 */
+	private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+
+	/**
+	 * Largest value that can be recorded without being clamped (2^42 - 1).
+	 */
+	private static final long MAX_TRACKABLE_NANOS = (1L << 42) - 1;
+
+	/**
+	 * Number of value buckets.
+	 */
+	private static final int BUCKET_COUNT =
+	    bucketIndex(MAX_TRACKABLE_NANOS) + 1;
+
+	/**
+	 * Stripe slot holding the number of recorded values.
+	 */
+	private static final int COUNT_SLOT = BUCKET_COUNT;
+
+	/**
+	 * Stripe slot holding the sum of recorded values.
+	 */
+	private static final int SUM_SLOT = BUCKET_COUNT + 1;
+
+	/**
+	 * Stripe slot holding the largest recorded value.
+	 */
+	private static final int MAX_SLOT = BUCKET_COUNT + 2;
+
+	/**
+	 * Size of a stripe's counter array.
+	 */
+	private static final int STRIPE_LENGTH = BUCKET_COUNT + 3;
+
+	/**
+	 * Number of stripes - a power of two of at least the number of CPUs,
+	 * capped at 16.
+	 */
+	private static final int STRIPE_COUNT = Math.min(16,
+	    Integer.highestOneBit(
+	        Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+	/**
+	 * Lazily allocated stripes.
+	 */
+	private final AtomicReferenceArray<AtomicLongArray> stripes =
+	    new AtomicReferenceArray<AtomicLongArray>(STRIPE_COUNT);
+
+	/**
+	 * Computes the bucket of a (non-negative, clamped) value.
+	 * 
+	 * @param value
+	 *            value to find the bucket of
+	 * @return bucket index
+	 */
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value)
+		    - (SUB_BUCKET_BITS - 1);
+		int subBucket = (int) (value >>> shift);
+		return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF
+		    + (subBucket - SUB_BUCKET_HALF);
+	}
+
+	/**
+	 * Computes the highest value that is counted in the given bucket.
+	 * 
+	 * @param index
+	 *            bucket index
+	 * @return highest value of the bucket
+	 */
+	static long highestValue(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+		long subBucket =
+		    (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * Returns the calling thread's stripe, allocating it on first use.
+	 * 
+	 * @return stripe counters
+	 */
+	private AtomicLongArray stripe() {
+		int index = (int) Thread.currentThread().getId() & (STRIPE_COUNT - 1);
+		AtomicLongArray stripe = stripes.get(index);
+		if (stripe == null) {
+			stripes.compareAndSet(index, null,
+			    new AtomicLongArray(STRIPE_LENGTH));
+			stripe = stripes.get(index);
+		}
+		return stripe;
+	}
+
+	/**
+	 * Record a latency.
+	 * 
+	 * @param nanos
+	 *            latency in nanoseconds. Negative values are recorded as zero
+	 *            and values above the trackable range are clamped.
+	 */
+	public void record(long nanos) {
+		long value = Math.min(Math.max(nanos, 0), MAX_TRACKABLE_NANOS);
+		AtomicLongArray stripe = stripe();
+		stripe.incrementAndGet(bucketIndex(value));
+		stripe.incrementAndGet(COUNT_SLOT);
+		stripe.addAndGet(SUM_SLOT, value);
+		long max = stripe.get(MAX_SLOT);
+		while (value > max && !stripe.compareAndSet(MAX_SLOT, max, value)) {
+			max = stripe.get(MAX_SLOT);
+		}
+	}
+
+	/**
+	 * Sums a slot over all stripes.
+	 * 
+	 * @param slot
+	 *            slot to sum
+	 * @return sum
+	 */
+	private long sum(int slot) {
+		long sum = 0;
+		for (int i = 0; i < STRIPE_COUNT; i++) {
+			AtomicLongArray stripe = stripes.get(i);
+			if (stripe != null) {
+				sum += stripe.get(slot);
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * @return number of recorded values
+	 */
+	public long getCount() {
+		return sum(COUNT_SLOT);
+	}
+
+	/**
+	 * @return sum of the recorded values in nanoseconds
+	 */
+	public long getTotalNanos() {
+		return sum(SUM_SLOT);
+	}
+
+	/**
+	 * @return mean of the recorded values in nanoseconds or 0 if nothing has
+	 *         been recorded
+	 */
+	public long getMean() {
+		long count = getCount();
+		return count == 0 ? 0 : getTotalNanos() / count;
+	}
+
+	/**
+	 * @return largest recorded value in nanoseconds
+	 */
+	public long getMax() {
+		long max = 0;
+		for (int i = 0; i < STRIPE_COUNT; i++) {
+			AtomicLongArray stripe = stripes.get(i);
+			if (stripe != null) {
+				max = Math.max(max, stripe.get(MAX_SLOT));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the value at the given percentile, i.e. the highest value of the
+	 * bucket that contains that percentile of the recorded values, capped at
+	 * the recorded maximum.
+	 * 
+	 * @param percentile
+	 *            percentile between 0 and 100 (e.g. 99.9)
+	 * @return value in nanoseconds or 0 if nothing has been recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long[] counts = new long[BUCKET_COUNT];
+		long total = 0;
+		for (int i = 0; i < STRIPE_COUNT; i++) {
+			AtomicLongArray stripe = stripes.get(i);
+			if (stripe != null) {
+				for (int j = 0; j < BUCKET_COUNT; j++) {
+					long count = stripe.get(j);
+					counts[j] += count;
+					total += count;
+				}
+			}
+		}
+		if (total == 0) {
+			return 0;
+		}
+		double pct = Math.min(Math.max(percentile, 0.0), 100.0);
+		long target = Math.max(1, (long) Math.ceil(pct / 100.0 * total));
+		long cumulative = 0;
+		int index = 0;
+		for (; index < BUCKET_COUNT; index++) {
+			cumulative += counts[index];
+			if (cumulative >= target) {
+				break;
+			}
+		}
+		return Math.min(highestValue(Math.min(index, BUCKET_COUNT - 1)),
+		    getMax());
+	}
+
+	/**
+	 * @return median in nanoseconds
+	 */
+	public long getP50() {
+		return getValueAtPercentile(50.0);
+	}
+
+	/**
+	 * @return 99th percentile in nanoseconds
+	 */
+	public long getP99() {
+		return getValueAtPercentile(99.0);
+	}
+
+	/**
+	 * @return 99.9th percentile in nanoseconds
+	 */
+	public long getP999() {
+		return getValueAtPercentile(99.9);
+	}
+
+	/**
+	 * Clears all recorded values. Values recorded concurrently with a reset may
+	 * or may not be kept.
+	 */
+	public void reset() {
+		for (int i = 0; i < STRIPE_COUNT; i++) {
+			stripes.set(i, null);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return String.format("count=%d, mean=%dns, p50=%dns, p99=%dns, "
+		    + "p999=%dns, max=%dns", getCount(), getMean(), getP50(), getP99(),
+		    getP999(), getMax());
+	}
+}
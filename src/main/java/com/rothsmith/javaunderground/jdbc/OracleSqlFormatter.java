@@ -17,27 +17,45 @@ import java.sql.Date;
 import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
-import java.util.Calendar;
-
-import org.apache.commons.lang3.time.DateFormatUtils;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 
 /**
- * OracleSqlFormatter formats Oracle specific types. These include Calendar,
- * Date, Time, and TimeStamps. Generic types are handled by BaseSqlFormatter.
+ * OracleSqlFormatter formats Oracle specific types. These include Date, Time,
+ * TimeStamps and the java.time LocalDate, LocalTime, LocalDateTime,
+ * OffsetDateTime and Instant (as UTC). Timestamps keep their fractional
+ * seconds. Booleans are rendered as 1 and 0, as Oracle SQL has no boolean
+ * literals, and byte arrays as <code>HEXTORAW('...')</code>. Generic types
+ * are handled by BaseSqlFormatter.
  * 
  * @author Troy Thompson, Bob Byron
  */
 public class OracleSqlFormatter implements SqlFormatter {
 
 	/**
-	 * Format of Oracle date: 'YYYY-MM-DD HH24:MI:SS'.
-	 */
-	private static final String YMD24 = "'YYYY-MM-DD HH24:MI:SS'";
-
-	/**
-	 * Java timestamp format: 'yyyy-MM-dd hh:mm:ss'.
+	 * Renderers of the Oracle specific types.
 	 */
-	private static final String TIMESTAMP_FORMAT = "yyyy-MM-dd HH:mm:ss";
+	private static final RendererRegistry RENDERERS = new RendererRegistry()
+	    .register(Boolean.class,
+	        (bool, buffer) -> buffer.append(bool.booleanValue() ? '1' : '0'))
+	    .register(byte[].class, (bytes, buffer) -> BaseSqlFormatter
+	        .renderHex(bytes, "HEXTORAW('", "')", buffer))
+	    .register(Date.class, (date, buffer) -> TemporalLiterals
+	        .toDateTime(TemporalLiterals.localDateTime(date), buffer))
+	    .register(Time.class,
+	        (time, buffer) -> TemporalLiterals.toTime(time.toLocalTime(), buffer))
+	    .register(Timestamp.class, (timestamp, buffer) -> TemporalLiterals
+	        .toTimestamp(timestamp.toLocalDateTime(), buffer))
+	    .register(LocalDate.class, TemporalLiterals::toDate)
+	    .register(LocalTime.class, TemporalLiterals::toTime)
+	    .register(LocalDateTime.class, TemporalLiterals::toTimestamp)
+	    .register(OffsetDateTime.class, TemporalLiterals::toTimestampTz)
+	    .register(Instant.class, (instant, buffer) -> TemporalLiterals
+	        .toTimestampTz(instant.atOffset(ZoneOffset.UTC), buffer));
 
 	/**
 	 * Base SQL formatter.
@@ -55,46 +73,6 @@ public class OracleSqlFormatter implements SqlFormatter {
 		this.baseFormatter = baseSqlFormatter;
 	}
 
-	/**
-	 * Formats Date object into Oracle TO_DATE String.
-	 * 
-	 * @param date
-	 *            Date to be formatted
-	 * @return formatted TO_DATE function
-	 */
-	private String format(final Date date) {
-		String dateStr = DateFormatUtils.format(date, TIMESTAMP_FORMAT);
-		return "TO_DATE('" + dateStr + "'," + YMD24 + ")";
-	}
-
-	/**
-	 * Formats Time object into Oracle TO_DATE String.
-	 * 
-	 * @param time
-	 *            Time to be formatted
-	 * @return formatted TO_DATE function
-	 */
-	private String format(final Time time) {
-		Calendar cal = Calendar.getInstance();
-		cal.setTime(new java.util.Date(time.getTime()));
-		return "TO_DATE('" + cal.get(Calendar.HOUR_OF_DAY) + ":"
-		    + cal.get(Calendar.MINUTE) + ":" + cal.get(Calendar.SECOND)
-		    + "','HH24:MI:SS')";
-	}
-
-	/**
-	 * Formats Timestamp object into Oracle TO_DATE String.
-	 * 
-	 * @param timestamp
-	 *            Timestamp to be formatted
-	 * @return formatted TO_DATE function
-	 */
-	private String format(final Timestamp timestamp) {
-		long time = timestamp.getTime();
-		String dateStr = DateFormatUtils.format(time, TIMESTAMP_FORMAT);
-		return "TO_DATE('" + dateStr + "'," + YMD24 + ")";
-	}
-
 	/**
 	 * Formats object to an Oracle specific formatted function.
 	 * 
@@ -104,22 +82,43 @@ public class OracleSqlFormatter implements SqlFormatter {
 	 * @throws SQLException
 	 *             thrown if problems formatting.
 	 */
-	@SuppressWarnings({ "PMD.OnlyOneReturn", "PMD.CyclomaticComplexity" })
+	@SuppressWarnings("PMD.OnlyOneReturn")
 	public final String format(final Object object) throws SQLException {
 		if (object == null) {
 			return "NULL";
 		}
-		if (object instanceof Date) {
-			return format((Date) object);
+		SqlRenderer<Object> renderer = RENDERERS.get(object.getClass());
+		if (renderer == null) {
+			// if object not in one of our renderers, send to decorated class:
+			return baseFormatter.format(object);
 		}
-		if (object instanceof Time) {
-			return format((Time) object);
-		}
-		if (object instanceof Timestamp) {
-			return format((Timestamp) object);
-		}
-		// if object not in one of our overridden methods, send to super class
-		return baseFormatter.format(object);
+		StringBuilder buffer = new StringBuilder();
+		renderer.render(object, buffer);
+		return buffer.toString();
+	}
 
+	/**
+	 * Formats object into the given buffer. Booleans, dates, times, timestamps
+	 * and java.time values are written straight into the buffer without
+	 * intermediate Strings; everything else is formatted by the decorated
+	 * formatter.
+	 * 
+	 * @param object
+	 *            Object to be formatted.
+	 * @param buffer
+	 *            buffer the formatted object is appended to
+	 * @throws SQLException
+	 *             thrown if problems formatting.
+	 */
+	@Override
+	public final void format(final Object object, final StringBuilder buffer)
+	        throws SQLException {
+		SqlRenderer<Object> renderer =
+		    object == null ? null : RENDERERS.get(object.getClass());
+		if (renderer == null) {
+			baseFormatter.format(object, buffer);
+		} else {
+			renderer.render(object, buffer);
+		}
 	}
-}
\ No newline at end of file
+}
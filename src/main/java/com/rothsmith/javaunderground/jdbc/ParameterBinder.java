@@ -0,0 +1,92 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+
+/**
+ * Binds boxed parameter values to a {@link PreparedStatement} with
+ * {@link PreparedStatement#setObject(int, Object)}. Null values are bound
+ * with {@link PreparedStatement#setNull(int, int)} and the SQL type from the
+ * statement's {@link ParameterMetaData} (looked up once, on the first null
+ * value), falling back to VARCHAR for drivers that don't provide it.
+ * 
+ * @author drothauser
+ * 
+ */
+final class ParameterBinder {
+
+	/**
+	 * The statement the values are bound to.
+	 */
+	private final PreparedStatement statement;
+
+	/**
+	 * SQL types of the parameters (resolved on the first null value).
+	 */
+	private int[] nullTypes;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param statement
+	 *            statement the values are bound to
+	 */
+	ParameterBinder(PreparedStatement statement) {
+		this.statement = statement;
+	}
+
+	/**
+	 * @return the statement the values are bound to
+	 */
+	PreparedStatement getStatement() {
+		return statement;
+	}
+
+	/**
+	 * Binds the values to the statement.
+	 * 
+	 * @param values
+	 *            parameter values, one per parameter
+	 * @throws SQLException
+	 *             thrown if binding fails
+	 */
+	void bind(Object[] values) throws SQLException {
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] == null) {
+				statement.setNull(i + 1, nullType(i, values.length));
+			} else {
+				statement.setObject(i + 1, values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the SQL type to bind a null value with.
+	 * 
+	 * @param index
+	 *            0-based parameter index
+	 * @param count
+	 *            number of parameters
+	 * @return SQL type from {@link java.sql.Types}
+	 */
+	private int nullType(int index, int count) {
+		if (nullTypes == null) {
+			nullTypes = new int[count];
+			try {
+				ParameterMetaData metaData = statement.getParameterMetaData();
+				for (int i = 0; i < count; i++) {
+					nullTypes[i] = metaData.getParameterType(i + 1);
+				}
+			} catch (SQLException e) {
+				Arrays.fill(nullTypes, Types.VARCHAR);
+			}
+		}
+		return nullTypes[index];
+	}
+}
@@ -0,0 +1,289 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.util.Arrays;
+
+/**
+ * Captured bind variables of a {@link DebuggableStatement}, stored in
+ * parallel arrays: a type tag and a long slot per parameter for primitive
+ * values (doubles and floats as their raw bits) and an Object slot that is
+ * only used for references. Binding a numeric or boolean parameter therefore
+ * allocates nothing; values are only boxed when they are rendered. The store
+ * is allocated once per statement and reused across executions and
+ * {@link #clear()}.
+ * 
+ * @author drothauser
+ * 
+ */
+final class ParameterStore {
+
+	/**
+	 * Tag of a reference value (or null) kept in the Object slot.
+	 */
+	static final byte OBJECT = 0;
+
+	/**
+	 * Tag of an uncaptured value.
+	 */
+	static final byte UNBOUND = 1;
+
+	/**
+	 * Tag of an int.
+	 */
+	static final byte INT = 2;
+
+	/**
+	 * Tag of a long.
+	 */
+	static final byte LONG = 3;
+
+	/**
+	 * Tag of a short.
+	 */
+	static final byte SHORT = 4;
+
+	/**
+	 * Tag of a byte.
+	 */
+	static final byte BYTE = 5;
+
+	/**
+	 * Tag of a boolean.
+	 */
+	static final byte BOOLEAN = 6;
+
+	/**
+	 * Tag of a double (stored as its raw long bits).
+	 */
+	static final byte DOUBLE = 7;
+
+	/**
+	 * Tag of a float (stored as its raw int bits).
+	 */
+	static final byte FLOAT = 8;
+
+	/**
+	 * Type tags.
+	 */
+	private final byte[] tags;
+
+	/**
+	 * Primitive values.
+	 */
+	private final long[] primitives;
+
+	/**
+	 * Reference values.
+	 */
+	private final Object[] objects;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param count
+	 *            number of parameters
+	 */
+	ParameterStore(int count) {
+		tags = new byte[count];
+		primitives = new long[count];
+		objects = new Object[count];
+		Arrays.fill(tags, UNBOUND);
+	}
+
+	/**
+	 * @return number of parameters
+	 */
+	int size() {
+		return tags.length;
+	}
+
+	/**
+	 * Marks all parameters as uncaptured, releasing the references.
+	 */
+	void clear() {
+		Arrays.fill(tags, UNBOUND);
+		Arrays.fill(objects, null);
+	}
+
+	/**
+	 * Stores a primitive value.
+	 * 
+	 * @param index
+	 *            0-based parameter index
+	 * @param tag
+	 *            type tag
+	 * @param primitive
+	 *            value
+	 */
+	private void setPrimitive(int index, byte tag, long primitive) {
+		tags[index] = tag;
+		primitives[index] = primitive;
+		objects[index] = null;
+	}
+
+	/**
+	 * @param index
+	 *            0-based parameter index
+	 * @param value
+	 *            int value
+	 */
+	void setInt(int index, int value) {
+		setPrimitive(index, INT, value);
+	}
+
+	/**
+	 * @param index
+	 *            0-based parameter index
+	 * @param value
+	 *            long value
+	 */
+	void setLong(int index, long value) {
+		setPrimitive(index, LONG, value);
+	}
+
+	/**
+	 * @param index
+	 *            0-based parameter index
+	 * @param value
+	 *            short value
+	 */
+	void setShort(int index, short value) {
+		setPrimitive(index, SHORT, value);
+	}
+
+	/**
+	 * @param index
+	 *            0-based parameter index
+	 * @param value
+	 *            byte value
+	 */
+	void setByte(int index, byte value) {
+		setPrimitive(index, BYTE, value);
+	}
+
+	/**
+	 * @param index
+	 *            0-based parameter index
+	 * @param value
+	 *            boolean value
+	 */
+	void setBoolean(int index, boolean value) {
+		setPrimitive(index, BOOLEAN, value ? 1 : 0);
+	}
+
+	/**
+	 * @param index
+	 *            0-based parameter index
+	 * @param value
+	 *            double value
+	 */
+	void setDouble(int index, double value) {
+		setPrimitive(index, DOUBLE, Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * @param index
+	 *            0-based parameter index
+	 * @param value
+	 *            float value
+	 */
+	void setFloat(int index, float value) {
+		setPrimitive(index, FLOAT, Float.floatToRawIntBits(value));
+	}
+
+	/**
+	 * @param index
+	 *            0-based parameter index
+	 * @param value
+	 *            reference value (may be null)
+	 */
+	void setObject(int index, Object value) {
+		tags[index] = OBJECT;
+		objects[index] = value;
+	}
+
+	/**
+	 * @param index
+	 *            0-based parameter index
+	 * @return type tag of the parameter
+	 */
+	byte getTag(int index) {
+		return tags[index];
+	}
+
+	/**
+	 * @param index
+	 *            0-based parameter index
+	 * @return primitive slot of the parameter
+	 */
+	long getPrimitive(int index) {
+		return primitives[index];
+	}
+
+	/**
+	 * @param index
+	 *            0-based parameter index
+	 * @return Object slot of the parameter
+	 */
+	Object getObject(int index) {
+		return objects[index];
+	}
+
+	/**
+	 * @param index
+	 *            0-based parameter index
+	 * @return the value of the parameter, boxed, or
+	 *         {@link SqlTemplate#UNBOUND} if it wasn't captured
+	 */
+	Object get(int index) {
+		return box(tags[index], primitives[index], objects[index]);
+	}
+
+	/**
+	 * @return the (boxed) values of all parameters
+	 * @see #get(int)
+	 */
+	Object[] toArray() {
+		Object[] values = new Object[tags.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = get(i);
+		}
+		return values;
+	}
+
+	/**
+	 * Boxes a stored value.
+	 * 
+	 * @param tag
+	 *            type tag
+	 * @param primitive
+	 *            primitive slot
+	 * @param object
+	 *            Object slot
+	 * @return the value, boxed, or {@link SqlTemplate#UNBOUND}
+	 */
+	static Object box(byte tag, long primitive, Object object) {
+		switch (tag) {
+		case UNBOUND:
+			return SqlTemplate.UNBOUND;
+		case INT:
+			return Integer.valueOf((int) primitive);
+		case LONG:
+			return Long.valueOf(primitive);
+		case SHORT:
+			return Short.valueOf((short) primitive);
+		case BYTE:
+			return Byte.valueOf((byte) primitive);
+		case BOOLEAN:
+			return Boolean.valueOf(primitive != 0);
+		case DOUBLE:
+			return Double.valueOf(Double.longBitsToDouble(primitive));
+		case FLOAT:
+			return Float.valueOf(Float.intBitsToFloat((int) primitive));
+		default:
+			return object;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link SqlFormatterProvider} defined by its product name pattern, version
+ * range and a function creating the formatter. Service providers can extend
+ * it with a no-arg constructor, e.g.
+ * 
+ * <pre>
+ * public class H2FormatterProvider extends PatternFormatterProvider {
+ *     public H2FormatterProvider() {
+ *         super("H2", H2SqlFormatter::new);
+ *     }
+ * }
+ * </pre>
+ * 
+ * @author drothauser
+ * 
+ */
+public class PatternFormatterProvider implements SqlFormatterProvider {
+
+	/**
+	 * Regular expression matched against the product name.
+	 */
+	private final String productNamePattern;
+
+	/**
+	 * Lowest major database version supported.
+	 */
+	private final int minMajorVersion;
+
+	/**
+	 * Highest major database version supported.
+	 */
+	private final int maxMajorVersion;
+
+	/**
+	 * Creates the formatter from the base formatter.
+	 */
+	private final UnaryOperator<SqlFormatter> factory;
+
+	/**
+	 * Constructor for a provider supporting all versions.
+	 * 
+	 * @param productNamePattern
+	 *            regular expression the whole product name must match
+	 * @param factory
+	 *            creates the formatter, given the base formatter
+	 */
+	public PatternFormatterProvider(String productNamePattern,
+	    UnaryOperator<SqlFormatter> factory) {
+		this(productNamePattern, 0, Integer.MAX_VALUE, factory);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param productNamePattern
+	 *            regular expression the whole product name must match
+	 * @param minMajorVersion
+	 *            lowest major version supported (inclusive)
+	 * @param maxMajorVersion
+	 *            highest major version supported (inclusive)
+	 * @param factory
+	 *            creates the formatter, given the base formatter
+	 */
+	public PatternFormatterProvider(String productNamePattern,
+	    int minMajorVersion, int maxMajorVersion,
+	    UnaryOperator<SqlFormatter> factory) {
+		if (productNamePattern == null || factory == null
+		    || minMajorVersion > maxMajorVersion) {
+			throw new IllegalArgumentException("Invalid formatter provider: "
+			    + productNamePattern + " " + minMajorVersion + "-"
+			    + maxMajorVersion);
+		}
+		this.productNamePattern = productNamePattern;
+		this.minMajorVersion = minMajorVersion;
+		this.maxMajorVersion = maxMajorVersion;
+		this.factory = factory;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String getProductNamePattern() {
+		return productNamePattern;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getMinMajorVersion() {
+		return minMajorVersion;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getMaxMajorVersion() {
+		return maxMajorVersion;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public SqlFormatter createFormatter(SqlFormatter baseFormatter) {
+		return factory.apply(baseFormatter);
+	}
+
+}
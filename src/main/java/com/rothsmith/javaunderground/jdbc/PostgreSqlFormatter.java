@@ -0,0 +1,173 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * PostgreSqlFormatter formats PostgreSQL specific types: dates, times and
+ * timestamps (including the java.time ones) are rendered as typed literals,
+ * e.g. <code>TIMESTAMP '2016-03-05 07:08:09.5'</code> or
+ * <code>TIMESTAMPTZ '2016-03-05 07:08:09.5 +01:00'</code>, and byte arrays as
+ * <code>'\x...'::bytea</code> literals. Generic types are handled by
+ * BaseSqlFormatter.
+ * 
+ * @author drothauser
+ * 
+ */
+public class PostgreSqlFormatter implements SqlFormatter {
+
+	/**
+	 * Renderers of the PostgreSQL specific types.
+	 */
+	private static final RendererRegistry RENDERERS = new RendererRegistry()
+	    .register(byte[].class, (bytes, buffer) -> BaseSqlFormatter
+	        .renderHex(bytes, "'\\x", "'::bytea", buffer))
+	    .register(Date.class,
+	        (date, buffer) -> renderDate(date.toLocalDate(), buffer))
+	    .register(Time.class,
+	        (time, buffer) -> renderTime(time.toLocalTime(), buffer))
+	    .register(Timestamp.class, (timestamp, buffer) -> renderTimestamp(
+	        timestamp.toLocalDateTime(), buffer))
+	    .register(LocalDate.class, PostgreSqlFormatter::renderDate)
+	    .register(LocalTime.class, PostgreSqlFormatter::renderTime)
+	    .register(LocalDateTime.class, PostgreSqlFormatter::renderTimestamp)
+	    .register(OffsetDateTime.class, PostgreSqlFormatter::renderTimestampTz)
+	    .register(Instant.class, (instant, buffer) -> renderTimestampTz(
+	        instant.atOffset(ZoneOffset.UTC), buffer));
+
+	/**
+	 * Base SQL formatter.
+	 */
+	private final SqlFormatter baseFormatter;
+
+	/**
+	 * Constructor setting the the BaseSqlFormatter field.
+	 * 
+	 * @param baseSqlFormatter
+	 *            the {@link SqlFormatter} that this class decorates (i.e
+	 *            wraps).
+	 */
+	public PostgreSqlFormatter(SqlFormatter baseSqlFormatter) {
+		this.baseFormatter = baseSqlFormatter;
+	}
+
+	/**
+	 * Renders a date as DATE 'yyyy-MM-dd'.
+	 * 
+	 * @param date
+	 *            date to be formatted
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	private static void renderDate(final LocalDate date,
+	    final StringBuilder buffer) {
+		TemporalLiterals.appendDate(buffer.append("DATE '"), date)
+		    .append('\'');
+	}
+
+	/**
+	 * Renders a time as TIME 'HH:mm:ss.f'.
+	 * 
+	 * @param time
+	 *            time to be formatted
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	private static void renderTime(final LocalTime time,
+	    final StringBuilder buffer) {
+		TemporalLiterals.appendTime(buffer.append("TIME '"), time, true)
+		    .append('\'');
+	}
+
+	/**
+	 * Renders a date and time as TIMESTAMP 'yyyy-MM-dd HH:mm:ss.f'.
+	 * 
+	 * @param dateTime
+	 *            date and time to be formatted
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	private static void renderTimestamp(final LocalDateTime dateTime,
+	    final StringBuilder buffer) {
+		TemporalLiterals.appendDateTime(buffer.append("TIMESTAMP '"),
+		    dateTime, true).append('\'');
+	}
+
+	/**
+	 * Renders a date and time with offset as TIMESTAMPTZ 'yyyy-MM-dd
+	 * HH:mm:ss.f +HH:MM'.
+	 * 
+	 * @param dateTime
+	 *            date and time with offset to be formatted
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	private static void renderTimestampTz(final OffsetDateTime dateTime,
+	    final StringBuilder buffer) {
+		TemporalLiterals.appendDateTime(buffer.append("TIMESTAMPTZ '"),
+		    dateTime.toLocalDateTime(), true).append(' ');
+		TemporalLiterals.appendOffset(buffer, dateTime.getOffset())
+		    .append('\'');
+	}
+
+	/**
+	 * Formats object to a PostgreSQL specific literal.
+	 * 
+	 * @param object
+	 *            Object to be formatted.
+	 * @return formatted PostgreSQL literal or "NULL" if o is null.
+	 * @throws SQLException
+	 *             thrown if problems formatting.
+	 */
+	@Override
+	@SuppressWarnings("PMD.OnlyOneReturn")
+	public final String format(final Object object) throws SQLException {
+		if (object == null) {
+			return "NULL";
+		}
+		SqlRenderer<Object> renderer = RENDERERS.get(object.getClass());
+		if (renderer == null) {
+			// if object not in one of our renderers, send to decorated class:
+			return baseFormatter.format(object);
+		}
+		StringBuilder buffer = new StringBuilder();
+		renderer.render(object, buffer);
+		return buffer.toString();
+	}
+
+	/**
+	 * Formats object into the given buffer. Dates, times, timestamps and
+	 * java.time values are written straight into the buffer without
+	 * intermediate Strings; everything else is formatted by the decorated
+	 * formatter.
+	 * 
+	 * @param object
+	 *            Object to be formatted.
+	 * @param buffer
+	 *            buffer the formatted object is appended to
+	 * @throws SQLException
+	 *             thrown if problems formatting.
+	 */
+	@Override
+	public final void format(final Object object, final StringBuilder buffer)
+	        throws SQLException {
+		SqlRenderer<Object> renderer =
+		    object == null ? null : RENDERERS.get(object.getClass());
+		if (renderer == null) {
+			baseFormatter.format(object, buffer);
+		} else {
+			renderer.render(object, buffer);
+		}
+	}
+}
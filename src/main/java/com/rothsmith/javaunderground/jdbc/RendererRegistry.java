@@ -0,0 +1,148 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the {@link SqlRenderer}s of a {@link SqlFormatter}, keyed by
+ * type. Formatters look up the renderer of a value's class rather than
+ * walking a chain of <code>instanceof</code> checks, so the cost of
+ * formatting a value doesn't grow with the number of supported types.
+ * <p>
+ * The renderer of a class is the one registered for the class itself, else
+ * for its closest superclass, else for the first of its interfaces (including
+ * inherited ones) that has one. This resolution is done once per concrete
+ * class and then cached in a {@link ClassValue}. Registering a renderer
+ * discards the cached resolutions.
+ * </p>
+ * <p>
+ * Formatters keep their registry in a static field and register
+ * non-capturing renderers: a {@link ClassValue} strongly references its
+ * values from the (possibly never unloaded) classes, so a renderer holding on
+ * to a formatter instance would keep that formatter alive.
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+public final class RendererRegistry {
+
+	/**
+	 * Marks classes without a renderer (ClassValue can't cache null).
+	 */
+	private static final SqlRenderer<Object> NONE = (value, buffer) -> {
+		throw new IllegalStateException("no renderer");
+	};
+
+	/**
+	 * Renderers by the type they were registered for.
+	 */
+	private final Map<Class<?>, SqlRenderer<?>> renderers =
+	    new ConcurrentHashMap<Class<?>, SqlRenderer<?>>();
+
+	/**
+	 * Renderers resolved per concrete class.
+	 */
+	private volatile ClassValue<SqlRenderer<Object>> resolved = newCache();
+
+	/**
+	 * Registers the renderer of a type (and, unless they have their own, its
+	 * subtypes). A renderer already registered for the type is replaced.
+	 * 
+	 * @param <T>
+	 *            rendered type
+	 * @param type
+	 *            class or interface rendered
+	 * @param renderer
+	 *            {@link SqlRenderer} for the type
+	 * @return this registry
+	 */
+	public <T> RendererRegistry register(Class<T> type,
+	    SqlRenderer<? super T> renderer) {
+		if (type == null || renderer == null) {
+			throw new IllegalArgumentException(
+			    "type and renderer must not be null");
+		}
+		renderers.put(type, renderer);
+		resolved = newCache();
+		return this;
+	}
+
+	/**
+	 * Returns the renderer for the given class.
+	 * 
+	 * @param type
+	 *            class of the value to be rendered
+	 * @return {@link SqlRenderer} or null if no renderer applies to the class
+	 */
+	public SqlRenderer<Object> get(Class<?> type) {
+		SqlRenderer<Object> renderer = resolved.get(type);
+		return renderer == NONE ? null : renderer;
+	}
+
+	/**
+	 * @return an empty cache of resolved renderers
+	 */
+	private ClassValue<SqlRenderer<Object>> newCache() {
+		return new ClassValue<SqlRenderer<Object>>() {
+			@Override
+			protected SqlRenderer<Object> computeValue(Class<?> type) {
+				return resolve(type);
+			}
+		};
+	}
+
+	/**
+	 * Finds the renderer for a class: the one of the class or its closest
+	 * superclass, else the one of the first interface found.
+	 * 
+	 * @param type
+	 *            class of the value to be rendered
+	 * @return {@link SqlRenderer} or {@link #NONE}
+	 */
+	@SuppressWarnings("unchecked")
+	private SqlRenderer<Object> resolve(Class<?> type) {
+		for (Class<?> cls = type; cls != null; cls = cls.getSuperclass()) {
+			SqlRenderer<?> renderer = renderers.get(cls);
+			if (renderer != null) {
+				return (SqlRenderer<Object>) renderer;
+			}
+		}
+		for (Class<?> cls = type; cls != null; cls = cls.getSuperclass()) {
+			SqlRenderer<Object> renderer = resolveInterfaces(cls);
+			if (renderer != null) {
+				return renderer;
+			}
+		}
+		return NONE;
+	}
+
+	/**
+	 * Finds the renderer of the first interface (breadth first) of a class
+	 * that has one.
+	 * 
+	 * @param type
+	 *            class or interface
+	 * @return {@link SqlRenderer} or null
+	 */
+	@SuppressWarnings("unchecked")
+	private SqlRenderer<Object> resolveInterfaces(Class<?> type) {
+		Class<?>[] interfaces = type.getInterfaces();
+		for (Class<?> iface : interfaces) {
+			SqlRenderer<?> renderer = renderers.get(iface);
+			if (renderer != null) {
+				return (SqlRenderer<Object>) renderer;
+			}
+		}
+		for (Class<?> iface : interfaces) {
+			SqlRenderer<Object> renderer = resolveInterfaces(iface);
+			if (renderer != null) {
+				return renderer;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,356 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.util.Arrays;
+
+/**
+ * Single pass SQL lexer that reduces SQL text to a canonical fingerprint so
+ * that statements can be grouped (and cached) by shape rather than by their
+ * exact text. The fingerprint of a statement is built as follows:
+ * <ul>
+ * <li>comments (<code>-- ...</code> and <code>/* ... *&#47;</code>) are
+ * removed</li>
+ * <li>string literals (including <code>''</code> escapes and N/X/B/E prefixed
+ * literals) and numeric literals are replaced by <code>?</code></li>
+ * <li>IN lists of literals or parameters are collapsed to
+ * <code>in (?+)</code></li>
+ * <li>unquoted identifiers and keywords are lower cased; quoted identifiers
+ * (<code>"..."</code>) are kept as is</li>
+ * <li>whitespace is normalized: tokens are separated by a single space except
+ * around parentheses, commas and dots</li>
+ * </ul>
+ * For example, <code>SELECT *  FROM emp WHERE id IN (1, 2, 3) AND name='O''Neil'</code>
+ * becomes <code>select * from emp where id in (?+) and name = ?</code>.
+ * <p>
+ * The lexer works directly on the characters of the SQL string and only
+ * allocates the resulting fingerprint.
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+public final class SqlFingerprinter {
+
+	/**
+	 * Replacement for literals and parameter markers.
+	 */
+	private static final char PARAM = '?';
+
+	/**
+	 * Replacement for a collapsed IN list.
+	 */
+	private static final String IN_LIST = "?+)";
+
+	/**
+	 * FNV-1a 64 bit offset basis.
+	 */
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+	/**
+	 * FNV-1a 64 bit prime.
+	 */
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * Characters that are combined into a single operator token.
+	 */
+	private static final String OPERATOR_CHARS = "<>=!|:&^~+-*/%";
+
+	/**
+	 * Private constructor to thwart instantiation.
+	 */
+	private SqlFingerprinter() {
+	}
+
+	/**
+	 * Returns the index following a quoted literal or identifier that starts
+	 * at the given index. A doubled quote character is treated as an escaped
+	 * quote.
+	 * 
+	 * @param sql
+	 *            SQL text
+	 * @param start
+	 *            index of the opening quote
+	 * @return index after the closing quote (or the length of the SQL if the
+	 *         quote isn't closed)
+	 */
+	static int skipQuoted(final String sql, final int start) {
+		char quote = sql.charAt(start);
+		int len = sql.length();
+		int i = start + 1;
+		while (i < len) {
+			if (sql.charAt(i) == quote) {
+				if (i + 1 < len && sql.charAt(i + 1) == quote) {
+					i += 2;
+					continue;
+				}
+				return i + 1;
+			}
+			i++;
+		}
+		return len;
+	}
+
+	/**
+	 * Returns the index following a comment if one starts at the given index.
+	 * 
+	 * @param sql
+	 *            SQL text
+	 * @param start
+	 *            index to check
+	 * @return index after the comment or -1 if there is no comment at start
+	 */
+	static int skipComment(final String sql, final int start) {
+		int len = sql.length();
+		if (start + 1 >= len) {
+			return -1;
+		}
+		char c = sql.charAt(start);
+		char next = sql.charAt(start + 1);
+		if (c == '-' && next == '-') {
+			int eol = start + 2;
+			while (eol < len && sql.charAt(eol) != '\n'
+			    && sql.charAt(eol) != '\r') {
+				eol++;
+			}
+			return eol;
+		}
+		if (c == '/' && next == '*') {
+			int end = sql.indexOf("*/", start + 2);
+			return end < 0 ? len : end + 2;
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the JDBC parameter markers of a statement, i.e. the
+	 * <code>?</code> characters that are not inside literals, quoted
+	 * identifiers or comments.
+	 * 
+	 * @param sql
+	 *            SQL text
+	 * @return indexes of the parameter markers in sql
+	 */
+	public static int[] parameterMarkers(final String sql) {
+		int[] markers = new int[8];
+		int count = 0;
+		int len = sql.length();
+		int i = 0;
+		while (i < len) {
+			char c = sql.charAt(i);
+			if (c == '\'' || c == '"') {
+				i = skipQuoted(sql, i);
+				continue;
+			}
+			int commentEnd = skipComment(sql, i);
+			if (commentEnd >= 0) {
+				i = commentEnd;
+				continue;
+			}
+			if (c == PARAM) {
+				if (count == markers.length) {
+					markers = Arrays.copyOf(markers, count * 2);
+				}
+				markers[count++] = i;
+			}
+			i++;
+		}
+		return Arrays.copyOf(markers, count);
+	}
+
+	/**
+	 * Computes the fingerprint of a SQL statement.
+	 * 
+	 * @param sql
+	 *            SQL text
+	 * @return canonical fingerprint of the statement
+	 */
+	@SuppressWarnings({ "PMD.CyclomaticComplexity", "PMD.NPathComplexity" })
+	public static String fingerprint(final String sql) {
+		int len = sql.length();
+		StringBuilder out = new StringBuilder(len);
+		// output index following the '(' of a candidate IN list, or -1
+		int inListStart = -1;
+		boolean inListHasParam = false;
+		boolean lastWasIn = false;
+		int i = 0;
+		while (i < len) {
+			char c = sql.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+				continue;
+			}
+			int commentEnd = skipComment(sql, i);
+			if (commentEnd >= 0) {
+				i = commentEnd;
+				continue;
+			}
+
+			int start = i;
+			boolean param = false;
+			boolean in = false;
+			if (c == '\'') {
+				i = skipQuoted(sql, i);
+				param = true;
+			} else if (c == '"') {
+				i = skipQuoted(sql, i);
+			} else if (c == PARAM) {
+				i++;
+				param = true;
+			} else if (isDigit(c)
+			    || c == '.' && i + 1 < len && isDigit(sql.charAt(i + 1))) {
+				i = skipNumber(sql, i);
+				param = true;
+			} else if (Character.isJavaIdentifierStart(c)) {
+				i++;
+				while (i < len && (Character.isJavaIdentifierPart(sql.charAt(i))
+				    || sql.charAt(i) == '#')) {
+					i++;
+				}
+				if (i - start == 1 && i < len && sql.charAt(i) == '\''
+				    && "NnXxBbEe".indexOf(c) >= 0) {
+					// prefixed literal such as N'...' or X'...'
+					i = skipQuoted(sql, i);
+					param = true;
+				} else {
+					in = i - start == 2 && (c == 'i' || c == 'I')
+					    && (sql.charAt(start + 1) == 'n'
+					        || sql.charAt(start + 1) == 'N');
+				}
+			} else if ((c == '-' || c == '+') && i + 1 < len
+			    && isDigit(sql.charAt(i + 1)) && isSignPosition(out)) {
+				// signed numeric literal
+				i = skipNumber(sql, i + 1);
+				param = true;
+			} else if (OPERATOR_CHARS.indexOf(c) >= 0) {
+				i++;
+				while (i < len && OPERATOR_CHARS.indexOf(sql.charAt(i)) >= 0
+				    && skipComment(sql, i) < 0) {
+					i++;
+				}
+			} else {
+				i++;
+			}
+
+			// separate tokens with a single space, except around (),.
+			int outLen = out.length();
+			if (outLen > 0 && (param || c != ')' && c != ',' && c != '.')
+			    && out.charAt(outLen - 1) != '(' && out.charAt(outLen - 1) != '.') {
+				out.append(' ');
+			}
+
+			if (param) {
+				out.append(PARAM);
+				if (inListStart >= 0) {
+					inListHasParam = true;
+				}
+			} else if (c == '"') {
+				out.append(sql, start, i);
+				inListStart = -1;
+			} else if (c == '(' && lastWasIn) {
+				out.append(c);
+				inListStart = out.length();
+				inListHasParam = false;
+			} else if (c == ')' && inListStart >= 0 && inListHasParam) {
+				out.setLength(inListStart);
+				out.append(IN_LIST);
+				inListStart = -1;
+			} else {
+				for (int j = start; j < i; j++) {
+					out.append(Character.toLowerCase(sql.charAt(j)));
+				}
+				if (c != ',') {
+					inListStart = -1;
+				}
+			}
+			lastWasIn = in;
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Computes a 64 bit (FNV-1a) hash of the fingerprint of a SQL statement,
+	 * suitable as a compact statement id.
+	 * 
+	 * @param sql
+	 *            SQL text
+	 * @return hash of the fingerprint
+	 */
+	public static long fingerprintHash(final String sql) {
+		String fingerprint = fingerprint(sql);
+		long hash = FNV_OFFSET;
+		for (int i = 0; i < fingerprint.length(); i++) {
+			hash ^= fingerprint.charAt(i);
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * @param c
+	 *            character to check
+	 * @return true if c is an ASCII digit
+	 */
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Checks if a '+' or '-' following the fingerprint built so far would be
+	 * the sign of a number rather than an arithmetic operator, i.e. if it
+	 * follows an operator, an opening parenthesis or a comma.
+	 *
+	 * @param out
+	 *            fingerprint built so far
+	 * @return true if a '+' or '-' would be a sign
+	 */
+	private static boolean isSignPosition(final StringBuilder out) {
+		if (out.length() == 0) {
+			return true;
+		}
+		char last = out.charAt(out.length() - 1);
+		return last == '(' || last == ','
+		    || OPERATOR_CHARS.indexOf(last) >= 0;
+	}
+
+	/**
+	 * Returns the index following a numeric literal (integer, decimal,
+	 * exponent or hexadecimal).
+	 * 
+	 * @param sql
+	 *            SQL text
+	 * @param start
+	 *            index of the first character of the number
+	 * @return index after the number
+	 */
+	private static int skipNumber(final String sql, final int start) {
+		int len = sql.length();
+		int i = start;
+		if (sql.charAt(i) == '0' && i + 1 < len
+		    && (sql.charAt(i + 1) == 'x' || sql.charAt(i + 1) == 'X')) {
+			i += 2;
+			while (i < len && Character.digit(sql.charAt(i), 16) >= 0) {
+				i++;
+			}
+			return i;
+		}
+		while (i < len && (isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+			i++;
+		}
+		if (i < len && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+			int exp = i + 1;
+			if (exp < len && (sql.charAt(exp) == '+' || sql.charAt(exp) == '-')) {
+				exp++;
+			}
+			if (exp < len && isDigit(sql.charAt(exp))) {
+				i = exp;
+				while (i < len && isDigit(sql.charAt(i))) {
+					i++;
+				}
+			}
+		}
+		return i;
+	}
+}
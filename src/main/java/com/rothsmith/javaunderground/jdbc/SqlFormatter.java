@@ -21,4 +21,21 @@ public interface SqlFormatter {
 	 */
 	String format(final Object object) throws SQLException;
 
+	/**
+	 * This method formats a SQL object into the given buffer. The default
+	 * implementation appends the result of {@link #format(Object)};
+	 * formatters override it to write straight into the buffer.
+	 * 
+	 * @param object
+	 *            Object to be formatted
+	 * @param buffer
+	 *            buffer the formatted object is appended to
+	 * @throws SQLException
+	 *             thrown if problems formatting.
+	 */
+	default void format(final Object object, final StringBuilder buffer)
+	        throws SQLException {
+		buffer.append(format(object));
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+/**
+ * Service provider interface for dialect {@link SqlFormatter}s. Providers are
+ * discovered by {@link FormatterFactory} with {@link java.util.ServiceLoader}:
+ * list the provider class (which needs a public no-arg constructor) in a
+ * <code>META-INF/services</code> file named after this interface. Discovered
+ * providers take precedence over the built-in ones, so a provider can also
+ * replace the formatter of a built-in dialect.
+ * <p>
+ * A provider applies to the databases whose product name (see
+ * {@link java.sql.DatabaseMetaData#getDatabaseProductName()}) matches its
+ * pattern and whose major version is within its version range.
+ * {@link PatternFormatterProvider} implements the matching properties for
+ * providers that just need to name them.
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+public interface SqlFormatterProvider {
+
+	/**
+	 * @return regular expression the whole database product name must match
+	 */
+	String getProductNamePattern();
+
+	/**
+	 * @return lowest major database version supported (inclusive)
+	 */
+	default int getMinMajorVersion() {
+		return 0;
+	}
+
+	/**
+	 * @return highest major database version supported (inclusive)
+	 */
+	default int getMaxMajorVersion() {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Creates the formatter of the dialect. Called once, when the
+	 * {@link FormatterFactory} is initialized.
+	 * 
+	 * @param baseFormatter
+	 *            formatter of the generic types that the dialect formatter
+	 *            can decorate
+	 * @return {@link SqlFormatter} of the dialect
+	 */
+	SqlFormatter createFormatter(SqlFormatter baseFormatter);
+
+}
@@ -0,0 +1,33 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * Renders bind variable values of one type as SQL literals. Renderers are
+ * registered per type in a {@link RendererRegistry}.
+ * 
+ * @param <T>
+ *            type of the rendered values
+ * 
+ * @author drothauser
+ * 
+ */
+@FunctionalInterface
+public interface SqlRenderer<T> {
+
+	/**
+	 * Appends the SQL literal of a (non-null) value to the buffer.
+	 * 
+	 * @param value
+	 *            value to be rendered
+	 * @param buffer
+	 *            buffer the rendered value is appended to
+	 * @throws SQLException
+	 *             thrown if problems rendering.
+	 */
+	void render(T value, StringBuilder buffer) throws SQLException;
+
+}
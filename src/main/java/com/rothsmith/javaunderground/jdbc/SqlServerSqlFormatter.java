@@ -0,0 +1,226 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * SqlServerSqlFormatter formats Microsoft SQL Server specific types: dates,
+ * times and timestamps (including the java.time ones) are cast from ISO
+ * strings to DATE, TIME, DATETIME2 and DATETIMEOFFSET, booleans are rendered
+ * as BIT values, byte arrays as binary (0x...) constants and Strings with
+ * non-ASCII characters as Unicode (N'...') literals. Generic types are
+ * handled by BaseSqlFormatter.
+ * 
+ * @author drothauser
+ * 
+ */
+public class SqlServerSqlFormatter implements SqlFormatter {
+
+	/**
+	 * SQL Server keeps 7 fractional digits (100 nanosecond units).
+	 */
+	private static final int NANOS_PER_UNIT = 100;
+
+	/**
+	 * Highest ASCII character.
+	 */
+	private static final char ASCII_MAX = 0x7F;
+
+	/**
+	 * Renderers of the SQL Server specific types.
+	 */
+	private static final RendererRegistry RENDERERS = new RendererRegistry()
+	    .register(Boolean.class,
+	        (bool, buffer) -> buffer.append(bool.booleanValue() ? '1' : '0'))
+	    .register(String.class, SqlServerSqlFormatter::renderString)
+	    .register(Character.class, (character, buffer) -> renderString(
+	        character.toString(), buffer))
+	    .register(byte[].class, (bytes, buffer) -> BaseSqlFormatter
+	        .renderHex(bytes, "0x", "", buffer))
+	    .register(Date.class,
+	        (date, buffer) -> renderDate(date.toLocalDate(), buffer))
+	    .register(Time.class,
+	        (time, buffer) -> renderTime(time.toLocalTime(), buffer))
+	    .register(Timestamp.class, (timestamp, buffer) -> renderDateTime(
+	        timestamp.toLocalDateTime(), buffer))
+	    .register(LocalDate.class, SqlServerSqlFormatter::renderDate)
+	    .register(LocalTime.class, SqlServerSqlFormatter::renderTime)
+	    .register(LocalDateTime.class, SqlServerSqlFormatter::renderDateTime)
+	    .register(OffsetDateTime.class,
+	        SqlServerSqlFormatter::renderDateTimeOffset)
+	    .register(Instant.class, (instant, buffer) -> renderDateTimeOffset(
+	        instant.atOffset(ZoneOffset.UTC), buffer));
+
+	/**
+	 * Base SQL formatter.
+	 */
+	private final SqlFormatter baseFormatter;
+
+	/**
+	 * Constructor setting the the BaseSqlFormatter field.
+	 * 
+	 * @param baseSqlFormatter
+	 *            the {@link SqlFormatter} that this class decorates (i.e
+	 *            wraps).
+	 */
+	public SqlServerSqlFormatter(SqlFormatter baseSqlFormatter) {
+		this.baseFormatter = baseSqlFormatter;
+	}
+
+	/**
+	 * Renders a String as a literal, prefixed with N if it has non-ASCII
+	 * characters so they aren't converted to the database code page.
+	 * 
+	 * @param string
+	 *            String to be rendered
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	private static void renderString(final String string,
+	    final StringBuilder buffer) {
+		int end =
+		    Math.min(string.length(), BaseSqlFormatter.getMaxStringLength());
+		for (int i = 0; i < end; i++) {
+			if (string.charAt(i) > ASCII_MAX) {
+				buffer.append('N');
+				break;
+			}
+		}
+		BaseSqlFormatter.renderString(string, buffer);
+	}
+
+	/**
+	 * Renders a date as CAST('yyyy-MM-dd' AS DATE).
+	 * 
+	 * @param date
+	 *            date to be formatted
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	private static void renderDate(final LocalDate date,
+	    final StringBuilder buffer) {
+		TemporalLiterals.appendDate(buffer.append("CAST('"), date)
+		    .append("' AS DATE)");
+	}
+
+	/**
+	 * Renders a time as CAST('HH:mm:ss.f' AS TIME).
+	 * 
+	 * @param time
+	 *            time to be formatted
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	private static void renderTime(final LocalTime time,
+	    final StringBuilder buffer) {
+		TemporalLiterals.appendTime(buffer.append("CAST('"), time.getHour(),
+		    time.getMinute(), time.getSecond());
+		TemporalLiterals.appendFraction(buffer, truncate(time.getNano()))
+		    .append("' AS TIME)");
+	}
+
+	/**
+	 * Renders a date and time as CAST('yyyy-MM-dd HH:mm:ss.f' AS DATETIME2).
+	 * 
+	 * @param dateTime
+	 *            date and time to be formatted
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	private static void renderDateTime(final LocalDateTime dateTime,
+	    final StringBuilder buffer) {
+		TemporalLiterals.appendDateTime(buffer.append("CAST('"),
+		    dateTime.withNano(truncate(dateTime.getNano())), true)
+		    .append("' AS DATETIME2)");
+	}
+
+	/**
+	 * Renders a date and time with offset as CAST('yyyy-MM-dd HH:mm:ss.f
+	 * +HH:MM' AS DATETIMEOFFSET).
+	 * 
+	 * @param dateTime
+	 *            date and time with offset to be formatted
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	private static void renderDateTimeOffset(final OffsetDateTime dateTime,
+	    final StringBuilder buffer) {
+		TemporalLiterals.appendDateTime(buffer.append("CAST('"),
+		    dateTime.toLocalDateTime().withNano(truncate(dateTime.getNano())),
+		    true).append(' ');
+		TemporalLiterals.appendOffset(buffer, dateTime.getOffset())
+		    .append("' AS DATETIMEOFFSET)");
+	}
+
+	/**
+	 * Truncates nanoseconds to the precision SQL Server accepts.
+	 * 
+	 * @param nanos
+	 *            nanoseconds
+	 * @return nanoseconds truncated to 100 nanosecond units
+	 */
+	private static int truncate(final int nanos) {
+		return nanos / NANOS_PER_UNIT * NANOS_PER_UNIT;
+	}
+
+	/**
+	 * Formats object to a SQL Server specific literal.
+	 * 
+	 * @param object
+	 *            Object to be formatted.
+	 * @return formatted SQL Server literal or "NULL" if o is null.
+	 * @throws SQLException
+	 *             thrown if problems formatting.
+	 */
+	@Override
+	@SuppressWarnings("PMD.OnlyOneReturn")
+	public final String format(final Object object) throws SQLException {
+		if (object == null) {
+			return "NULL";
+		}
+		SqlRenderer<Object> renderer = RENDERERS.get(object.getClass());
+		if (renderer == null) {
+			// if object not in one of our renderers, send to decorated class:
+			return baseFormatter.format(object);
+		}
+		StringBuilder buffer = new StringBuilder();
+		renderer.render(object, buffer);
+		return buffer.toString();
+	}
+
+	/**
+	 * Formats object into the given buffer. Booleans, Strings, dates, times,
+	 * timestamps and java.time values are written straight into the buffer
+	 * without intermediate Strings; everything else is formatted by the
+	 * decorated formatter.
+	 * 
+	 * @param object
+	 *            Object to be formatted.
+	 * @param buffer
+	 *            buffer the formatted object is appended to
+	 * @throws SQLException
+	 *             thrown if problems formatting.
+	 */
+	@Override
+	public final void format(final Object object, final StringBuilder buffer)
+	        throws SQLException {
+		SqlRenderer<Object> renderer =
+		    object == null ? null : RENDERERS.get(object.getClass());
+		if (renderer == null) {
+			baseFormatter.format(object, buffer);
+		} else {
+			renderer.render(object, buffer);
+		}
+	}
+}
@@ -0,0 +1,295 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pre-parsed form of a SQL statement: the literal text segments between its
+ * bind variables. A statement with n bind variables has n + 1 segments, so the
+ * statement with bound values is rendered as segment 0, value 1, segment 1,
+ * ..., value n, segment n.
+ * <p>
+ * Templates are immutable and are cached by SQL text, so statements that are
+ * prepared over and over only get scanned (see
+ * {@link SqlFingerprinter#parameterMarkers(String)}) once. The cache is
+ * bounded and evicts the templates that aren't used any more: it is kept in
+ * two generations of half the maximum size each. New templates go into the
+ * current generation and templates found in the previous one are moved up
+ * into it; when the current generation is full it becomes the previous one,
+ * dropping the templates that weren't used during a whole generation.
+ * Lookups take no locks.
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+public final class SqlTemplate {
+
+	/**
+	 * Maximum number of cached templates.
+	 */
+	public static final int MAX_CACHED_TEMPLATES = 2000;
+
+	/**
+	 * Marks a bind variable value that hasn't been captured.
+	 */
+	static final Object UNBOUND = new Object();
+
+	/**
+	 * Maximum number of templates per cache generation.
+	 */
+	private static final int GENERATION_SIZE = MAX_CACHED_TEMPLATES / 2;
+
+	/**
+	 * Current generation of cached templates, keyed by SQL text.
+	 */
+	private static volatile ConcurrentMap<String, SqlTemplate> current =
+	    new ConcurrentHashMap<String, SqlTemplate>();
+
+	/**
+	 * Previous generation of cached templates, keyed by SQL text.
+	 */
+	private static volatile ConcurrentMap<String, SqlTemplate> previous =
+	    new ConcurrentHashMap<String, SqlTemplate>();
+
+	/**
+	 * SQL text.
+	 */
+	private final String sql;
+
+	/**
+	 * Text segments between the bind variables.
+	 */
+	private final String[] segments;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param sql
+	 *            SQL text
+	 */
+	private SqlTemplate(final String sql) {
+		this.sql = sql;
+		int[] markers = SqlFingerprinter.parameterMarkers(sql);
+		segments = new String[markers.length + 1];
+		int start = 0;
+		for (int i = 0; i < markers.length; i++) {
+			segments[i] = sql.substring(start, markers[i]);
+			start = markers[i] + 1;
+		}
+		segments[markers.length] = sql.substring(start);
+	}
+
+	/**
+	 * Returns the template of a SQL statement, parsing it only if it hasn't
+	 * been cached.
+	 * 
+	 * @param sql
+	 *            SQL text
+	 * @return {@link SqlTemplate} for sql
+	 */
+	public static SqlTemplate of(final String sql) {
+		ConcurrentMap<String, SqlTemplate> generation = current;
+		SqlTemplate template = generation.get(sql);
+		if (template != null) {
+			return template;
+		}
+		template = previous.get(sql);
+		if (template == null) {
+			template = new SqlTemplate(sql);
+		}
+		SqlTemplate cached = generation.putIfAbsent(sql, template);
+		if (cached != null) {
+			return cached;
+		}
+		if (generation.size() >= GENERATION_SIZE) {
+			rotate(generation);
+		}
+		return template;
+	}
+
+	/**
+	 * Makes a full generation the previous one and starts a new one, unless
+	 * another thread has done so already.
+	 * 
+	 * @param full
+	 *            the full generation
+	 */
+	private static synchronized void rotate(
+	    ConcurrentMap<String, SqlTemplate> full) {
+		if (current == full) {
+			previous = full;
+			current = new ConcurrentHashMap<String, SqlTemplate>();
+		}
+	}
+
+	/**
+	 * Removes all cached templates.
+	 */
+	static synchronized void clearCache() {
+		previous = new ConcurrentHashMap<String, SqlTemplate>();
+		current = new ConcurrentHashMap<String, SqlTemplate>();
+	}
+
+	/**
+	 * @return number of cached templates
+	 */
+	static synchronized int cacheSize() {
+		int size = current.size();
+		for (String sql : previous.keySet()) {
+			if (!current.containsKey(sql)) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return SQL text
+	 */
+	public String getSql() {
+		return sql;
+	}
+
+	/**
+	 * @return number of bind variables
+	 */
+	public int getParameterCount() {
+		return segments.length - 1;
+	}
+
+	/**
+	 * Returns the text preceding a bind variable, or following the last one.
+	 * 
+	 * @param index
+	 *            segment index from 0 to {@link #getParameterCount()}
+	 * @return text segment
+	 */
+	public String getSegment(final int index) {
+		return segments[index];
+	}
+
+	/**
+	 * Appends the statement with the given bind variable values substituted.
+	 * Values are written straight into the buffer by the formatter; values
+	 * that are {@link #UNBOUND} are rendered as ? + (missing variable #).
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 * @param values
+	 *            bind variable values, one per parameter
+	 * @param formatter
+	 *            {@link SqlFormatter} for the values
+	 */
+	void appendTo(StringBuilder buffer, Object[] values,
+	    SqlFormatter formatter) {
+		int count = getParameterCount();
+		for (int i = 0; i < count; i++) {
+			buffer.append(segments[i]);
+			if (values[i] != UNBOUND) {
+				appendValue(buffer, values[i], formatter);
+			} else {
+				appendMissing(buffer, i);
+			}
+		}
+		buffer.append(segments[count]);
+	}
+
+	/**
+	 * Appends the statement with the captured bind variables of a
+	 * {@link ParameterStore} substituted (see
+	 * {@link #appendTo(StringBuilder, Object[], SqlFormatter)}), reading
+	 * them from their slots without boxing: numbers are appended as Java
+	 * literals (the way every formatter renders them) and booleans are
+	 * rendered by the formatter as the shared {@link Boolean} constants.
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 * @param values
+	 *            captured bind variables, one per parameter
+	 * @param formatter
+	 *            {@link SqlFormatter} for the values
+	 */
+	void appendTo(StringBuilder buffer, ParameterStore values,
+	    SqlFormatter formatter) {
+		int count = getParameterCount();
+		for (int i = 0; i < count; i++) {
+			buffer.append(segments[i]);
+			long primitive = values.getPrimitive(i);
+			switch (values.getTag(i)) {
+			case ParameterStore.UNBOUND:
+				appendMissing(buffer, i);
+				break;
+			case ParameterStore.INT:
+			case ParameterStore.LONG:
+			case ParameterStore.SHORT:
+			case ParameterStore.BYTE:
+				buffer.append(primitive);
+				break;
+			case ParameterStore.DOUBLE:
+				buffer.append(Double.longBitsToDouble(primitive));
+				break;
+			case ParameterStore.FLOAT:
+				buffer.append(Float.intBitsToFloat((int) primitive));
+				break;
+			case ParameterStore.BOOLEAN:
+				appendValue(buffer, Boolean.valueOf(primitive != 0),
+				    formatter);
+				break;
+			default:
+				appendValue(buffer, values.getObject(i), formatter);
+				break;
+			}
+		}
+		buffer.append(segments[count]);
+	}
+
+	/**
+	 * Appends a bind variable value as rendered by the formatter, or the
+	 * exception if it can't be rendered.
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 * @param value
+	 *            bind variable value
+	 * @param formatter
+	 *            {@link SqlFormatter} for the value
+	 */
+	private static void appendValue(StringBuilder buffer, Object value,
+	    SqlFormatter formatter) {
+		int mark = buffer.length();
+		try {
+			formatter.format(value, buffer);
+		} catch (SQLException e) {
+			buffer.setLength(mark);
+			buffer.append("SQLException: ");
+			buffer.append(e);
+		}
+	}
+
+	/**
+	 * Appends the placeholder of a bind variable that wasn't captured.
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 * @param index
+	 *            0-based parameter index
+	 */
+	private static void appendMissing(StringBuilder buffer, int index) {
+		buffer.append("? (missing variable # ");
+		buffer.append(index + 1);
+		buffer.append(" ) ");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return sql;
+	}
+}
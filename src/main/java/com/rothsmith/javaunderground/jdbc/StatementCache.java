@@ -0,0 +1,708 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp.DelegatingConnection;
+import org.apache.commons.dbcp.PoolableConnection;
+import org.apache.commons.dbutils.DbUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of prepared statements, keyed by connection and SQL text, so hot
+ * statements are prepared (and parsed by the database) once per connection
+ * instead of once per use. Set it with
+ * {@link StatementFactory#setStatementCache(StatementCache)}; statements from
+ * the factory are then wrapped in a {@link DebuggableStatement} (even if
+ * debug = OFF) whose {@code close()} returns the prepared statement to the
+ * cache instead of closing it.
+ * <p>
+ * Each connection has its own least recently used list of idle statements
+ * holding at most {@code capacity} of them; the least recently used one is
+ * closed when another one is returned to a full list. The capacity can be
+ * set per datasource ({@link #setCapacity(DataSource, int)}). A statement is
+ * taken out of the list while it is in use, so a statement is never shared:
+ * a second use of the same SQL text on the same connection prepares another
+ * one.
+ * </p>
+ * <p>
+ * Statements are cached per physical connection. A connection borrowed from
+ * a DBCP pool is a new wrapper object on every borrow, so the statements are
+ * prepared on and cached for the driver's connection underneath it; they
+ * outlive the borrow and are reused by the next borrower of the same
+ * physical connection.
+ * </p>
+ * <p>
+ * Connections are held strongly (the cached statements reference them
+ * anyway), so entries are removed explicitly: a statement returned on a
+ * closed connection removes the connection's entry, and whenever an entry is
+ * added for another connection the two connections that were checked
+ * longest ago are checked and removed if they have been closed. Adding an
+ * entry therefore costs the same however many connections are cached, and
+ * the entries of closed connections are still removed over time;
+ * {@link #purge()} removes all of them at once. Call
+ * {@link #clear(Connection)} before closing a connection to close its
+ * statements right away.
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+public final class StatementCache {
+
+	/**
+	 * Default maximum number of idle statements per connection.
+	 */
+	public static final int DEFAULT_CAPACITY = 50;
+
+	/**
+	 * Number of cached connections checked whenever an entry is added.
+	 */
+	private static final int CHECKED_PER_ENTRY = 2;
+
+	/**
+	 * SLF4J Logger for StatementCache.
+	 */
+	private static final Logger LOGGER =
+	    LoggerFactory.getLogger(StatementCache.class);
+
+	/**
+	 * Idle statements per physical connection, by connection identity.
+	 */
+	private final Map<Connection, Lru> connections =
+	    new IdentityHashMap<Connection, Lru>();
+
+	/**
+	 * Entries of {@link #connections} in the order they are checked for
+	 * closed connections (guarded by the lock of {@link #connections}).
+	 */
+	private final Deque<Lru> unchecked = new ArrayDeque<Lru>();
+
+	/**
+	 * Maximum number of idle statements per connection.
+	 */
+	private final int capacity;
+
+	/**
+	 * Maximum number of idle statements per connection by JDBC URL.
+	 */
+	private final Map<String, Integer> capacities =
+	    new ConcurrentHashMap<String, Integer>();
+
+	/**
+	 * Number of lookups that found an idle statement.
+	 */
+	private final LongAdder hits = new LongAdder();
+
+	/**
+	 * Number of lookups that prepared a new statement.
+	 */
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Number of idle statements closed to make room for others.
+	 */
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates a cache with the default capacity.
+	 */
+	public StatementCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param capacity
+	 *            maximum number of idle statements per connection
+	 */
+	public StatementCache(int capacity) {
+		this.capacity = checkCapacity(capacity);
+	}
+
+	/**
+	 * @param capacity
+	 *            a capacity
+	 * @return the capacity
+	 * @throws IllegalArgumentException
+	 *             thrown if the capacity isn't positive
+	 */
+	private static int checkCapacity(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException(
+			    "capacity must be positive: " + capacity);
+		}
+		return capacity;
+	}
+
+	/**
+	 * Sets the maximum number of idle statements per connection of the
+	 * connections to a database, overriding the capacity of the cache for
+	 * them. It applies to the connections cached from now on.
+	 * 
+	 * @param url
+	 *            JDBC URL of the database as the driver reports it (see
+	 *            {@link java.sql.DatabaseMetaData#getURL()})
+	 * @param capacity
+	 *            maximum number of idle statements per connection
+	 */
+	public void setCapacity(String url, int capacity) {
+		capacities.put(url, Integer.valueOf(checkCapacity(capacity)));
+	}
+
+	/**
+	 * Sets the maximum number of idle statements per connection of the
+	 * connections of a datasource (see {@link #setCapacity(String, int)}). A
+	 * connection is borrowed once to read the JDBC URL.
+	 * 
+	 * @param dataSource
+	 *            the datasource
+	 * @param capacity
+	 *            maximum number of idle statements per connection
+	 * @throws SQLException
+	 *             thrown if no connection can be borrowed
+	 */
+	public void setCapacity(DataSource dataSource, int capacity)
+	        throws SQLException {
+		checkCapacity(capacity);
+		Connection con = dataSource.getConnection();
+		try {
+			setCapacity(con.getMetaData().getURL(), capacity);
+		} finally {
+			DbUtils.closeQuietly(con);
+		}
+	}
+
+	/**
+	 * Returns the physical connection of a connection: the driver's
+	 * connection underneath a connection borrowed from a DBCP pool, else the
+	 * connection itself.
+	 * 
+	 * @param con
+	 *            a connection
+	 * @return the physical connection
+	 */
+	static Connection physical(Connection con) {
+		if (!(con instanceof DelegatingConnection)) {
+			return con;
+		}
+		try {
+			// the wrapper of a borrowed connection hides its delegates
+			// unless the pool allows access, but it can be unwrapped
+			Connection pooled = con.isWrapperFor(PoolableConnection.class)
+			    ? con.unwrap(PoolableConnection.class) : con;
+			Connection inner =
+			    ((DelegatingConnection) pooled).getInnermostDelegate();
+			return inner == null ? con : inner;
+		} catch (SQLException | RuntimeException e) {
+			// closed wrapper
+			return con;
+		}
+	}
+
+	/**
+	 * @param con
+	 *            a physical connection
+	 * @return maximum number of idle statements for the connection
+	 */
+	private int capacityOf(Connection con) {
+		if (capacities.isEmpty()) {
+			return capacity;
+		}
+		try {
+			return getCapacity(con.getMetaData().getURL());
+		} catch (SQLException | RuntimeException e) {
+			return capacity;
+		}
+	}
+
+	/**
+	 * Takes an idle statement for the SQL text out of the connection's list or
+	 * prepares a new one (on the physical connection) if there is none.
+	 * 
+	 * @param con
+	 *            connection to prepare the statement on
+	 * @param sql
+	 *            SQL text of the statement
+	 * @return the prepared statement; hand it back with
+	 *         {@link #release(Connection, String, PreparedStatement)}
+	 * @throws SQLException
+	 *             thrown if the statement can't be prepared
+	 */
+	public PreparedStatement acquire(Connection con, String sql)
+	        throws SQLException {
+		Connection physical = physical(con);
+		PreparedStatement statement;
+		synchronized (connections) {
+			Lru lru = connections.get(physical);
+			statement = lru == null ? null : lru.remove(sql);
+		}
+		if (statement != null) {
+			if (!statement.isClosed()) {
+				hits.increment();
+				return statement;
+			}
+			forget(physical, statement);
+		}
+		misses.increment();
+		statement = physical.prepareStatement(sql);
+		Settings settings;
+		try {
+			settings = new Settings(statement);
+		} catch (SQLException e) {
+			DbUtils.closeQuietly(statement);
+			throw e;
+		}
+		int lruCapacity = capacityOf(physical);
+		boolean added;
+		synchronized (connections) {
+			Lru lru = connections.get(physical);
+			added = lru == null;
+			if (added) {
+				lru = new Lru(physical, lruCapacity);
+				connections.put(physical, lru);
+				unchecked.addLast(lru);
+			}
+			lru.settings.put(statement, settings);
+		}
+		if (added) {
+			check(CHECKED_PER_ENTRY);
+		}
+		return statement;
+	}
+
+	/**
+	 * Returns a statement taken with {@link #acquire(Connection, String)} to
+	 * the connection's list, clearing its parameters and batch and restoring
+	 * the settings (max rows, query timeout, fetch size and direction, max
+	 * field size, poolable and escape processing) it had when it was
+	 * prepared. Statements that have been closed, that can't be cleared or
+	 * that weren't acquired from this cache (or whose connection has been
+	 * cleared since) are closed instead of kept; a statement of a closed
+	 * connection removes the connection's entry.
+	 * 
+	 * @param con
+	 *            connection the statement was acquired for
+	 * @param sql
+	 *            SQL text of the statement
+	 * @param statement
+	 *            the statement
+	 */
+	public void release(Connection con, String sql,
+	    PreparedStatement statement) {
+		Connection physical = physicalOf(con, statement);
+		Settings settings;
+		synchronized (connections) {
+			Lru lru = connections.get(physical);
+			settings = lru == null ? null : lru.settings.get(statement);
+		}
+		try {
+			if (physical.isClosed()) {
+				DbUtils.closeQuietly(statement);
+				clear(physical);
+				return;
+			}
+			if (settings == null || statement.isClosed()) {
+				forget(physical, statement);
+				DbUtils.closeQuietly(statement);
+				return;
+			}
+			DbUtils.closeQuietly(statement.getResultSet());
+			statement.clearParameters();
+			statement.clearBatch();
+			statement.clearWarnings();
+			settings.restore(statement);
+		} catch (SQLException e) {
+			LOGGER.warn("Not caching statement " + sql + ": " + e);
+			forget(physical, statement);
+			DbUtils.closeQuietly(statement);
+			return;
+		}
+		PreparedStatement replaced;
+		PreparedStatement evicted;
+		synchronized (connections) {
+			Lru lru = connections.get(physical);
+			if (lru == null) {
+				// the connection was cleared while the statement was in use
+				replaced = statement;
+				evicted = null;
+			} else {
+				replaced = lru.put(sql, statement);
+				evicted = lru.evicted;
+				lru.evicted = null;
+				lru.settings.remove(replaced);
+				lru.settings.remove(evicted);
+			}
+		}
+		// a statement for the same SQL text was returned while this one
+		// was in use
+		DbUtils.closeQuietly(replaced);
+		if (evicted != null) {
+			evictions.increment();
+			DbUtils.closeQuietly(evicted);
+		}
+	}
+
+	/**
+	 * Returns the physical connection a statement was prepared on. The
+	 * statement knows it even if a pool wrapper has already been closed.
+	 * 
+	 * @param con
+	 *            connection the statement was acquired for
+	 * @param statement
+	 *            the statement
+	 * @return the physical connection
+	 */
+	private static Connection physicalOf(Connection con,
+	    PreparedStatement statement) {
+		try {
+			Connection physical = statement.getConnection();
+			if (physical != null) {
+				return physical;
+			}
+		} catch (SQLException e) {
+			// closed statement
+		}
+		return physical(con);
+	}
+
+	/**
+	 * Stops tracking a statement that won't be cached.
+	 * 
+	 * @param con
+	 *            physical connection the statement was prepared on
+	 * @param statement
+	 *            the statement
+	 */
+	private void forget(Connection con, PreparedStatement statement) {
+		synchronized (connections) {
+			Lru lru = connections.get(con);
+			if (lru != null) {
+				lru.settings.remove(statement);
+			}
+		}
+	}
+
+	/**
+	 * Closes and removes the idle statements of a connection.
+	 * 
+	 * @param con
+	 *            the connection
+	 */
+	public void clear(Connection con) {
+		List<PreparedStatement> statements;
+		synchronized (connections) {
+			Lru lru = connections.remove(physical(con));
+			if (lru == null) {
+				return;
+			}
+			statements = new ArrayList<PreparedStatement>(lru.values());
+		}
+		for (PreparedStatement statement : statements) {
+			DbUtils.closeQuietly(statement);
+		}
+	}
+
+	/**
+	 * Closes and removes the idle statements of the connections that have
+	 * been closed.
+	 * 
+	 * @return number of connections removed
+	 */
+	public int purge() {
+		int count;
+		synchronized (connections) {
+			count = unchecked.size();
+		}
+		return check(count);
+	}
+
+	/**
+	 * Checks the connections that were checked longest ago and closes and
+	 * removes the idle statements of those that have been closed.
+	 * 
+	 * @param count
+	 *            number of connections to check
+	 * @return number of connections removed
+	 */
+	private int check(int count) {
+		int purged = 0;
+		for (int i = 0; i < count; i++) {
+			Lru lru;
+			synchronized (connections) {
+				lru = unchecked.pollFirst();
+				if (lru == null) {
+					break;
+				}
+				if (connections.get(lru.connection) != lru) {
+					// cleared since
+					continue;
+				}
+			}
+			if (isClosed(lru.connection)) {
+				clear(lru.connection);
+				purged++;
+			} else {
+				synchronized (connections) {
+					if (connections.get(lru.connection) == lru) {
+						unchecked.addLast(lru);
+					}
+				}
+			}
+		}
+		return purged;
+	}
+
+	/**
+	 * @param con
+	 *            a connection
+	 * @return true if the connection is closed (or its state can't be read)
+	 */
+	private static boolean isClosed(Connection con) {
+		try {
+			return con.isClosed();
+		} catch (SQLException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * @return maximum number of idle statements per connection
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @param url
+	 *            JDBC URL of a database as the driver reports it
+	 * @return maximum number of idle statements per connection to the
+	 *         database
+	 */
+	public int getCapacity(String url) {
+		Integer urlCapacity = capacities.get(url);
+		return urlCapacity == null ? capacity : urlCapacity.intValue();
+	}
+
+	/**
+	 * @param con
+	 *            a connection
+	 * @return number of idle statements of the connection
+	 */
+	public int getSize(Connection con) {
+		synchronized (connections) {
+			Lru lru = connections.get(physical(con));
+			return lru == null ? 0 : lru.size();
+		}
+	}
+
+	/**
+	 * @return number of physical connections that have idle statements (or
+	 *         had them)
+	 */
+	public int getConnectionCount() {
+		synchronized (connections) {
+			return connections.size();
+		}
+	}
+
+	/**
+	 * @return number of lookups that found an idle statement
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return number of lookups that prepared a new statement
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return number of idle statements closed to make room for others
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return fraction (0 to 1) of lookups that found an idle statement
+	 */
+	public double getHitRatio() {
+		long hitCount = hits.sum();
+		long total = hitCount + misses.sum();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "StatementCache [capacity=" + capacity + ", hits=" + getHits()
+		    + ", misses=" + getMisses() + ", evictions=" + getEvictions()
+		    + "]";
+	}
+
+	/**
+	 * Idle statements of a connection in least recently used order.
+	 */
+	@SuppressWarnings("serial")
+	private static final class Lru
+	        extends LinkedHashMap<String, PreparedStatement> {
+
+		/**
+		 * Physical connection of the statements.
+		 */
+		private final Connection connection;
+
+		/**
+		 * Maximum number of idle statements.
+		 */
+		private final int capacity;
+
+		/**
+		 * Statement removed by the last put (to be closed outside the lock).
+		 */
+		private PreparedStatement evicted;
+
+		/**
+		 * Settings the statements of the connection (idle or in use) had
+		 * when they were prepared.
+		 */
+		private final Map<PreparedStatement, Settings> settings =
+		    new IdentityHashMap<PreparedStatement, Settings>();
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param connection
+		 *            physical connection of the statements
+		 * @param capacity
+		 *            maximum number of idle statements
+		 */
+		Lru(Connection connection, int capacity) {
+			super(16, 0.75f, true);
+			this.connection = connection;
+			this.capacity = capacity;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected boolean removeEldestEntry(
+		    Map.Entry<String, PreparedStatement> eldest) {
+			if (size() > capacity) {
+				evicted = eldest.getValue();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Settings of a statement that a borrower may change and that are
+	 * restored before the statement is handed to the next one.
+	 */
+	private static final class Settings {
+
+		/**
+		 * Maximum number of rows.
+		 */
+		private final int maxRows;
+
+		/**
+		 * Query timeout in seconds.
+		 */
+		private final int queryTimeout;
+
+		/**
+		 * Fetch size.
+		 */
+		private final int fetchSize;
+
+		/**
+		 * Fetch direction.
+		 */
+		private final int fetchDirection;
+
+		/**
+		 * Maximum field size.
+		 */
+		private final int maxFieldSize;
+
+		/**
+		 * Whether the statement is poolable.
+		 */
+		private final boolean poolable;
+
+		/**
+		 * Reads the settings of a statement.
+		 * 
+		 * @param statement
+		 *            a newly prepared statement
+		 * @throws SQLException
+		 *             thrown if the settings can't be read
+		 */
+		Settings(PreparedStatement statement) throws SQLException {
+			maxRows = statement.getMaxRows();
+			queryTimeout = statement.getQueryTimeout();
+			fetchSize = statement.getFetchSize();
+			fetchDirection = statement.getFetchDirection();
+			maxFieldSize = statement.getMaxFieldSize();
+			poolable = statement.isPoolable();
+		}
+
+		/**
+		 * Restores the settings of a statement (only the ones that were
+		 * changed are set).
+		 * 
+		 * @param statement
+		 *            the statement
+		 * @throws SQLException
+		 *             thrown if a setting can't be read or set
+		 */
+		void restore(PreparedStatement statement) throws SQLException {
+			if (statement.getMaxRows() != maxRows) {
+				statement.setMaxRows(maxRows);
+			}
+			if (statement.getQueryTimeout() != queryTimeout) {
+				statement.setQueryTimeout(queryTimeout);
+			}
+			if (statement.getFetchSize() != fetchSize) {
+				statement.setFetchSize(fetchSize);
+			}
+			if (statement.getFetchDirection() != fetchDirection) {
+				statement.setFetchDirection(fetchDirection);
+			}
+			if (statement.getMaxFieldSize() != maxFieldSize) {
+				statement.setMaxFieldSize(maxFieldSize);
+			}
+			if (statement.isPoolable() != poolable) {
+				statement.setPoolable(poolable);
+			}
+			// escape processing can't be read; it is on unless turned off
+			statement.setEscapeProcessing(true);
+		}
+	}
+}
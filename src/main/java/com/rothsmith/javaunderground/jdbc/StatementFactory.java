@@ -26,16 +26,52 @@ import java.sql.SQLException;
  */
 public final class StatementFactory {
 
+	/**
+	 * Default maximum number of captured entries per batch.
+	 */
+	public static final int DEFAULT_MAX_BATCH_CAPTURE = 10000;
+
 	/**
 	 * Default debug level.
 	 */
 	private static DebugLevel defaultDebug = DebugLevel.OFF;
 
+	/**
+	 * Formatter used when none is given (null = resolve it from the
+	 * connection).
+	 */
+	private static volatile SqlFormatter defaultFormatter;
+
+	/**
+	 * Registry that statements report their executions into (null = none).
+	 */
+	private static volatile StatementMetricsRegistry metricsRegistry;
+
+	/**
+	 * Log that captured executions are handed to (null = log synchronously).
+	 */
+	private static volatile AsyncStatementLog statementLog;
+
+	/**
+	 * Journal that captured executions are recorded in (null = none).
+	 */
+	private static volatile StatementJournal statementJournal;
+
+	/**
+	 * Maximum number of captured entries per batch.
+	 */
+	private static volatile int maxBatchCapture = DEFAULT_MAX_BATCH_CAPTURE;
+
+	/**
+	 * Cache that prepared statements are taken from (null = none).
+	 */
+	private static volatile StatementCache statementCache;
+
 	/**
 	 * StatementFactory returns either a regular PreparedStatement or a
 	 * DebuggableStatement class depending on the DebugLevel. If DebugLevel is
-	 * OFF then a PreparedStatement is returned. If DebugLevel is ON or VERBOSE
-	 * then a DebuggableStatement is returned. This minimizes overhead when
+	 * OFF then a PreparedStatement is returned. If DebugLevel is ON, VERBOSE or
+	 * LAZY then a DebuggableStatement is returned. This minimizes overhead when
 	 * debugging is not needed without effecting the code.
 	 */
 	private StatementFactory() {
@@ -55,9 +91,11 @@ public final class StatementFactory {
 	 *            OracleFormatter)
 	 * @param debug
 	 *            sets the debug level for this statement. DebugLevel can be
-	 *            OFF, ON, VERBOSE
-	 * @return PreparedStatement returns a DebuggableStatement if debug = ON or
-	 *         VERBOSE. Returns a standard PreparedStatement if debug = OFF.
+	 *            OFF, ON, VERBOSE, LAZY or a capture policy (see
+	 *            {@link DebugLevel})
+	 * @return PreparedStatement returns a DebuggableStatement if debug = ON,
+	 *         VERBOSE or LAZY or if a metrics registry or statement cache has
+	 *         been set. Returns a standard PreparedStatement if debug = OFF.
 	 * @exception SQLException
 	 *                thrown if problem with connection.
 	 */
@@ -72,11 +110,14 @@ public final class StatementFactory {
 
 		PreparedStatement preparedStatement = null;
 
-		if (debug == DebugLevel.OFF) {
+		StatementMetricsRegistry registry = metricsRegistry;
+		StatementCache cache = statementCache;
+		if (debug == DebugLevel.OFF && registry == null && cache == null) {
 			preparedStatement = con.prepareStatement(stmt);
 		} else {
-			preparedStatement =
-			    new DebuggableStatement(con, stmt, formatter, debug);
+			preparedStatement = new DebuggableStatement(con, stmt, formatter,
+			    debug, registry == null ? null : registry.getMetrics(stmt),
+			    cache);
 		}
 
 		return preparedStatement;
@@ -95,8 +136,9 @@ public final class StatementFactory {
 	 * @param formatter
 	 *            BaseSqlFormatter that matches the database type (i.e.
 	 *            OracleFormatter)
-	 * @return PreparedStatement returns a DebuggableStatement if debug = ON or
-	 *         VERBOSE. Returns a standard PreparedStatement if debug = OFF.
+	 * @return PreparedStatement returns a DebuggableStatement if debug = ON,
+	 *         VERBOSE or LAZY. Returns a standard PreparedStatement if debug =
+	 *         OFF.
 	 * @exception SQLException
 	 *                thrown if problem with connection.
 	 */
@@ -120,18 +162,19 @@ public final class StatementFactory {
 	 *            sql statement that will be executed.
 	 * @param debug
 	 *            sets the debug level for this statement. DebugLevel can be
-	 *            OFF, ON, VERBOSE
-	 * @return PreparedStatement returns a DebuggableStatement if debug = ON or
-	 *         VERBOSE. Returns a standard PreparedStatement if debug = OFF.
+	 *            OFF, ON, VERBOSE, LAZY or a capture policy (see
+	 *            {@link DebugLevel})
+	 * @return PreparedStatement returns a DebuggableStatement if debug = ON,
+	 *         VERBOSE or LAZY. Returns a standard PreparedStatement if debug =
+	 *         OFF.
 	 * @exception SQLException
 	 *                thrown if problem with connection.
 	 */
 	public static PreparedStatement getStatement(final Connection con,
 	    final String stmt, final DebugLevel debug) throws SQLException {
 
-		SqlFormatter formatter =
-		    FormatterFactory.getInstance().getFormatter(con);
-		return StatementFactory.getStatement(con, stmt, formatter, debug);
+		return StatementFactory.getStatement(con, stmt, formatter(con, debug),
+		    debug);
 
 	}
 
@@ -143,18 +186,44 @@ public final class StatementFactory {
 	 *            Connection to jdbc data source.
 	 * @param stmt
 	 *            sql statement that will be executed.
-	 * @return PreparedStatement returns a DebuggableStatement if debug = ON or
-	 *         VERBOSE. Returns a standard PreparedStatement if debug = OFF.
+	 * @return PreparedStatement returns a DebuggableStatement if debug = ON,
+	 *         VERBOSE or LAZY. Returns a standard PreparedStatement if debug =
+	 *         OFF.
 	 * @exception SQLException
 	 *                thrown if problem with connection.
 	 */
 	public static PreparedStatement getStatement(final Connection con,
 	    final String stmt) throws SQLException {
 
-		SqlFormatter formatter =
-		    FormatterFactory.getInstance().getFormatter(con);
-		return StatementFactory.getStatement(con, stmt, formatter,
-		    defaultDebug);
+		DebugLevel debug = defaultDebug;
+		return StatementFactory.getStatement(con, stmt, formatter(con, debug),
+		    debug);
+	}
+
+	/**
+	 * Returns the formatter for statements created without one: the default
+	 * formatter if set, otherwise the (cached) formatter of the connection's
+	 * database. No formatter is needed (and none is looked up) for plain
+	 * PreparedStatements.
+	 * 
+	 * @param con
+	 *            Connection to jdbc data source.
+	 * @param debug
+	 *            debug level of the statement
+	 * @return {@link SqlFormatter} or null if the statement won't be wrapped
+	 */
+	private static SqlFormatter formatter(final Connection con,
+	    final DebugLevel debug) {
+
+		if (debug == DebugLevel.OFF && metricsRegistry == null
+		    && statementCache == null) {
+			return null;
+		}
+		SqlFormatter formatter = defaultFormatter;
+		if (formatter == null && con != null) {
+			formatter = FormatterFactory.getInstance().getFormatter(con);
+		}
+		return formatter;
 	}
 
 	/**
@@ -164,10 +233,144 @@ public final class StatementFactory {
 	 * 
 	 * @param debug
 	 *            sets the debug level for this statement. DebugLevel can be
-	 *            OFF, ON, VERBOSE
+	 *            OFF, ON, VERBOSE, LAZY or a capture policy (see
+	 *            {@link DebugLevel})
 	 */
 	public static void setDefaultDebug(final DebugLevel debug) {
 		defaultDebug = debug;
 	}
 
+	/**
+	 * Sets the formatter used for statements created without one (e.g. an
+	 * {@link OracleSqlFormatter}). This skips resolving the formatter from the
+	 * connection's metadata.
+	 * 
+	 * @param formatter
+	 *            {@link SqlFormatter} or null to resolve the formatter from the
+	 *            connection (see {@link FormatterFactory})
+	 */
+	public static void setDefaultFormatter(final SqlFormatter formatter) {
+		defaultFormatter = formatter;
+	}
+
+	/**
+	 * @return the formatter used for statements created without one or null
+	 *         if it is resolved from the connection.
+	 */
+	public static SqlFormatter getDefaultFormatter() {
+		return defaultFormatter;
+	}
+
+	/**
+	 * Sets the registry that statements created from now on report their
+	 * execution metrics into. When a registry is set, statements are wrapped
+	 * in a DebuggableStatement even if debug = OFF (bind variables are not
+	 * captured in that case).
+	 * 
+	 * @param registry
+	 *            {@link StatementMetricsRegistry} or null to stop gathering
+	 *            metrics
+	 */
+	public static void setMetricsRegistry(
+	    final StatementMetricsRegistry registry) {
+		metricsRegistry = registry;
+	}
+
+	/**
+	 * @return the {@link StatementMetricsRegistry} statements report into or
+	 *         null if none.
+	 */
+	public static StatementMetricsRegistry getMetricsRegistry() {
+		return metricsRegistry;
+	}
+
+	/**
+	 * Sets the log that executions captured by a {@link DebugLevel} capture
+	 * policy are handed to. Without a log they are rendered and logged on the
+	 * executing thread.
+	 * 
+	 * @param log
+	 *            {@link AsyncStatementLog} or null to log synchronously
+	 */
+	public static void setStatementLog(final AsyncStatementLog log) {
+		statementLog = log;
+	}
+
+	/**
+	 * @return the {@link AsyncStatementLog} captured executions are handed to
+	 *         or null if none.
+	 */
+	public static AsyncStatementLog getStatementLog() {
+		return statementLog;
+	}
+
+	/**
+	 * Sets the journal that statements created from now on record their
+	 * executions in, to be replayed by a {@link JournalReplayer}. Only
+	 * executions whose bind variables are captured are recorded, so use a
+	 * debug level other than OFF (e.g. ON to record the complete workload or
+	 * a capture policy to record a sample of it).
+	 * 
+	 * @param journal
+	 *            {@link StatementJournal} or null to stop journaling
+	 */
+	public static void setStatementJournal(final StatementJournal journal) {
+		statementJournal = journal;
+	}
+
+	/**
+	 * @return the {@link StatementJournal} executions are recorded in or null
+	 *         if none.
+	 */
+	public static StatementJournal getStatementJournal() {
+		return statementJournal;
+	}
+
+	/**
+	 * Sets the maximum number of batch entries whose bind variables are
+	 * captured (per statement and batch); later entries are only counted.
+	 * Applies to statements whose first batch is started from now on.
+	 * 
+	 * @param max
+	 *            maximum number of captured entries
+	 * @throws IllegalArgumentException
+	 *             if max is negative
+	 */
+	public static void setMaxBatchCapture(final int max) {
+		if (max < 0) {
+			throw new IllegalArgumentException(
+			    "max must not be negative: " + max);
+		}
+		maxBatchCapture = max;
+	}
+
+	/**
+	 * @return the maximum number of batch entries whose bind variables are
+	 *         captured.
+	 */
+	public static int getMaxBatchCapture() {
+		return maxBatchCapture;
+	}
+
+	/**
+	 * Sets the cache that statements created from now on take their
+	 * PreparedStatement from (and return it to when closed), so a statement
+	 * is prepared once per connection and SQL text. When a cache is set,
+	 * statements are wrapped in a DebuggableStatement even if debug = OFF.
+	 * 
+	 * @param cache
+	 *            {@link StatementCache} or null to prepare every statement
+	 */
+	public static void setStatementCache(final StatementCache cache) {
+		statementCache = cache;
+	}
+
+	/**
+	 * @return the {@link StatementCache} statements are taken from or null
+	 *         if none.
+	 */
+	public static StatementCache getStatementCache() {
+		return statementCache;
+	}
+
 }
@@ -0,0 +1,756 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compact binary journal of statement executions, to be replayed against
+ * another database by a {@link JournalReplayer}. Set it with
+ * {@link StatementFactory#setStatementJournal(StatementJournal)}; from then on
+ * every execution of a {@link DebuggableStatement} whose bind variables are
+ * captured (see {@link DebugLevel}) is recorded with its SQL template id,
+ * typed bind variable values, start time, execute time and thread.
+ * <p>
+ * The journal is a stream of records written with a
+ * {@link DataOutputStream}: a header, then a template record the first time a
+ * SQL statement is executed and an execution record (referring to the
+ * template by id) for every execution. Values are written with a one byte
+ * type tag. Values of types without a tag (e.g. streams, Blobs, Calendars and
+ * offset date times) are written as just the {@link #UNREPLAYABLE} tag, and
+ * the replayer skips their executions like those whose bind variables
+ * weren't captured.
+ * </p>
+ * <p>
+ * Executing threads only offer their executions to a bounded, lock-free
+ * queue; a background thread writes them into a buffer, so the file is only
+ * written when the buffer fills up. When the queue is full the execution is
+ * dropped and counted (see {@link #getDropped()}), like in an
+ * {@link AsyncStatementLog}, so journaling never blocks database calls.
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+public final class StatementJournal implements Closeable {
+
+	/**
+	 * Magic number at the start of a journal ("SQLJ").
+	 */
+	static final int MAGIC = 0x53514C4A;
+
+	/**
+	 * Version of the journal format.
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Record type of a template record.
+	 */
+	static final int TEMPLATE = 1;
+
+	/**
+	 * Record type of an execution record.
+	 */
+	static final int EXECUTION = 2;
+
+	/**
+	 * Value tag of null.
+	 */
+	static final int NULL = 0;
+
+	/**
+	 * Value tag of a bind variable that wasn't captured.
+	 */
+	static final int UNBOUND = 1;
+
+	/**
+	 * Value tag of a String.
+	 */
+	static final int STRING = 2;
+
+	/**
+	 * Value tag of an Integer.
+	 */
+	static final int INT = 3;
+
+	/**
+	 * Value tag of a Long.
+	 */
+	static final int LONG = 4;
+
+	/**
+	 * Value tag of a Short.
+	 */
+	static final int SHORT = 5;
+
+	/**
+	 * Value tag of a Byte.
+	 */
+	static final int BYTE = 6;
+
+	/**
+	 * Value tag of a Boolean.
+	 */
+	static final int BOOLEAN = 7;
+
+	/**
+	 * Value tag of a Double.
+	 */
+	static final int DOUBLE = 8;
+
+	/**
+	 * Value tag of a Float.
+	 */
+	static final int FLOAT = 9;
+
+	/**
+	 * Value tag of a BigDecimal.
+	 */
+	static final int DECIMAL = 10;
+
+	/**
+	 * Value tag of a java.sql.Date.
+	 */
+	static final int DATE = 11;
+
+	/**
+	 * Value tag of a java.sql.Time.
+	 */
+	static final int TIME = 12;
+
+	/**
+	 * Value tag of a java.sql.Timestamp.
+	 */
+	static final int TIMESTAMP = 13;
+
+	/**
+	 * Value tag of a byte array.
+	 */
+	static final int BYTES = 14;
+
+	/**
+	 * Value tag of a java.time.LocalDate.
+	 */
+	static final int LOCAL_DATE = 15;
+
+	/**
+	 * Value tag of a java.time.LocalTime.
+	 */
+	static final int LOCAL_TIME = 16;
+
+	/**
+	 * Value tag of a java.time.LocalDateTime.
+	 */
+	static final int LOCAL_DATE_TIME = 17;
+
+	/**
+	 * Value tag of a UUID.
+	 */
+	static final int UUID = 18;
+
+	/**
+	 * Value tag of a value that can't be replayed.
+	 */
+	static final int UNREPLAYABLE = 19;
+
+	/**
+	 * Default maximum number of queued executions.
+	 */
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	/**
+	 * Size of the write buffer.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * How long the writer thread sleeps when the queue is empty.
+	 */
+	private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/**
+	 * How long {@link #close()} waits for the writer thread.
+	 */
+	private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+	/**
+	 * SLF4J Logger for StatementJournal.
+	 */
+	private static final Logger LOGGER =
+	    LoggerFactory.getLogger(StatementJournal.class);
+
+	/**
+	 * Stream the records are written to (its lock guards the writing).
+	 */
+	private final DataOutputStream out;
+
+	/**
+	 * Template ids keyed by SQL text (guarded by the lock of {@link #out}).
+	 */
+	private final Map<String, Integer> templateIds =
+	    new HashMap<String, Integer>();
+
+	/**
+	 * Start of the journal (nanoseconds); execution start times are written
+	 * relative to it.
+	 */
+	private final long originNanos = System.nanoTime();
+
+	/**
+	 * Queued executions.
+	 */
+	private final Queue<Execution> queue =
+	    new ConcurrentLinkedQueue<Execution>();
+
+	/**
+	 * Number of queued executions (bounds the queue).
+	 */
+	private final AtomicInteger queued = new AtomicInteger();
+
+	/**
+	 * Maximum number of queued executions.
+	 */
+	private final int capacity;
+
+	/**
+	 * Number of executions recorded.
+	 */
+	private final LongAdder recorded = new LongAdder();
+
+	/**
+	 * Number of executions dropped because the queue was full or the journal
+	 * was closed.
+	 */
+	private final LongAdder dropped = new LongAdder();
+
+	/**
+	 * Keeps {@link #close()} from clearing {@link #running} while an
+	 * execution is being queued, so none is queued after the final drain.
+	 */
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+	/**
+	 * Background writer thread.
+	 */
+	private final Thread thread;
+
+	/**
+	 * Cleared by {@link #close()} or once writing failed.
+	 */
+	private volatile boolean running = true;
+
+	/**
+	 * Set once writing failed (guarded by the lock of {@link #out}).
+	 */
+	private boolean failed;
+
+	/**
+	 * Creates a journal with the default capacity that writes to the given
+	 * stream, which is closed by {@link #close()}.
+	 * 
+	 * @param out
+	 *            {@link OutputStream} to write to (e.g. a file)
+	 * @throws IOException
+	 *             thrown if writing the header fails
+	 */
+	public StatementJournal(OutputStream out) throws IOException {
+		this(out, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a journal that writes to the given stream, which is closed by
+	 * {@link #close()}.
+	 * 
+	 * @param out
+	 *            {@link OutputStream} to write to (e.g. a file)
+	 * @param capacity
+	 *            maximum number of queued executions
+	 * @throws IOException
+	 *             thrown if writing the header fails
+	 */
+	public StatementJournal(OutputStream out, int capacity)
+	        throws IOException {
+		if (capacity < 1) {
+			throw new IllegalArgumentException(
+			    "capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		this.out =
+		    new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+		this.out.writeInt(MAGIC);
+		this.out.writeByte(VERSION);
+		thread = new Thread(this::run, "statement-journal");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Queues an execution for writing, or drops it if the queue is full or
+	 * the journal has been closed. Write errors are logged once by the writer
+	 * thread, after which the journal stops recording; they never fail the
+	 * execution.
+	 * 
+	 * @param sql
+	 *            SQL text of the statement
+	 * @param values
+	 *            bind variable values ({@link SqlTemplate#UNBOUND} if not
+	 *            captured)
+	 * @param startNanos
+	 *            {@link System#nanoTime()} at the start of the execution
+	 * @param executeNanos
+	 *            execute time in nanoseconds
+	 * @param succeeded
+	 *            whether the execution succeeded
+	 * @return false if the execution was dropped
+	 */
+	boolean record(String sql, Object[] values, long startNanos,
+	    long executeNanos, boolean succeeded) {
+		Lock lock = closeLock.readLock();
+		lock.lock();
+		try {
+			if (!running) {
+				dropped.increment();
+				return false;
+			}
+			if (queued.incrementAndGet() > capacity) {
+				queued.decrementAndGet();
+				dropped.increment();
+				return false;
+			}
+			queue.offer(new Execution(sql, values, startNanos, executeNanos,
+			    Thread.currentThread().getId(), succeeded));
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return number of executions recorded
+	 */
+	public long getRecorded() {
+		return recorded.sum();
+	}
+
+	/**
+	 * @return number of executions dropped because the queue was full or the
+	 *         journal was closed (or writing failed)
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Writer thread loop: write the queued executions until closed.
+	 */
+	private void run() {
+		while (running) {
+			if (drain() == 0) {
+				LockSupport.parkNanos(this, IDLE_NANOS);
+			}
+		}
+	}
+
+	/**
+	 * Writes the queued executions into the buffer. Once writing failed they
+	 * are dropped.
+	 * 
+	 * @return number of executions taken from the queue
+	 */
+	private int drain() {
+		int count = 0;
+		synchronized (out) {
+			Execution execution;
+			while ((execution = queue.poll()) != null) {
+				queued.decrementAndGet();
+				count++;
+				if (!write(execution)) {
+					dropped.increment();
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Writes an execution record (after the template record if the SQL
+	 * statement is new). Must hold the lock of {@link #out}.
+	 * 
+	 * @param execution
+	 *            the execution
+	 * @return false if it wasn't written because writing failed
+	 */
+	private boolean write(Execution execution) {
+		if (failed) {
+			return false;
+		}
+		try {
+			Integer id = templateIds.get(execution.sql);
+			if (id == null) {
+				id = Integer.valueOf(templateIds.size());
+				templateIds.put(execution.sql, id);
+				out.writeByte(TEMPLATE);
+				out.writeInt(id.intValue());
+				writeString(out, execution.sql);
+			}
+			out.writeByte(EXECUTION);
+			out.writeInt(id.intValue());
+			out.writeLong(execution.startNanos - originNanos);
+			out.writeLong(execution.executeNanos);
+			out.writeLong(execution.threadId);
+			out.writeBoolean(execution.succeeded);
+			out.writeShort(execution.values.length);
+			for (Object value : execution.values) {
+				writeValue(out, value);
+			}
+			recorded.increment();
+			return true;
+		} catch (IOException e) {
+			failed = true;
+			running = false;
+			LOGGER.error("Error writing statement journal, "
+			    + "recording stopped: " + e, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the queued executions and the buffered records to the
+	 * underlying stream.
+	 * 
+	 * @throws IOException
+	 *             thrown if writing fails
+	 */
+	public void flush() throws IOException {
+		synchronized (out) {
+			drain();
+			out.flush();
+		}
+	}
+
+	/**
+	 * Stops recording, writes the queued executions and the buffered records
+	 * and closes the underlying stream.
+	 * 
+	 * @throws IOException
+	 *             thrown if writing or closing fails
+	 */
+	@Override
+	public void close() throws IOException {
+		Lock lock = closeLock.writeLock();
+		lock.lock();
+		try {
+			running = false;
+		} finally {
+			lock.unlock();
+		}
+		LockSupport.unpark(thread);
+		try {
+			thread.join(CLOSE_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		// nothing is queued any more; write what the thread left
+		synchronized (out) {
+			drain();
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes a String as its UTF-8 length and bytes (unlike
+	 * {@link DataOutputStream#writeUTF(String)} it isn't limited to 64K).
+	 * 
+	 * @param out
+	 *            stream to write to
+	 * @param string
+	 *            String to write
+	 * @throws IOException
+	 *             thrown if writing fails
+	 */
+	private static void writeString(DataOutputStream out, String string)
+	        throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a String written by
+	 * {@link #writeString(DataOutputStream, String)}.
+	 * 
+	 * @param in
+	 *            input to read from
+	 * @return String
+	 * @throws IOException
+	 *             thrown if reading fails
+	 */
+	static String readString(DataInput in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes a bind variable value with its type tag.
+	 * 
+	 * @param out
+	 *            stream to write to
+	 * @param value
+	 *            value to write
+	 * @throws IOException
+	 *             thrown if writing fails
+	 */
+	private static void writeValue(DataOutputStream out, Object value)
+	        throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value == SqlTemplate.UNBOUND) {
+			out.writeByte(UNBOUND);
+		} else if (value instanceof String || value instanceof Character) {
+			out.writeByte(STRING);
+			writeString(out, value.toString());
+		} else if (value instanceof Integer) {
+			out.writeByte(INT);
+			out.writeInt(((Integer) value).intValue());
+		} else if (value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong(((Long) value).longValue());
+		} else if (value instanceof Short) {
+			out.writeByte(SHORT);
+			out.writeShort(((Short) value).shortValue());
+		} else if (value instanceof Byte) {
+			out.writeByte(BYTE);
+			out.writeByte(((Byte) value).byteValue());
+		} else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean(((Boolean) value).booleanValue());
+		} else if (value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble(((Double) value).doubleValue());
+		} else if (value instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeFloat(((Float) value).floatValue());
+		} else if (value instanceof BigDecimal) {
+			out.writeByte(DECIMAL);
+			writeString(out, ((BigDecimal) value).toString());
+		} else if (value instanceof Date) {
+			out.writeByte(DATE);
+			out.writeLong(((Date) value).getTime());
+		} else if (value instanceof Time) {
+			out.writeByte(TIME);
+			out.writeLong(((Time) value).getTime());
+		} else if (value instanceof Timestamp) {
+			Timestamp timestamp = (Timestamp) value;
+			out.writeByte(TIMESTAMP);
+			out.writeLong(timestamp.getTime());
+			out.writeInt(timestamp.getNanos());
+		} else if (value instanceof byte[]) {
+			byte[] bytes = (byte[]) value;
+			out.writeByte(BYTES);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		} else if (value instanceof LocalDate) {
+			out.writeByte(LOCAL_DATE);
+			out.writeLong(((LocalDate) value).toEpochDay());
+		} else if (value instanceof LocalTime) {
+			out.writeByte(LOCAL_TIME);
+			out.writeLong(((LocalTime) value).toNanoOfDay());
+		} else if (value instanceof LocalDateTime) {
+			LocalDateTime dateTime = (LocalDateTime) value;
+			out.writeByte(LOCAL_DATE_TIME);
+			out.writeLong(dateTime.toLocalDate().toEpochDay());
+			out.writeLong(dateTime.toLocalTime().toNanoOfDay());
+		} else if (value instanceof java.util.UUID) {
+			java.util.UUID uuid = (java.util.UUID) value;
+			out.writeByte(UUID);
+			out.writeLong(uuid.getMostSignificantBits());
+			out.writeLong(uuid.getLeastSignificantBits());
+		} else {
+			out.writeByte(UNREPLAYABLE);
+		}
+	}
+
+	/**
+	 * Reads a bind variable value written by
+	 * {@link #writeValue(DataOutputStream, Object)}.
+	 * 
+	 * @param in
+	 *            input to read from
+	 * @return the value (local dates and times as {@link Date},
+	 *         {@link Time} and {@link Timestamp}, which every driver can
+	 *         bind), {@link SqlTemplate#UNBOUND} if it wasn't captured or
+	 *         can't be replayed
+	 * @throws IOException
+	 *             thrown if reading fails or the tag is unknown
+	 */
+	static Object readValue(DataInput in) throws IOException {
+		int tag = in.readByte();
+		switch (tag) {
+		case NULL:
+			return null;
+		case UNBOUND:
+		case UNREPLAYABLE:
+			return SqlTemplate.UNBOUND;
+		case STRING:
+			return readString(in);
+		case INT:
+			return Integer.valueOf(in.readInt());
+		case LONG:
+			return Long.valueOf(in.readLong());
+		case SHORT:
+			return Short.valueOf(in.readShort());
+		case BYTE:
+			return Byte.valueOf(in.readByte());
+		case BOOLEAN:
+			return Boolean.valueOf(in.readBoolean());
+		case DOUBLE:
+			return Double.valueOf(in.readDouble());
+		case FLOAT:
+			return Float.valueOf(in.readFloat());
+		case DECIMAL:
+			return new BigDecimal(readString(in));
+		case DATE:
+			return new Date(in.readLong());
+		case TIME:
+			return new Time(in.readLong());
+		case TIMESTAMP:
+			Timestamp timestamp = new Timestamp(in.readLong());
+			timestamp.setNanos(in.readInt());
+			return timestamp;
+		case BYTES:
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return bytes;
+		case LOCAL_DATE:
+			return Date.valueOf(LocalDate.ofEpochDay(in.readLong()));
+		case LOCAL_TIME:
+			return Time.valueOf(LocalTime.ofNanoOfDay(in.readLong()));
+		case LOCAL_DATE_TIME:
+			return Timestamp.valueOf(LocalDateTime.of(
+			    LocalDate.ofEpochDay(in.readLong()),
+			    LocalTime.ofNanoOfDay(in.readLong())));
+		case UUID:
+			return new java.util.UUID(in.readLong(), in.readLong());
+		default:
+			throw new IOException("Unknown value type in journal: " + tag);
+		}
+	}
+
+	/**
+	 * Reads and checks the journal header.
+	 * 
+	 * @param in
+	 *            input to read from
+	 * @throws IOException
+	 *             thrown if reading fails or the input isn't a journal
+	 */
+	static void readHeader(DataInput in) throws IOException {
+		int magic;
+		try {
+			magic = in.readInt();
+		} catch (EOFException e) {
+			throw new IOException("Not a statement journal (empty)", e);
+		}
+		if (magic != MAGIC) {
+			throw new IOException("Not a statement journal");
+		}
+		int version = in.readByte();
+		if (version != VERSION) {
+			throw new IOException(
+			    "Unsupported statement journal version: " + version);
+		}
+	}
+
+	/**
+	 * Execution waiting to be written.
+	 */
+	private static final class Execution {
+
+		/**
+		 * SQL text of the statement.
+		 */
+		private final String sql;
+
+		/**
+		 * Bind variable values.
+		 */
+		private final Object[] values;
+
+		/**
+		 * {@link System#nanoTime()} at the start of the execution.
+		 */
+		private final long startNanos;
+
+		/**
+		 * Execute time in nanoseconds.
+		 */
+		private final long executeNanos;
+
+		/**
+		 * Id of the executing thread.
+		 */
+		private final long threadId;
+
+		/**
+		 * Whether the execution succeeded.
+		 */
+		private final boolean succeeded;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param sql
+		 *            SQL text of the statement
+		 * @param values
+		 *            bind variable values
+		 * @param startNanos
+		 *            {@link System#nanoTime()} at the start of the execution
+		 * @param executeNanos
+		 *            execute time in nanoseconds
+		 * @param threadId
+		 *            id of the executing thread
+		 * @param succeeded
+		 *            whether the execution succeeded
+		 */
+		Execution(String sql, Object[] values, long startNanos,
+		    long executeNanos, long threadId, boolean succeeded) {
+			this.sql = sql;
+			this.values = values;
+			this.startNanos = startNanos;
+			this.executeNanos = executeNanos;
+			this.threadId = threadId;
+			this.succeeded = succeeded;
+		}
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated execution metrics for all statements that share the same
+ * normalized SQL text. Instances are obtained from a
+ * {@link StatementMetricsRegistry} and are safe to update from many threads.
+ * 
+ * @author drothauser
+ * 
+ */
+public final class StatementMetrics {
+
+	/**
+	 * Normalized SQL text the metrics are kept for.
+	 */
+	private final String sql;
+
+	/**
+	 * Number of executions.
+	 */
+	private final LongAdder executions = new LongAdder();
+
+	/**
+	 * Number of executions that threw an exception.
+	 */
+	private final LongAdder errors = new LongAdder();
+
+	/**
+	 * Number of rows inserted, updated or deleted.
+	 */
+	private final LongAdder rowsAffected = new LongAdder();
+
+	/**
+	 * Number of rows fetched from result sets.
+	 */
+	private final LongAdder rowsFetched = new LongAdder();
+
+	/**
+	 * Nanoseconds spent consuming result sets.
+	 */
+	private final LongAdder consumeNanos = new LongAdder();
+
+	/**
+	 * Execute latencies.
+	 */
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param sql
+	 *            normalized SQL text
+	 */
+	StatementMetrics(String sql) {
+		this.sql = sql;
+	}
+
+	/**
+	 * Record an execution of the statement.
+	 * 
+	 * @param nanos
+	 *            execute time in nanoseconds
+	 * @param affected
+	 *            number of rows affected (0 for queries)
+	 * @param succeeded
+	 *            false if the execution threw an exception
+	 */
+	public void recordExecution(long nanos, long affected, boolean succeeded) {
+		executions.increment();
+		latency.record(nanos);
+		if (succeeded) {
+			if (affected > 0) {
+				rowsAffected.add(affected);
+			}
+		} else {
+			errors.increment();
+		}
+	}
+
+	/**
+	 * Record the consumption of a result set produced by the statement.
+	 * 
+	 * @param nanos
+	 *            nanoseconds from the end of execution until the result set
+	 *            was exhausted or closed
+	 * @param rows
+	 *            number of rows fetched
+	 */
+	public void recordResultSet(long nanos, long rows) {
+		consumeNanos.add(nanos);
+		rowsFetched.add(rows);
+	}
+
+	/**
+	 * @return normalized SQL text
+	 */
+	public String getSql() {
+		return sql;
+	}
+
+	/**
+	 * @return number of executions
+	 */
+	public long getExecutions() {
+		return executions.sum();
+	}
+
+	/**
+	 * @return number of executions that threw an exception
+	 */
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	/**
+	 * @return number of rows inserted, updated or deleted
+	 */
+	public long getRowsAffected() {
+		return rowsAffected.sum();
+	}
+
+	/**
+	 * @return number of rows fetched from result sets
+	 */
+	public long getRowsFetched() {
+		return rowsFetched.sum();
+	}
+
+	/**
+	 * @return total database time in nanoseconds, i.e. the time spent
+	 *         executing plus the time spent consuming result sets
+	 */
+	public long getTotalNanos() {
+		return latency.getTotalNanos() + consumeNanos.sum();
+	}
+
+	/**
+	 * @return histogram of execute latencies
+	 */
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	/**
+	 * Clear the metrics.
+	 */
+	void reset() {
+		executions.reset();
+		errors.reset();
+		rowsAffected.reset();
+		rowsFetched.reset();
+		consumeNanos.reset();
+		latency.reset();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return String.format(
+		    "%s%n  executions=%d, errors=%d, rowsAffected=%d, rowsFetched=%d, "
+		        + "totalNanos=%d, latency: %s",
+		    sql, getExecutions(), getErrors(), getRowsAffected(),
+		    getRowsFetched(), getTotalNanos(), latency);
+	}
+}
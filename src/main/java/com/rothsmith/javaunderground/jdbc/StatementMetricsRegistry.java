@@ -0,0 +1,134 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of {@link StatementMetrics} keyed by SQL fingerprint (see
+ * {@link SqlFingerprinter}). Statements created by the
+ * {@link StatementFactory} report into the registry set with
+ * {@link StatementFactory#setMetricsRegistry(StatementMetricsRegistry)}.
+ * <p>
+ * The number of distinct statements tracked is bounded; once the limit is
+ * reached, metrics for new statements are aggregated under
+ * {@link #OVERFLOW_SQL}.
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+public final class StatementMetricsRegistry {
+
+	/**
+	 * Default maximum number of distinct statements tracked.
+	 */
+	public static final int DEFAULT_MAX_STATEMENTS = 5000;
+
+	/**
+	 * Key under which statements exceeding the limit are aggregated.
+	 */
+	public static final String OVERFLOW_SQL = "<other>";
+
+	/**
+	 * Singleton instance of the StatementMetricsRegistry.
+	 */
+	private static final StatementMetricsRegistry INSTANCE =
+	    new StatementMetricsRegistry(DEFAULT_MAX_STATEMENTS);
+
+	/**
+	 * Metrics keyed by normalized SQL.
+	 */
+	private final ConcurrentMap<String, StatementMetrics> metrics =
+	    new ConcurrentHashMap<String, StatementMetrics>();
+
+	/**
+	 * Maximum number of distinct statements tracked.
+	 */
+	private final int maxStatements;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxStatements
+	 *            maximum number of distinct statements tracked
+	 */
+	public StatementMetricsRegistry(int maxStatements) {
+		if (maxStatements < 1) {
+			throw new IllegalArgumentException(
+			    "maxStatements must be positive: " + maxStatements);
+		}
+		this.maxStatements = maxStatements;
+	}
+
+	/**
+	 * Method to return the shared instance of StatementMetricsRegistry.
+	 * 
+	 * @return {@link StatementMetricsRegistry} instance
+	 */
+	public static StatementMetricsRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Normalizes SQL text so that statements that only differ in literal
+	 * values, IN list lengths, comments or whitespace share their metrics.
+	 * 
+	 * @param sql
+	 *            SQL text
+	 * @return normalized SQL
+	 * @see SqlFingerprinter#fingerprint(String)
+	 */
+	static String normalize(String sql) {
+		return SqlFingerprinter.fingerprint(sql);
+	}
+
+	/**
+	 * Returns the metrics for the given SQL statement, creating them if
+	 * needed.
+	 * 
+	 * @param sql
+	 *            SQL text (normalized by this method)
+	 * @return {@link StatementMetrics} for the statement
+	 */
+	public StatementMetrics getMetrics(String sql) {
+		String key = normalize(sql);
+		StatementMetrics statementMetrics = metrics.get(key);
+		if (statementMetrics == null) {
+			if (metrics.size() >= maxStatements) {
+				key = OVERFLOW_SQL;
+			}
+			statementMetrics =
+			    metrics.computeIfAbsent(key, StatementMetrics::new);
+		}
+		return statementMetrics;
+	}
+
+	/**
+	 * Returns the metrics of all tracked statements, ordered by descending
+	 * total database time.
+	 * 
+	 * @return list of {@link StatementMetrics}
+	 */
+	public List<StatementMetrics> getAll() {
+		List<StatementMetrics> all =
+		    new ArrayList<StatementMetrics>(metrics.values());
+		all.sort((m1, m2) -> Long.compare(m2.getTotalNanos(),
+		    m1.getTotalNanos()));
+		return all;
+	}
+
+	/**
+	 * Clear the metrics of all statements. Statements keep reporting into
+	 * their (now cleared) metrics objects.
+	 */
+	public void reset() {
+		for (StatementMetrics statementMetrics : metrics.values()) {
+			statementMetrics.reset();
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import org.apache.commons.lang3.time.FastDateFormat;
+
+/**
+ * Snapshot of a captured execution of a {@link DebuggableStatement}: its
+ * template, bind variable values and timings. Snapshots are taken on the
+ * executing thread without rendering anything; the (comparatively expensive)
+ * rendering through the {@link SqlFormatter} is done by
+ * {@link #appendTo(StringBuilder)}, possibly on another thread.
+ * <p>
+ * The snapshot takes the bind variable values as a new array (see
+ * {@link ParameterStore#toArray()}); the values themselves are not copied,
+ * so mutable values (e.g. {@link java.util.Date}) changed after the execution
+ * are rendered with their new value.
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+final class StatementSnapshot {
+
+	/**
+	 * Format of the snapshot timestamp.
+	 */
+	private static final FastDateFormat TIMESTAMP_FORMAT =
+	    FastDateFormat.getInstance("yyyy-MM-dd HH:mm:ss.SSS");
+
+	/**
+	 * Statement template.
+	 */
+	private final SqlTemplate template;
+
+	/**
+	 * Bind variable values.
+	 */
+	private final Object[] values;
+
+	/**
+	 * Formatter for the bind variable values.
+	 */
+	private final SqlFormatter formatter;
+
+	/**
+	 * Execute time in nanoseconds.
+	 */
+	private final long executeNanos;
+
+	/**
+	 * Whether the execution succeeded.
+	 */
+	private final boolean succeeded;
+
+	/**
+	 * Whether the execution was captured for being slow (rather than
+	 * sampled).
+	 */
+	private final boolean slow;
+
+	/**
+	 * Wall clock time of the snapshot.
+	 */
+	private final long timeMillis;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param template
+	 *            statement template
+	 * @param values
+	 *            bind variable values (not copied)
+	 * @param formatter
+	 *            formatter for the values
+	 * @param executeNanos
+	 *            execute time in nanoseconds
+	 * @param succeeded
+	 *            whether the execution succeeded
+	 * @param slow
+	 *            whether the execution was captured for being slow
+	 */
+	StatementSnapshot(SqlTemplate template, Object[] values,
+	    SqlFormatter formatter, long executeNanos, boolean succeeded,
+	    boolean slow) {
+		this.template = template;
+		this.values = values;
+		this.formatter = formatter;
+		this.executeNanos = executeNanos;
+		this.succeeded = succeeded;
+		this.slow = slow;
+		this.timeMillis = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return true if the execution was captured for being slow
+	 */
+	boolean isSlow() {
+		return slow;
+	}
+
+	/**
+	 * @return wall clock time of the snapshot
+	 */
+	long getTimeMillis() {
+		return timeMillis;
+	}
+
+	/**
+	 * Appends the log message of the snapshot (without timestamp), e.g.
+	 * <code>slow statement executed in 1.234 milliseconds: SELECT ...</code>.
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	void appendTo(StringBuilder buffer) {
+		appendHeader(buffer, slow, succeeded, executeNanos);
+		template.appendTo(buffer, values, formatter);
+	}
+
+	/**
+	 * Appends the start of a log message, up to the statement, e.g.
+	 * <code>slow statement executed in 1.234 milliseconds: </code>.
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 * @param slow
+	 *            whether the execution was captured for being slow
+	 * @param succeeded
+	 *            whether the execution succeeded
+	 * @param executeNanos
+	 *            execute time in nanoseconds
+	 */
+	static void appendHeader(StringBuilder buffer, boolean slow,
+	    boolean succeeded, long executeNanos) {
+		buffer.append(slow ? "slow statement " : "sampled statement ")
+		    .append(succeeded ? "executed in " : "failed after ");
+		DebuggableStatement.appendMillis(buffer, executeNanos);
+		buffer.append(" milliseconds: ");
+	}
+
+	/**
+	 * Appends the timestamp of the snapshot.
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	void appendTimestamp(StringBuilder buffer) {
+		buffer.append(TIMESTAMP_FORMAT.format(timeMillis));
+	}
+}
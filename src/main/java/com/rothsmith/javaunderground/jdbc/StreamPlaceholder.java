@@ -0,0 +1,39 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+/**
+ * Captured in place of a stream bind variable, whose content can't be read
+ * without consuming the stream. It is rendered as
+ * <code>'&lt;stream length= n&gt;'</code> and journaled as a value that can't
+ * be replayed.
+ * 
+ * @author drothauser
+ * 
+ */
+final class StreamPlaceholder {
+
+	/**
+	 * Length of the stream (bytes or characters).
+	 */
+	private final long length;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param length
+	 *            length of the stream
+	 */
+	StreamPlaceholder(long length) {
+		this.length = length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "<stream length= " + length + ">";
+	}
+}
@@ -0,0 +1,322 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Calendar;
+
+/**
+ * Writes date and time literals digit by digit into a buffer, without
+ * Calendars or date format patterns. Fractional seconds are written with as
+ * many digits as needed (at least one, like {@link java.sql.Timestamp}).
+ * <p>
+ * The <code>to...</code> methods write the Oracle style
+ * <code>TO_DATE</code>/<code>TO_TIMESTAMP</code> functions shared by the
+ * Oracle and default formatters.
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+final class TemporalLiterals {
+
+	/**
+	 * Oracle format of dates with time: 'YYYY-MM-DD HH24:MI:SS'.
+	 */
+	private static final String YMD24 = "'YYYY-MM-DD HH24:MI:SS'";
+
+	/**
+	 * Oracle format of timestamps: 'YYYY-MM-DD HH24:MI:SS.FF'.
+	 */
+	private static final String YMD24_FF = "'YYYY-MM-DD HH24:MI:SS.FF'";
+
+	/**
+	 * Oracle format of timestamps with offset.
+	 */
+	private static final String YMD24_FF_TZ =
+	    "'YYYY-MM-DD HH24:MI:SS.FF TZH:TZM'";
+
+	/**
+	 * Private constructor - static methods only.
+	 */
+	private TemporalLiterals() {
+	}
+
+	/**
+	 * Converts a {@link java.util.Date} (or subclass) to the date and time of
+	 * the default time zone.
+	 * 
+	 * @param date
+	 *            date to convert
+	 * @return {@link LocalDateTime} (millisecond precision)
+	 */
+	static LocalDateTime localDateTime(java.util.Date date) {
+		return LocalDateTime.ofInstant(Instant.ofEpochMilli(date.getTime()),
+		    ZoneId.systemDefault());
+	}
+
+	/**
+	 * Converts a {@link java.util.Date} (or subclass) to the date and time of
+	 * the time zone of a Calendar, the way a driver does for the
+	 * <code>set...</code> methods that take a Calendar. The nanoseconds of a
+	 * {@link java.sql.Timestamp} are kept.
+	 * 
+	 * @param date
+	 *            date to convert
+	 * @param cal
+	 *            Calendar whose time zone is used
+	 * @return {@link LocalDateTime}
+	 */
+	static LocalDateTime localDateTime(java.util.Date date, Calendar cal) {
+		LocalDateTime dateTime = LocalDateTime.ofInstant(
+		    Instant.ofEpochMilli(date.getTime()),
+		    cal.getTimeZone().toZoneId());
+		if (date instanceof java.sql.Timestamp) {
+			dateTime = dateTime
+			    .withNano(((java.sql.Timestamp) date).getNanos());
+		}
+		return dateTime;
+	}
+
+	/**
+	 * Appends a date as yyyy-MM-dd.
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 * @param year
+	 *            year
+	 * @param month
+	 *            month (1-12)
+	 * @param day
+	 *            day of month
+	 * @return the buffer
+	 */
+	static StringBuilder appendDate(StringBuilder buffer, int year, int month,
+	    int day) {
+		if (year < 0 || year > 9999) {
+			buffer.append(year);
+		} else {
+			appendPadded(buffer, year, 4);
+		}
+		buffer.append('-');
+		appendPadded(buffer, month, 2);
+		buffer.append('-');
+		return appendPadded(buffer, day, 2);
+	}
+
+	/**
+	 * Appends a time as HH:mm:ss.
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 * @param hour
+	 *            hour of day (0-23)
+	 * @param minute
+	 *            minute
+	 * @param second
+	 *            second
+	 * @return the buffer
+	 */
+	static StringBuilder appendTime(StringBuilder buffer, int hour,
+	    int minute, int second) {
+		appendPadded(buffer, hour, 2);
+		buffer.append(':');
+		appendPadded(buffer, minute, 2);
+		buffer.append(':');
+		return appendPadded(buffer, second, 2);
+	}
+
+	/**
+	 * Appends fractional seconds as a '.' followed by the significant digits
+	 * (at least one).
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 * @param nanos
+	 *            nanoseconds (0-999,999,999)
+	 * @return the buffer
+	 */
+	static StringBuilder appendFraction(StringBuilder buffer, int nanos) {
+		buffer.append('.');
+		if (nanos == 0) {
+			return buffer.append('0');
+		}
+		int value = nanos;
+		int digits = 9;
+		while (value % 10 == 0) {
+			value /= 10;
+			digits--;
+		}
+		return appendPadded(buffer, value, digits);
+	}
+
+	/**
+	 * Appends a date as yyyy-MM-dd.
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 * @param date
+	 *            date
+	 * @return the buffer
+	 */
+	static StringBuilder appendDate(StringBuilder buffer, LocalDate date) {
+		return appendDate(buffer, date.getYear(), date.getMonthValue(),
+		    date.getDayOfMonth());
+	}
+
+	/**
+	 * Appends a time as HH:mm:ss or HH:mm:ss.f.
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 * @param time
+	 *            time
+	 * @param fraction
+	 *            whether to append fractional seconds
+	 * @return the buffer
+	 */
+	static StringBuilder appendTime(StringBuilder buffer, LocalTime time,
+	    boolean fraction) {
+		appendTime(buffer, time.getHour(), time.getMinute(), time.getSecond());
+		return fraction ? appendFraction(buffer, time.getNano()) : buffer;
+	}
+
+	/**
+	 * Appends a date and time as yyyy-MM-dd HH:mm:ss or yyyy-MM-dd
+	 * HH:mm:ss.f.
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 * @param dateTime
+	 *            date and time
+	 * @param fraction
+	 *            whether to append fractional seconds
+	 * @return the buffer
+	 */
+	static StringBuilder appendDateTime(StringBuilder buffer,
+	    LocalDateTime dateTime, boolean fraction) {
+		appendDate(buffer, dateTime.getYear(), dateTime.getMonthValue(),
+		    dateTime.getDayOfMonth()).append(' ');
+		appendTime(buffer, dateTime.getHour(), dateTime.getMinute(),
+		    dateTime.getSecond());
+		return fraction ? appendFraction(buffer, dateTime.getNano()) : buffer;
+	}
+
+	/**
+	 * Appends a UTC offset as +HH:MM or -HH:MM.
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 * @param offset
+	 *            offset
+	 * @return the buffer
+	 */
+	static StringBuilder appendOffset(StringBuilder buffer,
+	    ZoneOffset offset) {
+		int seconds = offset.getTotalSeconds();
+		buffer.append(seconds < 0 ? '-' : '+');
+		int minutes = Math.abs(seconds) / 60;
+		appendPadded(buffer, minutes / 60, 2);
+		buffer.append(':');
+		return appendPadded(buffer, minutes % 60, 2);
+	}
+
+	/**
+	 * Appends <code>TO_DATE('yyyy-MM-dd','YYYY-MM-DD')</code>.
+	 * 
+	 * @param date
+	 *            date
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	static void toDate(LocalDate date, StringBuilder buffer) {
+		appendDate(buffer.append("TO_DATE('"), date)
+		    .append("','YYYY-MM-DD')");
+	}
+
+	/**
+	 * Appends a TO_DATE function of a date and time (fractional seconds are
+	 * dropped, Oracle dates have none).
+	 * 
+	 * @param dateTime
+	 *            date and time
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	static void toDateTime(LocalDateTime dateTime, StringBuilder buffer) {
+		appendDateTime(buffer.append("TO_DATE('"), dateTime, false)
+		    .append("',").append(YMD24).append(')');
+	}
+
+	/**
+	 * Appends <code>TO_DATE('HH:mm:ss','HH24:MI:SS')</code>.
+	 * 
+	 * @param time
+	 *            time
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	static void toTime(LocalTime time, StringBuilder buffer) {
+		appendTime(buffer.append("TO_DATE('"), time, false)
+		    .append("','HH24:MI:SS')");
+	}
+
+	/**
+	 * Appends a TO_TIMESTAMP function of a date and time, including
+	 * fractional seconds.
+	 * 
+	 * @param dateTime
+	 *            date and time
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	static void toTimestamp(LocalDateTime dateTime, StringBuilder buffer) {
+		appendDateTime(buffer.append("TO_TIMESTAMP('"), dateTime, true)
+		    .append("',").append(YMD24_FF).append(')');
+	}
+
+	/**
+	 * Appends a TO_TIMESTAMP_TZ function of a date and time with offset.
+	 * 
+	 * @param dateTime
+	 *            date and time with offset
+	 * @param buffer
+	 *            buffer to append to
+	 */
+	static void toTimestampTz(OffsetDateTime dateTime, StringBuilder buffer) {
+		appendDateTime(buffer.append("TO_TIMESTAMP_TZ('"),
+		    dateTime.toLocalDateTime(), true).append(' ');
+		appendOffset(buffer, dateTime.getOffset()).append("',")
+		    .append(YMD24_FF_TZ).append(')');
+	}
+
+	/**
+	 * Appends a non-negative number left padded with zeros.
+	 * 
+	 * @param buffer
+	 *            buffer to append to
+	 * @param value
+	 *            non-negative number
+	 * @param width
+	 *            minimum number of digits
+	 * @return the buffer
+	 */
+	private static StringBuilder appendPadded(StringBuilder buffer, int value,
+	    int width) {
+		int limit = 1;
+		for (int i = 1; i < width; i++) {
+			limit *= 10;
+			if (value < limit) {
+				buffer.append('0');
+			}
+		}
+		return buffer.append(value);
+	}
+}
@@ -0,0 +1,1406 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLType;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * Proxies for a {@link ResultSet} returned by a timed
+ * {@link DebuggableStatement} and reports back to it when the first row is
+ * fetched and when the result set has been consumed (exhausted or closed).
+ * 
+ * @author drothauser
+ * 
+ */
+@SuppressWarnings("checkstyle:methodcount")
+final class TimedResultSet implements ResultSet {
+
+	/**
+	 * {@link ResultSet} being proxied for.
+	 */
+	private final ResultSet rs;
+
+	/**
+	 * {@link DebuggableStatement} that created the result set.
+	 */
+	private final DebuggableStatement statement;
+
+	/**
+	 * Execution of the statement that produced this result set.
+	 */
+	private final long execution;
+
+	/**
+	 * Number of rows fetched so far.
+	 */
+	private long rowCount;
+
+	/**
+	 * Whether the result set has been exhausted or closed.
+	 */
+	private boolean consumed;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rs
+	 *            {@link ResultSet} to proxy for
+	 * @param statement
+	 *            {@link DebuggableStatement} that created the result set
+	 * @param execution
+	 *            execution of the statement that produced the result set
+	 */
+	TimedResultSet(ResultSet rs, DebuggableStatement statement,
+	    long execution) {
+		this.rs = rs;
+		this.statement = statement;
+		this.execution = execution;
+	}
+
+	/**
+	 * Report the result set as consumed to the statement (once).
+	 */
+	private void consumed() {
+		if (!consumed) {
+			consumed = true;
+			statement.resultSetConsumed(execution, rowCount);
+		}
+	}
+
+	/**
+	 * Moves the cursor to the next row, recording the time the first row was
+	 * fetched and the time the last row was read.
+	 * 
+	 * @return true if the new current row is valid
+	 * @throws SQLException
+	 *             thrown if a SQL error in encountered.
+	 */
+	@Override
+	public boolean next() throws SQLException {
+		boolean hasRow = rs.next();
+		if (hasRow) {
+			if (++rowCount == 1) {
+				statement.firstRowFetched(execution);
+			}
+		} else {
+			consumed();
+		}
+		return hasRow;
+	}
+
+	/**
+	 * Closes the result set and records it as consumed.
+	 * 
+	 * @throws SQLException
+	 *             thrown if a SQL error in encountered.
+	 */
+	@Override
+	public void close() throws SQLException {
+		consumed();
+		rs.close();
+	}
+
+	/**
+	 * @return the {@link DebuggableStatement} that produced this result set
+	 */
+	@Override
+	public Statement getStatement() {
+		return statement;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean absolute(final int rows) throws SQLException {
+		return rs.absolute(rows);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void afterLast() throws SQLException {
+		rs.afterLast();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void beforeFirst() throws SQLException {
+		rs.beforeFirst();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void cancelRowUpdates() throws SQLException {
+		rs.cancelRowUpdates();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void clearWarnings() throws SQLException {
+		rs.clearWarnings();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void deleteRow() throws SQLException {
+		rs.deleteRow();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final int findColumn(final String columnLabel) throws SQLException {
+		return rs.findColumn(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean first() throws SQLException {
+		return rs.first();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Array getArray(final String columnLabel) throws SQLException {
+		return rs.getArray(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Array getArray(final int columnIndex) throws SQLException {
+		return rs.getArray(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final InputStream getAsciiStream(final String columnLabel)
+	        throws SQLException {
+		return rs.getAsciiStream(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final InputStream getAsciiStream(final int columnIndex)
+	        throws SQLException {
+		return rs.getAsciiStream(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("deprecation")
+	@Override
+	public final BigDecimal getBigDecimal(final String columnLabel,
+	    final int scale) throws SQLException {
+		return rs.getBigDecimal(columnLabel, scale);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final BigDecimal getBigDecimal(final String columnLabel)
+	        throws SQLException {
+		return rs.getBigDecimal(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("deprecation")
+	@Override
+	public final BigDecimal getBigDecimal(final int columnIndex,
+	    final int scale) throws SQLException {
+		return rs.getBigDecimal(columnIndex, scale);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final BigDecimal getBigDecimal(final int columnIndex)
+	        throws SQLException {
+		return rs.getBigDecimal(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final InputStream getBinaryStream(final String columnLabel)
+	        throws SQLException {
+		return rs.getBinaryStream(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final InputStream getBinaryStream(final int columnIndex)
+	        throws SQLException {
+		return rs.getBinaryStream(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Blob getBlob(final String columnLabel) throws SQLException {
+		return rs.getBlob(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Blob getBlob(final int columnIndex) throws SQLException {
+		return rs.getBlob(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean getBoolean(final String columnLabel)
+	        throws SQLException {
+		return rs.getBoolean(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean getBoolean(final int columnIndex) throws SQLException {
+		return rs.getBoolean(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final byte getByte(final String columnLabel) throws SQLException {
+		return rs.getByte(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final byte getByte(final int columnIndex) throws SQLException {
+		return rs.getByte(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final byte[] getBytes(final String columnLabel) throws SQLException {
+		return rs.getBytes(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final byte[] getBytes(final int columnIndex) throws SQLException {
+		return rs.getBytes(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Reader getCharacterStream(final String columnLabel)
+	        throws SQLException {
+		return rs.getCharacterStream(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Reader getCharacterStream(final int columnIndex)
+	        throws SQLException {
+		return rs.getCharacterStream(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Clob getClob(final String columnLabel) throws SQLException {
+		return rs.getClob(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Clob getClob(final int columnIndex) throws SQLException {
+		return rs.getClob(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final int getConcurrency() throws SQLException {
+		return rs.getConcurrency();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final String getCursorName() throws SQLException {
+		return rs.getCursorName();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Date getDate(final String columnLabel, final Calendar cal)
+	        throws SQLException {
+		return rs.getDate(columnLabel, cal);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Date getDate(final String columnLabel) throws SQLException {
+		return rs.getDate(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Date getDate(final int columnIndex, final Calendar cal)
+	        throws SQLException {
+		return rs.getDate(columnIndex, cal);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Date getDate(final int columnIndex) throws SQLException {
+		return rs.getDate(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final double getDouble(final String columnLabel)
+	        throws SQLException {
+		return rs.getDouble(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final double getDouble(final int columnIndex) throws SQLException {
+		return rs.getDouble(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final int getFetchDirection() throws SQLException {
+		return rs.getFetchDirection();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final int getFetchSize() throws SQLException {
+		return rs.getFetchSize();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final float getFloat(final String columnLabel) throws SQLException {
+		return rs.getFloat(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final float getFloat(final int columnIndex) throws SQLException {
+		return rs.getFloat(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final int getHoldability() throws SQLException {
+		return rs.getHoldability();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final int getInt(final String columnLabel) throws SQLException {
+		return rs.getInt(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final int getInt(final int columnIndex) throws SQLException {
+		return rs.getInt(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final long getLong(final String columnLabel) throws SQLException {
+		return rs.getLong(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final long getLong(final int columnIndex) throws SQLException {
+		return rs.getLong(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final ResultSetMetaData getMetaData() throws SQLException {
+		return rs.getMetaData();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Reader getNCharacterStream(final String columnLabel)
+	        throws SQLException {
+		return rs.getNCharacterStream(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Reader getNCharacterStream(final int columnIndex)
+	        throws SQLException {
+		return rs.getNCharacterStream(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final NClob getNClob(final String columnLabel) throws SQLException {
+		return rs.getNClob(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final NClob getNClob(final int columnIndex) throws SQLException {
+		return rs.getNClob(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final String getNString(final String columnLabel)
+	        throws SQLException {
+		return rs.getNString(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final String getNString(final int columnIndex) throws SQLException {
+		return rs.getNString(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final <T> T getObject(final String columnLabel, final Class<T> type)
+	        throws SQLException {
+		return rs.getObject(columnLabel, type);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Object getObject(final String columnLabel, final Map<String,
+	    Class<?>> map) throws SQLException {
+		return rs.getObject(columnLabel, map);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Object getObject(final String columnLabel)
+	        throws SQLException {
+		return rs.getObject(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final <T> T getObject(final int columnIndex, final Class<T> type)
+	        throws SQLException {
+		return rs.getObject(columnIndex, type);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Object getObject(final int columnIndex, final Map<String,
+	    Class<?>> map) throws SQLException {
+		return rs.getObject(columnIndex, map);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Object getObject(final int columnIndex) throws SQLException {
+		return rs.getObject(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Ref getRef(final String columnLabel) throws SQLException {
+		return rs.getRef(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Ref getRef(final int columnIndex) throws SQLException {
+		return rs.getRef(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final int getRow() throws SQLException {
+		return rs.getRow();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final RowId getRowId(final String columnLabel) throws SQLException {
+		return rs.getRowId(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final RowId getRowId(final int columnIndex) throws SQLException {
+		return rs.getRowId(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final SQLXML getSQLXML(final String columnLabel)
+	        throws SQLException {
+		return rs.getSQLXML(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final SQLXML getSQLXML(final int columnIndex) throws SQLException {
+		return rs.getSQLXML(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final short getShort(final String columnLabel) throws SQLException {
+		return rs.getShort(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final short getShort(final int columnIndex) throws SQLException {
+		return rs.getShort(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final String getString(final String columnLabel)
+	        throws SQLException {
+		return rs.getString(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final String getString(final int columnIndex) throws SQLException {
+		return rs.getString(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Time getTime(final String columnLabel, final Calendar cal)
+	        throws SQLException {
+		return rs.getTime(columnLabel, cal);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Time getTime(final String columnLabel) throws SQLException {
+		return rs.getTime(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Time getTime(final int columnIndex, final Calendar cal)
+	        throws SQLException {
+		return rs.getTime(columnIndex, cal);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Time getTime(final int columnIndex) throws SQLException {
+		return rs.getTime(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Timestamp getTimestamp(final String columnLabel,
+	    final Calendar cal) throws SQLException {
+		return rs.getTimestamp(columnLabel, cal);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Timestamp getTimestamp(final String columnLabel)
+	        throws SQLException {
+		return rs.getTimestamp(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Timestamp getTimestamp(final int columnIndex,
+	    final Calendar cal) throws SQLException {
+		return rs.getTimestamp(columnIndex, cal);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final Timestamp getTimestamp(final int columnIndex)
+	        throws SQLException {
+		return rs.getTimestamp(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final int getType() throws SQLException {
+		return rs.getType();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final URL getURL(final String columnLabel) throws SQLException {
+		return rs.getURL(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final URL getURL(final int columnIndex) throws SQLException {
+		return rs.getURL(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("deprecation")
+	@Override
+	public final InputStream getUnicodeStream(final String columnLabel)
+	        throws SQLException {
+		return rs.getUnicodeStream(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("deprecation")
+	@Override
+	public final InputStream getUnicodeStream(final int columnIndex)
+	        throws SQLException {
+		return rs.getUnicodeStream(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final SQLWarning getWarnings() throws SQLException {
+		return rs.getWarnings();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void insertRow() throws SQLException {
+		rs.insertRow();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean isAfterLast() throws SQLException {
+		return rs.isAfterLast();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean isBeforeFirst() throws SQLException {
+		return rs.isBeforeFirst();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean isClosed() throws SQLException {
+		return rs.isClosed();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean isFirst() throws SQLException {
+		return rs.isFirst();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean isLast() throws SQLException {
+		return rs.isLast();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean isWrapperFor(final Class<?> iface)
+	        throws SQLException {
+		return rs.isWrapperFor(iface);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean last() throws SQLException {
+		return rs.last();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void moveToCurrentRow() throws SQLException {
+		rs.moveToCurrentRow();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void moveToInsertRow() throws SQLException {
+		rs.moveToInsertRow();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean previous() throws SQLException {
+		return rs.previous();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void refreshRow() throws SQLException {
+		rs.refreshRow();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean relative(final int rows) throws SQLException {
+		return rs.relative(rows);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean rowDeleted() throws SQLException {
+		return rs.rowDeleted();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean rowInserted() throws SQLException {
+		return rs.rowInserted();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean rowUpdated() throws SQLException {
+		return rs.rowUpdated();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void setFetchDirection(final int direction)
+	        throws SQLException {
+		rs.setFetchDirection(direction);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void setFetchSize(final int rows) throws SQLException {
+		rs.setFetchSize(rows);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final <T> T unwrap(final Class<T> iface) throws SQLException {
+		return rs.unwrap(iface);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateArray(final String columnLabel, final Array array)
+	        throws SQLException {
+		rs.updateArray(columnLabel, array);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateArray(final int columnIndex, final Array array)
+	        throws SQLException {
+		rs.updateArray(columnIndex, array);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateAsciiStream(final String columnLabel,
+	    final InputStream inputStream, final int length) throws SQLException {
+		rs.updateAsciiStream(columnLabel, inputStream, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateAsciiStream(final String columnLabel,
+	    final InputStream inputStream, final long length) throws SQLException {
+		rs.updateAsciiStream(columnLabel, inputStream, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateAsciiStream(final String columnLabel,
+	    final InputStream inputStream) throws SQLException {
+		rs.updateAsciiStream(columnLabel, inputStream);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateAsciiStream(final int columnIndex,
+	    final InputStream inputStream, final int length) throws SQLException {
+		rs.updateAsciiStream(columnIndex, inputStream, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateAsciiStream(final int columnIndex,
+	    final InputStream inputStream, final long length) throws SQLException {
+		rs.updateAsciiStream(columnIndex, inputStream, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateAsciiStream(final int columnIndex,
+	    final InputStream inputStream) throws SQLException {
+		rs.updateAsciiStream(columnIndex, inputStream);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBigDecimal(final String columnLabel,
+	    final BigDecimal bigDecimal) throws SQLException {
+		rs.updateBigDecimal(columnLabel, bigDecimal);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBigDecimal(final int columnIndex,
+	    final BigDecimal bigDecimal) throws SQLException {
+		rs.updateBigDecimal(columnIndex, bigDecimal);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBinaryStream(final String columnLabel,
+	    final InputStream inputStream, final int length) throws SQLException {
+		rs.updateBinaryStream(columnLabel, inputStream, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBinaryStream(final String columnLabel,
+	    final InputStream inputStream, final long length) throws SQLException {
+		rs.updateBinaryStream(columnLabel, inputStream, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBinaryStream(final String columnLabel,
+	    final InputStream inputStream) throws SQLException {
+		rs.updateBinaryStream(columnLabel, inputStream);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBinaryStream(final int columnIndex,
+	    final InputStream inputStream, final int length) throws SQLException {
+		rs.updateBinaryStream(columnIndex, inputStream, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBinaryStream(final int columnIndex,
+	    final InputStream inputStream, final long length) throws SQLException {
+		rs.updateBinaryStream(columnIndex, inputStream, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBinaryStream(final int columnIndex,
+	    final InputStream inputStream) throws SQLException {
+		rs.updateBinaryStream(columnIndex, inputStream);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBlob(final String columnLabel,
+	    final InputStream inputStream, final long length) throws SQLException {
+		rs.updateBlob(columnLabel, inputStream, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBlob(final String columnLabel,
+	    final InputStream inputStream) throws SQLException {
+		rs.updateBlob(columnLabel, inputStream);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBlob(final String columnLabel, final Blob blob)
+	        throws SQLException {
+		rs.updateBlob(columnLabel, blob);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBlob(final int columnIndex,
+	    final InputStream inputStream, final long length) throws SQLException {
+		rs.updateBlob(columnIndex, inputStream, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBlob(final int columnIndex,
+	    final InputStream inputStream) throws SQLException {
+		rs.updateBlob(columnIndex, inputStream);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBlob(final int columnIndex, final Blob blob)
+	        throws SQLException {
+		rs.updateBlob(columnIndex, blob);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBoolean(final String columnLabel, final boolean x)
+	        throws SQLException {
+		rs.updateBoolean(columnLabel, x);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBoolean(final int columnIndex, final boolean x)
+	        throws SQLException {
+		rs.updateBoolean(columnIndex, x);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateByte(final String columnLabel, final byte x)
+	        throws SQLException {
+		rs.updateByte(columnLabel, x);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateByte(final int columnIndex, final byte x)
+	        throws SQLException {
+		rs.updateByte(columnIndex, x);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBytes(final String columnLabel, final byte[] x)
+	        throws SQLException {
+		rs.updateBytes(columnLabel, x);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateBytes(final int columnIndex, final byte[] x)
+	        throws SQLException {
+		rs.updateBytes(columnIndex, x);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateCharacterStream(final String columnLabel,
+	    final Reader reader, final int length) throws SQLException {
+		rs.updateCharacterStream(columnLabel, reader, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateCharacterStream(final String columnLabel,
+	    final Reader reader, final long length) throws SQLException {
+		rs.updateCharacterStream(columnLabel, reader, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateCharacterStream(final String columnLabel,
+	    final Reader reader) throws SQLException {
+		rs.updateCharacterStream(columnLabel, reader);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateCharacterStream(final int columnIndex,
+	    final Reader reader, final int length) throws SQLException {
+		rs.updateCharacterStream(columnIndex, reader, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateCharacterStream(final int columnIndex,
+	    final Reader reader, final long length) throws SQLException {
+		rs.updateCharacterStream(columnIndex, reader, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateCharacterStream(final int columnIndex,
+	    final Reader reader) throws SQLException {
+		rs.updateCharacterStream(columnIndex, reader);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateClob(final String columnLabel, final Reader reader,
+	    final long length) throws SQLException {
+		rs.updateClob(columnLabel, reader, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateClob(final String columnLabel, final Reader reader)
+	        throws SQLException {
+		rs.updateClob(columnLabel, reader);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateClob(final String columnLabel, final Clob clob)
+	        throws SQLException {
+		rs.updateClob(columnLabel, clob);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateClob(final int columnIndex, final Reader reader,
+	    final long length) throws SQLException {
+		rs.updateClob(columnIndex, reader, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateClob(final int columnIndex, final Reader reader)
+	        throws SQLException {
+		rs.updateClob(columnIndex, reader);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateClob(final int columnIndex, final Clob clob)
+	        throws SQLException {
+		rs.updateClob(columnIndex, clob);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateDate(final String columnLabel, final Date date)
+	        throws SQLException {
+		rs.updateDate(columnLabel, date);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateDate(final int columnIndex, final Date date)
+	        throws SQLException {
+		rs.updateDate(columnIndex, date);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateDouble(final String columnLabel, final double x)
+	        throws SQLException {
+		rs.updateDouble(columnLabel, x);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateDouble(final int columnIndex, final double x)
+	        throws SQLException {
+		rs.updateDouble(columnIndex, x);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateFloat(final String columnLabel, final float x)
+	        throws SQLException {
+		rs.updateFloat(columnLabel, x);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateFloat(final int columnIndex, final float x)
+	        throws SQLException {
+		rs.updateFloat(columnIndex, x);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateInt(final String columnLabel, final int length)
+	        throws SQLException {
+		rs.updateInt(columnLabel, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateInt(final int columnIndex, final int length)
+	        throws SQLException {
+		rs.updateInt(columnIndex, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateLong(final String columnLabel, final long length)
+	        throws SQLException {
+		rs.updateLong(columnLabel, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateLong(final int columnIndex, final long length)
+	        throws SQLException {
+		rs.updateLong(columnIndex, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateNCharacterStream(final String columnLabel,
+	    final Reader reader, final long length) throws SQLException {
+		rs.updateNCharacterStream(columnLabel, reader, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateNCharacterStream(final String columnLabel,
+	    final Reader reader) throws SQLException {
+		rs.updateNCharacterStream(columnLabel, reader);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateNCharacterStream(final int columnIndex,
+	    final Reader reader, final long length) throws SQLException {
+		rs.updateNCharacterStream(columnIndex, reader, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateNCharacterStream(final int columnIndex,
+	    final Reader reader) throws SQLException {
+		rs.updateNCharacterStream(columnIndex, reader);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateNClob(final String columnLabel, final Reader reader,
+	    final long length) throws SQLException {
+		rs.updateNClob(columnLabel, reader, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateNClob(final String columnLabel, final Reader reader)
+	        throws SQLException {
+		rs.updateNClob(columnLabel, reader);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateNClob(final String columnLabel, final NClob nClob)
+	        throws SQLException {
+		rs.updateNClob(columnLabel, nClob);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateNClob(final int columnIndex, final Reader reader,
+	    final long length) throws SQLException {
+		rs.updateNClob(columnIndex, reader, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateNClob(final int columnIndex, final Reader reader)
+	        throws SQLException {
+		rs.updateNClob(columnIndex, reader);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateNClob(final int columnIndex, final NClob nClob)
+	        throws SQLException {
+		rs.updateNClob(columnIndex, nClob);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateNString(final String columnLabel,
+	    final String string) throws SQLException {
+		rs.updateNString(columnLabel, string);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateNString(final int columnIndex, final String string)
+	        throws SQLException {
+		rs.updateNString(columnIndex, string);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateNull(final String columnLabel) throws SQLException {
+		rs.updateNull(columnLabel);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateNull(final int columnIndex) throws SQLException {
+		rs.updateNull(columnIndex);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateObject(final String columnLabel, final Object x,
+	    final int length) throws SQLException {
+		rs.updateObject(columnLabel, x, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateObject(final String columnLabel, final Object x,
+	    final SQLType targetSqlType, final int length) throws SQLException {
+		rs.updateObject(columnLabel, x, targetSqlType, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateObject(final String columnLabel, final Object x,
+	    final SQLType targetSqlType) throws SQLException {
+		rs.updateObject(columnLabel, x, targetSqlType);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateObject(final String columnLabel, final Object x)
+	        throws SQLException {
+		rs.updateObject(columnLabel, x);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateObject(final int columnIndex, final Object x,
+	    final int length) throws SQLException {
+		rs.updateObject(columnIndex, x, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateObject(final int columnIndex, final Object x,
+	    final SQLType targetSqlType, final int length) throws SQLException {
+		rs.updateObject(columnIndex, x, targetSqlType, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateObject(final int columnIndex, final Object x,
+	    final SQLType targetSqlType) throws SQLException {
+		rs.updateObject(columnIndex, x, targetSqlType);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateObject(final int columnIndex, final Object x)
+	        throws SQLException {
+		rs.updateObject(columnIndex, x);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateRef(final String columnLabel, final Ref ref)
+	        throws SQLException {
+		rs.updateRef(columnLabel, ref);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateRef(final int columnIndex, final Ref ref)
+	        throws SQLException {
+		rs.updateRef(columnIndex, ref);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateRow() throws SQLException {
+		rs.updateRow();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateRowId(final String columnLabel, final RowId rowId)
+	        throws SQLException {
+		rs.updateRowId(columnLabel, rowId);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateRowId(final int columnIndex, final RowId rowId)
+	        throws SQLException {
+		rs.updateRowId(columnIndex, rowId);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateSQLXML(final String columnLabel,
+	    final SQLXML sQLXML) throws SQLException {
+		rs.updateSQLXML(columnLabel, sQLXML);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateSQLXML(final int columnIndex, final SQLXML sQLXML)
+	        throws SQLException {
+		rs.updateSQLXML(columnIndex, sQLXML);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateShort(final String columnLabel, final short x)
+	        throws SQLException {
+		rs.updateShort(columnLabel, x);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateShort(final int columnIndex, final short x)
+	        throws SQLException {
+		rs.updateShort(columnIndex, x);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateString(final String columnLabel,
+	    final String string) throws SQLException {
+		rs.updateString(columnLabel, string);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateString(final int columnIndex, final String string)
+	        throws SQLException {
+		rs.updateString(columnIndex, string);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateTime(final String columnLabel, final Time time)
+	        throws SQLException {
+		rs.updateTime(columnLabel, time);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateTime(final int columnIndex, final Time time)
+	        throws SQLException {
+		rs.updateTime(columnIndex, time);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateTimestamp(final String columnLabel,
+	    final Timestamp timestamp) throws SQLException {
+		rs.updateTimestamp(columnLabel, timestamp);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final void updateTimestamp(final int columnIndex,
+	    final Timestamp timestamp) throws SQLException {
+		rs.updateTimestamp(columnIndex, timestamp);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public final boolean wasNull() throws SQLException {
+		return rs.wasNull();
+	}
+}
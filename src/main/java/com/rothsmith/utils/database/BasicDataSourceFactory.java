@@ -16,6 +16,15 @@ import org.apache.commons.dbcp.BasicDataSource;
  */
 public interface BasicDataSourceFactory {
 
+	/**
+	 * Maximum number of pooled prepared statements per connection (see
+	 * {@link BasicDataSource#setMaxOpenPreparedStatements(int)}) of a created
+	 * datasource that turns prepared statement pooling on without setting a
+	 * maximum. Like in the application servers, pooling is off unless a
+	 * datasource configures it.
+	 */
+	int DEFAULT_MAX_OPEN_PREPARED_STATEMENTS = 50;
+
 	/**
 	 * This method creates an instance of {@link BasicDataSource} given a
 	 * {@link Map} of key/value pairs derived from an application server
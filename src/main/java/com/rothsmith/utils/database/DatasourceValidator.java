@@ -0,0 +1,584 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.utils.database;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.dbutils.DbUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rothsmith.utils.database.ValidationReport.Result;
+import com.rothsmith.utils.database.ValidationReport.Status;
+
+/**
+ * Validates datasources by connecting to them in parallel, so a datasource
+ * file with a few unreachable hosts doesn't take the sum of their connect
+ * timeouts to check.
+ * <p>
+ * By default ({@link Mode#DRIVER}) a datasource is validated with a single
+ * connection opened directly with its JDBC driver: the connection runs the
+ * datasource's validation query (or {@link Connection#isValid(int)} if it has
+ * none), the round trip is timed and the connection is closed. The DBCP pool
+ * of the datasource isn't touched, so validating many datasources doesn't
+ * open {@code initialSize} connections to each database and leave the pools
+ * behind. {@link Mode#POOL} validates by getting a connection from the pool
+ * instead.
+ * </p>
+ * <p>
+ * At most {@code parallelism} datasources are validated at a time, on
+ * virtual threads when the JDK has them and on daemon threads otherwise. A
+ * datasource that hasn't connected within the per-datasource timeout
+ * (counted from when its validation started) is reported as
+ * {@link Status#TIMED_OUT} and its slot is given to the next datasource right
+ * away, as is every datasource still connecting at the overall timeout;
+ * datasources whose validation hadn't started by then are reported as
+ * {@link Status#SKIPPED}. Threads stuck in a connect attempt are
+ * interrupted, but socket connects usually ignore that, so they can outlive
+ * {@link #validate(Map)}. To bound them, {@link Mode#DRIVER} also passes the
+ * per-datasource timeout to the drivers that have a connect or login timeout
+ * property (Oracle, SQL Server, jTDS, PostgreSQL, MySQL, MariaDB, DB2 and
+ * AS/400).
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+public final class DatasourceValidator {
+
+	/**
+	 * How datasources are connected to.
+	 */
+	public enum Mode {
+
+		/**
+		 * One connection is opened with the JDBC driver and validated with
+		 * the validation query or {@link Connection#isValid(int)}.
+		 */
+		DRIVER,
+
+		/**
+		 * A connection is taken from (and returned to) the datasource's pool,
+		 * which initializes the pool.
+		 */
+		POOL
+	}
+
+	/**
+	 * Default maximum number of datasources validated at a time.
+	 */
+	public static final int DEFAULT_PARALLELISM = 8;
+
+	/**
+	 * Default time (in milliseconds) a datasource may take to connect.
+	 */
+	public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+
+	/**
+	 * Default time (in milliseconds) the whole validation may take.
+	 */
+	public static final long DEFAULT_OVERALL_TIMEOUT_MILLIS = 30000;
+
+	/**
+	 * SLF4J Logger for DatasourceValidator.
+	 */
+	private static final Logger LOGGER =
+	    LoggerFactory.getLogger(DatasourceValidator.class);
+
+	/**
+	 * Maximum number of datasources validated at a time.
+	 */
+	private final int parallelism;
+
+	/**
+	 * Time (in nanoseconds) a datasource may take to connect.
+	 */
+	private final long timeoutNanos;
+
+	/**
+	 * Time (in nanoseconds) the whole validation may take.
+	 */
+	private final long overallTimeoutNanos;
+
+	/**
+	 * How datasources are connected to.
+	 */
+	private final Mode mode;
+
+	/**
+	 * Creates a validator with the default parallelism and timeouts that
+	 * connects with the JDBC driver ({@link Mode#DRIVER}).
+	 */
+	public DatasourceValidator() {
+		this(DEFAULT_PARALLELISM, DEFAULT_TIMEOUT_MILLIS,
+		    DEFAULT_OVERALL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Creates a validator that connects with the JDBC driver
+	 * ({@link Mode#DRIVER}).
+	 * 
+	 * @param parallelism
+	 *            maximum number of datasources validated at a time
+	 * @param timeout
+	 *            time a datasource may take to connect
+	 * @param overallTimeout
+	 *            time the whole validation may take
+	 * @param unit
+	 *            unit of the timeouts
+	 */
+	public DatasourceValidator(int parallelism, long timeout,
+	    long overallTimeout, TimeUnit unit) {
+		this(parallelism, timeout, overallTimeout, unit, Mode.DRIVER);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param parallelism
+	 *            maximum number of datasources validated at a time
+	 * @param timeout
+	 *            time a datasource may take to connect
+	 * @param overallTimeout
+	 *            time the whole validation may take
+	 * @param unit
+	 *            unit of the timeouts
+	 * @param mode
+	 *            how datasources are connected to
+	 */
+	public DatasourceValidator(int parallelism, long timeout,
+	    long overallTimeout, TimeUnit unit, Mode mode) {
+		if (parallelism < 1 || timeout < 1 || overallTimeout < 1) {
+			throw new IllegalArgumentException(
+			    "parallelism and timeouts must be positive: " + parallelism
+			        + ", " + timeout + ", " + overallTimeout);
+		}
+		this.parallelism = parallelism;
+		this.timeoutNanos = unit.toNanos(timeout);
+		this.overallTimeoutNanos = unit.toNanos(overallTimeout);
+		if (mode == null) {
+			throw new IllegalArgumentException("mode must not be null");
+		}
+		this.mode = mode;
+	}
+
+	/**
+	 * Validates the datasources.
+	 * 
+	 * @param dsMap
+	 *            {@link Map} as key = logical datasource name, value =
+	 *            {@link BasicDataSource}
+	 * @return report with a result per datasource, in the map's order
+	 */
+	public ValidationReport validate(Map<String, BasicDataSource> dsMap) {
+
+		long start = System.nanoTime();
+		long deadline = start + overallTimeoutNanos;
+		CountDownLatch done = new CountDownLatch(dsMap.size());
+		Semaphore permits = new Semaphore(parallelism);
+		List<Check> checks = new ArrayList<Check>(dsMap.size());
+		ExecutorService executor = newExecutor();
+		try {
+			for (Map.Entry<String, BasicDataSource> entry : dsMap.entrySet()) {
+				checks.add(new Check(entry.getKey(), entry.getValue(),
+				    permits, done));
+			}
+			await(checks, permits, executor, done, deadline);
+			// time out the checks that are still running (before they are
+			// interrupted)
+			long now = System.nanoTime();
+			for (Check check : checks) {
+				long started = check.started;
+				check.complete(started == 0
+				    ? new Result(check.name, Status.SKIPPED, 0,
+				        "not validated within the overall timeout")
+				    : new Result(check.name, Status.TIMED_OUT, now - started,
+				        "no connection within the overall timeout"));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		List<Result> results = new ArrayList<Result>(checks.size());
+		for (Check check : checks) {
+			results.add(check.result.get());
+		}
+		ValidationReport report =
+		    new ValidationReport(results, System.nanoTime() - start);
+		LOGGER.info(report.toString());
+		return report;
+	}
+
+	/**
+	 * Starts the checks in order as permits become available and waits until
+	 * all checks are done or the overall deadline has passed, timing out the
+	 * checks that take longer than the per-datasource timeout.
+	 * 
+	 * @param checks
+	 *            the checks
+	 * @param permits
+	 *            bounds the number of concurrent checks
+	 * @param executor
+	 *            executor the checks run on
+	 * @param done
+	 *            counted down by every completed check
+	 * @param deadline
+	 *            {@link System#nanoTime()} of the overall deadline
+	 */
+	private void await(List<Check> checks, Semaphore permits,
+	    ExecutorService executor, CountDownLatch done, long deadline) {
+		int next = 0;
+		try {
+			while (done.getCount() > 0) {
+				long now = System.nanoTime();
+				long wait = deadline - now;
+				if (wait <= 0) {
+					return;
+				}
+				while (next < checks.size() && permits.tryAcquire()) {
+					checks.get(next++).start(executor);
+				}
+				for (Check check : checks) {
+					long started = check.started;
+					if (started == 0 || check.result.get() != null) {
+						continue;
+					}
+					long remaining = started + timeoutNanos - now;
+					if (remaining <= 0) {
+						check.complete(new Result(check.name, Status.TIMED_OUT,
+						    now - started, "no connection within "
+						        + TimeUnit.NANOSECONDS.toMillis(timeoutNanos)
+						        + " ms"));
+						// the connect may ignore the interrupt, so free the
+						// slot for the next datasource now
+						check.releasePermit();
+						check.future.cancel(true);
+					} else {
+						wait = Math.min(wait, remaining);
+					}
+				}
+				if (next == checks.size()) {
+					done.await(wait, TimeUnit.NANOSECONDS);
+				} else if (permits.tryAcquire(wait, TimeUnit.NANOSECONDS)) {
+					checks.get(next++).start(executor);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Checks that a connection can be made using the given datasource.
+	 * 
+	 * @param bds
+	 *            {@link BasicDataSource} object
+	 * @return nanoseconds the round trip of the validation query (or
+	 *         {@link Connection#isValid(int)}) took or 0 if none was made
+	 * @throws SQLException
+	 *             thrown if no (valid) connection can be made
+	 */
+	private long connect(BasicDataSource bds) throws SQLException {
+		Connection conn = null; // NOPMD:DbUtils.closeQuietly closes it
+		try {
+			if (mode == Mode.POOL) {
+				conn = bds.getConnection();
+				return 0;
+			}
+			conn = openConnection(bds);
+			long start = System.nanoTime();
+			validate(conn, bds);
+			return Math.max(System.nanoTime() - start, 1);
+		} finally {
+			DbUtils.closeQuietly(conn);
+		}
+	}
+
+	/**
+	 * Opens a connection with the JDBC driver of a datasource.
+	 * 
+	 * @param bds
+	 *            {@link BasicDataSource} object
+	 * @return the connection
+	 * @throws SQLException
+	 *             thrown if the driver can't be loaded or connecting fails
+	 */
+	private Connection openConnection(BasicDataSource bds)
+	        throws SQLException {
+		String url = bds.getUrl();
+		String driverClassName = bds.getDriverClassName();
+		Driver driver;
+		if (StringUtils.isBlank(driverClassName)) {
+			driver = DriverManager.getDriver(url);
+		} else {
+			try {
+				driver = (Driver) Class.forName(driverClassName)
+				    .getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | ClassCastException e) {
+				throw new SQLException("Cannot load JDBC driver class '"
+				    + driverClassName + "'", e);
+			}
+		}
+
+		Properties info = new Properties();
+		if (bds.getUsername() != null) {
+			info.setProperty("user", bds.getUsername());
+		}
+		if (bds.getPassword() != null) {
+			info.setProperty("password", bds.getPassword());
+		}
+		addConnectTimeout(info, url, timeoutNanos);
+		Connection conn = driver.connect(url, info);
+		if (conn == null) {
+			throw new SQLException(
+			    "JDBC driver " + driver + " doesn't accept URL " + url);
+		}
+		return conn;
+	}
+
+	/**
+	 * Adds the connect (or login) timeout property of the driver of a JDBC
+	 * URL, if it has one. A timeout set in the URL takes precedence with
+	 * most drivers.
+	 * 
+	 * @param info
+	 *            connection properties
+	 * @param url
+	 *            JDBC URL
+	 * @param timeoutNanos
+	 *            the timeout in nanoseconds
+	 */
+	private static void addConnectTimeout(Properties info, String url,
+	    long timeoutNanos) {
+		String millis = String.valueOf(
+		    Math.max(TimeUnit.NANOSECONDS.toMillis(timeoutNanos), 1));
+		String seconds = String.valueOf(
+		    Math.max(TimeUnit.NANOSECONDS.toSeconds(timeoutNanos), 1));
+		String lowerUrl = StringUtils.lowerCase(url);
+		if (StringUtils.startsWith(lowerUrl, "jdbc:oracle:")) {
+			info.setProperty("oracle.net.CONNECT_TIMEOUT", millis);
+		} else if (StringUtils.startsWithAny(lowerUrl, "jdbc:sqlserver:",
+		    "jdbc:jtds:", "jdbc:db2:")) {
+			info.setProperty("loginTimeout", seconds);
+		} else if (StringUtils.startsWith(lowerUrl, "jdbc:postgresql:")) {
+			info.setProperty("connectTimeout", seconds);
+			info.setProperty("loginTimeout", seconds);
+		} else if (StringUtils.startsWithAny(lowerUrl, "jdbc:mysql:",
+		    "jdbc:mariadb:")) {
+			info.setProperty("connectTimeout", millis);
+		} else if (StringUtils.startsWith(lowerUrl, "jdbc:as400:")) {
+			info.setProperty("login timeout", seconds);
+		}
+	}
+
+	/**
+	 * Validates a connection with the validation query of the datasource or,
+	 * if it has none, with {@link Connection#isValid(int)}.
+	 * 
+	 * @param conn
+	 *            the connection
+	 * @param bds
+	 *            {@link BasicDataSource} object
+	 * @throws SQLException
+	 *             thrown if the connection isn't valid
+	 */
+	private void validate(Connection conn, BasicDataSource bds)
+	        throws SQLException {
+		int timeoutSeconds =
+		    (int) Math.max(TimeUnit.NANOSECONDS.toSeconds(timeoutNanos), 1);
+		String query = bds.getValidationQuery();
+		if (StringUtils.isBlank(query)) {
+			if (!conn.isValid(timeoutSeconds)) {
+				throw new SQLException("Connection is not valid");
+			}
+			return;
+		}
+
+		Statement stmt = null; // NOPMD:DbUtils.closeQuietly closes it
+		ResultSet rs = null; // NOPMD:DbUtils.closeQuietly closes it
+		try {
+			stmt = conn.createStatement();
+			int queryTimeout = bds.getValidationQueryTimeout();
+			stmt.setQueryTimeout(queryTimeout > 0 ? queryTimeout
+			    : timeoutSeconds);
+			rs = stmt.executeQuery(query);
+			if (!rs.next()) {
+				throw new SQLException(
+				    "Validation query returned no rows: " + query);
+			}
+		} finally {
+			DbUtils.closeQuietly(rs);
+			DbUtils.closeQuietly(stmt);
+		}
+	}
+
+	/**
+	 * Creates the executor the checks run on: a virtual thread per check if
+	 * the JDK has virtual threads (looked up reflectively, so the class still
+	 * runs on older JDKs), else a cached pool of daemon threads. The pool
+	 * isn't bounded by the parallelism (the permits are), so threads stuck in
+	 * timed out checks don't hold up the remaining checks.
+	 * 
+	 * @return the executor
+	 */
+	private static ExecutorService newExecutor() {
+		try {
+			return (ExecutorService) Executors.class
+			    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "datasource-validator");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/**
+	 * Validation of a datasource.
+	 */
+	private final class Check implements Runnable {
+
+		/**
+		 * Logical name of the datasource.
+		 */
+		private final String name;
+
+		/**
+		 * The datasource.
+		 */
+		private final BasicDataSource bds;
+
+		/**
+		 * Bounds the number of concurrent checks.
+		 */
+		private final Semaphore permits;
+
+		/**
+		 * Counted down when the check completes.
+		 */
+		private final CountDownLatch done;
+
+		/**
+		 * Result, set once (by the check or when it times out).
+		 */
+		private final AtomicReference<Result> result =
+		    new AtomicReference<Result>();
+
+		/**
+		 * {@link System#nanoTime()} the check was started with a permit (0
+		 * until then).
+		 */
+		private volatile long started;
+
+		/**
+		 * Future of the check.
+		 */
+		private Future<?> future;
+
+		/**
+		 * Whether the check holds a permit.
+		 */
+		private final AtomicBoolean permitHeld = new AtomicBoolean();
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name
+		 *            logical name of the datasource
+		 * @param bds
+		 *            the datasource
+		 * @param permits
+		 *            bounds the number of concurrent checks
+		 * @param done
+		 *            counted down when the check completes
+		 */
+		Check(String name, BasicDataSource bds, Semaphore permits,
+		    CountDownLatch done) {
+			this.name = name;
+			this.bds = bds;
+			this.permits = permits;
+			this.done = done;
+		}
+
+		/**
+		 * Sets the result unless it has been set already.
+		 * 
+		 * @param value
+		 *            the result
+		 */
+		void complete(Result value) {
+			if (result.compareAndSet(null, value)) {
+				done.countDown();
+			}
+		}
+
+		/**
+		 * Starts the check with a permit acquired for it.
+		 * 
+		 * @param executor
+		 *            executor the check runs on
+		 */
+		void start(ExecutorService executor) {
+			permitHeld.set(true);
+			long now = System.nanoTime();
+			// 0 means not started
+			started = now == 0 ? 1 : now;
+			future = executor.submit(this);
+		}
+
+		/**
+		 * Releases the permit of the check, if it still holds it.
+		 */
+		void releasePermit() {
+			if (permitHeld.compareAndSet(true, false)) {
+				permits.release();
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			try {
+				long start = started;
+				LOGGER.info("Checking " + name + "...");
+				try {
+					long roundTrip = connect(bds);
+					complete(new Result(name, Status.OK,
+					    System.nanoTime() - start, roundTrip, null));
+					LOGGER.info(name + " OK.");
+				} catch (SQLException | RuntimeException e) {
+					complete(new Result(name, Status.FAILED,
+					    System.nanoTime() - start, e.toString()));
+					LOGGER.error(String.format(
+					    "Could not connect using properties: %s%n%n%s", bds,
+					    e));
+				}
+			} finally {
+				releasePermit();
+			}
+		}
+	}
+}
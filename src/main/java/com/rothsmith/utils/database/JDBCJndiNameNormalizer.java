@@ -3,6 +3,8 @@
  */
 package com.rothsmith.utils.database;
 
+import java.util.regex.Pattern;
+
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -17,6 +19,9 @@ import org.apache.commons.lang3.StringUtils;
  * <li>java:/jdbc/Ew3OracleDS --> java:/comp/env/jdbc/Ew3OracleDS</li>
  * <li>SharedUserOracleDS --> java:/comp/env/jdbc/SharedUserOracleDS</li>
  * </ul>
+ * The base JNDI name is the part after the last '/', '|' or ':'. Names are
+ * normalized with a single backwards scan instead of a regular expression,
+ * and names that are already normalized are returned as is.
  * 
  * @version $Revison:$
  * 
@@ -25,13 +30,26 @@ import org.apache.commons.lang3.StringUtils;
  */
 public final class JDBCJndiNameNormalizer implements JndiNameNormalizer {
 
+	/**
+	 * Context the normalized names are in.
+	 */
+	private static final String JDBC_CONTEXT = "java:/comp/env/jdbc/";
+
+	/**
+	 * Expression matching the part of a name before the base JNDI name; only
+	 * used for names with line terminators, which '.' doesn't match.
+	 */
+	private static final Pattern CONTEXT_PATTERN =
+	    Pattern.compile("(.*?)(?=[^/|:]+$)");
+
 	/**
 	 * Method for ensuring the given JNDI name suitable for a JNDI lookup that
 	 * expects searches in the JDBC context (&quot;java:/comp/env/jdbc/&quot;).
 	 * 
 	 * @param jndiName
 	 *            Raw JNDI name
-	 * @return &quot;java:/comp/env/jdbc/&quot; + [Base JNDI name]
+	 * @return &quot;java:/comp/env/jdbc/&quot; + [Base JNDI name] or the raw
+	 *         name if it ends with a separator
 	 */
 	public String normalize(String jndiName) {
 
@@ -40,9 +58,36 @@ public final class JDBCJndiNameNormalizer implements JndiNameNormalizer {
 			    "jndiName argument is NULL or blank.");
 		}
 
-		String normalized =
-		    jndiName.replaceFirst("(.*?)(?=[^/|:]+$)", "java:/comp/env/jdbc/");
+		int length = jndiName.length();
+		int base = -1;
+		for (int i = length - 1; i >= 0; i--) {
+			char c = jndiName.charAt(i);
+			if (base < 0 && (c == '/' || c == '|' || c == ':')) {
+				base = i + 1;
+			} else if (isLineTerminator(c)) {
+				return CONTEXT_PATTERN.matcher(jndiName)
+				    .replaceFirst(JDBC_CONTEXT);
+			}
+		}
+		if (base < 0) {
+			base = 0;
+		}
 
-		return normalized;
+		if (base == length || base == JDBC_CONTEXT.length()
+		    && jndiName.startsWith(JDBC_CONTEXT)) {
+			return jndiName;
+		}
+		return new StringBuilder(JDBC_CONTEXT.length() + length - base)
+		    .append(JDBC_CONTEXT).append(jndiName, base, length).toString();
+	}
+
+	/**
+	 * @param c
+	 *            a character
+	 * @return true if c is a line terminator (see {@link Pattern})
+	 */
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028'
+		    || c == '\u2029';
 	}
 }
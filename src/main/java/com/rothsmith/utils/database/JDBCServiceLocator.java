@@ -1,7 +1,11 @@
 package com.rothsmith.utils.database;
 
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
@@ -11,8 +15,21 @@ import javax.sql.DataSource;
  * Class for efficiently locating JDBC DataSource instances. It follows the
  * Service Locator pattern as defined in the
  * <a href="http://www.corej2eepatterns.com/">Core J2EE Patterns</a>. Because
- * JNDI lookups are potentially expensive operations, the class uses a HashMap
- * to store previously retrieved datasources.
+ * JNDI lookups are potentially expensive operations, the class caches
+ * previously retrieved datasources.
+ * <p>
+ * Each datasource is looked up at most once: concurrent first calls for the
+ * same name wait for a single JNDI lookup instead of all doing their own.
+ * Failed lookups are cached too, for the negative TTL (see
+ * {@link #setNegativeTtl(long, TimeUnit)}), so a missing datasource doesn't
+ * cause a JNDI lookup on every call. The normalized form of the names that
+ * are passed in is cached as well. A cached datasource can be looked up again
+ * with {@link #refresh(String)}, or in the background on an executor of the
+ * caller's with {@link #refresh(String, Executor)}; callers keep getting the
+ * cached one until the new one is there. The locator starts no threads of its
+ * own, so lookups always run on a thread of the application (whose naming
+ * context, e.g. <code>java:/comp/env</code>, they need).
+ * </p>
  * 
  * @author Doug Rothauser
  * 
@@ -20,15 +37,20 @@ import javax.sql.DataSource;
 public final class JDBCServiceLocator {
 
 	/**
-	 * Cache used for storing previously retrieved datasources
+	 * Default time (in milliseconds) a failed lookup is cached.
 	 */
-	private final Map<String, DataSource> cache =
-	    new ConcurrentHashMap<String, DataSource>();
+	public static final long DEFAULT_NEGATIVE_TTL_MILLIS = 5000;
+
+	/**
+	 * Maximum number of cached normalized names.
+	 */
+	private static final int MAX_CACHED_NAMES = 1024;
 
 	/**
 	 * Singleton instance of this {@link JDBCServiceLocator}
 	 */
-	private static final JDBCServiceLocator INSTANCE = new JDBCServiceLocator();
+	private static final JDBCServiceLocator INSTANCE =
+	    new JDBCServiceLocator(InitialContext::doLookup);
 
 	/**
 	 * Program for ensuring that a JNDI name is suitable to be lookup up in the
@@ -37,6 +59,30 @@ public final class JDBCServiceLocator {
 	private static final JndiNameNormalizer NORMALIZER =
 	    new JDBCJndiNameNormalizer();
 
+	/**
+	 * Cache used for storing previously retrieved datasources (and failed
+	 * lookups), by normalized name.
+	 */
+	private final ConcurrentMap<String, Entry> cache =
+	    new ConcurrentHashMap<String, Entry>();
+
+	/**
+	 * Normalized names, by the name that was passed in.
+	 */
+	private final ConcurrentMap<String, String> names =
+	    new ConcurrentHashMap<String, String>();
+
+	/**
+	 * Performs the JNDI lookups.
+	 */
+	private final Lookup lookup;
+
+	/**
+	 * Time (in nanoseconds) a failed lookup is cached.
+	 */
+	private volatile long negativeTtlNanos =
+	    TimeUnit.MILLISECONDS.toNanos(DEFAULT_NEGATIVE_TTL_MILLIS);
+
 	/**
 	 * @return the single instance of JDBCServiceLocator.
 	 */
@@ -45,10 +91,13 @@ public final class JDBCServiceLocator {
 	}
 
 	/**
-	 * Singleton constructor.
+	 * Constructor.
+	 * 
+	 * @param lookup
+	 *            performs the JNDI lookups
 	 */
-	private JDBCServiceLocator() {
-
+	JDBCServiceLocator(Lookup lookup) {
+		this.lookup = lookup;
 	}
 
 	/**
@@ -62,22 +111,236 @@ public final class JDBCServiceLocator {
 	 *            provider.
 	 * @return JDBC DataSource object
 	 * @throws NamingException
-	 *             thrown if JNDI name is not found
+	 *             thrown if JNDI name is not found (the exception of the
+	 *             failed lookup is rethrown while it is cached)
 	 */
 	public DataSource getDataSource(final String jndiDsname)
 	        throws NamingException {
 
-		DataSource dataSource = null;
+		return entry(jndiDsname).get();
+	}
+
+	/**
+	 * Looks up a datasource again and replaces the cached one when the lookup
+	 * succeeds. If it fails, the cached datasource (if any) is kept. Other
+	 * callers keep getting the cached datasource during the lookup.
+	 * 
+	 * @param jndiDsname
+	 *            JNDI datasource name (see {@link #getDataSource(String)})
+	 * @return the new datasource
+	 * @throws NamingException
+	 *             thrown if the lookup fails
+	 */
+	public DataSource refresh(final String jndiDsname)
+	        throws NamingException {
+
+		return entry(jndiDsname).reload();
+	}
+
+	/**
+	 * Looks up a datasource again on the given executor (see
+	 * {@link #refresh(String)}). The executor's threads must be able to do
+	 * the JNDI lookup, e.g. a managed executor in an application server.
+	 * 
+	 * @param jndiDsname
+	 *            JNDI datasource name (see {@link #getDataSource(String)})
+	 * @param executor
+	 *            executor to run the lookup on
+	 * @return future that is completed with the new datasource or
+	 *         exceptionally with the {@link NamingException} of the lookup
+	 */
+	public CompletableFuture<DataSource> refresh(final String jndiDsname,
+	    final Executor executor) {
+
+		Entry entry = entry(jndiDsname);
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return entry.reload();
+			} catch (NamingException e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
 
-		String dsName = NORMALIZER.normalize(jndiDsname);
+	/**
+	 * Removes a datasource (or failed lookup) from the cache, so the next call
+	 * looks it up again.
+	 * 
+	 * @param jndiDsname
+	 *            JNDI datasource name (see {@link #getDataSource(String)})
+	 */
+	public void invalidate(final String jndiDsname) {
 
-		if (cache.containsKey(dsName)) {
-			dataSource = cache.get(dsName);
-		} else {
-			dataSource = (DataSource) InitialContext.doLookup(dsName);
-			cache.put(dsName, dataSource);
+		cache.remove(normalize(jndiDsname));
+	}
+
+	/**
+	 * Removes all datasources and failed lookups from the cache.
+	 */
+	public void clear() {
+
+		cache.clear();
+		names.clear();
+	}
+
+	/**
+	 * Sets the time a failed lookup is cached. Calls for the datasource
+	 * within that time fail without a JNDI lookup.
+	 * 
+	 * @param ttl
+	 *            time to live (0 to not cache failed lookups)
+	 * @param unit
+	 *            unit of ttl
+	 * @throws IllegalArgumentException
+	 *             if ttl is negative
+	 */
+	public void setNegativeTtl(final long ttl, final TimeUnit unit) {
+
+		if (ttl < 0) {
+			throw new IllegalArgumentException(
+			    "ttl must not be negative: " + ttl);
 		}
+		negativeTtlNanos = unit.toNanos(ttl);
+	}
+
+	/**
+	 * @param unit
+	 *            unit of the returned time
+	 * @return the time a failed lookup is cached
+	 */
+	public long getNegativeTtl(final TimeUnit unit) {
+
+		return unit.convert(negativeTtlNanos, TimeUnit.NANOSECONDS);
+	}
 
-		return dataSource;
+	/**
+	 * Returns the cache entry of a datasource, creating it if needed.
+	 * 
+	 * @param jndiDsname
+	 *            JNDI datasource name
+	 * @return the cache entry
+	 */
+	private Entry entry(final String jndiDsname) {
+
+		return cache.computeIfAbsent(normalize(jndiDsname), Entry::new);
+	}
+
+	/**
+	 * Normalizes a JNDI name, caching the result.
+	 * 
+	 * @param jndiDsname
+	 *            JNDI datasource name
+	 * @return the normalized name
+	 */
+	private String normalize(final String jndiDsname) {
+
+		String dsName = jndiDsname == null ? null : names.get(jndiDsname);
+		if (dsName == null) {
+			dsName = NORMALIZER.normalize(jndiDsname);
+			if (names.size() < MAX_CACHED_NAMES) {
+				names.putIfAbsent(jndiDsname, dsName);
+			}
+		}
+		return dsName;
+	}
+
+	/**
+	 * Performs a JNDI lookup.
+	 */
+	interface Lookup {
+
+		/**
+		 * @param name
+		 *            normalized JNDI name
+		 * @return the bound object
+		 * @throws NamingException
+		 *             thrown if the name can't be looked up
+		 */
+		Object lookup(String name) throws NamingException;
+	}
+
+	/**
+	 * The cached datasource (or failed lookup) of a JNDI name.
+	 */
+	private final class Entry {
+
+		/**
+		 * Normalized JNDI name.
+		 */
+		private final String name;
+
+		/**
+		 * The datasource (null until looked up).
+		 */
+		private volatile DataSource dataSource;
+
+		/**
+		 * Exception of the last failed lookup (null if none).
+		 */
+		private NamingException failure;
+
+		/**
+		 * {@link System#nanoTime()} until which the failure is cached.
+		 */
+		private long failedUntil;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name
+		 *            normalized JNDI name
+		 */
+		Entry(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Returns the datasource, looking it up if it hasn't been yet and no
+		 * failed lookup is cached.
+		 * 
+		 * @return the datasource
+		 * @throws NamingException
+		 *             thrown if the lookup fails or a failure is cached
+		 */
+		DataSource get() throws NamingException {
+			DataSource ds = dataSource;
+			if (ds != null) {
+				return ds;
+			}
+			synchronized (this) {
+				if (dataSource != null) {
+					return dataSource;
+				}
+				if (failure != null && failedUntil - System.nanoTime() > 0) {
+					throw failure;
+				}
+				try {
+					dataSource = (DataSource) lookup.lookup(name);
+					failure = null;
+					return dataSource;
+				} catch (NamingException e) {
+					failure = e;
+					failedUntil = System.nanoTime() + negativeTtlNanos;
+					throw e;
+				}
+			}
+		}
+
+		/**
+		 * Looks up the datasource again, replacing the cached one if the
+		 * lookup succeeds.
+		 * 
+		 * @return the new datasource
+		 * @throws NamingException
+		 *             thrown if the lookup fails
+		 */
+		DataSource reload() throws NamingException {
+			DataSource ds = (DataSource) lookup.lookup(name);
+			synchronized (this) {
+				dataSource = ds;
+				failure = null;
+			}
+			return ds;
+		}
 	}
 }
@@ -0,0 +1,91 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.utils.database;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base class for the parsers that read a datasource XML file in a single
+ * streaming (StAX) pass. No DOM is built, DTDs and external entities aren't
+ * processed and the file is closed when done. Subclasses only read the
+ * document.
+ * 
+ * @author drothauser
+ * 
+ */
+public abstract class StaxDatasourceParser implements DatasourceParser {
+
+	/**
+	 * Factory for the StAX readers. DTDs and external entities aren't
+	 * processed; once configured the factory is safe to share between threads.
+	 */
+	private static final XMLInputFactory XML_INPUT_FACTORY =
+	    newXMLInputFactory();
+
+	/**
+	 * SLF4J Logger for the parser.
+	 */
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, BasicDataSource> parse(File datasourceFile) {
+
+		try (InputStream in =
+		    new BufferedInputStream(new FileInputStream(datasourceFile))) {
+			XMLStreamReader reader =
+			    XML_INPUT_FACTORY.createXMLStreamReader(in);
+			try {
+				return parse(reader);
+			} finally {
+				reader.close();
+			}
+		} catch (Exception e) {
+			String errmsg = String.format("Error processing %s file: %s",
+			    datasourceFile.getAbsoluteFile(), e.toString());
+			logger.error(errmsg, e);
+			throw new DatasourceParserException(errmsg, e);
+		}
+	}
+
+	/**
+	 * Reads the datasources of the document.
+	 * 
+	 * @param reader
+	 *            reader positioned at the start of the document
+	 * @return map of logical datasource names and their datasources
+	 * @throws XMLStreamException
+	 *             thrown if the document isn't well-formed
+	 */
+	protected abstract Map<String, BasicDataSource> parse(
+	    XMLStreamReader reader) throws XMLStreamException;
+
+	/**
+	 * Creates the factory for the StAX readers.
+	 * 
+	 * @return {@link XMLInputFactory} that doesn't process DTDs or external
+	 *         entities
+	 */
+	private static XMLInputFactory newXMLInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+		    Boolean.FALSE);
+		return factory;
+	}
+}
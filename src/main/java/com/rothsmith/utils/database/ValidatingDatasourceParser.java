@@ -4,24 +4,20 @@
 package com.rothsmith.utils.database;
 
 import java.io.File;
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.dbcp.BasicDataSource;
-import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+
+import com.rothsmith.utils.database.ValidationReport.Result;
 
 /**
  * Class for parsing a datasource file. It will also validate each datasource in
- * the file. This class is a simple decorator that adds validation to the
- * {@link #parse(File)} method.
+ * the file (in parallel, see {@link DatasourceValidator}). This class is a
+ * simple decorator that adds validation to the {@link #parse(File)} method.
  * 
  * @version $Revision: 1705 $
  * 
@@ -31,57 +27,41 @@ import org.slf4j.LoggerFactory;
 public class ValidatingDatasourceParser implements DatasourceParser {
 
 	/**
-	 * SLF4J Logger for ValidatingDatasourceParser.
+	 * {@link DatasourceParser} to be decorated (i.e. wrapped).
 	 */
-	private static final Logger LOGGER =
-	    LoggerFactory.getLogger(ValidatingDatasourceParser.class);
+	private final DatasourceParser datasourceParser;
 
 	/**
-	 * {@link DatasourceParser} to be decorated (i.e. wrapped).
+	 * Validates the parsed datasources.
 	 */
-	private final DatasourceParser datasourceParser;
+	private final DatasourceValidator validator;
 
 	/**
 	 * Constructor for setting the {@link DatasourceParser} object to be
-	 * decorated.
+	 * decorated. The datasources are validated with the default parallelism
+	 * and timeouts of {@link DatasourceValidator}.
 	 * 
 	 * @param datasourceParser
 	 *            {@link DatasourceParser} to be decorated
 	 */
 	public ValidatingDatasourceParser(DatasourceParser datasourceParser) {
-		this.datasourceParser = datasourceParser;
+		this(datasourceParser, new DatasourceValidator());
 	}
 
 	/**
-	 * This method checks that a valid connection can be made using the given
-	 * {@link BasicDataSource}.
+	 * Constructor for setting the {@link DatasourceParser} object to be
+	 * decorated and the {@link DatasourceValidator} that validates its
+	 * datasources.
 	 * 
-	 * @param dsName
-	 *            Logical name of the datasource.
-	 * @param bds
-	 *            {@link BasicDataSource} object.
-	 * @return true if can connect to the datasource, else false.
+	 * @param datasourceParser
+	 *            {@link DatasourceParser} to be decorated
+	 * @param validator
+	 *            {@link DatasourceValidator} to validate the datasources with
 	 */
-	private boolean isOk(String dsName, BasicDataSource bds) {
-
-		boolean ok = true;
-
-		Connection conn = null; // NOPMD:DbUtils.closeQuietly closes it
-
-		LOGGER.info("Checking " + dsName + "...");
-
-		try {
-			conn = bds.getConnection();
-			LOGGER.info(dsName + " OK.");
-		} catch (SQLException e) {
-			ok = false;
-			LOGGER.error(String.format(
-			    "Could not connect using properties: %s%n%n%s", bds, e));
-		} finally {
-			DbUtils.closeQuietly(conn);
-		}
-
-		return ok;
+	public ValidatingDatasourceParser(DatasourceParser datasourceParser,
+	    DatasourceValidator validator) {
+		this.datasourceParser = datasourceParser;
+		this.validator = validator;
 	}
 
 	/**
@@ -90,18 +70,18 @@ public class ValidatingDatasourceParser implements DatasourceParser {
 	@Override
 	public Map<String, BasicDataSource> parse(File datasourceFile) {
 
-		List<String> errantDatasources = new ArrayList<String>();
-
 		Map<String, BasicDataSource> dsMap =
 		    datasourceParser.parse(datasourceFile);
-		for (Entry<String, BasicDataSource> entry : dsMap.entrySet()) {
-			String dsName = entry.getKey();
-			if (!isOk(dsName, entry.getValue())) {
-				errantDatasources.add(dsName);
-			}
-		}
 
-		if (!CollectionUtils.isEmpty(errantDatasources)) {
+		ValidationReport report = validator.validate(dsMap);
+
+		List<Result> failures = report.getFailures();
+		if (!CollectionUtils.isEmpty(failures)) {
+			List<String> errantDatasources =
+			    new ArrayList<String>(failures.size());
+			for (Result failure : failures) {
+				errantDatasources.add(failure.toString());
+			}
 			String errmsg = String.format(
 			    "%nCould not connect to the following datasources:%n %s",
 			    StringUtils.join(errantDatasources, "\n"));
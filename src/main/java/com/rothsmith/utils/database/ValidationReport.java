@@ -0,0 +1,253 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.utils.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of validating the datasources of a datasource file with a
+ * {@link DatasourceValidator}: the outcome and latency of each datasource, in
+ * the order they were given, and the total time the validation took.
+ * 
+ * @author drothauser
+ * 
+ */
+public final class ValidationReport {
+
+	/**
+	 * Outcome of validating a datasource.
+	 */
+	public enum Status {
+
+		/**
+		 * A connection could be made.
+		 */
+		OK,
+
+		/**
+		 * Connecting failed.
+		 */
+		FAILED,
+
+		/**
+		 * Connecting took longer than the per-datasource or overall timeout.
+		 */
+		TIMED_OUT,
+
+		/**
+		 * The validation wasn't started before the overall timeout.
+		 */
+		SKIPPED
+	}
+
+	/**
+	 * Results, in the order the datasources were given.
+	 */
+	private final List<Result> results;
+
+	/**
+	 * Nanoseconds the validation took.
+	 */
+	private final long elapsedNanos;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param results
+	 *            results, in the order the datasources were given
+	 * @param elapsedNanos
+	 *            nanoseconds the validation took
+	 */
+	ValidationReport(List<Result> results, long elapsedNanos) {
+		this.results = Collections.unmodifiableList(results);
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return results, in the order the datasources were given
+	 */
+	public List<Result> getResults() {
+		return results;
+	}
+
+	/**
+	 * @return the results of the datasources that aren't {@link Status#OK}
+	 */
+	public List<Result> getFailures() {
+		List<Result> failures = new ArrayList<Result>();
+		for (Result result : results) {
+			if (result.getStatus() != Status.OK) {
+				failures.add(result);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * @return true if all datasources are {@link Status#OK}
+	 */
+	public boolean isOk() {
+		return getFailures().isEmpty();
+	}
+
+	/**
+	 * @param unit
+	 *            unit of the returned time
+	 * @return time the validation took
+	 */
+	public long getElapsed(TimeUnit unit) {
+		return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Renders the report as a table with a line per datasource.
+	 * 
+	 * @return the report
+	 */
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder();
+		buffer.append(String.format("Validated %d datasources in %d ms:",
+		    results.size(), getElapsed(TimeUnit.MILLISECONDS)));
+		for (Result result : results) {
+			buffer.append(String.format("%n  %-30s %-9s %6d ms",
+			    result.getName(), result.getStatus(),
+			    result.getLatency(TimeUnit.MILLISECONDS)));
+			if (result.roundTripNanos > 0) {
+				buffer.append(String.format("  (round trip %d us)",
+				    result.getRoundTrip(TimeUnit.MICROSECONDS)));
+			}
+			if (result.getError() != null) {
+				buffer.append("  ").append(result.getError());
+			}
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Outcome of validating a datasource.
+	 */
+	public static final class Result {
+
+		/**
+		 * Logical name of the datasource.
+		 */
+		private final String name;
+
+		/**
+		 * Outcome.
+		 */
+		private final Status status;
+
+		/**
+		 * Nanoseconds the validation took (until it timed out, if it did).
+		 */
+		private final long latencyNanos;
+
+		/**
+		 * Nanoseconds the round trip of the validation query took (0 if
+		 * none was made).
+		 */
+		private final long roundTripNanos;
+
+		/**
+		 * Error message (null if OK).
+		 */
+		private final String error;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name
+		 *            logical name of the datasource
+		 * @param status
+		 *            outcome
+		 * @param latencyNanos
+		 *            nanoseconds the validation took
+		 * @param error
+		 *            error message or null if OK
+		 */
+		Result(String name, Status status, long latencyNanos, String error) {
+			this(name, status, latencyNanos, 0, error);
+		}
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name
+		 *            logical name of the datasource
+		 * @param status
+		 *            outcome
+		 * @param latencyNanos
+		 *            nanoseconds the validation took
+		 * @param roundTripNanos
+		 *            nanoseconds the round trip of the validation query took
+		 *            or 0 if none was made
+		 * @param error
+		 *            error message or null if OK
+		 */
+		Result(String name, Status status, long latencyNanos,
+		    long roundTripNanos, String error) {
+			this.name = name;
+			this.status = status;
+			this.latencyNanos = latencyNanos;
+			this.roundTripNanos = roundTripNanos;
+			this.error = error;
+		}
+
+		/**
+		 * @return logical name of the datasource
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return outcome
+		 */
+		public Status getStatus() {
+			return status;
+		}
+
+		/**
+		 * @param unit
+		 *            unit of the returned time
+		 * @return time the validation took (until it timed out, if it did)
+		 */
+		public long getLatency(TimeUnit unit) {
+			return unit.convert(latencyNanos, TimeUnit.NANOSECONDS);
+		}
+
+		/**
+		 * @param unit
+		 *            unit of the returned time
+		 * @return time the round trip of the validation query (or
+		 *         {@link java.sql.Connection#isValid(int)}) took on the
+		 *         connection, or 0 if none was made
+		 */
+		public long getRoundTrip(TimeUnit unit) {
+			return unit.convert(roundTripNanos, TimeUnit.NANOSECONDS);
+		}
+
+		/**
+		 * @return error message or null if OK
+		 */
+		public String getError() {
+			return error;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String toString() {
+			return name + " " + status + " ("
+			    + getLatency(TimeUnit.MILLISECONDS) + " ms)"
+			    + (error == null ? "" : ": " + error);
+		}
+	}
+}
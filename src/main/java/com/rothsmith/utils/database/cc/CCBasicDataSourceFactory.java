@@ -9,6 +9,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.lang3.StringUtils;
 
 import com.rothsmith.utils.database.BasicDataSourceFactory;
 
@@ -65,6 +66,14 @@ public enum CCBasicDataSourceFactory implements BasicDataSourceFactory {
 			bds.setUsername(dsProps.get("username"));
 			bds.setPassword(dsProps.get("password"));
 			bds.setUrl(dsProps.get("dburl"));
+			// prepared statement pooling is off unless a maximum is set
+			String maxOpenPreparedStatements =
+			    dsProps.get("maxOpenPreparedStatements");
+			if (StringUtils.isNotEmpty(maxOpenPreparedStatements)) {
+				int maxOpen = Integer.parseInt(maxOpenPreparedStatements);
+				bds.setPoolPreparedStatements(maxOpen > 0);
+				bds.setMaxOpenPreparedStatements(maxOpen);
+			}
 		} else {
 			throw new IllegalArgumentException(
 			    dburl + " does is not a supported JDBC URL");
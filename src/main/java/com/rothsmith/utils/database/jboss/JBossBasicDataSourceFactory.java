@@ -45,6 +45,14 @@ public enum JBossBasicDataSourceFactory implements BasicDataSourceFactory {
 		bds.setValidationQuery(dsProps.get("check-valid-connection-sql"));
 		bds.setDefaultAutoCommit(BooleanUtils.toBoolean(StringUtils
 		    .defaultIfEmpty(dsProps.get("defaultAutoCommit"), "true")));
+		// prepared statement pooling is off unless a maximum is set
+		String maxOpenPreparedStatements =
+		    dsProps.get("prepared-statement-cache-size");
+		if (StringUtils.isNotEmpty(maxOpenPreparedStatements)) {
+			int maxOpen = Integer.parseInt(maxOpenPreparedStatements);
+			bds.setPoolPreparedStatements(maxOpen > 0);
+			bds.setMaxOpenPreparedStatements(maxOpen);
+		}
 
 		return bds;
 
@@ -3,25 +3,17 @@
  */
 package com.rothsmith.utils.database.jboss;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.util.HashMap;
 import java.util.Map;
 
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.dbcp.BasicDataSource;
 import org.apache.commons.lang3.StringUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 
-import com.rothsmith.utils.database.DatasourceParser;
-import com.rothsmith.utils.database.DatasourceParserException;
+import com.rothsmith.utils.database.StaxDatasourceParser;
 
 /**
  * Class for parsing and unmarshalling (deserializing) a JBoss datasource XML
@@ -36,79 +28,116 @@ import com.rothsmith.utils.database.DatasourceParserException;
  * @author drothauser
  * 
  */
-public class JBossDatasourceParser implements DatasourceParser {
+public class JBossDatasourceParser extends StaxDatasourceParser {
 
 	/**
-	 * SLF4J Logger for JBossDatasourceParser.
-	 */
-	private static final Logger LOGGER =
-	    LoggerFactory.getLogger(JBossDatasourceParser.class);
-
-	/**
-	 * {@inheritDoc}
+	 * Reads the {@code /datasources/local-tx-datasource} elements of a JBoss
+	 * datasource document.
+	 * 
+	 * @param reader
+	 *            reader positioned at the start of the document
+	 * @return map of logical datasource names and their datasources
+	 * @throws XMLStreamException
+	 *             thrown if the document isn't well-formed
 	 */
 	@Override
-	public Map<String, BasicDataSource> parse(File datasourceFile) {
-
-		try {
-			XPathFactory factory = XPathFactory.newInstance();
-			XPath xpath = factory.newXPath();
-
-			InputSource source =
-			    new InputSource(new FileInputStream(datasourceFile));
-
-			String xpathExpr = "/datasources/local-tx-datasource";
-			Object result =
-			    xpath.evaluate(xpathExpr, source, XPathConstants.NODESET);
-			NodeList nodes = (NodeList) result;
-			int nodeCount = nodes.getLength();
-
-			Map<String, BasicDataSource> dsMap =
-			    new HashMap<String, BasicDataSource>(nodeCount);
-
-			for (int i = 0; i < nodeCount; i++) {
-				Node node = nodes.item(i);
-				NodeList childNodes = node.getChildNodes();
+	protected Map<String, BasicDataSource> parse(XMLStreamReader reader)
+	        throws XMLStreamException {
+
+		Map<String, BasicDataSource> dsMap =
+		    new HashMap<String, BasicDataSource>();
+
+		int depth = 0;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				String name = reader.getLocalName();
+				if (depth == 1 && !"datasources".equals(name)) {
+					break;
+				}
+				if (depth == 2 && "local-tx-datasource".equals(name)) {
+					addDatasource(reader, dsMap);
+					depth--;
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
 
-				Map<String, String> dsPropertyMap =
-				    new HashMap<String, String>(nodeCount);
+		return dsMap;
+	}
 
-				String dsName = null;
-				int childNodeCount = childNodes.getLength();
-				for (int j = 0; j < childNodeCount; j++) {
-					Node childNode = childNodes.item(j);
-					if (childNode.getNodeType() == Node.ELEMENT_NODE) {
-						String propName = childNode.getNodeName();
-						String propValue =
-						    StringUtils.trim(childNode.getTextContent());
-						if ("jndi-name".equalsIgnoreCase(propName)) {
-							dsName = propValue;
-						} else if ("connection-property"
-						    .equalsIgnoreCase(propName)) {
-							String connPropName = childNode.getAttributes()
-							    .getNamedItem("name").getTextContent();
-							if ("autoCommit".equalsIgnoreCase(connPropName)) {
-								dsPropertyMap.put("defaultAutoCommit",
-								    propValue);
-							}
-						} else {
-							dsPropertyMap.put(propName, propValue);
-						}
+	/**
+	 * Reads a {@code local-tx-datasource} element and adds its datasource to
+	 * the map if it has a JNDI name.
+	 * 
+	 * @param reader
+	 *            reader positioned at the start of the element; it is left at
+	 *            the end of the element
+	 * @param dsMap
+	 *            map of logical datasource names and their datasources
+	 * @throws XMLStreamException
+	 *             thrown if the document isn't well-formed
+	 */
+	private static void addDatasource(XMLStreamReader reader,
+	    Map<String, BasicDataSource> dsMap) throws XMLStreamException {
+
+		Map<String, String> dsPropertyMap = new HashMap<String, String>();
+
+		String dsName = null;
+		int event;
+		while ((event = reader.next()) != XMLStreamConstants.END_ELEMENT) {
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String propName = reader.getLocalName();
+				String connPropName = reader.getAttributeValue(null, "name");
+				String propValue = StringUtils.trim(readText(reader));
+				if ("jndi-name".equalsIgnoreCase(propName)) {
+					dsName = propValue;
+				} else if ("connection-property".equalsIgnoreCase(propName)) {
+					if ("autoCommit".equalsIgnoreCase(connPropName)) {
+						dsPropertyMap.put("defaultAutoCommit", propValue);
 					}
-				}
-				if (dsName != null) {
-					dsMap.put(dsName, JBossBasicDataSourceFactory.INSTANCE
-					    .createBasicDataSource(dsPropertyMap));
+				} else {
+					dsPropertyMap.put(propName, propValue);
 				}
 			}
+		}
+		if (dsName != null) {
+			dsMap.put(dsName, JBossBasicDataSourceFactory.INSTANCE
+			    .createBasicDataSource(dsPropertyMap));
+		}
+	}
 
-			return dsMap;
-
-		} catch (Exception e) {
-			String errmsg = String.format("Error processing %s file: %s",
-			    datasourceFile.getAbsoluteFile(), e.toString());
-			LOGGER.error(errmsg, e);
-			throw new DatasourceParserException(errmsg, e);
+	/**
+	 * Reads the text content of an element, including the text of any nested
+	 * elements (like DOM's {@code getTextContent()}).
+	 * 
+	 * @param reader
+	 *            reader positioned at the start of the element; it is left at
+	 *            the end of the element
+	 * @return text content of the element
+	 * @throws XMLStreamException
+	 *             thrown if the document isn't well-formed
+	 */
+	private static String readText(XMLStreamReader reader)
+	        throws XMLStreamException {
+
+		StringBuilder text = new StringBuilder();
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			} else if (event == XMLStreamConstants.CHARACTERS
+			    || event == XMLStreamConstants.CDATA
+			    || event == XMLStreamConstants.SPACE) {
+				text.append(reader.getTextCharacters(), reader.getTextStart(),
+				    reader.getTextLength());
+			}
 		}
+		return text.toString();
 	}
 }
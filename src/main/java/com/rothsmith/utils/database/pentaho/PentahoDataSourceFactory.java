@@ -6,6 +6,7 @@ package com.rothsmith.utils.database.pentaho;
 import java.util.Map;
 
 import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.lang3.StringUtils;
 
 import com.rothsmith.utils.database.BasicDataSourceFactory;
 
@@ -34,6 +35,14 @@ public enum PentahoDataSourceFactory implements BasicDataSourceFactory {
 		bds.setUsername(dsProps.get("user"));
 		bds.setPassword(dsProps.get("password"));
 		bds.setUrl(dsProps.get("url"));
+		// prepared statement pooling is off unless a maximum is set
+		String maxOpenPreparedStatements =
+		    dsProps.get("maxOpenPreparedStatements");
+		if (StringUtils.isNotEmpty(maxOpenPreparedStatements)) {
+			int maxOpen = Integer.parseInt(maxOpenPreparedStatements);
+			bds.setPoolPreparedStatements(maxOpen > 0);
+			bds.setMaxOpenPreparedStatements(maxOpen);
+		}
 
 		return bds;
 	}
@@ -56,6 +56,21 @@ public enum TomcatBasicDataSourceFactory implements BasicDataSourceFactory {
 		    .defaultIfEmpty(dsProps.get("removeAbandonedTimeout"), "1")));
 		bds.setLogAbandoned(BooleanUtils.toBoolean(
 		    StringUtils.defaultIfEmpty(dsProps.get("logAbandoned"), "false")));
+		// prepared statement pooling is off unless poolPreparedStatements is
+		// true or a maximum is set (and poolPreparedStatements isn't false)
+		String maxOpenPreparedStatements =
+		    dsProps.get("maxOpenPreparedStatements");
+		String poolPreparedStatements = dsProps.get("poolPreparedStatements");
+		if (StringUtils.isNotEmpty(maxOpenPreparedStatements)) {
+			int maxOpen = Integer.parseInt(maxOpenPreparedStatements);
+			bds.setPoolPreparedStatements(maxOpen > 0 && BooleanUtils.toBoolean(
+			    StringUtils.defaultIfEmpty(poolPreparedStatements, "true")));
+			bds.setMaxOpenPreparedStatements(maxOpen);
+		} else if (BooleanUtils.toBoolean(poolPreparedStatements)) {
+			bds.setPoolPreparedStatements(true);
+			bds.setMaxOpenPreparedStatements(
+			    DEFAULT_MAX_OPEN_PREPARED_STATEMENTS);
+		}
 
 		return bds;
 	}
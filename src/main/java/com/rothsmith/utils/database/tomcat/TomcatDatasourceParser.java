@@ -3,26 +3,17 @@
  */
 package com.rothsmith.utils.database.tomcat;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.util.HashMap;
 import java.util.Map;
 
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.dbcp.BasicDataSource;
 import org.apache.commons.lang3.StringUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 
-import com.rothsmith.utils.database.DatasourceParser;
-import com.rothsmith.utils.database.DatasourceParserException;
+import com.rothsmith.utils.database.StaxDatasourceParser;
 
 /**
  * Class for parsing and unmarshalling (deserializing) a Tomcat context.xml file
@@ -37,49 +28,41 @@ import com.rothsmith.utils.database.DatasourceParserException;
  * @author drothauser
  * 
  */
-public class TomcatDatasourceParser implements DatasourceParser {
+public class TomcatDatasourceParser extends StaxDatasourceParser {
 
 	/**
-	 * SLF4J Logger for JBossDatasourceParser.
-	 */
-	private static final Logger LOGGER =
-	    LoggerFactory.getLogger(TomcatDatasourceParser.class);
-
-	/**
-	 * {@inheritDoc}
+	 * Reads the datasource {@code Resource} elements of a Tomcat context.xml
+	 * or server.xml document: every {@code Resource} element (at any depth) of
+	 * type {@code javax.sql.DataSource} with a {@code jdbc/} name.
+	 * 
+	 * @param reader
+	 *            reader positioned at the start of the document
+	 * @return map of logical datasource names and their datasources
+	 * @throws XMLStreamException
+	 *             thrown if the document isn't well-formed
 	 */
 	@Override
-	public Map<String, BasicDataSource> parse(File datasourceFile) {
-
-		try {
-			XPathFactory factory = XPathFactory.newInstance();
-			XPath xpath = factory.newXPath();
-
-			InputSource source =
-			    new InputSource(new FileInputStream(datasourceFile));
+	protected Map<String, BasicDataSource> parse(XMLStreamReader reader)
+	        throws XMLStreamException {
 
-			String xpathExpr = "//Resource[@type='javax.sql.DataSource']";
-			Object result =
-			    xpath.evaluate(xpathExpr, source, XPathConstants.NODESET);
-			NodeList nodes = (NodeList) result;
-			int nodeCount = nodes.getLength();
+		Map<String, BasicDataSource> dsMap =
+		    new HashMap<String, BasicDataSource>();
 
-			Map<String, BasicDataSource> dsMap =
-			    new HashMap<String, BasicDataSource>(nodeCount);
-
-			for (int i = 0; i < nodeCount; i++) {
-				Node node = nodes.item(i);
+		while (reader.hasNext()) {
+			if (reader.next() == XMLStreamConstants.START_ELEMENT
+			    && "Resource".equals(reader.getLocalName())
+			    && StringUtils.isEmpty(reader.getNamespaceURI())
+			    && "javax.sql.DataSource"
+			        .equals(reader.getAttributeValue(null, "type"))) {
 
 				Map<String, String> dsPropertyMap =
-				    new HashMap<String, String>(nodeCount);
+				    new HashMap<String, String>();
 
 				String dsName = null;
-				NamedNodeMap attributes = node.getAttributes();
-				int attributeCount = attributes.getLength();
-				for (int j = 0; j < attributeCount; j++) {
-					Node attribute = attributes.item(j);
-					String propName = attribute.getNodeName();
-					String propValue = attribute.getNodeValue();
+				int attributeCount = reader.getAttributeCount();
+				for (int i = 0; i < attributeCount; i++) {
+					String propName = reader.getAttributeLocalName(i);
+					String propValue = reader.getAttributeValue(i);
 					if (StringUtils.startsWith(StringUtils.lowerCase(propValue),
 					    "jdbc/")) {
 						dsName = StringUtils.substringAfter(propValue, "jdbc/");
@@ -91,16 +74,9 @@ public class TomcatDatasourceParser implements DatasourceParser {
 					dsMap.put(dsName, TomcatBasicDataSourceFactory.INSTANCE
 					    .createBasicDataSource(dsPropertyMap));
 				}
-
 			}
-
-			return dsMap;
-
-		} catch (Exception e) {
-			String errmsg = String.format("Error processing %s file: %s",
-			    datasourceFile.getAbsoluteFile(), e.toString());
-			LOGGER.error(errmsg, e);
-			throw new DatasourceParserException(errmsg, e);
 		}
+
+		return dsMap;
 	}
 }
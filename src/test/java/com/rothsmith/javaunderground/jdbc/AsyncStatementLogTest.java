@@ -0,0 +1,161 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link AsyncStatementLog}.
+ * 
+ * @author drothauser
+ * 
+ */
+public class AsyncStatementLogTest {
+
+	/**
+	 * Derby in-memory database URL.
+	 */
+	private static final String URL =
+	    "jdbc:derby:memory:asynclogdb;create=true";
+
+	/**
+	 * Stop handing executions to the log.
+	 */
+	@After
+	public void tearDown() {
+		StatementFactory.setStatementLog(null);
+	}
+
+	/**
+	 * Test that captured executions are written to the log.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 * @throws IOException
+	 *             possible I/O error
+	 */
+	@Test
+	public void testWrite() throws SQLException, IOException {
+		StringWriter writer = new StringWriter();
+		AsyncStatementLog log = new AsyncStatementLog(writer,
+		    AsyncStatementLog.DEFAULT_CAPACITY,
+		    AsyncStatementLog.DEFAULT_BATCH_SIZE);
+		StatementFactory.setStatementLog(log);
+
+		Connection conn = DriverManager.getConnection(URL);
+		PreparedStatement query = StatementFactory.getStatement(conn,
+		    "SELECT 1 FROM SYSIBM.SYSDUMMY1 WHERE 1 = ?",
+		    new BaseSqlFormatter(), DebugLevel.sampled(1));
+		try {
+			for (int i = 0; i < 3; i++) {
+				query.setInt(1, i);
+				DbUtils.closeQuietly(query.executeQuery());
+			}
+		} finally {
+			DbUtils.closeQuietly(query);
+			DbUtils.closeQuietly(conn);
+		}
+		log.close();
+
+		String[] lines = writer.toString().split("\\R");
+		assertEquals(3, lines.length);
+		for (int i = 0; i < 3; i++) {
+			assertTrue(lines[i], lines[i].contains(
+			    " sampled statement executed in "));
+			assertTrue(lines[i], lines[i].endsWith(
+			    " milliseconds: SELECT 1 FROM SYSIBM.SYSDUMMY1 WHERE 1 = " + i));
+		}
+		assertEquals(3, log.getWritten());
+		assertEquals(0, log.getDropped());
+	}
+
+	/**
+	 * Test that snapshots are dropped (and counted) rather than blocking when
+	 * the writer falls behind.
+	 * 
+	 * @throws IOException
+	 *             possible I/O error
+	 */
+	@Test
+	public void testDropOnOverflow() throws IOException {
+		final CountDownLatch release = new CountDownLatch(1);
+		StringWriter writer = new StringWriter() {
+			@Override
+			public void flush() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		AsyncStatementLog log = new AsyncStatementLog(writer, 2, 1);
+		SqlTemplate template = SqlTemplate.of("DELETE FROM T WHERE ID = ?");
+		int offered = 10;
+		for (int i = 0; i < offered; i++) {
+			log.offer(new StatementSnapshot(template, new Object[] { i },
+			    new BaseSqlFormatter(), 0, true, true));
+		}
+		// at most 2 queued and 1 being written
+		assertTrue(log.getDropped() >= offered - 3);
+		release.countDown();
+		log.close();
+		assertEquals(offered, log.getWritten() + log.getDropped());
+		assertFalse(log.offer(new StatementSnapshot(template,
+		    new Object[] { 0 }, new BaseSqlFormatter(), 0, true, true)));
+	}
+
+	/**
+	 * Test that every snapshot offered while the log is being closed is
+	 * either written or counted as dropped.
+	 * 
+	 * @throws Exception
+	 *             possible I/O or concurrency error
+	 */
+	@Test
+	public void testCloseWhileOffering() throws Exception {
+		final AsyncStatementLog log =
+		    new AsyncStatementLog(new StringWriter(), 1000, 10);
+		final SqlTemplate template =
+		    SqlTemplate.of("DELETE FROM T WHERE ID = ?");
+		final AtomicLong offered = new AtomicLong();
+		final CountDownLatch started = new CountDownLatch(4);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				started.countDown();
+				boolean accepted = true;
+				while (accepted) {
+					offered.incrementAndGet();
+					accepted = log.offer(new StatementSnapshot(template,
+					    new Object[] { 1 }, new BaseSqlFormatter(), 0, true,
+					    false));
+				}
+			});
+			threads[t].start();
+		}
+		started.await();
+		log.close();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(offered.get(), log.getWritten() + log.getDropped());
+		assertEquals(0, log.getQueued());
+	}
+}
@@ -6,20 +6,24 @@ package com.rothsmith.javaunderground.jdbc;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.lang.reflect.Proxy;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.Ref;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.dbcp.BasicDataSource;
 import org.apache.commons.dbutils.DbUtils;
@@ -459,6 +463,86 @@ public class BaseSqlFormatterTest {
 
 	}
 
+	/**
+	 * Test method for {@link BaseSqlFormatter#format(Object, StringBuilder)}:
+	 * formatting into a buffer gives the same result as
+	 * {@link BaseSqlFormatter#format(Object)}.
+	 * 
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	@Test
+	public void testFormatToBuffer() throws SQLException {
+		Object[] objects = { null, testString, Integer.valueOf(-1),
+		    Long.valueOf(Long.MAX_VALUE), Boolean.TRUE, Double.valueOf(1.5),
+		    new java.math.BigDecimal("12.50") };
+		StringBuilder buffer = new StringBuilder("x=");
+		for (Object object : objects) {
+			buffer.setLength(2);
+			baseSqlFormatter.format(object, buffer);
+			assertEquals("x=" + baseSqlFormatter.format(object),
+			    buffer.toString());
+		}
+	}
+
+	/**
+	 * Test that large Strings and byte arrays are rendered truncated, with
+	 * their length.
+	 * 
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	@Test
+	public void testFormatBounded() throws SQLException {
+		try {
+			BaseSqlFormatter.setMaxStringLength(3);
+			BaseSqlFormatter.setMaxBytesLength(2);
+
+			assertEquals("'abc'", baseSqlFormatter.format("abc"));
+			assertEquals("'abc'... /* 5 chars */",
+			    baseSqlFormatter.format("abcde"));
+			// a surrogate pair isn't split:
+			assertEquals("'ab'... /* 4 chars */",
+			    baseSqlFormatter.format("ab\uD83D\uDE00"));
+			assertEquals("X'0AFF'",
+			    baseSqlFormatter.format(new byte[] { 10, -1 }));
+			assertEquals("X'0AFF'... /* 3 bytes */",
+			    baseSqlFormatter.format(new byte[] { 10, -1, 0 }));
+			assertEquals("'<Blob>'", baseSqlFormatter.format((Object) blob));
+			assertEquals("'<Clob>'", baseSqlFormatter.format((Object) clob));
+
+			StringBuilder buffer = new StringBuilder();
+			baseSqlFormatter.format("abcde", buffer);
+			assertEquals(baseSqlFormatter.format("abcde"), buffer.toString());
+		} finally {
+			BaseSqlFormatter
+			    .setMaxStringLength(BaseSqlFormatter.DEFAULT_MAX_STRING_LENGTH);
+			BaseSqlFormatter
+			    .setMaxBytesLength(BaseSqlFormatter.DEFAULT_MAX_BYTES_LENGTH);
+		}
+	}
+
+	/**
+	 * Test that single quotes in Strings and Characters are doubled.
+	 * 
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	@Test
+	public void testFormatEscaped() throws SQLException {
+		assertEquals("'O''Brien'", baseSqlFormatter.format("O'Brien"));
+		assertEquals("''''''", baseSqlFormatter.format("''"));
+		assertEquals("''''", baseSqlFormatter.format(Character.valueOf('\'')));
+		try {
+			BaseSqlFormatter.setMaxStringLength(2);
+			assertEquals("'a'''... /* 3 chars */",
+			    baseSqlFormatter.format("a'b"));
+		} finally {
+			BaseSqlFormatter
+			    .setMaxStringLength(BaseSqlFormatter.DEFAULT_MAX_STRING_LENGTH);
+		}
+	}
+
 	/**
 	 * Test method for {@link BaseSqlFormatter#format(java.lang.Object)}.
 	 * 
@@ -606,4 +690,118 @@ public class BaseSqlFormatterTest {
 
 	}
 
+	/**
+	 * Test that {@link FormatterFactory} caches the formatter resolved for a
+	 * DataSource and a JDBC URL, and that the cache can be invalidated.
+	 * 
+	 * @throws SQLException
+	 *             Possible SQL connection error.
+	 */
+	@Test
+	public void testGetFormatterCached() throws SQLException {
+
+		BasicDataSource datasource = new BasicDataSource();
+		datasource
+			.setDriverClassName("org.apache.derby.jdbc.EmbeddedDriver");
+		datasource.setUrl("jdbc:derby:memory:formatterdb;create=true");
+
+		FormatterFactory factory = FormatterFactory.getInstance();
+		Connection conn = null; // NOPMD - Close by DbUtils
+
+		try {
+
+			SqlFormatter formatter = factory.getFormatter(datasource);
+			assertNotNull("formatter should not be null", formatter);
+			assertSame(formatter, factory.getFormatter(datasource));
+
+			conn = datasource.getConnection();
+			assertSame(formatter, factory.getFormatter(conn));
+			assertSame(formatter, factory.getFormatter(conn));
+
+			factory.invalidate();
+			assertSame(formatter, factory.getFormatter(datasource));
+			assertSame(formatter, factory.getFormatter(conn));
+
+		} finally {
+			DbUtils.closeQuietly(conn);
+			factory.invalidate(datasource);
+			datasource.close();
+		}
+
+	}
+
+	/**
+	 * Test that {@link FormatterFactory} caches the formatter of a Connection,
+	 * so looking it up again doesn't call the connection's metadata.
+	 * 
+	 * @throws SQLException
+	 *             Possible SQL connection error.
+	 */
+	@Test
+	public void testGetFormatterConnCached() throws SQLException {
+
+		final Connection derby = DriverManager
+		    .getConnection("jdbc:derby:memory:formatterdb;create=true");
+		final AtomicInteger metaDataCalls = new AtomicInteger();
+		Connection conn = (Connection) Proxy.newProxyInstance(
+		    getClass().getClassLoader(), new Class<?>[] { Connection.class },
+		    (proxy, method, args) -> {
+			    if ("getMetaData".equals(method.getName())) {
+				    metaDataCalls.incrementAndGet();
+			    }
+			    return method.invoke(derby, args);
+		    });
+		FormatterFactory factory = FormatterFactory.getInstance();
+
+		try {
+
+			SqlFormatter formatter = factory.getFormatter(conn);
+			assertNotNull("formatter should not be null", formatter);
+			assertEquals(1, metaDataCalls.get());
+			for (int i = 0; i < 3; i++) {
+				assertSame(formatter, factory.getFormatter(conn));
+			}
+			assertEquals(1, metaDataCalls.get());
+
+			factory.invalidate();
+			assertSame(formatter, factory.getFormatter(conn));
+			assertEquals(2, metaDataCalls.get());
+
+		} finally {
+			DbUtils.closeQuietly(derby);
+		}
+
+	}
+
+	/**
+	 * Test that {@link FormatterFactory} resolves the built-in dialect
+	 * formatters by product name pattern and the ones of service providers by
+	 * product name and version.
+	 */
+	@Test
+	public void testGetFormatterProviders() {
+
+		FormatterFactory factory = FormatterFactory.getInstance();
+
+		assertEquals(SqlServerSqlFormatter.class,
+		    factory.getFormatter(FormatterFactory.SQLSERVER_FORMATTER).getClass());
+		assertEquals(PostgreSqlFormatter.class,
+		    factory.getFormatter(FormatterFactory.POSTGRESQL_FORMATTER).getClass());
+		assertEquals(DB2SqlFormatter.class,
+		    factory.getFormatter(FormatterFactory.DERBY_FORMATTER).getClass());
+		assertEquals(DB2SqlFormatter.class,
+		    factory.getFormatter(FormatterFactory.DB2_FORMATTER).getClass());
+		assertEquals(DB2SqlFormatter.class,
+		    factory.getFormatter("DB2/LINUXX8664").getClass());
+		assertEquals(DefaultSqlFormatter.class,
+		    factory.getFormatter(FormatterFactory.DEFAULT_FORMATTER).getClass());
+
+		// registered in META-INF/services for versions 2 and 3:
+		assertEquals(PostgreSqlFormatter.class,
+		    factory.getFormatter(TestFormatterProvider.PRODUCT_NAME, 3).getClass());
+		assertNull(factory.getFormatter(TestFormatterProvider.PRODUCT_NAME, 4));
+		assertNull(factory.getFormatter("Test DB2"));
+
+	}
+
 }
@@ -0,0 +1,87 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link BatchCapture}.
+ * 
+ * @author drothauser
+ * 
+ */
+public class BatchCaptureTest {
+
+	/**
+	 * Test that values of all types survive the columnar storage.
+	 */
+	@Test
+	public void testAddAndGet() {
+		BatchCapture capture = new BatchCapture(3, 100);
+		ParameterStore parameters = new ParameterStore(3);
+		for (int i = 0; i < 50; i++) {
+			parameters.setInt(0, i);
+			if (i % 2 == 0) {
+				parameters.setDouble(1, i / 2.0);
+			} else {
+				parameters.setObject(1, null);
+			}
+			if (i % 3 == 0) {
+				parameters.setObject(2, "s" + i);
+			} else {
+				parameters.setBoolean(2, i % 2 == 0);
+			}
+			capture.add(parameters);
+		}
+		parameters.clear();
+		parameters.setLong(0, Long.MIN_VALUE);
+		parameters.setObject(1, new BigDecimal("1.5"));
+		capture.add(parameters);
+		assertEquals(51, capture.getSize());
+		assertEquals(51, capture.getCaptured());
+		for (int i = 0; i < 50; i++) {
+			assertEquals(Integer.valueOf(i), capture.get(0, i));
+			assertEquals(i % 2 == 0 ? Double.valueOf(i / 2.0) : null,
+			    capture.get(1, i));
+			assertEquals(i % 3 == 0 ? "s" + i : Boolean.valueOf(i % 2 == 0),
+			    capture.get(2, i));
+		}
+		assertEquals(Long.valueOf(Long.MIN_VALUE), capture.get(0, 50));
+		assertEquals(new BigDecimal("1.5"), capture.get(1, 50));
+		assertSame(SqlTemplate.UNBOUND, capture.get(2, 50));
+
+		capture.clear();
+		assertEquals(0, capture.getSize());
+		parameters.setObject(2, null);
+		capture.add(parameters);
+		assertNull(capture.get(2, 0));
+	}
+
+	/**
+	 * Test that entries beyond the maximum are counted but not stored.
+	 */
+	@Test
+	public void testMaxEntries() {
+		BatchCapture capture = new BatchCapture(1, 2);
+		ParameterStore parameters = new ParameterStore(1);
+		for (int i = 1; i <= 5; i++) {
+			parameters.setInt(0, i);
+			capture.add(parameters);
+		}
+		assertEquals(5, capture.getSize());
+		assertEquals(2, capture.getCaptured());
+
+		StringBuilder buffer = new StringBuilder();
+		capture.appendTo(buffer, SqlTemplate.of("DELETE FROM T WHERE ID = ?"),
+		    new BaseSqlFormatter(), "\n");
+		assertEquals("DELETE FROM T WHERE ID = 1\nDELETE FROM T WHERE ID = 2\n"
+		    + "... 3 more batch entries not captured", buffer.toString());
+	}
+}
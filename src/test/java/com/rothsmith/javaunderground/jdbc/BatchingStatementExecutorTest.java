@@ -0,0 +1,232 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.dbutils.DbUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link BatchingStatementExecutor} using an embedded (in-memory)
+ * Derby database.
+ * 
+ * @author drothauser
+ * 
+ */
+public class BatchingStatementExecutorTest {
+
+	/**
+	 * Insert statement.
+	 */
+	private static final String INSERT =
+	    "INSERT INTO EVENTS (ID, NAME) VALUES (?, ?)";
+
+	/**
+	 * DataSource of the Derby in-memory database.
+	 */
+	private BasicDataSource dataSource;
+
+	/**
+	 * Set up the test fixture - creates an empty EVENTS table.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Before
+	public void setUp() throws SQLException {
+		dataSource = new BasicDataSource();
+		dataSource.setDriverClassName("org.apache.derby.jdbc.EmbeddedDriver");
+		dataSource.setUrl("jdbc:derby:memory:batchingdb;create=true");
+		Connection conn = dataSource.getConnection();
+		Statement stmt = conn.createStatement();
+		try {
+			stmt.executeUpdate(
+			    "CREATE TABLE EVENTS (ID INT PRIMARY KEY, NAME VARCHAR(32))");
+		} catch (SQLException e) {
+			stmt.executeUpdate("DELETE FROM EVENTS");
+		} finally {
+			DbUtils.closeQuietly(stmt);
+			DbUtils.closeQuietly(conn);
+		}
+	}
+
+	/**
+	 * Close the DataSource.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@After
+	public void tearDown() throws SQLException {
+		dataSource.close();
+	}
+
+	/**
+	 * @return number of rows in the EVENTS table
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	private int countRows() throws SQLException {
+		Connection conn = dataSource.getConnection();
+		Statement stmt = conn.createStatement();
+		ResultSet rs = null;
+		try {
+			rs = stmt.executeQuery("SELECT COUNT(*) FROM EVENTS");
+			rs.next();
+			return rs.getInt(1);
+		} finally {
+			DbUtils.closeQuietly(conn, stmt, rs);
+		}
+	}
+
+	/**
+	 * Test that rows submitted by several threads are all inserted and their
+	 * futures completed.
+	 * 
+	 * @throws Exception
+	 *             possible SQL or concurrency error
+	 */
+	@Test
+	public void testSubmit() throws Exception {
+		final BatchingStatementExecutor executor =
+		    new BatchingStatementExecutor(dataSource, 10, 20,
+		        TimeUnit.MILLISECONDS, 15);
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<CompletableFuture<Integer>>> submitted =
+			    new ArrayList<Future<CompletableFuture<Integer>>>();
+			for (int i = 1; i <= 100; i++) {
+				final int id = i;
+				submitted.add(threads.submit(
+				    () -> executor.submit(INSERT, Integer.valueOf(id),
+				        id % 10 == 0 ? null : "event" + id)));
+			}
+			for (Future<CompletableFuture<Integer>> future : submitted) {
+				assertEquals(Integer.valueOf(1),
+				    future.get().get(10, TimeUnit.SECONDS));
+			}
+		} finally {
+			threads.shutdown();
+			executor.close();
+		}
+		assertEquals(0, executor.getPending());
+		assertEquals(100, countRows());
+	}
+
+	/**
+	 * Test that the rows of a failed batch are completed exceptionally (also
+	 * the ones that succeeded, which are rolled back) and that closing
+	 * executes the pending rows.
+	 * 
+	 * @throws Exception
+	 *             possible SQL or concurrency error
+	 */
+	@Test
+	public void testFailedRow() throws Exception {
+		BatchingStatementExecutor executor = new BatchingStatementExecutor(
+		    dataSource, 100, 1, TimeUnit.HOURS, 100);
+		CompletableFuture<Integer> first = executor.submit(INSERT, 1, "a");
+		CompletableFuture<Integer> duplicate = executor.submit(INSERT, 1, "b");
+		assertEquals(2, executor.getPending());
+		executor.close();
+
+		assertTrue(first.isDone() && duplicate.isDone());
+		try {
+			duplicate.get();
+			fail("Expected duplicate key error");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof SQLException);
+		}
+		assertTrue(first.isCompletedExceptionally());
+		assertEquals(0, countRows());
+		try {
+			executor.submit(INSERT, 2, "c");
+			fail("Expected closed executor");
+		} catch (IllegalStateException e) {
+			assertEquals("Executor has been closed", e.getMessage());
+		}
+	}
+
+	/**
+	 * Test that a row without SQL text is rejected without taking a permit.
+	 * 
+	 * @throws Exception
+	 *             possible SQL or concurrency error
+	 */
+	@Test
+	public void testSubmitNullSql() throws Exception {
+		BatchingStatementExecutor executor = new BatchingStatementExecutor(
+		    dataSource, 100, 1, TimeUnit.HOURS, 1);
+		try {
+			try {
+				executor.submit(null, 1, "a");
+				fail("Expected rejected row");
+			} catch (IllegalArgumentException e) {
+				assertEquals(0, executor.getPending());
+			}
+			// the only permit is still available
+			CompletableFuture<Integer> row = executor.submit(INSERT, 1, "a");
+			executor.close();
+			assertEquals(Integer.valueOf(1), row.get());
+		} finally {
+			executor.close();
+		}
+		assertEquals(1, countRows());
+	}
+
+	/**
+	 * Test that a submitter blocked by backpressure while the executor is
+	 * closed fails instead of enqueueing a row that is never executed.
+	 * 
+	 * @throws Exception
+	 *             possible SQL or concurrency error
+	 */
+	@Test
+	public void testSubmitWhileClosing() throws Exception {
+		BatchingStatementExecutor executor = new BatchingStatementExecutor(
+		    dataSource, 100, 1, TimeUnit.HOURS, 1);
+		CompletableFuture<Integer> first = executor.submit(INSERT, 1, "a");
+		ExecutorService submitter = Executors.newSingleThreadExecutor();
+		try {
+			Future<CompletableFuture<Integer>> blocked =
+			    submitter.submit(() -> executor.submit(INSERT, 2, "b"));
+			// wait until the submitter is blocked by backpressure
+			Thread.sleep(200);
+			assertFalse(blocked.isDone());
+			executor.close();
+
+			assertEquals(Integer.valueOf(1), first.get());
+			try {
+				blocked.get(5, TimeUnit.SECONDS);
+				fail("Expected closed executor");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof IllegalStateException);
+			}
+			assertEquals(0, executor.getPending());
+			assertEquals(1, countRows());
+		} finally {
+			submitter.shutdownNow();
+		}
+	}
+}
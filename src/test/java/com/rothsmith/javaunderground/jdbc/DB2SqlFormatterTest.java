@@ -10,6 +10,12 @@ import static org.junit.Assert.fail;
 import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.GregorianCalendar;
 
 import org.junit.Before;
@@ -166,4 +172,44 @@ public class DB2SqlFormatterTest {
 		assertEquals("NULL", nullString);
 
 	}
+
+	/**
+	 * Test method for
+	 * {@link com.rothsmith.javaunderground.jdbc.DB2SqlFormatter#format(Object)}
+	 * using timestamps and java.time values, which keep their fractional
+	 * seconds.
+	 * 
+	 * @throws SQLException
+	 *             thrown if a SQL is occurs.
+	 */
+	@Test
+	public void testFormatJavaTime() throws SQLException {
+
+		LocalDateTime dateTime =
+		    LocalDateTime.of(2016, 3, 5, 7, 8, 9, 120000000);
+		assertEquals("TIMESTAMP('2016-03-05 07:08:09.12')",
+		    db2Formatter.format(Timestamp.valueOf(dateTime)));
+		assertEquals("TIMESTAMP('2016-03-05 07:08:09.12')",
+		    db2Formatter.format(dateTime));
+		assertEquals("DATE('0987-12-31')",
+		    db2Formatter.format(LocalDate.of(987, 12, 31)));
+		assertEquals("TIME('23:00:01')",
+		    db2Formatter.format(LocalTime.of(23, 0, 1, 5)));
+		assertEquals("TIME('07:08:09')",
+		    db2Formatter.format(Time.valueOf(LocalTime.of(7, 8, 9))));
+		assertEquals("TIMESTAMP('2016-03-05 23:59:59.0')", db2Formatter
+		    .format(new GregorianCalendar(2016, 2, 5, 23, 59, 59)));
+		// offsets and instants are rendered in the default time zone:
+		ZonedDateTime zoned = dateTime.atZone(ZoneId.systemDefault());
+		assertEquals("TIMESTAMP('2016-03-05 07:08:09.12')", db2Formatter
+		    .format(zoned.toOffsetDateTime()
+		        .withOffsetSameInstant(ZoneOffset.UTC)));
+		assertEquals("TIMESTAMP('2016-03-05 07:08:09.12')",
+		    db2Formatter.format(zoned.toInstant()));
+
+		StringBuilder buffer = new StringBuilder();
+		db2Formatter.format(dateTime, buffer);
+		assertEquals(db2Formatter.format(dateTime), buffer.toString());
+
+	}
 }
@@ -0,0 +1,95 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link DebugLevel} capture policies.
+ * 
+ * @author drothauser
+ * 
+ */
+public class DebugLevelTest {
+
+	/**
+	 * Test that the constants aren't policies.
+	 */
+	@Test
+	public void testConstants() {
+		assertFalse(DebugLevel.OFF.isPolicy());
+		assertFalse(DebugLevel.ON.isPolicy());
+		assertFalse(DebugLevel.VERBOSE.isPolicy());
+		assertFalse(DebugLevel.LAZY.isPolicy());
+	}
+
+	/**
+	 * Test {@link DebugLevel#sampled(int)}.
+	 */
+	@Test
+	public void testSampled() {
+		DebugLevel every = DebugLevel.sampled(1);
+		DebugLevel rare = DebugLevel.sampled(1000);
+		int sampled = 0;
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(every.sample());
+			if (rare.sample()) {
+				sampled++;
+			}
+		}
+		assertTrue("sampled " + sampled, sampled > 0 && sampled < 100);
+		assertTrue(rare.isLogged(0));
+	}
+
+	/**
+	 * Test {@link DebugLevel#slowerThan(long, TimeUnit)}.
+	 */
+	@Test
+	public void testSlowerThan() {
+		DebugLevel slow = DebugLevel.slowerThan(5, TimeUnit.MILLISECONDS);
+		assertTrue(slow.isPolicy());
+		assertTrue(slow.hasThreshold());
+		assertTrue(slow.sample());
+		assertFalse(slow.isLogged(TimeUnit.MILLISECONDS.toNanos(4)));
+		assertTrue(slow.isLogged(TimeUnit.MILLISECONDS.toNanos(5)));
+	}
+
+	/**
+	 * Test {@link DebugLevel#budget(int)}.
+	 */
+	@Test
+	public void testBudget() {
+		DebugLevel budget = DebugLevel.budget(3);
+		int sampled = 0;
+		for (int i = 0; i < 100; i++) {
+			if (budget.sample()) {
+				sampled++;
+			}
+		}
+		// at most one second boundary can be crossed by the loop
+		assertTrue("sampled " + sampled, sampled >= 3 && sampled <= 6);
+	}
+
+	/**
+	 * Test that invalid policies are rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidSampleRate() {
+		DebugLevel.sampled(0);
+	}
+
+	/**
+	 * Test that a zero threshold is rejected (it would log every execution
+	 * as slow).
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidThreshold() {
+		DebugLevel.slowerThan(0, TimeUnit.MILLISECONDS);
+	}
+}
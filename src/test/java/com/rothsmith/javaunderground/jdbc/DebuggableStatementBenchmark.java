@@ -0,0 +1,224 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark comparing the execution overhead of {@link DebuggableStatement}
+ * against a raw {@link PreparedStatement} on an embedded (in-memory) Derby
+ * database. It is not run as part of the unit tests; run it with:
+ * 
+ * <pre>
+ * java -cp target/test-classes:&lt;test classpath&gt; \
+ *     com.rothsmith.javaunderground.jdbc.DebuggableStatementBenchmark
+ * </pre>
+ * 
+ * @author drothauser
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("PMD")
+public class DebuggableStatementBenchmark {
+
+	/**
+	 * Derby in-memory database URL.
+	 */
+	private static final String URL = "jdbc:derby:memory:benchdb;create=true";
+
+	/**
+	 * Query executed by each benchmark.
+	 */
+	private static final String QUERY =
+	    "SELECT ID, NAME FROM BENCH WHERE ID = ?";
+
+	/**
+	 * Number of rows loaded into the benchmark table.
+	 */
+	private static final int ROWS = 100;
+
+	/**
+	 * JDBC connection shared by the benchmark statements.
+	 */
+	private Connection conn;
+
+	/**
+	 * Raw (undecorated) {@link PreparedStatement}.
+	 */
+	private PreparedStatement raw;
+
+	/**
+	 * {@link DebuggableStatement} using {@link DebugLevel#ON}.
+	 */
+	private PreparedStatement debugOn;
+
+	/**
+	 * {@link DebuggableStatement} using {@link DebugLevel#VERBOSE}.
+	 */
+	private PreparedStatement debugVerbose;
+
+	/**
+	 * {@link DebuggableStatement} using {@link DebugLevel#LAZY}.
+	 */
+	private PreparedStatement debugLazy;
+
+	/**
+	 * Parameter value cycled through the table rows.
+	 */
+	private int id;
+
+	/**
+	 * Create and populate the benchmark table and prepare the statements.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Setup
+	public void setUp() throws SQLException {
+		conn = DriverManager.getConnection(URL);
+		Statement stmt = conn.createStatement();
+		try {
+			stmt.executeUpdate(
+			    "CREATE TABLE BENCH (ID INT PRIMARY KEY, NAME VARCHAR(32))");
+		} catch (SQLException e) {
+			stmt.executeUpdate("DELETE FROM BENCH");
+		} finally {
+			DbUtils.closeQuietly(stmt);
+		}
+		PreparedStatement insert =
+		    conn.prepareStatement("INSERT INTO BENCH VALUES (?, ?)");
+		try {
+			for (int i = 0; i < ROWS; i++) {
+				insert.setInt(1, i);
+				insert.setString(2, "name" + i);
+				insert.executeUpdate();
+			}
+		} finally {
+			DbUtils.closeQuietly(insert);
+		}
+
+		SqlFormatter formatter =
+		    FormatterFactory.getInstance().getFormatter(conn);
+		raw = conn.prepareStatement(QUERY);
+		debugOn = StatementFactory.getStatement(conn, QUERY, formatter,
+		    DebugLevel.ON);
+		debugVerbose = StatementFactory.getStatement(conn, QUERY, formatter,
+		    DebugLevel.VERBOSE);
+		debugLazy = StatementFactory.getStatement(conn, QUERY, formatter,
+		    DebugLevel.LAZY);
+	}
+
+	/**
+	 * Close the statements and connection.
+	 */
+	@TearDown
+	public void tearDown() {
+		DbUtils.closeQuietly(raw);
+		DbUtils.closeQuietly(debugOn);
+		DbUtils.closeQuietly(debugVerbose);
+		DbUtils.closeQuietly(debugLazy);
+		DbUtils.closeQuietly(conn);
+	}
+
+	/**
+	 * Bind, execute and consume the query using the given statement.
+	 * 
+	 * @param ps
+	 *            statement to execute
+	 * @return the value read, to defeat dead code elimination
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	private int query(PreparedStatement ps) throws SQLException {
+		id = (id + 1) % ROWS;
+		ps.setInt(1, id);
+		ResultSet rs = ps.executeQuery();
+		try {
+			return rs.next() ? rs.getInt(1) : -1;
+		} finally {
+			rs.close();
+		}
+	}
+
+	/**
+	 * @return value read
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Benchmark
+	public int rawPreparedStatement() throws SQLException {
+		return query(raw);
+	}
+
+	/**
+	 * @return value read
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Benchmark
+	public int debuggableStatementOn() throws SQLException {
+		return query(debugOn);
+	}
+
+	/**
+	 * @return value read
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Benchmark
+	public int debuggableStatementVerbose() throws SQLException {
+		return query(debugVerbose);
+	}
+
+	/**
+	 * @return value read
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Benchmark
+	public int debuggableStatementLazy() throws SQLException {
+		return query(debugLazy);
+	}
+
+	/**
+	 * Run the benchmark.
+	 * 
+	 * @param args
+	 *            not used
+	 * @throws RunnerException
+	 *             possible JMH error
+	 */
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+		    .include(DebuggableStatementBenchmark.class.getSimpleName())
+		    .build()).run();
+	}
+}
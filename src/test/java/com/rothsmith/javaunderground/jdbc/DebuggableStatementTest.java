@@ -0,0 +1,476 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for {@link DebuggableStatement} using an embedded (in-memory) Derby
+ * database.
+ * 
+ * @author drothauser
+ * 
+ */
+public class DebuggableStatementTest {
+
+	/**
+	 * Derby in-memory database URL.
+	 */
+	private static final String URL =
+	    "jdbc:derby:memory:debuggabledb;create=true";
+
+	/**
+	 * JDBC connection.
+	 */
+	private Connection conn;
+
+	/**
+	 * Set up the test fixture - creates an empty PERSON table.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Before
+	public void setUp() throws SQLException {
+		conn = DriverManager.getConnection(URL);
+		Statement stmt = conn.createStatement();
+		try {
+			stmt.executeUpdate(
+			    "CREATE TABLE PERSON (ID INT PRIMARY KEY, NAME VARCHAR(32))");
+		} catch (SQLException e) {
+			stmt.executeUpdate("DELETE FROM PERSON");
+		} finally {
+			DbUtils.closeQuietly(stmt);
+		}
+	}
+
+	/**
+	 * Close the connection.
+	 */
+	@After
+	public void tearDown() {
+		DbUtils.closeQuietly(conn);
+	}
+
+	/**
+	 * Create a {@link DebuggableStatement} for the given SQL.
+	 * 
+	 * @param sql
+	 *            SQL statement
+	 * @param debugLevel
+	 *            {@link DebugLevel}
+	 * @return {@link DebuggableStatement}
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	private DebuggableStatement statement(String sql, DebugLevel debugLevel)
+	        throws SQLException {
+		return (DebuggableStatement) StatementFactory.getStatement(conn, sql,
+		    new DefaultSqlFormatter(new BaseSqlFormatter()), debugLevel);
+	}
+
+	/**
+	 * Test {@link DebuggableStatement#executeUpdate()} and
+	 * {@link DebuggableStatement#executeQuery()} with {@link DebugLevel#ON}
+	 * and {@link DebugLevel#VERBOSE}.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testExecuteUpdateAndQuery() throws SQLException {
+		for (DebugLevel debugLevel : new DebugLevel[] { DebugLevel.ON,
+		    DebugLevel.VERBOSE }) {
+			PreparedStatement insert = statement(
+			    "INSERT INTO PERSON (ID, NAME) VALUES (?, ?)", debugLevel);
+			PreparedStatement query =
+			    statement("SELECT NAME FROM PERSON WHERE ID = ?", debugLevel);
+			try {
+				insert.setInt(1, 1);
+				insert.setString(2, "Troy");
+				assertEquals(1, insert.executeUpdate());
+				assertEquals("INSERT INTO PERSON (ID, NAME) VALUES (1, 'Troy')",
+				    insert.toString().trim().split("\\R")[0]);
+
+				query.setInt(1, 1);
+				ResultSet rs = query.executeQuery();
+				try {
+					assertTrue(rs.next());
+					assertEquals("Troy", rs.getString(1));
+				} finally {
+					DbUtils.closeQuietly(rs);
+				}
+
+				query.setInt(1, 1);
+				assertTrue(query.execute());
+				DbUtils.closeQuietly(query.getResultSet());
+
+				Statement delete = conn.createStatement();
+				delete.executeUpdate("DELETE FROM PERSON");
+				DbUtils.closeQuietly(delete);
+			} finally {
+				DbUtils.closeQuietly(insert);
+				DbUtils.closeQuietly(query);
+			}
+		}
+	}
+
+	/**
+	 * Test that '?' characters in literals, quoted identifiers and comments
+	 * aren't mistaken for bind variables.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testToStringIgnoresQuotedMarkers() throws SQLException {
+		PreparedStatement query = statement(
+		    "SELECT NAME AS \"WHO?\" FROM PERSON /* by id? */ "
+		        + "WHERE NAME <> 'isn''t ?' AND ID = ?",
+		    DebugLevel.ON);
+		try {
+			query.setInt(1, 7);
+			assertEquals(
+			    "SELECT NAME AS \"WHO?\" FROM PERSON /* by id? */ "
+			        + "WHERE NAME <> 'isn''t ?' AND ID = 7",
+			    query.toString().trim().split("\\R")[0]);
+			ResultSet rs = query.executeQuery();
+			DbUtils.closeQuietly(rs);
+		} finally {
+			DbUtils.closeQuietly(query);
+		}
+	}
+
+	/**
+	 * Test that dates, times and timestamps set with a Calendar are rendered
+	 * in the Calendar's time zone.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testCalendarParameters() throws SQLException {
+		PreparedStatement query = statement("SELECT NAME FROM PERSON"
+		    + " WHERE CAST(? AS DATE) IS NULL OR CAST(? AS TIME) IS NULL"
+		    + " OR CAST(? AS TIMESTAMP) IS NULL", DebugLevel.ON);
+		try {
+			long millis = Instant.parse("2016-03-05T23:08:09.25Z")
+			    .toEpochMilli();
+			Calendar cal =
+			    new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+			query.setDate(1, new Date(millis), cal);
+			query.setTime(2, new Time(millis), cal);
+			query.setTimestamp(3, new Timestamp(millis), cal);
+			assertEquals("SELECT NAME FROM PERSON"
+			    + " WHERE CAST(TO_DATE('2016-03-05','YYYY-MM-DD') AS DATE)"
+			    + " IS NULL OR CAST(TO_DATE('23:08:09','HH24:MI:SS') AS TIME)"
+			    + " IS NULL OR CAST(TO_TIMESTAMP('2016-03-05 23:08:09.25',"
+			    + "'YYYY-MM-DD HH24:MI:SS.FF') AS TIMESTAMP) IS NULL",
+			    query.toString().trim().split("\\R")[0]);
+			DbUtils.closeQuietly(query.executeQuery());
+		} finally {
+			DbUtils.closeQuietly(query);
+		}
+	}
+
+	/**
+	 * Test that the rendered statement is valid SQL that can be replayed:
+	 * quotes are escaped, nulls and objects are rendered as values.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testReplay() throws SQLException {
+		DebuggableStatement insert = statement(
+		    "INSERT INTO PERSON (ID, NAME) VALUES (?, ?)", DebugLevel.ON);
+		Statement replay = conn.createStatement();
+		try {
+			insert.setObject(1, Integer.valueOf(1));
+			insert.setString(2, "O'Brien");
+			StringBuilder sql = new StringBuilder();
+			insert.appendTo(sql);
+			assertEquals("INSERT INTO PERSON (ID, NAME) VALUES (1, 'O''Brien')",
+			    sql.toString());
+			assertEquals(1, replay.executeUpdate(sql.toString()));
+
+			insert.setInt(1, 2);
+			insert.setNull(2, Types.VARCHAR);
+			sql.setLength(0);
+			insert.appendTo(sql);
+			assertEquals("INSERT INTO PERSON (ID, NAME) VALUES (2, NULL)",
+			    sql.toString());
+			assertEquals(1, replay.executeUpdate(sql.toString()));
+
+			ResultSet rs =
+			    replay.executeQuery("SELECT NAME FROM PERSON ORDER BY ID");
+			try {
+				assertTrue(rs.next());
+				assertEquals("O'Brien", rs.getString(1));
+				assertTrue(rs.next());
+				assertNull(rs.getString(1));
+			} finally {
+				DbUtils.closeQuietly(rs);
+			}
+		} finally {
+			DbUtils.closeQuietly(replay);
+			DbUtils.closeQuietly(insert);
+		}
+	}
+
+	/**
+	 * Test rendering the statement into a caller supplied buffer.
+	 * 
+	 * @throws Exception
+	 *             possible SQL or I/O error
+	 */
+	@Test
+	public void testAppendTo() throws Exception {
+		DebuggableStatement insert = statement(
+		    "INSERT INTO PERSON (ID, NAME) VALUES (?, ?)", DebugLevel.ON);
+		try {
+			insert.setInt(1, 3);
+			StringBuilder buffer = new StringBuilder("SQL: ");
+			insert.appendTo(buffer);
+			assertEquals("SQL: INSERT INTO PERSON (ID, NAME) VALUES (3, "
+			    + "? (missing variable # 2 ) )", buffer.toString());
+
+			insert.setString(2, "Bob");
+			StringWriter writer = new StringWriter();
+			insert.appendTo(writer);
+			assertEquals("INSERT INTO PERSON (ID, NAME) VALUES (3, 'Bob')",
+			    writer.toString());
+			assertTrue(insert.toString().startsWith(writer.toString()));
+		} finally {
+			DbUtils.closeQuietly(insert);
+		}
+	}
+
+	/**
+	 * Test that {@link DebugLevel#LAZY} only captures bind variables while
+	 * debug logging is enabled, that it doesn't time executions and that
+	 * clearing the parameters clears the captured values.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testLazyCapture() throws SQLException {
+		boolean debugEnabled =
+		    LoggerFactory.getLogger(DebuggableStatement.class).isDebugEnabled();
+		DebuggableStatement insert = statement(
+		    "INSERT INTO PERSON (ID, NAME) VALUES (?, ?)", DebugLevel.LAZY);
+		try {
+			insert.setInt(1, 4);
+			insert.setString(2, "Ann");
+			StringBuilder buffer = new StringBuilder();
+			insert.appendTo(buffer);
+			assertEquals(debugEnabled
+			    ? "INSERT INTO PERSON (ID, NAME) VALUES (4, 'Ann')"
+			    : "INSERT INTO PERSON (ID, NAME) VALUES (? (missing variable "
+			        + "# 1 ) , ? (missing variable # 2 ) )",
+			    buffer.toString());
+			assertEquals(1, insert.executeUpdate());
+			// LAZY executions aren't timed
+			assertSame(ExecutionStats.NONE, insert.getExecutionStats());
+
+			insert.clearParameters();
+			buffer.setLength(0);
+			insert.appendTo(buffer);
+			assertTrue(buffer.indexOf("(missing variable # 1 )") > 0);
+		} finally {
+			DbUtils.closeQuietly(insert);
+		}
+	}
+
+	/**
+	 * Test that a capture policy decides capture once per execution.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testCapturePolicy() throws SQLException {
+		DebuggableStatement query = statement(
+		    "SELECT NAME FROM PERSON WHERE ID = ?", DebugLevel.sampled(1));
+		DebuggableStatement never = statement(
+		    "SELECT NAME FROM PERSON WHERE ID = ?",
+		    DebugLevel.sampled(Integer.MAX_VALUE));
+		try {
+			for (int i = 1; i <= 2; i++) {
+				query.setInt(1, i);
+				never.setInt(1, i);
+				assertTrue(query.toString().startsWith(
+				    "SELECT NAME FROM PERSON WHERE ID = " + i));
+				assertTrue(never.toString().contains("(missing variable # 1 )"));
+				DbUtils.closeQuietly(query.executeQuery());
+				DbUtils.closeQuietly(never.executeQuery());
+				assertTrue(query.getExecutionStats().getExecuteNanos() > 0);
+			}
+		} finally {
+			DbUtils.closeQuietly(query);
+			DbUtils.closeQuietly(never);
+		}
+	}
+
+	/**
+	 * Test {@link DebuggableStatement#executeBatch()}: every entry of the
+	 * batch is captured and the batch size is reported.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testExecuteBatch() throws SQLException {
+		DebuggableStatement insert = statement(
+		    "INSERT INTO PERSON (ID, NAME) VALUES (?, ?)", DebugLevel.VERBOSE);
+		try {
+			for (int i = 1; i <= 3; i++) {
+				insert.setInt(1, i);
+				insert.setString(2, "name" + i);
+				insert.addBatch();
+			}
+			assertArrayEquals(new int[] { 1, 1, 1 }, insert.executeBatch());
+
+			String[] lines = insert.toString().split("\\R");
+			assertEquals("batch of 3 entries:", lines[2]);
+			for (int i = 1; i <= 3; i++) {
+				assertEquals("INSERT INTO PERSON (ID, NAME) VALUES (" + i
+				    + ", 'name" + i + "')", lines[2 + i]);
+			}
+			assertEquals(3, insert.getExecutionStats().getBatchSize());
+
+			// the next batch starts afresh
+			insert.setInt(1, 4);
+			insert.setString(2, "name4");
+			insert.addBatch();
+			assertTrue(insert.toString().contains("batch of 1 entries:"));
+			insert.clearBatch();
+			assertEquals(-1, insert.toString().indexOf("entries:"));
+		} finally {
+			DbUtils.closeQuietly(insert);
+		}
+	}
+
+	/**
+	 * Test {@link DebuggableStatement#getExecutionStats()}.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testExecutionStats() throws SQLException {
+		Statement stmt = conn.createStatement();
+		stmt.executeUpdate("INSERT INTO PERSON VALUES (1, 'Troy'), (2, 'Bob')");
+		DbUtils.closeQuietly(stmt);
+
+		DebuggableStatement query = statement(
+		    "SELECT NAME FROM PERSON WHERE ID >= ?", DebugLevel.VERBOSE);
+		DebuggableStatement untimed =
+		    statement("SELECT NAME FROM PERSON", DebugLevel.ON);
+		try {
+			query.setInt(1, 1);
+			ResultSet rs = query.executeQuery();
+			assertSame(query, rs.getStatement());
+			while (rs.next()) {
+				assertTrue(query.getExecutionStats().getFirstRowNanos() > 0);
+			}
+			rs.close();
+
+			ExecutionStats stats = query.getExecutionStats();
+			assertTrue(stats.getPrepareNanos() > 0);
+			assertTrue(stats.getBindNanos() > 0);
+			assertTrue(stats.getExecuteNanos() > 0);
+			assertTrue(stats.getConsumeNanos() >= stats.getFirstRowNanos());
+			assertEquals(2, stats.getRowCount());
+
+			// a new execution resets the result set phases:
+			query.executeQuery().close();
+			assertEquals(0, query.getExecutionStats().getRowCount());
+			assertEquals(0, query.getExecutionStats().getFirstRowNanos());
+
+			assertSame(ExecutionStats.NONE, untimed.getExecutionStats());
+		} finally {
+			DbUtils.closeQuietly(query);
+			DbUtils.closeQuietly(untimed);
+		}
+	}
+
+	/**
+	 * Test that the bind phase is timed when bind variables aren't captured,
+	 * i.e. with {@link DebugLevel#OFF} and a metrics registry.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testBindTimeWithoutCapture() throws SQLException {
+		StatementFactory.setMetricsRegistry(new StatementMetricsRegistry(
+		    StatementMetricsRegistry.DEFAULT_MAX_STATEMENTS));
+		DebuggableStatement query = null;
+		try {
+			query = statement("SELECT NAME FROM PERSON WHERE ID >= ?",
+			    DebugLevel.OFF);
+			query.setInt(1, 1);
+			query.executeQuery().close();
+			assertTrue(query.getExecutionStats().getBindNanos() > 0);
+			assertTrue(query.toString().contains("(missing variable # 1 )"));
+		} finally {
+			StatementFactory.setMetricsRegistry(null);
+			DbUtils.closeQuietly(query);
+		}
+	}
+
+	/**
+	 * Test that a driver {@link SQLException} is propagated as is rather than
+	 * being wrapped.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testExecuteError() throws SQLException {
+		PreparedStatement insert = statement(
+		    "INSERT INTO PERSON (ID, NAME) VALUES (?, ?)", DebugLevel.VERBOSE);
+		try {
+			insert.setInt(1, 1);
+			insert.setString(2, "Troy");
+			insert.executeUpdate();
+			insert.executeUpdate();
+			fail("Expected duplicate key error");
+		} catch (SQLException e) {
+			// Derby duplicate key SQLState:
+			assertEquals("23505", e.getSQLState());
+		} finally {
+			DbUtils.closeQuietly(insert);
+		}
+	}
+}
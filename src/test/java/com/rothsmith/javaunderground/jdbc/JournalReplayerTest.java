@@ -0,0 +1,226 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Calendar;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.dbutils.DbUtils;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link StatementJournal} and {@link JournalReplayer}: a workload
+ * recorded against one Derby in-memory database is replayed against another.
+ * 
+ * @author drothauser
+ * 
+ */
+public class JournalReplayerTest {
+
+	/**
+	 * Derby in-memory database the workload is recorded against.
+	 */
+	private static final String SOURCE_URL =
+	    "jdbc:derby:memory:journalsourcedb;create=true";
+
+	/**
+	 * Derby in-memory database the workload is replayed against.
+	 */
+	private static final String TARGET_URL =
+	    "jdbc:derby:memory:journaltargetdb;create=true";
+
+	/**
+	 * Stop journaling.
+	 */
+	@After
+	public void tearDown() {
+		StatementFactory.setStatementJournal(null);
+	}
+
+	/**
+	 * Creates an empty ORDERS table.
+	 * 
+	 * @param conn
+	 *            connection to the database
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	private static void createTable(Connection conn) throws SQLException {
+		Statement stmt = conn.createStatement();
+		try {
+			stmt.executeUpdate("CREATE TABLE ORDERS (ID INT PRIMARY KEY, "
+			    + "NAME VARCHAR(32), AMOUNT DECIMAL(9,2), PLACED TIMESTAMP)");
+		} catch (SQLException e) {
+			stmt.executeUpdate("DELETE FROM ORDERS");
+		} finally {
+			DbUtils.closeQuietly(stmt);
+		}
+	}
+
+	/**
+	 * Test recording a workload and replaying it against another database.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 * @throws IOException
+	 *             possible I/O error
+	 */
+	@Test
+	public void testRecordAndReplay() throws SQLException, IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		StatementJournal journal = new StatementJournal(bytes);
+		StatementFactory.setStatementJournal(journal);
+
+		Timestamp placed = Timestamp.valueOf("2016-03-04 05:06:07.123456");
+		Connection conn = DriverManager.getConnection(SOURCE_URL);
+		createTable(conn);
+		PreparedStatement insert = StatementFactory.getStatement(conn,
+		    "INSERT INTO ORDERS VALUES (?, ?, ?, ?)", new BaseSqlFormatter(),
+		    DebugLevel.ON);
+		PreparedStatement query = StatementFactory.getStatement(conn,
+		    "SELECT NAME FROM ORDERS WHERE ID = ?", new BaseSqlFormatter(),
+		    DebugLevel.ON);
+		try {
+			for (int i = 1; i <= 5; i++) {
+				insert.setInt(1, i);
+				insert.setString(2, "O'Order " + i);
+				insert.setBigDecimal(3, new BigDecimal("12.5" + i));
+				if (i % 2 == 0) {
+					insert.setTimestamp(4, placed, Calendar.getInstance());
+				} else {
+					insert.setTimestamp(4, placed);
+				}
+				insert.executeUpdate();
+			}
+			insert.setInt(1, 6);
+			insert.setNull(2, Types.VARCHAR);
+			insert.setNull(3, Types.DECIMAL);
+			insert.setNull(4, Types.TIMESTAMP);
+			insert.executeUpdate();
+			query.setInt(1, 3);
+			DbUtils.closeQuietly(query.executeQuery());
+		} finally {
+			DbUtils.closeQuietly(insert);
+			DbUtils.closeQuietly(query);
+			DbUtils.closeQuietly(conn);
+		}
+		journal.close();
+		assertEquals(7, journal.getRecorded());
+
+		Connection target = DriverManager.getConnection(TARGET_URL);
+		try {
+			createTable(target);
+			BasicDataSource dataSource = new BasicDataSource();
+			dataSource
+			    .setDriverClassName("org.apache.derby.jdbc.EmbeddedDriver");
+			dataSource.setUrl(TARGET_URL);
+			JournalReplayer replayer = new JournalReplayer(dataSource, 2,
+			    JournalReplayer.AS_FAST_AS_POSSIBLE);
+			StatementMetricsRegistry metrics = replayer
+			    .replay(new ByteArrayInputStream(bytes.toByteArray()));
+			dataSource.close();
+
+			assertEquals(0, replayer.getSkipped());
+			long executions = 0;
+			for (StatementMetrics statementMetrics : metrics.getAll()) {
+				executions += statementMetrics.getExecutions();
+				assertEquals(0, statementMetrics.getErrors());
+			}
+			assertEquals(7, executions);
+
+			Statement stmt = target.createStatement();
+			ResultSet rs = stmt.executeQuery(
+			    "SELECT ID, NAME, AMOUNT, PLACED FROM ORDERS ORDER BY ID");
+			try {
+				for (int i = 1; i <= 5; i++) {
+					assertTrue(rs.next());
+					assertEquals(i, rs.getInt(1));
+					assertEquals("O'Order " + i, rs.getString(2));
+					assertEquals(new BigDecimal("12.5" + i),
+					    rs.getBigDecimal(3));
+					assertEquals(placed, rs.getTimestamp(4));
+				}
+				assertTrue(rs.next());
+				assertNull(rs.getString(2));
+				assertNull(rs.getTimestamp(4));
+			} finally {
+				DbUtils.closeQuietly(rs);
+				DbUtils.closeQuietly(stmt);
+			}
+		} finally {
+			DbUtils.closeQuietly(target);
+		}
+	}
+
+	/**
+	 * Test that executions whose bind variables weren't captured or can't be
+	 * replayed are skipped.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 * @throws IOException
+	 *             possible I/O error
+	 */
+	@Test
+	public void testSkipIncomplete() throws SQLException, IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		StatementJournal journal = new StatementJournal(bytes);
+		journal.record("DELETE FROM ORDERS WHERE ID = ?",
+		    new Object[] { SqlTemplate.UNBOUND }, System.nanoTime(), 0, true);
+		journal.record("UPDATE ORDERS SET NAME = ? WHERE ID = ?",
+		    new Object[] { new StreamPlaceholder(10), Integer.valueOf(1) },
+		    System.nanoTime(), 0, true);
+		journal.record("UPDATE ORDERS SET PLACED = ? WHERE ID = ?",
+		    new Object[] { Calendar.getInstance(), Integer.valueOf(1) },
+		    System.nanoTime(), 0, true);
+		journal.close();
+		assertEquals(3, journal.getRecorded());
+		// executions after close are dropped
+		assertFalse(journal.record("DELETE FROM ORDERS WHERE ID = ?",
+		    new Object[] { Integer.valueOf(1) }, System.nanoTime(), 0, true));
+		assertEquals(1, journal.getDropped());
+
+		BasicDataSource dataSource = new BasicDataSource();
+		dataSource.setDriverClassName("org.apache.derby.jdbc.EmbeddedDriver");
+		dataSource.setUrl(TARGET_URL);
+		JournalReplayer replayer = new JournalReplayer(dataSource, 1, 1);
+		StatementMetricsRegistry metrics =
+		    replayer.replay(new ByteArrayInputStream(bytes.toByteArray()));
+		dataSource.close();
+		assertEquals(3, replayer.getSkipped());
+		assertTrue(metrics.getAll().isEmpty());
+	}
+
+	/**
+	 * Test that input that isn't a journal is rejected.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 * @throws IOException
+	 *             expected
+	 */
+	@Test(expected = IOException.class)
+	public void testNotAJournal() throws SQLException, IOException {
+		new JournalReplayer(new BasicDataSource(), 1, 1)
+		    .replay(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5 }));
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ * 
+ * @author drothauser
+ * 
+ */
+public class LatencyHistogramTest {
+
+	/**
+	 * Test that every value maps to a bucket whose range contains it.
+	 */
+	@Test
+	public void testBuckets() {
+		for (long value = 0; value < 1L << 41; value = value * 3 / 2 + 1) {
+			int index = LatencyHistogram.bucketIndex(value);
+			assertTrue(value <= LatencyHistogram.highestValue(index));
+			assertTrue(index == 0
+			    || value > LatencyHistogram.highestValue(index - 1));
+		}
+	}
+
+	/**
+	 * Test percentiles of a uniform distribution of 1..100,000 ns.
+	 */
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long i = 1; i <= 100000; i++) {
+			histogram.record(i);
+		}
+		assertEquals(100000, histogram.getCount());
+		assertEquals(100000, histogram.getMax());
+		assertEquals(50000, histogram.getMean());
+		assertWithin(50000, histogram.getP50());
+		assertWithin(99000, histogram.getP99());
+		assertWithin(99900, histogram.getP999());
+		assertEquals(100000, histogram.getValueAtPercentile(100.0));
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getP99());
+	}
+
+	/**
+	 * Test recording from several threads.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted while joining
+	 */
+	@Test
+	public void testConcurrentRecording() throws InterruptedException {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 8; t++) {
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < 10000; i++) {
+					histogram.record(1000);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(80000, histogram.getCount());
+		assertWithin(1000, histogram.getP999());
+	}
+
+	/**
+	 * Asserts that the actual value is within 3.2% of the expected value.
+	 * 
+	 * @param expected
+	 *            expected value
+	 * @param actual
+	 *            actual value
+	 */
+	private static void assertWithin(long expected, long actual) {
+		assertTrue("expected ~" + expected + " but was " + actual,
+		    Math.abs(actual - expected) <= expected * 0.032);
+	}
+}
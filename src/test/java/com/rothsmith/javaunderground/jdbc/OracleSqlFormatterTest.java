@@ -10,6 +10,12 @@ import static org.junit.Assert.fail;
 import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.GregorianCalendar;
 
 import org.junit.Before;
@@ -168,4 +174,51 @@ public class OracleSqlFormatterTest {
 		assertEquals("NULL", nullString);
 
 	}
+
+	/**
+	 * Test method for
+	 * {@link com.rothsmith.javaunderground.jdbc.OracleSqlFormatter#format(Object)}
+	 * using timestamps and java.time values, which keep their fractional
+	 * seconds.
+	 * 
+	 * @throws SQLException
+	 *             thrown if a SQL is occurs.
+	 */
+	@Test
+	public void testFormatJavaTime() throws SQLException {
+
+		LocalDateTime dateTime = LocalDateTime.of(2016, 3, 5, 7, 8, 9, 1000);
+		assertEquals(
+		    "TO_TIMESTAMP('2016-03-05 07:08:09.000001',"
+		        + "'YYYY-MM-DD HH24:MI:SS.FF')",
+		    oracleFormatter.format(Timestamp.valueOf(dateTime)));
+		assertEquals(oracleFormatter.format(Timestamp.valueOf(dateTime)),
+		    oracleFormatter.format(dateTime));
+		assertEquals(
+		    "TO_DATE('2016-03-05 07:08:09','YYYY-MM-DD HH24:MI:SS')",
+		    oracleFormatter.format(new java.sql.Date(
+		        Timestamp.valueOf(dateTime.withNano(0)).getTime())));
+		assertEquals("TO_DATE('2016-03-05','YYYY-MM-DD')",
+		    oracleFormatter.format(LocalDate.of(2016, 3, 5)));
+		assertEquals("TO_DATE('07:08:09','HH24:MI:SS')",
+		    oracleFormatter.format(Time.valueOf(LocalTime.of(7, 8, 9))));
+		assertEquals(
+		    "TO_TIMESTAMP_TZ('2016-03-05 07:08:09.0 -05:30',"
+		        + "'YYYY-MM-DD HH24:MI:SS.FF TZH:TZM')",
+		    oracleFormatter.format(OffsetDateTime.of(dateTime.withNano(0),
+		        ZoneOffset.ofHoursMinutes(-5, -30))));
+		assertEquals(
+		    "TO_TIMESTAMP_TZ('1970-01-01 00:00:00.5 +00:00',"
+		        + "'YYYY-MM-DD HH24:MI:SS.FF TZH:TZM')",
+		    oracleFormatter.format(Instant.ofEpochMilli(500)));
+
+		assertEquals("1", oracleFormatter.format(Boolean.TRUE));
+		assertEquals("HEXTORAW('0AFF')",
+		    oracleFormatter.format(new byte[] { 10, -1 }));
+
+		StringBuilder buffer = new StringBuilder();
+		oracleFormatter.format(dateTime, buffer);
+		assertEquals(oracleFormatter.format(dateTime), buffer.toString());
+
+	}
 }
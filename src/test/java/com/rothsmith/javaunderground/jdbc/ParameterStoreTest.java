@@ -0,0 +1,62 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ParameterStore}.
+ * 
+ * @author drothauser
+ * 
+ */
+public class ParameterStoreTest {
+
+	/**
+	 * Test that primitive and reference values are stored and boxed back.
+	 */
+	@Test
+	public void testSetAndGet() {
+		ParameterStore parameters = new ParameterStore(9);
+		parameters.setInt(0, -7);
+		parameters.setLong(1, Long.MAX_VALUE);
+		parameters.setShort(2, (short) 3);
+		parameters.setByte(3, (byte) -1);
+		parameters.setBoolean(4, true);
+		parameters.setDouble(5, -0.5);
+		parameters.setFloat(6, 1.25f);
+		parameters.setObject(7, "x");
+		assertArrayEquals(new Object[] { Integer.valueOf(-7),
+		    Long.valueOf(Long.MAX_VALUE), Short.valueOf((short) 3),
+		    Byte.valueOf((byte) -1), Boolean.TRUE, Double.valueOf(-0.5),
+		    Float.valueOf(1.25f), "x", SqlTemplate.UNBOUND },
+		    parameters.toArray());
+
+		// a reference replaced by a primitive is released
+		parameters.setInt(7, 1);
+		assertNull(parameters.getObject(7));
+		parameters.setObject(0, null);
+		assertNull(parameters.get(0));
+	}
+
+	/**
+	 * Test that clearing marks all parameters as uncaptured.
+	 */
+	@Test
+	public void testClear() {
+		ParameterStore parameters = new ParameterStore(2);
+		parameters.setObject(0, "x");
+		parameters.setInt(1, 1);
+		parameters.clear();
+		assertEquals(2, parameters.size());
+		assertSame(SqlTemplate.UNBOUND, parameters.get(0));
+		assertSame(SqlTemplate.UNBOUND, parameters.get(1));
+		assertNull(parameters.getObject(0));
+	}
+}
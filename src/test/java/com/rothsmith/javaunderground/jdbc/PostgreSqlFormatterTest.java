@@ -0,0 +1,56 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+/**
+ * Junit test for the {@link PostgreSqlFormatter} class.
+ * 
+ * @author drothauser
+ * 
+ */
+public class PostgreSqlFormatterTest {
+
+	/**
+	 * {@link PostgreSqlFormatter}.
+	 */
+	private final SqlFormatter formatter =
+	    new PostgreSqlFormatter(new BaseSqlFormatter());
+
+	/**
+	 * Test method for {@link PostgreSqlFormatter#format(Object)}.
+	 * 
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	@Test
+	public void testFormat() throws SQLException {
+
+		assertEquals("DATE '2016-03-05'",
+		    formatter.format(Date.valueOf(LocalDate.of(2016, 3, 5))));
+		assertEquals("TIME '07:08:09.0'",
+		    formatter.format(Time.valueOf(LocalTime.of(7, 8, 9))));
+		assertEquals("TIMESTAMP '2016-03-05 07:08:09.25'", formatter
+		    .format(LocalDateTime.of(2016, 3, 5, 7, 8, 9, 250000000)));
+		assertEquals("TIMESTAMPTZ '2016-03-05 07:08:09.0 +01:00'",
+		    formatter.format(OffsetDateTime.of(2016, 3, 5, 7, 8, 9, 0,
+		        ZoneOffset.ofHours(1))));
+		assertEquals("true", formatter.format(Boolean.TRUE));
+		assertEquals("'\\x0AFF'::bytea",
+		    formatter.format(new byte[] { 10, -1 }));
+
+	}
+}
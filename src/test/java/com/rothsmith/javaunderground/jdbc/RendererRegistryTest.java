@@ -0,0 +1,101 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link RendererRegistry}.
+ * 
+ * @author drothauser
+ * 
+ */
+public class RendererRegistryTest {
+
+	/**
+	 * Render a value with the renderer resolved for its class.
+	 * 
+	 * @param registry
+	 *            {@link RendererRegistry}
+	 * @param value
+	 *            value to render
+	 * @return rendered value
+	 * @throws SQLException
+	 *             possible rendering error
+	 */
+	private static String render(RendererRegistry registry, Object value)
+	        throws SQLException {
+		StringBuilder buffer = new StringBuilder();
+		registry.get(value.getClass()).render(value, buffer);
+		return buffer.toString();
+	}
+
+	/**
+	 * Test that the renderer of the closest superclass, else of an interface,
+	 * is used.
+	 * 
+	 * @throws SQLException
+	 *             possible rendering error
+	 */
+	@Test
+	public void testResolve() throws SQLException {
+		RendererRegistry registry = new RendererRegistry()
+		    .register(Date.class, (date, buffer) -> buffer.append("date"))
+		    .register(Timestamp.class, (ts, buffer) -> buffer.append("ts"))
+		    .register(Collection.class, (c, buffer) -> buffer.append("coll"));
+
+		assertEquals("date", render(registry, new Date()));
+		assertEquals("date", render(registry, new java.sql.Date(0)));
+		assertEquals("ts", render(registry, new Timestamp(0)));
+		// ArrayList -> List -> Collection:
+		assertEquals("coll", render(registry, new ArrayList<String>()));
+		assertNull(registry.get(String.class));
+	}
+
+	/**
+	 * Test that registering a renderer discards the cached resolutions.
+	 * 
+	 * @throws SQLException
+	 *             possible rendering error
+	 */
+	@Test
+	public void testRegisterAfterLookup() throws SQLException {
+		RendererRegistry registry = new RendererRegistry()
+		    .register(Collection.class, (c, buffer) -> buffer.append("coll"));
+		assertEquals("coll", render(registry, new ArrayList<String>()));
+
+		registry.register(List.class, (list, buffer) -> buffer.append("list"));
+		assertEquals("list", render(registry, new ArrayList<String>()));
+	}
+
+	/**
+	 * Test that the formatters render through their registries.
+	 * 
+	 * @throws SQLException
+	 *             possible rendering error
+	 */
+	@Test
+	public void testFormatters() throws SQLException {
+		SqlFormatter formatter =
+		    new OracleSqlFormatter(new BaseSqlFormatter());
+		assertEquals("'a'", formatter.format("a"));
+		assertEquals("1000", formatter.format(new java.math.BigDecimal("1E+3")));
+		assertEquals("'00000000-0000-0001-0000-000000000002'",
+		    formatter.format(new java.util.UUID(1, 2)));
+		assertEquals("2.5", formatter.format(Double.valueOf(2.5)));
+		StringBuilder buffer = new StringBuilder();
+		formatter.format(new Timestamp(0), buffer);
+		assertEquals(formatter.format(new Timestamp(0)), buffer.toString());
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SqlFingerprinter}.
+ * 
+ * @author drothauser
+ * 
+ */
+public class SqlFingerprinterTest {
+
+	/**
+	 * Test that literals are replaced and whitespace and case are normalized.
+	 */
+	@Test
+	public void testLiterals() {
+		assertEquals("select * from emp where id = ? and name = ?",
+		    SqlFingerprinter.fingerprint(
+		        "SELECT *\n  FROM emp WHERE id=42 AND name = 'O''Neil'"));
+		assertEquals("select a.b, ? from t1 where x < ? and y = ? - ?",
+		    SqlFingerprinter.fingerprint(
+		        "select A.B, -1.5e10 from T1 where x<.5 and y = N'abc'-2"));
+		assertEquals("update t set c = ? where d <> ?",
+		    SqlFingerprinter.fingerprint("update t set c=0xFF where d<>?"));
+	}
+
+	/**
+	 * Test that comments are dropped and quoted identifiers are kept.
+	 */
+	@Test
+	public void testCommentsAndQuotedIdentifiers() {
+		assertEquals("select \"Col?\" from \"My \"\"T\"\"\" where a = ?",
+		    SqlFingerprinter.fingerprint("select /* hint? */ \"Col?\" "
+		        + "from \"My \"\"T\"\"\" -- where's\n where a = 'x'"));
+		assertEquals("select count (*) from t", SqlFingerprinter
+		    .fingerprint("select count( * )\r\nfrom t--x"));
+	}
+
+	/**
+	 * Test that IN lists are collapsed.
+	 */
+	@Test
+	public void testInLists() {
+		String expected = "select * from t where id in (?+) and c in (?+)";
+		assertEquals(expected, SqlFingerprinter
+		    .fingerprint("select * from t where id in (1,2,3) and c IN (?)"));
+		assertEquals(expected, SqlFingerprinter.fingerprint(
+		    "select * from t where id in ( ?, ? ) and c in ('a', 'b')"));
+		assertEquals("select * from t where id in (select id from u)",
+		    SqlFingerprinter.fingerprint(
+		        "select * from t where id in (select id from u)"));
+	}
+
+	/**
+	 * Test the fingerprint hash.
+	 */
+	@Test
+	public void testFingerprintHash() {
+		assertEquals(SqlFingerprinter.fingerprintHash("select 1 from t"),
+		    SqlFingerprinter.fingerprintHash("SELECT  2  FROM T"));
+		assertNotEquals(SqlFingerprinter.fingerprintHash("select 1 from t"),
+		    SqlFingerprinter.fingerprintHash("select 1 from u"));
+	}
+
+	/**
+	 * Test that only real parameter markers are found.
+	 */
+	@Test
+	public void testParameterMarkers() {
+		String sql = "select \"?\", 'it''s ?' from t /* ? */ where a = ? "
+		    + "-- b = ?\n and c = ?";
+		assertArrayEquals(
+		    new int[] { sql.indexOf("a = ?") + 4, sql.lastIndexOf('?') },
+		    SqlFingerprinter.parameterMarkers(sql));
+		assertArrayEquals(new int[] { 0, 1 },
+		    SqlFingerprinter.parameterMarkers("??"));
+	}
+}
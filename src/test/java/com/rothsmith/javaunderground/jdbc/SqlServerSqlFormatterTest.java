@@ -0,0 +1,66 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import org.junit.Test;
+
+/**
+ * Junit test for the {@link SqlServerSqlFormatter} class.
+ * 
+ * @author drothauser
+ * 
+ */
+public class SqlServerSqlFormatterTest {
+
+	/**
+	 * {@link SqlServerSqlFormatter}.
+	 */
+	private final SqlFormatter formatter =
+	    new SqlServerSqlFormatter(new BaseSqlFormatter());
+
+	/**
+	 * Test method for {@link SqlServerSqlFormatter#format(Object)}.
+	 * 
+	 * @throws SQLException
+	 *             thrown if a SQL error occurs.
+	 */
+	@Test
+	public void testFormat() throws SQLException {
+
+		LocalDateTime dateTime =
+		    LocalDateTime.of(2016, 3, 5, 7, 8, 9, 123456789);
+		// DATETIME2 keeps 7 fractional digits:
+		assertEquals("CAST('2016-03-05 07:08:09.1234567' AS DATETIME2)",
+		    formatter.format(Timestamp.valueOf(dateTime)));
+		assertEquals("CAST('2016-03-05' AS DATE)",
+		    formatter.format(LocalDate.of(2016, 3, 5)));
+		assertEquals("CAST('07:08:09.5' AS TIME)",
+		    formatter.format(LocalTime.of(7, 8, 9, 500000000)));
+		assertEquals(
+		    "CAST('1970-01-01 00:00:01.0 +00:00' AS DATETIMEOFFSET)",
+		    formatter.format(Instant.ofEpochSecond(1)));
+		assertEquals("1", formatter.format(Boolean.TRUE));
+		assertEquals("'x'", formatter.format("x"));
+		assertEquals("'O''Brien'", formatter.format("O'Brien"));
+		assertEquals("N'Zo\u00EB'", formatter.format("Zo\u00EB"));
+		assertEquals("0x0AFF", formatter.format(new byte[] { 10, -1 }));
+		assertEquals("0x", formatter.format(new byte[0]));
+		assertEquals("NULL", formatter.format(null));
+
+		StringBuilder buffer = new StringBuilder();
+		formatter.format(Boolean.FALSE, buffer);
+		formatter.format(null, buffer);
+		assertEquals("0NULL", buffer.toString());
+
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SqlTemplate}.
+ * 
+ * @author drothauser
+ * 
+ */
+public class SqlTemplateTest {
+
+	/**
+	 * Clear the template cache.
+	 */
+	@After
+	public void tearDown() {
+		SqlTemplate.clearCache();
+	}
+
+	/**
+	 * Test splitting a statement at its bind variables.
+	 */
+	@Test
+	public void testSegments() {
+		SqlTemplate template =
+		    SqlTemplate.of("UPDATE T SET A = ?, B = '?' WHERE C = ?");
+		assertEquals(2, template.getParameterCount());
+		assertEquals("UPDATE T SET A = ", template.getSegment(0));
+		assertEquals(", B = '?' WHERE C = ", template.getSegment(1));
+		assertEquals("", template.getSegment(2));
+
+		template = SqlTemplate.of("??");
+		assertEquals(2, template.getParameterCount());
+		assertEquals("", template.getSegment(0));
+		assertEquals("", template.getSegment(1));
+		assertEquals("", template.getSegment(2));
+
+		assertEquals(0, SqlTemplate.of("SELECT 1").getParameterCount());
+	}
+
+	/**
+	 * Test that templates are cached, that the cache stays within its limit
+	 * and that templates in use aren't evicted while unused ones are.
+	 */
+	@Test
+	public void testCache() {
+		String sql = "SELECT * FROM T WHERE ID = ?";
+		SqlTemplate hot = SqlTemplate.of(sql);
+		assertSame(hot, SqlTemplate.of(new String(sql)));
+		SqlTemplate cold = SqlTemplate.of("SELECT * FROM U WHERE ID = ?");
+
+		for (int i = 0; i < 3 * SqlTemplate.MAX_CACHED_TEMPLATES; i++) {
+			SqlTemplate.of("SELECT " + i);
+			if (i % 100 == 0) {
+				assertSame(hot, SqlTemplate.of(sql));
+			}
+			assertTrue(
+			    SqlTemplate.cacheSize() <= SqlTemplate.MAX_CACHED_TEMPLATES);
+		}
+		assertSame(hot, SqlTemplate.of(sql));
+		assertNotSame(cold, SqlTemplate.of("SELECT * FROM U WHERE ID = ?"));
+	}
+
+	/**
+	 * Test that rendering from a {@link ParameterStore} matches rendering its
+	 * boxed values, also for a dialect that renders booleans differently.
+	 */
+	@Test
+	public void testAppendParameterStore() {
+		SqlTemplate template = SqlTemplate
+		    .of("INSERT INTO T VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+		ParameterStore store = new ParameterStore(10);
+		store.setInt(0, -7);
+		store.setLong(1, Long.MAX_VALUE);
+		store.setShort(2, (short) 3);
+		store.setByte(3, (byte) -1);
+		store.setDouble(4, 1.5);
+		store.setFloat(5, 0.1f);
+		store.setBoolean(6, true);
+		store.setObject(7, "O'Brien");
+		store.setObject(8, null);
+
+		BaseSqlFormatter base = new BaseSqlFormatter();
+		StringBuilder buffer = new StringBuilder();
+		template.appendTo(buffer, store, base);
+		assertEquals("INSERT INTO T VALUES (-7, 9223372036854775807, 3, -1, "
+		    + "1.5, 0.1, true, 'O''Brien', NULL, "
+		    + "? (missing variable # 10 ) )", buffer.toString());
+
+		for (SqlFormatter formatter : new SqlFormatter[] { base,
+		    new OracleSqlFormatter(base) }) {
+			StringBuilder expected = new StringBuilder();
+			template.appendTo(expected, store.toArray(), formatter);
+			buffer.setLength(0);
+			template.appendTo(buffer, store, formatter);
+			assertEquals(expected.toString(), buffer.toString());
+		}
+	}
+}
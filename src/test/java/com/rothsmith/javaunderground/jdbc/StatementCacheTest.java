@@ -0,0 +1,328 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.dbutils.DbUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link StatementCache}.
+ * 
+ * @author drothauser
+ * 
+ */
+public class StatementCacheTest {
+
+	/**
+	 * Derby in-memory database.
+	 */
+	private static final String URL =
+	    "jdbc:derby:memory:statementcachedb;create=true";
+
+	/**
+	 * Query used by the tests.
+	 */
+	private static final String QUERY =
+	    "SELECT COUNT(*) FROM SYS.SYSTABLES WHERE TABLENAME = ?";
+
+	/**
+	 * Connection to the database.
+	 */
+	private Connection conn;
+
+	/**
+	 * Opens the connection.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Before
+	public void setUp() throws SQLException {
+		conn = DriverManager.getConnection(URL);
+	}
+
+	/**
+	 * Removes the cache from the factory and closes the connection.
+	 */
+	@After
+	public void tearDown() {
+		StatementFactory.setStatementCache(null);
+		DbUtils.closeQuietly(conn);
+	}
+
+	/**
+	 * Test that a released statement is reused and that a statement in use
+	 * isn't shared.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testAcquireRelease() throws SQLException {
+		StatementCache cache = new StatementCache();
+		PreparedStatement first = cache.acquire(conn, QUERY);
+		PreparedStatement second = cache.acquire(conn, QUERY);
+		assertNotSame(first, second);
+		cache.release(conn, QUERY, first);
+		assertEquals(1, cache.getSize(conn));
+		assertSame(first, cache.acquire(conn, QUERY));
+		assertEquals(0, cache.getSize(conn));
+
+		// returning both keeps the most recently returned one
+		cache.release(conn, QUERY, first);
+		cache.release(conn, QUERY, second);
+		assertTrue(first.isClosed());
+		assertFalse(second.isClosed());
+		assertEquals(1, cache.getSize(conn));
+
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(1.0 / 3, cache.getHitRatio(), 1e-9);
+
+		cache.clear(conn);
+		assertTrue(second.isClosed());
+		assertEquals(0, cache.getSize(conn));
+	}
+
+	/**
+	 * Test that settings changed by a borrower are restored before the
+	 * statement is reused and that statements that weren't acquired from the
+	 * cache aren't kept.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testRestoreSettings() throws SQLException {
+		StatementCache cache = new StatementCache();
+		PreparedStatement statement = cache.acquire(conn, QUERY);
+		int fetchSize = statement.getFetchSize();
+		statement.setMaxRows(100);
+		statement.setQueryTimeout(5);
+		statement.setFetchSize(fetchSize + 7);
+		statement.setMaxFieldSize(10);
+		statement.setPoolable(!statement.isPoolable());
+		statement.setEscapeProcessing(false);
+		boolean poolable = statement.isPoolable();
+		cache.release(conn, QUERY, statement);
+
+		assertSame(statement, cache.acquire(conn, QUERY));
+		assertEquals(0, statement.getMaxRows());
+		assertEquals(0, statement.getQueryTimeout());
+		assertEquals(fetchSize, statement.getFetchSize());
+		assertEquals(0, statement.getMaxFieldSize());
+		assertEquals(!poolable, statement.isPoolable());
+		cache.release(conn, QUERY, statement);
+
+		PreparedStatement foreign = conn.prepareStatement(QUERY);
+		cache.release(conn, QUERY + " ", foreign);
+		assertTrue(foreign.isClosed());
+		assertEquals(1, cache.getSize(conn));
+		cache.clear(conn);
+	}
+
+	/**
+	 * Test that the least recently used statement is evicted.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testEviction() throws SQLException {
+		StatementCache cache = new StatementCache(2);
+		String[] sql = { QUERY, QUERY + " AND 1 = 1", QUERY + " AND 2 = 2" };
+		PreparedStatement[] statements = new PreparedStatement[sql.length];
+		for (int i = 0; i < sql.length; i++) {
+			statements[i] = cache.acquire(conn, sql[i]);
+		}
+		cache.release(conn, sql[0], statements[0]);
+		cache.release(conn, sql[1], statements[1]);
+		// use the first one again, so the second one is the eldest
+		cache.release(conn, sql[0], cache.acquire(conn, sql[0]));
+		cache.release(conn, sql[2], statements[2]);
+
+		assertEquals(2, cache.getSize(conn));
+		assertEquals(1, cache.getEvictions());
+		assertFalse(statements[0].isClosed());
+		assertTrue(statements[1].isClosed());
+		assertFalse(statements[2].isClosed());
+		cache.clear(conn);
+	}
+
+	/**
+	 * Test that statements closed with their connection aren't handed out.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testClosedConnection() throws SQLException {
+		StatementCache cache = new StatementCache();
+		Connection other = DriverManager.getConnection(URL);
+		PreparedStatement statement = cache.acquire(other, QUERY);
+		cache.release(other, QUERY, statement);
+		other.close();
+		assertTrue(statement.isClosed());
+		try {
+			cache.acquire(other, QUERY);
+			fail("Prepared a statement on a closed connection");
+		} catch (SQLException e) {
+			assertEquals(0, cache.getSize(other));
+			assertEquals(0, cache.getHits());
+			assertEquals(2, cache.getMisses());
+		}
+	}
+
+	/**
+	 * Test that the entries of closed connections are removed, for raw
+	 * connections and for connections borrowed from a pool (a new wrapper on
+	 * every borrow, cached as the physical connection underneath).
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testPurgeClosedConnections() throws SQLException {
+		StatementCache cache = new StatementCache();
+		StatementFactory.setStatementCache(cache);
+		for (int i = 0; i < 50; i++) {
+			Connection other = DriverManager.getConnection(URL);
+			StatementFactory.getStatement(other, QUERY, DebugLevel.OFF)
+			    .close();
+			other.close();
+			assertTrue(cache.getConnectionCount() <= 2);
+		}
+
+		BasicDataSource bds = new BasicDataSource();
+		bds.setUrl(URL);
+		try {
+			for (int i = 0; i < 50; i++) {
+				Connection pooled = bds.getConnection();
+				StatementFactory.getStatement(pooled, QUERY, DebugLevel.OFF)
+				    .close();
+				pooled.close();
+				assertTrue(cache.getConnectionCount() <= 2);
+			}
+		} finally {
+			bds.close();
+		}
+		// the borrows reused the statement of the one physical connection
+		assertEquals(49, cache.getHits());
+		assertEquals(1, cache.purge());
+		assertEquals(0, cache.getConnectionCount());
+
+		// returning a statement of a closed connection removes its entry
+		Connection other = DriverManager.getConnection(URL);
+		PreparedStatement statement = cache.acquire(other, QUERY);
+		cache.release(other, QUERY, statement);
+		PreparedStatement inUse = cache.acquire(other, QUERY + " AND 1 = 1");
+		other.close();
+		cache.release(other, QUERY, inUse);
+		assertEquals(0, cache.getConnectionCount());
+	}
+
+	/**
+	 * Test that the statements of a pooled connection outlive the borrow and
+	 * that a datasource can have its own capacity.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testPooledConnections() throws SQLException {
+		StatementCache cache = new StatementCache();
+		BasicDataSource bds = new BasicDataSource();
+		bds.setUrl("jdbc:derby:memory:statementcachepooldb;create=true");
+		PreparedStatement second;
+		try {
+			cache.setCapacity(bds, 1);
+			assertEquals(1,
+			    cache.getCapacity("jdbc:derby:memory:statementcachepooldb"));
+			assertEquals(StatementCache.DEFAULT_CAPACITY,
+			    cache.getCapacity(URL));
+
+			Connection pooled = bds.getConnection();
+			PreparedStatement first = cache.acquire(pooled, QUERY);
+			second = cache.acquire(pooled, QUERY + " AND 1 = 1");
+			cache.release(pooled, QUERY, first);
+			cache.release(pooled, QUERY + " AND 1 = 1", second);
+			assertEquals(1, cache.getSize(pooled));
+			assertEquals(1, cache.getEvictions());
+			pooled.close();
+			assertFalse(second.isClosed());
+
+			pooled = bds.getConnection();
+			assertSame(second, cache.acquire(pooled, QUERY + " AND 1 = 1"));
+			cache.release(pooled, QUERY + " AND 1 = 1", second);
+			pooled.close();
+			assertEquals(1, cache.getConnectionCount());
+
+			// the capacity of other connections is unchanged
+			cache.release(conn, QUERY, cache.acquire(conn, QUERY));
+			cache.release(conn, QUERY + " AND 1 = 1",
+			    cache.acquire(conn, QUERY + " AND 1 = 1"));
+			assertEquals(2, cache.getSize(conn));
+			cache.clear(conn);
+		} finally {
+			bds.close();
+		}
+		assertEquals(1, cache.purge());
+		assertTrue(second.isClosed());
+	}
+
+	/**
+	 * Test that statements from the {@link StatementFactory} are taken from
+	 * and returned to the cache, even if debug = OFF.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testStatementFactory() throws SQLException {
+		StatementCache cache = new StatementCache();
+		StatementFactory.setStatementCache(cache);
+		for (int i = 0; i < 3; i++) {
+			PreparedStatement ps =
+			    StatementFactory.getStatement(conn, QUERY, DebugLevel.OFF);
+			assertTrue(ps instanceof DebuggableStatement);
+			ps.setString(1, "SYSTABLES");
+			ResultSet rs = ps.executeQuery();
+			assertTrue(rs.next());
+			assertEquals(1, rs.getInt(1));
+			DbUtils.closeQuietly(rs);
+			ps.close();
+			assertTrue(ps.isClosed());
+			// closing twice doesn't return the statement twice
+			ps.close();
+			assertEquals(1, cache.getSize(conn));
+		}
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		cache.clear(conn);
+	}
+
+	/**
+	 * Test that the capacity must be positive.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCapacity() {
+		new StatementCache(0);
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link StatementMetricsRegistry} using an embedded (in-memory)
+ * Derby database.
+ * 
+ * @author drothauser
+ * 
+ */
+public class StatementMetricsRegistryTest {
+
+	/**
+	 * Derby in-memory database URL.
+	 */
+	private static final String URL = "jdbc:derby:memory:metricsdb;create=true";
+
+	/**
+	 * JDBC connection.
+	 */
+	private Connection conn;
+
+	/**
+	 * Registry under test.
+	 */
+	private StatementMetricsRegistry registry;
+
+	/**
+	 * Set up the test fixture - creates an empty ITEM table.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Before
+	public void setUp() throws SQLException {
+		conn = DriverManager.getConnection(URL);
+		Statement stmt = conn.createStatement();
+		try {
+			stmt.executeUpdate("CREATE TABLE ITEM (ID INT PRIMARY KEY)");
+		} catch (SQLException e) {
+			stmt.executeUpdate("DELETE FROM ITEM");
+		} finally {
+			DbUtils.closeQuietly(stmt);
+		}
+		registry = new StatementMetricsRegistry(10);
+		StatementFactory.setMetricsRegistry(registry);
+	}
+
+	/**
+	 * Close the connection and stop gathering metrics.
+	 */
+	@After
+	public void tearDown() {
+		StatementFactory.setMetricsRegistry(null);
+		DbUtils.closeQuietly(conn);
+	}
+
+	/**
+	 * Test that statements created with DebugLevel OFF report executions,
+	 * errors, rows affected and rows fetched.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testMetrics() throws SQLException {
+		String insertSql = "INSERT INTO ITEM (ID) VALUES (?)";
+		PreparedStatement insert = StatementFactory.getStatement(conn,
+		    insertSql, new BaseSqlFormatter(), DebugLevel.OFF);
+		try {
+			for (int i = 0; i < 5; i++) {
+				insert.setInt(1, i);
+				insert.executeUpdate();
+			}
+			insert.setInt(1, 0);
+			insert.executeUpdate();
+			fail("Expected duplicate key error");
+		} catch (SQLException e) {
+			assertEquals("23505", e.getSQLState());
+		} finally {
+			DbUtils.closeQuietly(insert);
+		}
+
+		PreparedStatement query = StatementFactory.getStatement(conn,
+		    "SELECT ID\n  FROM   ITEM", new BaseSqlFormatter(),
+		    DebugLevel.OFF);
+		try {
+			ResultSet rs = query.executeQuery();
+			while (rs.next()) {
+				rs.getInt(1);
+			}
+			rs.close();
+		} finally {
+			DbUtils.closeQuietly(query);
+		}
+
+		StatementMetrics insertMetrics = registry.getMetrics(insertSql);
+		assertEquals(6, insertMetrics.getExecutions());
+		assertEquals(1, insertMetrics.getErrors());
+		assertEquals(5, insertMetrics.getRowsAffected());
+		assertEquals(6, insertMetrics.getLatency().getCount());
+		assertTrue(insertMetrics.getLatency().getP99() > 0);
+
+		StatementMetrics queryMetrics =
+		    registry.getMetrics("SELECT ID FROM ITEM");
+		assertEquals(1, queryMetrics.getExecutions());
+		assertEquals(5, queryMetrics.getRowsFetched());
+		assertEquals(2, registry.getAll().size());
+	}
+
+	/**
+	 * Test that statements beyond the registry's limit are aggregated.
+	 */
+	@Test
+	public void testOverflow() {
+		for (int i = 0; i < 10; i++) {
+			registry.getMetrics("SELECT C" + i + " FROM ITEM");
+		}
+		StatementMetrics overflow = registry.getMetrics("SELECT C42 FROM ITEM");
+		assertEquals(StatementMetricsRegistry.OVERFLOW_SQL, overflow.getSql());
+		assertSame(overflow, registry.getMetrics("SELECT C43 FROM ITEM"));
+	}
+}
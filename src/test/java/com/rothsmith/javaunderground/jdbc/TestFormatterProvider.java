@@ -0,0 +1,28 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.javaunderground.jdbc;
+
+/**
+ * {@link SqlFormatterProvider} registered through
+ * <code>META-INF/services</code> for the tests: formats "Test DB" versions 2
+ * and 3 like PostgreSQL.
+ * 
+ * @author drothauser
+ * 
+ */
+public class TestFormatterProvider extends PatternFormatterProvider {
+
+	/**
+	 * Product name of the test database.
+	 */
+	public static final String PRODUCT_NAME = "Test DB";
+
+	/**
+	 * Constructor.
+	 */
+	public TestFormatterProvider() {
+		super(PRODUCT_NAME, 2, 3, PostgreSqlFormatter::new);
+	}
+
+}
@@ -0,0 +1,265 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.utils.database;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import com.rothsmith.utils.database.jboss.JBossBasicDataSourceFactory;
+import com.rothsmith.utils.database.jboss.JBossDatasourceParser;
+import com.rothsmith.utils.database.tomcat.TomcatBasicDataSourceFactory;
+import com.rothsmith.utils.database.tomcat.TomcatDatasourceParser;
+
+/**
+ * JMH benchmark comparing the streaming {@link TomcatDatasourceParser} and
+ * {@link JBossDatasourceParser} against the XPath over DOM implementation
+ * they replaced, on generated files with a given number of datasources. It
+ * is not run as part of the unit tests; run it with:
+ * 
+ * <pre>
+ * java -cp target/test-classes:&lt;test classpath&gt; \
+ *     com.rothsmith.utils.database.DatasourceParserBenchmark
+ * </pre>
+ * 
+ * @author drothauser
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("PMD")
+public class DatasourceParserBenchmark {
+
+	/**
+	 * Tomcat parser under test.
+	 */
+	private static final DatasourceParser TOMCAT_PARSER =
+	    new TomcatDatasourceParser();
+
+	/**
+	 * JBoss parser under test.
+	 */
+	private static final DatasourceParser JBOSS_PARSER =
+	    new JBossDatasourceParser();
+
+	/**
+	 * Number of datasources in the generated files.
+	 */
+	@Param({ "10", "1000" })
+	private int datasources;
+
+	/**
+	 * Generated Tomcat context.xml.
+	 */
+	private File contextFile;
+
+	/**
+	 * Generated JBoss -ds.xml.
+	 */
+	private File dsFile;
+
+	/**
+	 * Generates the datasource files.
+	 * 
+	 * @throws IOException
+	 *             possible I/O error
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		StringBuilder context = new StringBuilder("<Context>\n");
+		StringBuilder ds = new StringBuilder("<datasources>\n");
+		for (int i = 0; i < datasources; i++) {
+			context.append("  <Resource name=\"jdbc/Bench").append(i)
+			    .append("DS\" auth=\"Container\"")
+			    .append(" type=\"javax.sql.DataSource\"")
+			    .append(" driverClassName=\"oracle.jdbc.OracleDriver\"")
+			    .append(" url=\"jdbc:oracle:thin:@db:1521/bench\"")
+			    .append(" username=\"bench\" password=\"bench\"")
+			    .append(" maxActive=\"20\" maxIdle=\"10\"")
+			    .append(" validationQuery=\"SELECT 1 FROM DUAL\" />\n");
+			ds.append("  <local-tx-datasource>\n")
+			    .append("    <jndi-name>Bench").append(i)
+			    .append("DS</jndi-name>\n")
+			    .append("    <connection-url>jdbc:oracle:thin:@db:1521/bench")
+			    .append("</connection-url>\n")
+			    .append("    <driver-class>oracle.jdbc.OracleDriver")
+			    .append("</driver-class>\n")
+			    .append("    <user-name>bench</user-name>\n")
+			    .append("    <password>bench</password>\n")
+			    .append("    <max-pool-size>20</max-pool-size>\n")
+			    .append("    <check-valid-connection-sql>SELECT 1 FROM DUAL")
+			    .append("</check-valid-connection-sql>\n")
+			    .append("    <connection-property name=\"autoCommit\">false")
+			    .append("</connection-property>\n")
+			    .append("  </local-tx-datasource>\n");
+		}
+		contextFile = File.createTempFile("bench-context", ".xml");
+		FileUtils.write(contextFile, context.append("</Context>\n"),
+		    StandardCharsets.UTF_8);
+		dsFile = File.createTempFile("bench", "-ds.xml");
+		FileUtils.write(dsFile, ds.append("</datasources>\n"),
+		    StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Deletes the datasource files.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		FileUtils.deleteQuietly(contextFile);
+		FileUtils.deleteQuietly(dsFile);
+	}
+
+	/**
+	 * @return parsed datasources
+	 */
+	@Benchmark
+	public Map<String, BasicDataSource> tomcatStax() {
+		return TOMCAT_PARSER.parse(contextFile);
+	}
+
+	/**
+	 * @return parsed datasources
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Benchmark
+	public Map<String, BasicDataSource> tomcatXPath() throws Exception {
+		XPath xpath = XPathFactory.newInstance().newXPath();
+		// the replaced code never closed the stream; closed here so the
+		// benchmark doesn't run out of file handles
+		try (InputStream in = new FileInputStream(contextFile)) {
+			NodeList nodes = (NodeList) xpath.evaluate(
+			    "//Resource[@type='javax.sql.DataSource']",
+			    new InputSource(in), XPathConstants.NODESET);
+			Map<String, BasicDataSource> dsMap =
+			    new HashMap<String, BasicDataSource>();
+			for (int i = 0; i < nodes.getLength(); i++) {
+				Map<String, String> dsPropertyMap =
+				    new HashMap<String, String>();
+				String dsName = null;
+				NamedNodeMap attributes = nodes.item(i).getAttributes();
+				for (int j = 0; j < attributes.getLength(); j++) {
+					Node attribute = attributes.item(j);
+					String propValue = attribute.getNodeValue();
+					if (StringUtils.startsWith(
+					    StringUtils.lowerCase(propValue), "jdbc/")) {
+						dsName = StringUtils.substringAfter(propValue, "jdbc/");
+					} else {
+						dsPropertyMap.put(attribute.getNodeName(), propValue);
+					}
+				}
+				if (dsName != null) {
+					dsMap.put(dsName, TomcatBasicDataSourceFactory.INSTANCE
+					    .createBasicDataSource(dsPropertyMap));
+				}
+			}
+			return dsMap;
+		}
+	}
+
+	/**
+	 * @return parsed datasources
+	 */
+	@Benchmark
+	public Map<String, BasicDataSource> jbossStax() {
+		return JBOSS_PARSER.parse(dsFile);
+	}
+
+	/**
+	 * @return parsed datasources
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Benchmark
+	public Map<String, BasicDataSource> jbossXPath() throws Exception {
+		XPath xpath = XPathFactory.newInstance().newXPath();
+		try (InputStream in = new FileInputStream(dsFile)) {
+			NodeList nodes = (NodeList) xpath.evaluate(
+			    "/datasources/local-tx-datasource", new InputSource(in),
+			    XPathConstants.NODESET);
+			Map<String, BasicDataSource> dsMap =
+			    new HashMap<String, BasicDataSource>();
+			for (int i = 0; i < nodes.getLength(); i++) {
+				Map<String, String> dsPropertyMap =
+				    new HashMap<String, String>();
+				String dsName = null;
+				NodeList childNodes = nodes.item(i).getChildNodes();
+				for (int j = 0; j < childNodes.getLength(); j++) {
+					Node childNode = childNodes.item(j);
+					if (childNode.getNodeType() != Node.ELEMENT_NODE) {
+						continue;
+					}
+					String propName = childNode.getNodeName();
+					String propValue =
+					    StringUtils.trim(childNode.getTextContent());
+					if ("jndi-name".equalsIgnoreCase(propName)) {
+						dsName = propValue;
+					} else if ("connection-property"
+					    .equalsIgnoreCase(propName)) {
+						dsPropertyMap.put("defaultAutoCommit", propValue);
+					} else {
+						dsPropertyMap.put(propName, propValue);
+					}
+				}
+				if (dsName != null) {
+					dsMap.put(dsName, JBossBasicDataSourceFactory.INSTANCE
+					    .createBasicDataSource(dsPropertyMap));
+				}
+			}
+			return dsMap;
+		}
+	}
+
+	/**
+	 * Run the benchmark.
+	 * 
+	 * @param args
+	 *            not used
+	 * @throws RunnerException
+	 *             possible JMH error
+	 */
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+		    .include(DatasourceParserBenchmark.class.getSimpleName())
+		    .build()).run();
+	}
+}
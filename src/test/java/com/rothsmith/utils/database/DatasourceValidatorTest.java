@@ -0,0 +1,380 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.utils.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.junit.After;
+import org.junit.Test;
+
+import com.rothsmith.utils.database.DatasourceValidator.Mode;
+import com.rothsmith.utils.database.ValidationReport.Result;
+import com.rothsmith.utils.database.ValidationReport.Status;
+
+/**
+ * Tests for {@link DatasourceValidator}, using Derby in-memory databases and
+ * datasources that are slow to connect.
+ * 
+ * @author drothauser
+ * 
+ */
+public class DatasourceValidatorTest {
+
+	/**
+	 * Datasources to validate, in order.
+	 */
+	private final Map<String, BasicDataSource> dsMap =
+	    new LinkedHashMap<String, BasicDataSource>();
+
+	/**
+	 * Closes the datasources.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@After
+	public void tearDown() throws SQLException {
+		for (BasicDataSource bds : dsMap.values()) {
+			bds.close();
+		}
+	}
+
+	/**
+	 * Creates a datasource for a Derby in-memory database.
+	 * 
+	 * @param bds
+	 *            the datasource
+	 * @param url
+	 *            JDBC URL
+	 * @return the datasource
+	 */
+	private static BasicDataSource derby(BasicDataSource bds, String url) {
+		bds.setDriverClassName("org.apache.derby.jdbc.EmbeddedDriver");
+		bds.setUrl(url);
+		return bds;
+	}
+
+	/**
+	 * Test a report with an OK, a failing and a hanging datasource.
+	 */
+	@Test
+	public void testValidate() {
+		dsMap.put("GoodDS", derby(new BasicDataSource(),
+		    "jdbc:derby:memory:validatordb;create=true"));
+		dsMap.put("MissingDS", derby(new BasicDataSource(),
+		    "jdbc:derby:memory:missingvalidatordb"));
+		dsMap.put("HangingDS", derby(new SlowDataSource(60000),
+		    "jdbc:derby:memory:validatordb;create=true"));
+
+		ValidationReport report = new DatasourceValidator(4, 2000, 10000,
+		    TimeUnit.MILLISECONDS, Mode.POOL).validate(dsMap);
+
+		assertFalse(report.isOk());
+		List<Result> results = report.getResults();
+		assertEquals(3, results.size());
+		assertEquals("GoodDS", results.get(0).getName());
+		assertEquals(Status.OK, results.get(0).getStatus());
+		assertEquals(Status.FAILED, results.get(1).getStatus());
+		assertTrue(results.get(1).getError().contains("missingvalidatordb"));
+		assertEquals(Status.TIMED_OUT, results.get(2).getStatus());
+		assertTrue(results.get(2).getLatency(TimeUnit.MILLISECONDS) >= 2000);
+		assertEquals(2, report.getFailures().size());
+		assertTrue(report.toString().contains("HangingDS"));
+	}
+
+	/**
+	 * Test that datasources are validated in parallel: each connect waits
+	 * until all of them have started, which only succeeds if they overlap.
+	 */
+	@Test
+	public void testParallel() {
+		CountDownLatch connecting = new CountDownLatch(4);
+		for (int i = 0; i < 4; i++) {
+			dsMap.put("SlowDS" + i, derby(new OverlappingDataSource(connecting),
+			    "jdbc:derby:memory:validatordb;create=true"));
+		}
+
+		ValidationReport report = new DatasourceValidator(4, 10000, 10000,
+		    TimeUnit.MILLISECONDS, Mode.POOL).validate(dsMap);
+
+		assertTrue(report.toString(), report.isOk());
+	}
+
+	/**
+	 * Test that the overall timeout stops the validation.
+	 */
+	@Test
+	public void testOverallTimeout() {
+		dsMap.put("HangingDS", derby(new SlowDataSource(60000),
+		    "jdbc:derby:memory:validatordb;create=true"));
+		dsMap.put("WaitingDS", derby(new BasicDataSource(),
+		    "jdbc:derby:memory:validatordb;create=true"));
+
+		ValidationReport report = new DatasourceValidator(1, 10000, 300,
+		    TimeUnit.MILLISECONDS, Mode.POOL).validate(dsMap);
+
+		assertEquals(Status.TIMED_OUT,
+		    report.getResults().get(0).getStatus());
+		assertEquals(Status.SKIPPED, report.getResults().get(1).getStatus());
+	}
+
+	/**
+	 * Test validating with a connection opened with the JDBC driver, with and
+	 * without a validation query, and that the pools aren't initialized.
+	 * 
+	 * @throws SQLException
+	 *             possible SQL error
+	 */
+	@Test
+	public void testDriverMode() throws SQLException {
+		BasicDataSource queryDs = derby(new BasicDataSource(),
+		    "jdbc:derby:memory:validatordb;create=true");
+		queryDs.setValidationQuery("VALUES 1");
+		dsMap.put("QueryDS", queryDs);
+		dsMap.put("IsValidDS", derby(new BasicDataSource(),
+		    "jdbc:derby:memory:validatordb;create=true"));
+		BasicDataSource badQueryDs = derby(new BasicDataSource(),
+		    "jdbc:derby:memory:validatordb;create=true");
+		badQueryDs.setValidationQuery("SELECT * FROM NO_SUCH_TABLE");
+		dsMap.put("BadQueryDS", badQueryDs);
+		BasicDataSource badDriverDs = derby(new BasicDataSource(),
+		    "jdbc:derby:memory:validatordb;create=true");
+		badDriverDs.setDriverClassName("com.example.NoSuchDriver");
+		dsMap.put("BadDriverDS", badDriverDs);
+
+		ValidationReport report = new DatasourceValidator().validate(dsMap);
+
+		List<Result> results = report.getResults();
+		assertEquals(Status.OK, results.get(0).getStatus());
+		assertTrue(results.get(0).getRoundTrip(TimeUnit.NANOSECONDS) > 0);
+		assertEquals(Status.OK, results.get(1).getStatus());
+		assertTrue(results.get(1).getRoundTrip(TimeUnit.NANOSECONDS) > 0);
+		assertEquals(Status.FAILED, results.get(2).getStatus());
+		assertTrue(results.get(2).getError().contains("NO_SUCH_TABLE"));
+		assertEquals(Status.FAILED, results.get(3).getStatus());
+		assertTrue(results.get(3).getError().contains("NoSuchDriver"));
+		assertTrue(report.toString().contains("round trip"));
+		for (BasicDataSource bds : dsMap.values()) {
+			assertEquals(0, bds.getNumIdle() + bds.getNumActive());
+		}
+
+		new DatasourceValidator(1, 10000, 10000, TimeUnit.MILLISECONDS,
+		    Mode.POOL).validate(Collections.singletonMap("QueryDS", queryDs));
+		assertEquals(1, queryDs.getNumIdle());
+	}
+
+	/**
+	 * Test that checks whose connect ignores interrupts free their slot when
+	 * they time out, so the other datasources are still validated, and that
+	 * the timeout is passed to the driver.
+	 */
+	@Test
+	public void testUninterruptibleConnect() {
+		for (int i = 0; i < 2; i++) {
+			BasicDataSource hanging = new BasicDataSource();
+			hanging.setDriverClassName(HangingDriver.class.getName());
+			hanging.setUrl("jdbc:sqlserver://unreachable:1433");
+			dsMap.put("HangingDS" + i, hanging);
+		}
+		for (int i = 0; i < 2; i++) {
+			dsMap.put("GoodDS" + i, derby(new BasicDataSource(),
+			    "jdbc:derby:memory:validatordb;create=true"));
+		}
+
+		ValidationReport report = new DatasourceValidator(2, 500, 2500,
+		    TimeUnit.MILLISECONDS).validate(dsMap);
+
+		List<Result> results = report.getResults();
+		assertEquals(Status.TIMED_OUT, results.get(0).getStatus());
+		assertEquals(Status.TIMED_OUT, results.get(1).getStatus());
+		assertEquals(report.toString(), Status.OK,
+		    results.get(2).getStatus());
+		assertEquals(Status.OK, results.get(3).getStatus());
+		assertEquals("1", HangingDriver.info.getProperty("loginTimeout"));
+	}
+
+	/**
+	 * Test that invalid settings are rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidParallelism() {
+		new DatasourceValidator(0, 1, 1, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Datasource that takes a while to connect.
+	 */
+	private static final class SlowDataSource extends BasicDataSource {
+
+		/**
+		 * Milliseconds getting a connection takes.
+		 */
+		private final long delay;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param delay
+		 *            milliseconds getting a connection takes
+		 */
+		SlowDataSource(long delay) {
+			this.delay = delay;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Connection getConnection() throws SQLException {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted", e);
+			}
+			return super.getConnection();
+		}
+	}
+
+	/**
+	 * Datasource whose connect waits until the connects of a number of
+	 * datasources have all started, and fails if they don't overlap.
+	 */
+	private static final class OverlappingDataSource extends BasicDataSource {
+
+		/**
+		 * Counted down by every connect.
+		 */
+		private final CountDownLatch connecting;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param connecting
+		 *            latch counted down by every connect
+		 */
+		OverlappingDataSource(CountDownLatch connecting) {
+			this.connecting = connecting;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Connection getConnection() throws SQLException {
+			connecting.countDown();
+			try {
+				if (!connecting.await(5, TimeUnit.SECONDS)) {
+					throw new SQLException("Connects didn't overlap");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted", e);
+			}
+			return super.getConnection();
+		}
+	}
+
+	/**
+	 * JDBC driver whose connect hangs for a while, ignoring interrupts (like
+	 * a socket connect to an unreachable host), and then fails.
+	 */
+	public static final class HangingDriver implements Driver {
+
+		/**
+		 * Connection properties of the last connect.
+		 */
+		private static volatile Properties info;
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Connection connect(String url, Properties properties)
+		        throws SQLException {
+			info = properties;
+			long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+			boolean interrupted = false;
+			long remaining;
+			while ((remaining = end - System.nanoTime()) > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(remaining);
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			throw new SQLException("Connect to " + url + " timed out");
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean acceptsURL(String url) {
+			return true;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public DriverPropertyInfo[] getPropertyInfo(String url,
+		    Properties properties) {
+			return new DriverPropertyInfo[0];
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int getMajorVersion() {
+			return 1;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int getMinorVersion() {
+			return 0;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean jdbcCompliant() {
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Logger getParentLogger()
+		        throws SQLFeatureNotSupportedException {
+			throw new SQLFeatureNotSupportedException();
+		}
+	}
+}
@@ -40,6 +40,11 @@ public class JDBCJndiNameNormalizerTest {
 	 */
 	private final String jndiName;
 
+	/**
+	 * Expected normalized name (null if the name is blank).
+	 */
+	private final String expected;
+
 	/**
 	 * Base JNDI datasource name for testing.
 	 */
@@ -53,16 +58,31 @@ public class JDBCJndiNameNormalizerTest {
 	    new JDBCJndiNameNormalizer();
 
 	/**
-	 * @return JNDI names to test. *
+	 * Regular expression the normalizer used to be implemented with.
+	 */
+	private static final String REGEX = "(.*?)(?=[^/|:]+$)";
+
+	/**
+	 * Normalized form of {@link #DSNAME}.
+	 */
+	private static final String NORMALIZED = "java:/comp/env/jdbc/" + DSNAME;
+
+	/**
+	 * @return JNDI names to test and their expected normalized names. *
 	 */
 	@Parameterized.Parameters
 	public static Collection<Object[]> createTestVals() {
-		return Arrays
-		    .asList(new Object[][] { { "java:/comp/env/jdbc/" + DSNAME },
-		        { "comp/env/jdbc/" + DSNAME }, { "/comp/env/jdbc/" + DSNAME },
-		        { "jdbc/" + DSNAME }, { "/jdbc/" + DSNAME },
-		        { "java:/jdbc/" + DSNAME }, { DSNAME }, { "Java:" + DSNAME },
-		        { "Java:/" + DSNAME }, { null }, { "" }, { " " } });
+		return Arrays.asList(new Object[][] {
+		    { "java:/comp/env/jdbc/" + DSNAME, NORMALIZED },
+		    { "comp/env/jdbc/" + DSNAME, NORMALIZED },
+		    { "/comp/env/jdbc/" + DSNAME, NORMALIZED },
+		    { "jdbc/" + DSNAME, NORMALIZED }, { "/jdbc/" + DSNAME, NORMALIZED },
+		    { "java:/jdbc/" + DSNAME, NORMALIZED }, { DSNAME, NORMALIZED },
+		    { "Java:" + DSNAME, NORMALIZED }, { "Java:/" + DSNAME, NORMALIZED },
+		    { "jdbc|" + DSNAME, NORMALIZED }, { "jdbc/", "jdbc/" },
+		    { "jdbc\n/" + DSNAME, "jdbc\n" + NORMALIZED },
+		    { DSNAME + "\n", NORMALIZED + "\n" }, { null, null }, { "", null },
+		    { " ", null } });
 	}
 
 	/**
@@ -70,10 +90,14 @@ public class JDBCJndiNameNormalizerTest {
 	 * 
 	 * @param jndiName
 	 *            JNDI name to test
+	 * @param expected
+	 *            expected normalized name
 	 */
-	public JDBCJndiNameNormalizerTest(final String jndiName) {
+	public JDBCJndiNameNormalizerTest(final String jndiName,
+	    final String expected) {
 
 		this.jndiName = jndiName;
+		this.expected = expected;
 	}
 
 	/**
@@ -98,7 +122,10 @@ public class JDBCJndiNameNormalizerTest {
 			LOGGER.info("raw JNDI name: " + jndiName);
 			LOGGER.info("normalized JNDI name: " + normalized);
 
-			assertEquals("java:/comp/env/jdbc/" + DSNAME, normalized);
+			assertEquals(expected, normalized);
+			// same result as the regular expression it replaces
+			assertEquals(jndiName.replaceFirst(REGEX, "java:/comp/env/jdbc/"),
+			    normalized);
 
 		}
 
@@ -0,0 +1,175 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.utils.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.junit.Test;
+
+/**
+ * Tests for the caching of {@link JDBCServiceLocator}, with a lookup that
+ * counts its calls instead of JNDI.
+ * 
+ * @author drothauser
+ * 
+ */
+public class JDBCServiceLocatorTest {
+
+	/**
+	 * Number of lookups performed.
+	 */
+	private final AtomicInteger lookups = new AtomicInteger();
+
+	/**
+	 * Test that concurrent first calls perform a single lookup and that
+	 * equivalent names share the cached datasource.
+	 * 
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	public void testSingleLookup() throws Exception {
+		JDBCServiceLocator locator = new JDBCServiceLocator(name -> {
+			lookups.incrementAndGet();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return new BasicDataSource();
+		});
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<DataSource>> futures =
+			    new ArrayList<Future<DataSource>>();
+			for (int i = 0; i < 8; i++) {
+				Callable<DataSource> call =
+				    () -> locator.getDataSource("java:/jdbc/TestDS");
+				futures.add(executor.submit(call));
+			}
+			DataSource dataSource = futures.get(0).get();
+			for (Future<DataSource> future : futures) {
+				assertSame(dataSource, future.get());
+			}
+			assertSame(dataSource, locator.getDataSource("TestDS"));
+			assertEquals(1, lookups.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Test that a failed lookup is cached for the negative TTL.
+	 * 
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	public void testNegativeCaching() throws Exception {
+		JDBCServiceLocator locator = new JDBCServiceLocator(name -> {
+			if (lookups.incrementAndGet() < 3) {
+				throw new NameNotFoundException(name);
+			}
+			return new BasicDataSource();
+		});
+		locator.setNegativeTtl(100, TimeUnit.MILLISECONDS);
+		assertEquals(100, locator.getNegativeTtl(TimeUnit.MILLISECONDS));
+
+		for (int i = 0; i < 3; i++) {
+			try {
+				locator.getDataSource("MissingDS");
+				fail("Found a missing datasource");
+			} catch (NameNotFoundException e) {
+				assertEquals(1, lookups.get());
+			}
+		}
+
+		// without a negative TTL every call looks the datasource up
+		Thread.sleep(150);
+		locator.setNegativeTtl(0, TimeUnit.MILLISECONDS);
+		try {
+			locator.getDataSource("MissingDS");
+			fail("Found a missing datasource");
+		} catch (NameNotFoundException e) {
+			assertEquals(2, lookups.get());
+		}
+		assertTrue(locator.getDataSource("MissingDS") != null);
+		assertEquals(3, lookups.get());
+	}
+
+	/**
+	 * Test refreshing (on the calling thread and on an executor) and
+	 * invalidating a cached datasource.
+	 * 
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	public void testRefresh() throws Exception {
+		JDBCServiceLocator locator = new JDBCServiceLocator(name -> {
+			if (lookups.incrementAndGet() == 3) {
+				throw new NamingException("unavailable");
+			}
+			return new BasicDataSource();
+		});
+		DataSource first = locator.getDataSource("RefreshDS");
+		DataSource second = locator.refresh("RefreshDS");
+		assertNotSame(first, second);
+		assertSame(second, locator.getDataSource("RefreshDS"));
+
+		// a failed refresh keeps the cached datasource
+		try {
+			locator.refresh("RefreshDS");
+			fail("Refresh didn't fail");
+		} catch (NamingException e) {
+			assertEquals("unavailable", e.getMessage());
+		}
+		assertSame(second, locator.getDataSource("RefreshDS"));
+
+		// refresh on an executor of the caller's
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		DataSource third;
+		try {
+			third = locator.refresh("RefreshDS", executor).get();
+		} finally {
+			executor.shutdown();
+		}
+		assertNotSame(second, third);
+		assertSame(third, locator.getDataSource("RefreshDS"));
+
+		locator.invalidate("RefreshDS");
+		assertNotSame(third, locator.getDataSource("RefreshDS"));
+		assertEquals(5, lookups.get());
+	}
+
+	/**
+	 * Test that a blank name is rejected.
+	 * 
+	 * @throws NamingException
+	 *             possible JNDI error
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testBlankName() throws NamingException {
+		new JDBCServiceLocator(name -> null).getDataSource(" ");
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.utils.database;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark comparing {@link JDBCJndiNameNormalizer} against the
+ * {@link String#replaceFirst(String, String)} implementation it replaced. It
+ * is not run as part of the unit tests; run it with:
+ * 
+ * <pre>
+ * java -cp target/test-classes:&lt;test classpath&gt; \
+ *     com.rothsmith.utils.database.JndiNameNormalizerBenchmark
+ * </pre>
+ * 
+ * @author drothauser
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("PMD")
+public class JndiNameNormalizerBenchmark {
+
+	/**
+	 * Normalizer under test.
+	 */
+	private static final JndiNameNormalizer NORMALIZER =
+	    new JDBCJndiNameNormalizer();
+
+	/**
+	 * JNDI name to normalize.
+	 */
+	@Param({ "java:/comp/env/jdbc/Dv03OracleDS", "java:/jdbc/Dv03OracleDS",
+	    "Dv03OracleDS" })
+	private String jndiName;
+
+	/**
+	 * @return normalized name
+	 */
+	@Benchmark
+	public String regex() {
+		return jndiName.replaceFirst("(.*?)(?=[^/|:]+$)",
+		    "java:/comp/env/jdbc/");
+	}
+
+	/**
+	 * @return normalized name
+	 */
+	@Benchmark
+	public String normalizer() {
+		return NORMALIZER.normalize(jndiName);
+	}
+
+	/**
+	 * Run the benchmark.
+	 * 
+	 * @param args
+	 *            not used
+	 * @throws RunnerException
+	 *             possible JMH error
+	 */
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+		    .include(JndiNameNormalizerBenchmark.class.getSimpleName())
+		    .build()).run();
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * (c) 2016 Rothsmith, LLC All Rights Reserved.
+ */
+package com.rothsmith.utils.database.jboss;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.rothsmith.utils.database.DatasourceParser;
+import com.rothsmith.utils.database.DatasourceParserException;
+
+/**
+ * Tests for {@link JBossDatasourceParser} that don't connect to the
+ * datasources.
+ * 
+ * @author drothauser
+ * 
+ */
+public class JBossDatasourceParserTest {
+
+	/**
+	 * Folder for generated datasource files.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * {@link DatasourceParser} to test.
+	 */
+	private final DatasourceParser datasourceParser =
+	    new JBossDatasourceParser();
+
+	/**
+	 * Test method for {@link JBossDatasourceParser#parse(File)}.
+	 */
+	@Test
+	public void testParse() {
+
+		URL url = ClassLoader.getSystemResource("datasources.xml");
+		Map<String, BasicDataSource> dsMap =
+		    datasourceParser.parse(new File(url.getFile()));
+
+		assertEquals(3, dsMap.size());
+		BasicDataSource bds = dsMap.get("Pph1PhoenixOracleDS");
+		assertEquals("oracle.jdbc.driver.OracleDriver",
+		    bds.getDriverClassName());
+		assertEquals("reporting", bds.getUsername());
+		assertFalse(bds.getDefaultAutoCommit());
+		// CHECKSTYLE:OFF Magic number ok here
+		assertEquals(10, bds.getMaxActive());
+		// CHECKSTYLE:ON
+		assertEquals("select current_date from qsys2/qsqptabl",
+		    dsMap.get("WcAS400DS").getValidationQuery());
+		assertTrue(dsMap.get("ImageRightMsSqlDS").getDefaultAutoCommit());
+	}
+
+	/**
+	 * Test that text in CDATA sections and around comments is read and that
+	 * only {@code local-tx-datasource} children of the root are datasources.
+	 * 
+	 * @throws IOException
+	 *             possible I/O error
+	 */
+	@Test
+	public void testParseText() throws IOException {
+
+		File datasourceFile = folder.newFile("text-ds.xml");
+		FileUtils.write(datasourceFile, "<datasources>\n"
+		    + "  <local-tx-datasource>\n"
+		    + "    <jndi-name> TextDS </jndi-name>\n"
+		    + "    <connection-url><![CDATA[jdbc:x:a&b]]></connection-url>\n"
+		    + "    <user-name>us<!-- comment -->er</user-name>\n"
+		    + "  </local-tx-datasource>\n"
+		    + "  <other><local-tx-datasource>\n"
+		    + "    <jndi-name>NestedDS</jndi-name>\n"
+		    + "  </local-tx-datasource></other>\n"
+		    + "</datasources>\n", StandardCharsets.UTF_8);
+
+		Map<String, BasicDataSource> dsMap =
+		    datasourceParser.parse(datasourceFile);
+
+		assertEquals(1, dsMap.size());
+		BasicDataSource bds = dsMap.get("TextDS");
+		assertEquals("jdbc:x:a&b", bds.getUrl());
+		assertEquals("user", bds.getUsername());
+	}
+
+	/**
+	 * Test method for {@link JBossDatasourceParser#parse(File)} using a file
+	 * that isn't well-formed.
+	 * 
+	 * @throws IOException
+	 *             possible I/O error
+	 */
+	@Test(expected = DatasourceParserException.class)
+	public void testParseMalformed() throws IOException {
+
+		File datasourceFile = folder.newFile("malformed-ds.xml");
+		FileUtils.write(datasourceFile,
+		    "<datasources><local-tx-datasource></datasources>",
+		    StandardCharsets.UTF_8);
+
+		datasourceParser.parse(datasourceFile);
+	}
+}
@@ -5,6 +5,7 @@ package com.rothsmith.utils.database.tomcat;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.net.URL;
@@ -65,15 +66,42 @@ public class TomcatDatasourceParserTest {
 				// CHECKSTYLE:OFF Magic number ok there
 				assertEquals(21, bds.getMaxActive());
 				// CHECKSTYLE:ON
+				// prepared statement pooling is off unless configured
+				assertFalse(bds.isPoolPreparedStatements());
 			}
 			if ("OdsOracleDS".equals(jndiName)) {
 				// CHECKSTYLE:OFF Magic number ok there
 				assertEquals(19, bds.getMaxActive());
+				assertEquals(100, bds.getMaxOpenPreparedStatements());
 				// CHECKSTYLE:ON
+				assertTrue(bds.isPoolPreparedStatements());
 			}
 		}
 	}
 
+	/**
+	 * Test method for {@link TomcatDatasourceParser#parse(File)} with a
+	 * server.xml, whose datasources are nested in GlobalNamingResources.
+	 */
+	@Test
+	public void testParseServerXml() {
+
+		URL url = ClassLoader.getSystemResource("server.xml");
+		File datasourceFile = new File(url.getFile());
+
+		Map<String, BasicDataSource> dsMap =
+			datasourceParser.parse(datasourceFile);
+
+		// CHECKSTYLE:OFF Magic number ok there
+		assertEquals(14, dsMap.size());
+		// CHECKSTYLE:ON
+		assertFalse(dsMap.containsKey("mail/Session"));
+		BasicDataSource bds = dsMap.get("OdsOracleDS");
+		assertEquals("oracle.jdbc.driver.OracleDriver",
+		    bds.getDriverClassName());
+		assertEquals("SELECT 1 FROM DUAL", bds.getValidationQuery());
+	}
+
 	/**
 	 * Test method for {@link ValidatingDatasourceParser#parse(File)}.
 	 */